@@ -0,0 +1,106 @@
+package publicationRefDb;
+
+import java.util.Arrays;
+
+/**
+ * A class of citation metrics of one author (a key of the author index, e.g. M. L. King), as computed by 
+ * AuthorMetricsTable.  The metrics are those of all publications under the key : authors with the same initials and
+ * last name (e.g. Adams, Douglas and Adams, Dirk) are one author here, whereas RefDb.getCitationIndex() only counts
+ * the publications of the given full name :
+ * 	-> nbPublications : the number of publications of the author
+ * 	-> nbCitations : the number of citators of all publications of the author
+ * 	-> weightedCitations : the sum of the citation scores of those citators
+ * 	-> hIndex : the largest h such that h publications of the author have at least h citators each
+ * 	-> gIndex : the largest g such that the g most cited publications of the author have at least g*g citators 
+ * 				together (g is at most the number of publications)
+ */
+public final class AuthorMetrics {
+
+	AuthorMetrics(String authorKey, int nbPublications, long nbCitations, double weightedCitations, int hIndex,
+			int gIndex) {
+		this.authorKey = authorKey;
+		this.nbPublications = nbPublications;
+		this.nbCitations = nbCitations;
+		this.weightedCitations = weightedCitations;
+		this.hIndex = hIndex;
+		this.gIndex = gIndex;
+	}
+
+	private final String authorKey;
+	private final int nbPublications;
+	private final long nbCitations;
+	private final double weightedCitations;
+	private final int hIndex;
+	private final int gIndex;
+
+	/**
+	 * get the key of the author in the author index
+	 */
+	public String getAuthorKey() {
+		return authorKey;
+	}
+
+	/**
+	 * get the number of publications of the author
+	 */
+	public int getNbPublications() {
+		return nbPublications;
+	}
+
+	/**
+	 * get the number of citators of all publications of the author
+	 */
+	public long getNbCitations() {
+		return nbCitations;
+	}
+
+	/**
+	 * get the sum of the citation scores of the citators of all publications of the author
+	 */
+	public double getWeightedCitations() {
+		return weightedCitations;
+	}
+
+	/**
+	 * get the h-index of the author
+	 */
+	public int getHIndex() {
+		return hIndex;
+	}
+
+	/**
+	 * get the g-index of the author
+	 */
+	public int getGIndex() {
+		return gIndex;
+	}
+
+	/**
+	 * compute the h-index and g-index of the given numbers of citators per publication
+	 * 
+	 * @param 	counts
+	 * 			the number of citators of every publication (sorted in place)
+	 * @return	{ h-index, g-index }
+	 */
+	static int[] computeIndexes(int[] counts) {
+		Arrays.sort(counts);
+		int n = counts.length;
+		int hIndex = 0;
+		while (hIndex < n && counts[n - 1 - hIndex] >= hIndex + 1)
+			hIndex++;
+		int gIndex = 0;
+		long sum = 0;
+		for (int g = 1; g <= n; g++) {
+			sum += counts[n - g];
+			if (sum >= (long) g * g)
+				gIndex = g;
+		}
+		return new int[] { hIndex, gIndex };
+	}
+
+	@Override
+	public String toString() {
+		return authorKey + " : " + nbPublications + " publications, " + nbCitations + " citations (weighted "
+				+ weightedCitations + "), h-index " + hIndex + ", g-index " + gIndex;
+	}
+}
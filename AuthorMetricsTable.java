@@ -0,0 +1,295 @@
+package publicationRefDb;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A class of tables with the citation metrics (AuthorMetrics) of every author of a reference database :
+ * h-index, g-index, number of citations and weighted citations per key of the author index (so the homonyms under
+ * one key, e.g. Adams, Douglas and Adams, Dirk under D. Adams, are counted as one author).
+ *
+ * refreshAll() computes the table in one parallel pass : the number of citators and the weighted citations of every
+ * publication are gathered once into primitive arrays, then the author index is walked once, in parallel over
+ * the authors, without the defensive copies of the public getters.
+ * The table follows the changes of the reference database (it is a change tracker) : the authors of touched
+ * publications are marked, and refreshIncremental() recomputes only those authors.  A change of the citation
+ * weight of a PublicationType needs a refreshAll().
+ *
+ * The metrics are stored compactly in parallel arrays, one slot per author.  Reading the table is thread safe;
+ * the reference database is not, so no changes may run while the table is refreshed.
+ *
+ * @invar	the fork join pool of a table is never null
+ */
+public final class AuthorMetricsTable implements RefDbChangeTracker {
+
+	/**
+	 * Initialise this new, empty table for the given reference database (call refreshAll() to fill it),
+	 * on the common fork join pool
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @post	the table follows the changes of the reference database until it is terminated
+	 */
+	public AuthorMetricsTable(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		this.pool = ForkJoinPool.commonPool();
+		resize(0);
+		refDb.addChangeTracker(this);
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * stop following the changes of the reference database
+	 */
+	public void terminate() {
+		refDb.removeChangeTracker(this);
+	}
+
+	/**
+	 * get the fork join pool on which the table is computed
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * set the fork join pool on which the table is computed
+	 *
+	 * @param 	pool
+	 * 			the fork join pool to use
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the pool is null
+	 */
+	public void setPool(ForkJoinPool pool) throws InputFieldNotSpecifiedException {
+		if (pool == null)
+			throw new InputFieldNotSpecifiedException();
+		this.pool = pool;
+	}
+
+	private volatile ForkJoinPool pool;
+
+	/**
+	 * get the metrics of the given author
+	 *
+	 * @param 	authorKey
+	 * 			the key of the author in the author index (e.g. M. L. King)
+	 * @return	the metrics of the author as last refreshed, or null if the author is not in the table
+	 */
+	public synchronized AuthorMetrics getMetrics(String authorKey) {
+		Integer slot = authorKey == null ? null : slots.get(authorKey);
+		if (slot == null)
+			return null;
+		return new AuthorMetrics(authorKeys[slot], nbPublications[slot], nbCitations[slot], weightedCitations[slot],
+				hIndexes[slot], gIndexes[slot]);
+	}
+
+	/**
+	 * get the number of authors in the table
+	 */
+	public synchronized int getNbAuthors() {
+		return slots.size();
+	}
+
+	/**
+	 * get the number of authors that changed since the last refresh
+	 */
+	public int getNbChangedAuthors() {
+		return changedAuthorKeys.size();
+	}
+
+	/**
+	 * compute the metrics of all authors of the reference database in one parallel pass
+	 */
+	public void refreshAll() {
+		takeChangedAuthorKeys();
+		Map<String, Publication> idTable = refDb.getIdTable();
+		RefDbIndex authorIndex = refDb.getAuthorIndexRaw();
+		String[] ids = idTable.keySet().toArray(new String[0]);
+		String[] keys = authorIndex.getIndex().keySet().toArray(new String[0]);
+		AuthorMetrics[] metrics = getPool().submit(() -> {
+			// the citators of every publication are gathered only once, whatever its number of authors
+			Map<String, Integer> positions = new HashMap<String, Integer>(ids.length * 2);
+			for (int i = 0; i < ids.length; i++)
+				positions.put(ids[i], i);
+			int[] counts = new int[ids.length];
+			double[] weights = new double[ids.length];
+			IntStream.range(0, ids.length).parallel().forEach(i -> {
+				Publication publication = idTable.get(ids[i]);
+				counts[i] = publication.citedBy.size();
+				weights[i] = getWeightedCitations(publication);
+			});
+			return IntStream.range(0, keys.length).parallel().mapToObj(a -> {
+				Set<String> idSet = authorIndex.getIdSetForKey(keys[a]);
+				int[] authorCounts = new int[idSet.size()];
+				double weighted = 0;
+				int nb = 0;
+				for (String id : idSet) {
+					int position = positions.get(id);
+					authorCounts[nb++] = counts[position];
+					weighted += weights[position];
+				}
+				return toMetrics(keys[a], authorCounts, weighted);
+			}).toArray(AuthorMetrics[]::new);
+		}).join();
+
+		synchronized (this) {
+			slots.clear();
+			resize(metrics.length);
+			nbUsedSlots = 0;
+			nbFreeSlots = 0;
+			for (AuthorMetrics authorMetrics : metrics)
+				store(authorMetrics);
+		}
+	}
+
+	/**
+	 * recompute the metrics of the authors that changed since the last refresh
+	 *
+	 * @return	the number of recomputed authors
+	 */
+	public int refreshIncremental() {
+		String[] keys = takeChangedAuthorKeys().toArray(new String[0]);
+		AuthorMetrics[] metrics = getPool()
+				.submit(() -> IntStream.range(0, keys.length).parallel().mapToObj(a -> computeMetrics(keys[a]))
+						.toArray(AuthorMetrics[]::new))
+				.join();
+		synchronized (this) {
+			for (int a = 0; a < keys.length; a++) {
+				if (metrics[a] == null)
+					remove(keys[a]);
+				else
+					store(metrics[a]);
+			}
+		}
+		return keys.length;
+	}
+
+	/**
+	 * compute the metrics of the given author from the current state of the reference database
+	 *
+	 * @return	the metrics of the author, or null if the author has no publications
+	 */
+	private AuthorMetrics computeMetrics(String authorKey) {
+		Set<String> idSet = refDb.getAuthorIndexRaw().getIdSetForKey(authorKey);
+		if (idSet == null || idSet.isEmpty())
+			return null;
+		int[] counts = new int[idSet.size()];
+		double weighted = 0;
+		int nb = 0;
+		for (String id : idSet) {
+			Publication publication = refDb.getIdTable().get(id);
+			counts[nb++] = publication.citedBy.size();
+			weighted += getWeightedCitations(publication);
+		}
+		return toMetrics(authorKey, counts, weighted);
+	}
+
+	private static double getWeightedCitations(Publication publication) {
+		double weighted = 0;
+		for (Publication citator : publication.citedBy)
+			weighted += citator.getCitationScore();
+		return weighted;
+	}
+
+	private static AuthorMetrics toMetrics(String authorKey, int[] counts, double weighted) {
+		long nbCitations = 0;
+		for (int count : counts)
+			nbCitations += count;
+		int[] indexes = AuthorMetrics.computeIndexes(counts);
+		return new AuthorMetrics(authorKey, counts.length, nbCitations, weighted, indexes[0], indexes[1]);
+	}
+
+	// the table : one slot per author in parallel arrays, free slots are reused
+
+	private final Map<String, Integer> slots = new HashMap<String, Integer>();
+	private String[] authorKeys;
+	private int[] nbPublications;
+	private long[] nbCitations;
+	private double[] weightedCitations;
+	private int[] hIndexes;
+	private int[] gIndexes;
+	private int nbUsedSlots;
+	private int[] freeSlots = new int[0];
+	private int nbFreeSlots;
+
+	private void resize(int capacity) {
+		authorKeys = authorKeys == null ? new String[capacity] : Arrays.copyOf(authorKeys, capacity);
+		nbPublications = nbPublications == null ? new int[capacity] : Arrays.copyOf(nbPublications, capacity);
+		nbCitations = nbCitations == null ? new long[capacity] : Arrays.copyOf(nbCitations, capacity);
+		weightedCitations = weightedCitations == null ? new double[capacity] : Arrays.copyOf(weightedCitations, capacity);
+		hIndexes = hIndexes == null ? new int[capacity] : Arrays.copyOf(hIndexes, capacity);
+		gIndexes = gIndexes == null ? new int[capacity] : Arrays.copyOf(gIndexes, capacity);
+	}
+
+	private void store(AuthorMetrics metrics) {
+		Integer slot = slots.get(metrics.getAuthorKey());
+		if (slot == null) {
+			if (nbFreeSlots > 0) {
+				slot = freeSlots[--nbFreeSlots];
+			} else {
+				if (nbUsedSlots == authorKeys.length)
+					resize(Math.max(16, authorKeys.length * 2));
+				slot = nbUsedSlots++;
+			}
+			slots.put(metrics.getAuthorKey(), slot);
+		}
+		authorKeys[slot] = metrics.getAuthorKey();
+		nbPublications[slot] = metrics.getNbPublications();
+		nbCitations[slot] = metrics.getNbCitations();
+		weightedCitations[slot] = metrics.getWeightedCitations();
+		hIndexes[slot] = metrics.getHIndex();
+		gIndexes[slot] = metrics.getGIndex();
+	}
+
+	private void remove(String authorKey) {
+		Integer slot = slots.remove(authorKey);
+		if (slot == null)
+			return;
+		authorKeys[slot] = null;
+		if (nbFreeSlots == freeSlots.length)
+			freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeSlots.length * 2));
+		freeSlots[nbFreeSlots++] = slot;
+	}
+
+	// change tracking : a changed publication changes the metrics of all its authors
+
+	private volatile Set<String> changedAuthorKeys = ConcurrentHashMap.newKeySet();
+
+	private synchronized Set<String> takeChangedAuthorKeys() {
+		Set<String> changed = changedAuthorKeys;
+		changedAuthorKeys = ConcurrentHashMap.newKeySet();
+		return changed;
+	}
+
+	@Override
+	public void touchPublication(Publication publication) {
+		if (publication == null)
+			return;
+		for (String authorKey : publication.getAllAuthorsWithInitial())
+			changedAuthorKeys.add(authorKey);
+	}
+
+	@Override
+	public void touchId(String id) {
+	}
+
+	@Override
+	public void touchAuthorKey(String authorKey) {
+		if (authorKey != null)
+			changedAuthorKeys.add(authorKey);
+	}
+
+	@Override
+	public void touchTitleWord(String titleWord) {
+	}
+}
@@ -69,7 +69,7 @@ public class Book extends Publication {
 	 * 
 	 */
 	public String getPublisher() {
-		return new String(publisher);
+		return publisher;
 	}
 
 	/**
@@ -91,11 +91,24 @@ public class Book extends Publication {
 		if ("".equals(publisher.trim()))
 			throw new PublisherIsBlankException();
 
-		this.publisher = new String(publisher).trim();
+		this.publisher = StringPool.canonical(publisher.trim());
+		bumpVersion();
+		touchInRefDb();
+		publishChange(RefDbChangeType.PUBLICATION_CHANGED, null, null);
 	}
 
 	private String publisher;
 
+	@Override
+	public long estimateMemoryFootprint() {
+		return super.estimateMemoryFootprint() + estimateMemoryFootprint(publisher);
+	}
+
+	@Override
+	public PublicationType getPublicationType() {
+		return PublicationType.BOOK;
+	}
+
 	@Override
 	public double getCitationScore() {
 		return PublicationType.BOOK.getCitationWeight();
@@ -0,0 +1,333 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A class of strongly connected component analyses of a citation graph snapshot (CitationGraph) : two publications
+ * are in the same component when each of them directly or indirectly cites the other, so every component with more
+ * than one publication is a citation cycle (a data error or a citation ring).
+ *
+ * The components are numbered 0..c-1 in reverse topological order : a component only cites components with a lower
+ * number.  The condensation of the graph (one node per component, one edge per pair of components with a citation
+ * between them) is a directed acyclic graph, stored in compressed sparse row form like the snapshot itself.
+ *
+ * The analysis first splits the graph into weakly connected components (a union find over the citations), then runs
+ * Tarjan's algorithm on every weakly connected component, in parallel on a fork join pool.  Tarjan's algorithm runs
+ * with an explicit stack, so long citation chains do not overflow the call stack.
+ *
+ * @invar	every publication of the snapshot is in exactly one component
+ * @invar	every edge of the condensation goes from a component to a component with a lower number
+ */
+public final class CitationComponents {
+
+	/**
+	 * analyse the given snapshot on the common fork join pool
+	 *
+	 * @param 	graph
+	 * 			the snapshot of the citation graph
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the snapshot is null
+	 * @return	the components of the snapshot
+	 */
+	public static CitationComponents of(CitationGraph graph) throws InputFieldNotSpecifiedException {
+		return of(graph, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * analyse the given snapshot, with the weakly connected components in parallel on the given pool
+	 *
+	 * @param 	graph
+	 * 			the snapshot of the citation graph
+	 * @param 	pool
+	 * 			the fork join pool to run the analysis on
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the snapshot or the pool is null
+	 * @return	the components of the snapshot
+	 */
+	public static CitationComponents of(CitationGraph graph, ForkJoinPool pool) throws InputFieldNotSpecifiedException {
+		if (graph == null || pool == null)
+			throw new InputFieldNotSpecifiedException();
+		return pool.submit(() -> new CitationComponents(graph)).join();
+	}
+
+	private CitationComponents(CitationGraph graph) {
+		this.graph = graph;
+		int n = graph.getNbPublications();
+		int[] citationOffsets = graph.citationOffsets;
+		int[] citations = graph.citations;
+
+		// the weakly connected components, each as a range of the publications in ascending number
+		int[] roots = new int[n];
+		for (int u = 0; u < n; u++)
+			roots[u] = u;
+		for (int u = 0; u < n; u++)
+			for (int k = citationOffsets[u]; k < citationOffsets[u + 1]; k++)
+				union(roots, u, citations[k]);
+		int[] weakOffsets = new int[n + 1];
+		int[] weakIndexes = new int[n];
+		int nbWeak = 0;
+		// a root is always lower than the publications below it, so one ascending pass points every one at its root
+		for (int u = 0; u < n; u++) {
+			roots[u] = find(roots, u);
+			if (roots[u] == u)
+				weakIndexes[u] = nbWeak++;
+		}
+		for (int u = 0; u < n; u++)
+			weakOffsets[weakIndexes[roots[u]] + 1]++;
+		weakOffsets = Arrays.copyOf(weakOffsets, nbWeak + 1);
+		for (int w = 0; w < nbWeak; w++)
+			weakOffsets[w + 1] += weakOffsets[w];
+		int[] weakMembers = new int[n];
+		int[] positions = Arrays.copyOf(weakOffsets, nbWeak);
+		for (int u = 0; u < n; u++)
+			weakMembers[positions[weakIndexes[roots[u]]]++] = u;
+
+		// the strongly connected components of every weakly connected component, numbered locally
+		int[] localComponents = new int[n];
+		int[] visitIndexes = new int[n];
+		int[] lowLinks = new int[n];
+		Arrays.fill(localComponents, -1);
+		Arrays.fill(visitIndexes, -1);
+		int[] weakOffsetsFinal = weakOffsets;
+		int[] nbLocal = IntStream.range(0, nbWeak).parallel().map(w -> tarjan(citationOffsets, citations, weakMembers,
+				weakOffsetsFinal[w], weakOffsetsFinal[w + 1], visitIndexes, lowLinks, localComponents)).toArray();
+
+		// global numbers : the weakly connected components are not linked, so concatenating keeps the order
+		int[] localOffsets = new int[nbWeak + 1];
+		for (int w = 0; w < nbWeak; w++)
+			localOffsets[w + 1] = localOffsets[w] + nbLocal[w];
+		int nbComponents = localOffsets[nbWeak];
+		components = new int[n];
+		IntStream.range(0, nbWeak).parallel().forEach(w -> {
+			for (int i = weakOffsetsFinal[w]; i < weakOffsetsFinal[w + 1]; i++)
+				components[weakMembers[i]] = localOffsets[w] + localComponents[weakMembers[i]];
+		});
+
+		// the members of every component, in ascending number
+		memberOffsets = new int[nbComponents + 1];
+		for (int u = 0; u < n; u++)
+			memberOffsets[components[u] + 1]++;
+		for (int c = 0; c < nbComponents; c++)
+			memberOffsets[c + 1] += memberOffsets[c];
+		members = new int[n];
+		positions = Arrays.copyOf(memberOffsets, nbComponents);
+		for (int u = 0; u < n; u++)
+			members[positions[components[u]]++] = u;
+
+		// the condensation, filled in two passes (count, then fill) like the snapshot
+		condensationOffsets = new int[nbComponents + 1];
+		IntStream.range(0, nbComponents).parallel()
+				.forEach(c -> condensationOffsets[c + 1] = collectCitedComponents(c, null, 0));
+		for (int c = 0; c < nbComponents; c++)
+			condensationOffsets[c + 1] += condensationOffsets[c];
+		condensation = new int[condensationOffsets[nbComponents]];
+		IntStream.range(0, nbComponents).parallel()
+				.forEach(c -> collectCitedComponents(c, condensation, condensationOffsets[c]));
+	}
+
+	private static int find(int[] roots, int u) {
+		while (roots[u] != u) {
+			roots[u] = roots[roots[u]];
+			u = roots[u];
+		}
+		return u;
+	}
+
+	private static void union(int[] roots, int u, int v) {
+		int rootU = find(roots, u);
+		int rootV = find(roots, v);
+		if (rootU != rootV)
+			roots[Math.max(rootU, rootV)] = Math.min(rootU, rootV);
+	}
+
+	/**
+	 * Tarjan's algorithm with an explicit stack, on the publications weakMembers[from..to) : they form a weakly
+	 * connected component, so no other task touches them or their citations.
+	 * A visited publication without a component is on the component stack.
+	 *
+	 * @return	the number of components found, numbered from 0 in the order they are completed (sinks first)
+	 */
+	private static int tarjan(int[] citationOffsets, int[] citations, int[] weakMembers, int from, int to,
+			int[] visitIndexes, int[] lowLinks, int[] localComponents) {
+		int size = to - from;
+		int[] componentStack = new int[size];
+		int[] callStack = new int[size];
+		int[] edgePositions = new int[size];
+		int nbOnComponentStack = 0;
+		int nbComponents = 0;
+		int visitIndex = 0;
+		for (int i = from; i < to; i++) {
+			int root = weakMembers[i];
+			if (visitIndexes[root] >= 0)
+				continue;
+			visitIndexes[root] = lowLinks[root] = visitIndex++;
+			componentStack[nbOnComponentStack++] = root;
+			callStack[0] = root;
+			edgePositions[0] = citationOffsets[root];
+			int depth = 1;
+			while (depth > 0) {
+				int u = callStack[depth - 1];
+				if (edgePositions[depth - 1] < citationOffsets[u + 1]) {
+					int v = citations[edgePositions[depth - 1]++];
+					if (visitIndexes[v] < 0) {
+						visitIndexes[v] = lowLinks[v] = visitIndex++;
+						componentStack[nbOnComponentStack++] = v;
+						callStack[depth] = v;
+						edgePositions[depth] = citationOffsets[v];
+						depth++;
+					} else if (localComponents[v] < 0) {
+						lowLinks[u] = Math.min(lowLinks[u], visitIndexes[v]);
+					}
+					continue;
+				}
+				depth--;
+				if (depth > 0)
+					lowLinks[callStack[depth - 1]] = Math.min(lowLinks[callStack[depth - 1]], lowLinks[u]);
+				if (lowLinks[u] == visitIndexes[u]) {
+					int member;
+					do {
+						member = componentStack[--nbOnComponentStack];
+						localComponents[member] = nbComponents;
+					} while (member != u);
+					nbComponents++;
+				}
+			}
+		}
+		return nbComponents;
+	}
+
+	/**
+	 * collect the distinct components cited by the given component (itself excluded), in ascending number
+	 *
+	 * @param 	target
+	 * 			the array to copy them into from the given position, or null to only count them
+	 * @return	the number of cited components
+	 */
+	private int collectCitedComponents(int component, int[] target, int position) {
+		int[] citationOffsets = graph.citationOffsets;
+		int[] citations = graph.citations;
+		int nb = 0;
+		for (int i = memberOffsets[component]; i < memberOffsets[component + 1]; i++)
+			nb += citationOffsets[members[i] + 1] - citationOffsets[members[i]];
+		int[] cited = new int[nb];
+		nb = 0;
+		for (int i = memberOffsets[component]; i < memberOffsets[component + 1]; i++)
+			for (int k = citationOffsets[members[i]]; k < citationOffsets[members[i] + 1]; k++)
+				if (components[citations[k]] != component)
+					cited[nb++] = components[citations[k]];
+		Arrays.sort(cited, 0, nb);
+		int nbDistinct = 0;
+		for (int i = 0; i < nb; i++)
+			if (i == 0 || cited[i] != cited[i - 1]) {
+				if (target != null)
+					target[position + nbDistinct] = cited[i];
+				nbDistinct++;
+			}
+		return nbDistinct;
+	}
+
+	private final CitationGraph graph;
+
+	final int[] components;
+	final int[] memberOffsets;
+	final int[] members;
+	final int[] condensationOffsets;
+	final int[] condensation;
+
+	/**
+	 * get the snapshot this analysis is made of
+	 */
+	public CitationGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * get the number of strongly connected components
+	 */
+	public int getNbComponents() {
+		return memberOffsets.length - 1;
+	}
+
+	/**
+	 * get the number of edges of the condensation
+	 */
+	public int getNbCondensationEdges() {
+		return condensation.length;
+	}
+
+	/**
+	 * get the component of the given publication
+	 *
+	 * @return	the number of the component, or -1 if the publication is not in the snapshot
+	 */
+	public int getComponent(Publication publication) {
+		int number = graph.getNumber(publication);
+		return number < 0 ? -1 : components[number];
+	}
+
+	/**
+	 * get the publications of the given component
+	 *
+	 * @param 	component
+	 * 			the number of the component (0 <= component < getNbComponents())
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is out of range
+	 * @return	the publications of the component, in the order of the snapshot
+	 */
+	public List<Publication> getMembers(int component) throws InputFieldNotValidException {
+		checkComponent(component);
+		return graph.toPublications(Arrays.copyOfRange(members, memberOffsets[component], memberOffsets[component + 1]));
+	}
+
+	/**
+	 * get the number of publications of the given component
+	 *
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is out of range
+	 */
+	public int getComponentSize(int component) throws InputFieldNotValidException {
+		checkComponent(component);
+		return memberOffsets[component + 1] - memberOffsets[component];
+	}
+
+	/**
+	 * get the components cited by the given component in the condensation
+	 *
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is out of range
+	 * @return	the numbers of the cited components, in ascending number (all lower than the given component)
+	 */
+	public int[] getCitedComponents(int component) throws InputFieldNotValidException {
+		checkComponent(component);
+		return Arrays.copyOfRange(condensation, condensationOffsets[component], condensationOffsets[component + 1]);
+	}
+
+	private void checkComponent(int component) throws InputFieldNotValidException {
+		if (component < 0 || component >= getNbComponents())
+			throw new InputFieldNotValidException();
+	}
+
+	/**
+	 * check if the snapshot has a citation cycle
+	 */
+	public boolean hasCycles() {
+		return getNbComponents() < graph.getNbPublications();
+	}
+
+	/**
+	 * get the citation cycles : the publications of every component with more than one publication
+	 *
+	 * @return	the cycles in ascending component number, each in the order of the snapshot
+	 */
+	public List<List<Publication>> getCycles() {
+		List<List<Publication>> cycles = new ArrayList<List<Publication>>();
+		for (int c = 0; c < getNbComponents(); c++)
+			if (memberOffsets[c + 1] - memberOffsets[c] > 1)
+				cycles.add(graph.toPublications(Arrays.copyOfRange(members, memberOffsets[c], memberOffsets[c + 1])));
+		return cycles;
+	}
+}
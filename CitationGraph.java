@@ -0,0 +1,206 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A class of dense, immutable snapshots of the citation graph of a set of publications, for the graph algorithms
+ * that visit every edge many times (e.g. CitationRanking).
+ * The publications are numbered 0..n-1 in ascending referenceId (unregistered publications last), and the cites and
+ * cited-by relations are stored as int arrays in compressed sparse row form : the citations of publication u are
+ * citations[citationOffsets[u] .. citationOffsets[u+1]), its citators citators[citatorOffsets[u] .. citatorOffsets[u+1]),
+ * both in ascending number.  Only citations between publications of the snapshot are kept.
+ * The citation score of every publication (getCitationScore()) is copied as well.
+ *
+ * A snapshot does not follow later changes of the publications : take a new snapshot after changes.
+ *
+ * @invar	every edge of the cites relation is also an edge of the cited-by relation, and vice versa
+ */
+public final class CitationGraph {
+
+	/**
+	 * take a snapshot of the citation graph of all publications of the given reference database
+	 *
+	 * @param 	refDb
+	 * 			the reference database (must not change while the snapshot is taken)
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @return	a new snapshot
+	 */
+	public static CitationGraph of(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		return of(refDb.getIdTable().values(), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * take a snapshot of the citation graph of the given publications (e.g. of all shards of a ShardedRefDb),
+	 * building the arrays in parallel on the given pool
+	 *
+	 * @param 	publications
+	 * 			the publications of the snapshot (must not change while the snapshot is taken)
+	 * @param 	pool
+	 * 			the fork join pool to build the snapshot on
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the publications, one of the publications or the pool is null
+	 * @return	a new snapshot
+	 */
+	public static CitationGraph of(Collection<? extends Publication> publications, ForkJoinPool pool)
+			throws InputFieldNotSpecifiedException {
+		if (publications == null || pool == null)
+			throw new InputFieldNotSpecifiedException();
+		Publication[] nodes = publications.toArray(new Publication[0]);
+		for (Publication node : nodes)
+			if (node == null)
+				throw new InputFieldNotSpecifiedException();
+		return pool.submit(() -> new CitationGraph(nodes)).join();
+	}
+
+	private CitationGraph(Publication[] nodes) {
+		Arrays.parallelSort(nodes, (publication1, publication2) -> {
+			String id1 = publication1.getReferenceId();
+			String id2 = publication2.getReferenceId();
+			if (id1 == null || id2 == null)
+				return (id1 == null ? 1 : 0) - (id2 == null ? 1 : 0);
+			return RefDbIndex.ID_ORDER.compare(id1, id2);
+		});
+		this.publications = nodes;
+		int n = nodes.length;
+		// read only after it is filled, so the parallel lookups below are safe
+		Map<Publication, Integer> numbers = new IdentityHashMap<Publication, Integer>(n);
+		for (int i = 0; i < n; i++)
+			numbers.put(nodes[i], i);
+		this.numbers = numbers;
+
+		citationScores = new double[n];
+		citationOffsets = new int[n + 1];
+		citatorOffsets = new int[n + 1];
+		// the relations are read directly : the public getters copy both sets of every publication.
+		// the arrays are filled in two passes (count, then fill) so no per publication arrays are held
+		IntStream.range(0, n).parallel().forEach(u -> {
+			citationScores[u] = nodes[u].getCitationScore();
+			citationOffsets[u + 1] = countNumbered(nodes[u].cites);
+			citatorOffsets[u + 1] = countNumbered(nodes[u].citedBy);
+		});
+		for (int u = 0; u < n; u++) {
+			citationOffsets[u + 1] += citationOffsets[u];
+			citatorOffsets[u + 1] += citatorOffsets[u];
+		}
+		citations = new int[citationOffsets[n]];
+		citators = new int[citatorOffsets[n]];
+		IntStream.range(0, n).parallel().forEach(u -> {
+			fillNumbers(nodes[u].cites, citations, citationOffsets[u], citationOffsets[u + 1]);
+			fillNumbers(nodes[u].citedBy, citators, citatorOffsets[u], citatorOffsets[u + 1]);
+		});
+	}
+
+	private int countNumbered(Collection<Publication> relation) {
+		int nb = 0;
+		for (Publication publication : relation)
+			if (numbers.containsKey(publication))
+				nb++;
+		return nb;
+	}
+
+	private void fillNumbers(Collection<Publication> relation, int[] target, int from, int to) {
+		int position = from;
+		for (Publication publication : relation) {
+			Integer number = numbers.get(publication);
+			if (number != null)
+				target[position++] = number;
+		}
+		assert position == to;
+		Arrays.sort(target, from, to);
+	}
+
+	private final Publication[] publications;
+	private final Map<Publication, Integer> numbers;
+	private final double[] citationScores;
+
+	final int[] citationOffsets;
+	final int[] citations;
+	final int[] citatorOffsets;
+	final int[] citators;
+
+	/**
+	 * get the number of publications in this snapshot
+	 */
+	public int getNbPublications() {
+		return publications.length;
+	}
+
+	/**
+	 * get the number of citations (edges) in this snapshot
+	 */
+	public int getNbCitations() {
+		return citations.length;
+	}
+
+	/**
+	 * get the publication with the given number
+	 *
+	 * @param 	number
+	 * 			the number of the publication (0 <= number < getNbPublications())
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is out of range
+	 */
+	public Publication getPublication(int number) throws InputFieldNotValidException {
+		if (number < 0 || number >= getNbPublications())
+			throw new InputFieldNotValidException();
+		return publications[number];
+	}
+
+	/**
+	 * get the publication with the given number, which must be in range
+	 */
+	Publication publicationAt(int number) {
+		return publications[number];
+	}
+
+	/**
+	 * get the number of the given publication in this snapshot
+	 *
+	 * @return	the number of the publication, or -1 if it is not in this snapshot
+	 */
+	public int getNumber(Publication publication) {
+		Integer number = publication == null ? null : numbers.get(publication);
+		return number == null ? -1 : number;
+	}
+
+	/**
+	 * get the citation score of the publication with the given number, as it was when the snapshot was taken
+	 */
+	double getCitationScore(int number) {
+		return citationScores[number];
+	}
+
+	/**
+	 * get the number of citations of the publication with the given number (its out degree)
+	 */
+	int getNbCitations(int number) {
+		return citationOffsets[number + 1] - citationOffsets[number];
+	}
+
+	/**
+	 * get the number of citators of the publication with the given number (its in degree)
+	 */
+	int getNbCitators(int number) {
+		return citatorOffsets[number + 1] - citatorOffsets[number];
+	}
+
+	/**
+	 * get the publications with the given numbers
+	 */
+	List<Publication> toPublications(int[] numbers) {
+		List<Publication> result = new ArrayList<Publication>(numbers.length);
+		for (int number : numbers)
+			result.add(publications[number]);
+		return result;
+	}
+}
@@ -0,0 +1,366 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class of leaderboards of a reference database : the most cited publications overall, per PublicationType and
+ * per year of publication (by number of citators), and the authors with the highest citation index (the sum of
+ * the citation scores of the citators of their publications, per key of the author index).
+ *
+ * Every leaderboard is an order statistic set (RankTree), so the top k is read in O(k) and the rank of one entry in
+ * O(log n).  The leaderboards follow the changes of the reference database (it is a change tracker) : the touched
+ * publications are marked, and the next read compares them with the entry recorded for them and moves only the
+ * changed entries, each in O(log n), together with the entries of their authors.  A change of the citation weight
+ * of a PublicationType needs a rebuild().
+ * Reads are thread safe; the reference database is not, so no changes may run while a read runs.
+ *
+ * @invar	every registered publication has exactly one entry in the overall, the type and the year leaderboard
+ * @invar	every author key with at least one publication has exactly one entry in the author leaderboard
+ */
+public final class CitationLeaderboard implements RefDbChangeTracker {
+
+	/**
+	 * the order of the publications : descending number of citators, then ascending referenceId
+	 */
+	private static final Comparator<PublicationEntry> PUBLICATION_ORDER = (entry1, entry2) -> {
+		if (entry1.nbCitations != entry2.nbCitations)
+			return Integer.compare(entry2.nbCitations, entry1.nbCitations);
+		return RefDbIndex.ID_ORDER.compare(entry1.id, entry2.id);
+	};
+
+	private static final PublicationType[] TYPES = PublicationType.values();
+
+	/**
+	 * get the sum of the citation weights of the given numbers of citators per PublicationType (in the order of the 
+	 * types) : the citation indexes are kept as these exact numbers, so the same citators always weigh the same, 
+	 * whatever the order in which they were added and removed
+	 */
+	private static double weigh(long[] citatorsPerType) {
+		double weighted = 0;
+		for (int type = 0; type < TYPES.length; type++)
+			weighted += citatorsPerType[type] * TYPES[type].getCitationWeight();
+		return weighted;
+	}
+
+	/**
+	 * the order of the authors : descending citation index, then ascending key
+	 */
+	private static final Comparator<AuthorEntry> AUTHOR_ORDER = (entry1, entry2) -> {
+		if (entry1.citationIndex != entry2.citationIndex)
+			return Double.compare(entry2.citationIndex, entry1.citationIndex);
+		return entry1.authorKey.compareTo(entry2.authorKey);
+	};
+
+	/**
+	 * Initialise this new leaderboard with all publications of the given reference database
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @post	the leaderboard follows the changes of the reference database until it is terminated
+	 */
+	public CitationLeaderboard(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		refDb.addChangeTracker(this);
+		rebuild();
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * stop following the changes of the reference database
+	 */
+	public void terminate() {
+		refDb.removeChangeTracker(this);
+	}
+
+	/**
+	 * build all leaderboards again from the current state of the reference database
+	 */
+	public synchronized void rebuild() {
+		touchedIds.clear();
+		entries.clear();
+		authors.clear();
+		overall = new RankTree<PublicationEntry>(PUBLICATION_ORDER);
+		byType.clear();
+		for (PublicationType type : PublicationType.values())
+			byType.put(type, new RankTree<PublicationEntry>(PUBLICATION_ORDER));
+		byYear.clear();
+		authorBoard = new RankTree<AuthorEntry>(AUTHOR_ORDER);
+		for (Map.Entry<String, Publication> entry : refDb.getIdTable().entrySet())
+			update(entry.getKey(), entry.getValue());
+	}
+
+	/**
+	 * get the most cited publications
+	 *
+	 * @param 	nb
+	 * 			the maximum number of publications
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is negative
+	 * @return	at most nb publications in descending number of citators
+	 */
+	public synchronized List<Publication> getMostCited(int nb) throws InputFieldNotValidException {
+		checkNb(nb);
+		reconcile();
+		return toPublications(overall.getFirst(nb));
+	}
+
+	/**
+	 * get the most cited publications of the given type
+	 *
+	 * @param 	type
+	 * 			the publication type
+	 * @param 	nb
+	 * 			the maximum number of publications
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the type is null
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is negative
+	 * @return	at most nb publications of the type in descending number of citators
+	 */
+	public synchronized List<Publication> getMostCited(PublicationType type, int nb)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		if (type == null)
+			throw new InputFieldNotSpecifiedException();
+		checkNb(nb);
+		reconcile();
+		return toPublications(byType.get(type).getFirst(nb));
+	}
+
+	/**
+	 * get the most cited publications of the given year of publication
+	 *
+	 * @param 	year
+	 * 			the year of publication
+	 * @param 	nb
+	 * 			the maximum number of publications
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is negative
+	 * @return	at most nb publications of the year in descending number of citators
+	 */
+	public synchronized List<Publication> getMostCitedOfYear(int year, int nb) throws InputFieldNotValidException {
+		checkNb(nb);
+		reconcile();
+		RankTree<PublicationEntry> board = byYear.get(year);
+		return board == null ? new ArrayList<Publication>() : toPublications(board.getFirst(nb));
+	}
+
+	/**
+	 * get the authors with the highest citation index
+	 *
+	 * @param 	nb
+	 * 			the maximum number of authors
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is negative
+	 * @return	at most nb author keys with their citation index, in descending citation index
+	 */
+	public synchronized Map<String, Double> getTopAuthors(int nb) throws InputFieldNotValidException {
+		checkNb(nb);
+		reconcile();
+		Map<String, Double> top = new LinkedHashMap<String, Double>();
+		for (AuthorEntry entry : authorBoard.getFirst(nb))
+			top.put(entry.authorKey, entry.citationIndex);
+		return top;
+	}
+
+	/**
+	 * get the rank of the given publication in the overall leaderboard
+	 *
+	 * @return	the rank from 1, or 0 if the publication is not registered in the reference database
+	 */
+	public synchronized int getRank(Publication publication) {
+		reconcile();
+		PublicationEntry entry = publication == null || !publication.hasReferenceId() ? null
+				: entries.get(publication.getReferenceId());
+		return entry == null ? 0 : overall.rank(entry) + 1;
+	}
+
+	/**
+	 * get the rank of the given author in the author leaderboard
+	 *
+	 * @param 	authorKey
+	 * 			the key of the author in the author index (e.g. M. L. King)
+	 * @throws 	AuthorNameIsNullException
+	 * @return	the rank from 1, or 0 if the author has no publications in the reference database
+	 */
+	public synchronized int getAuthorRank(String authorKey) throws AuthorNameIsNullException {
+		if (authorKey == null)
+			throw new AuthorNameIsNullException();
+		reconcile();
+		AuthorEntry entry = authors.get(authorKey);
+		return entry == null ? 0 : authorBoard.rank(entry) + 1;
+	}
+
+	private static void checkNb(int nb) throws InputFieldNotValidException {
+		if (nb < 0)
+			throw new InputFieldNotValidException();
+	}
+
+	private static List<Publication> toPublications(List<PublicationEntry> entries) {
+		List<Publication> publications = new ArrayList<Publication>(entries.size());
+		for (PublicationEntry entry : entries)
+			publications.add(entry.publication);
+		return publications;
+	}
+
+	// the leaderboards, and the entry recorded for every publication and author
+
+	private final Map<String, PublicationEntry> entries = new HashMap<String, PublicationEntry>();
+	private final Map<String, AuthorEntry> authors = new HashMap<String, AuthorEntry>();
+	private RankTree<PublicationEntry> overall;
+	private final Map<PublicationType, RankTree<PublicationEntry>> byType =
+			new EnumMap<PublicationType, RankTree<PublicationEntry>>(PublicationType.class);
+	private final Map<Integer, RankTree<PublicationEntry>> byYear = new HashMap<Integer, RankTree<PublicationEntry>>();
+	private RankTree<AuthorEntry> authorBoard;
+
+	/**
+	 * An immutable entry of a publication, as it was when it was recorded
+	 */
+	private static final class PublicationEntry {
+
+		PublicationEntry(String id, Publication publication) {
+			this.id = id;
+			this.publication = publication;
+			this.nbCitations = publication.citedBy.size();
+			this.citatorsPerType = new long[TYPES.length];
+			for (Publication citator : publication.citedBy)
+				citatorsPerType[citator.getPublicationType().ordinal()]++;
+			this.year = publication.getYearOfPublication();
+			this.type = publication.getPublicationType();
+			Set<String> keys = new LinkedHashSet<String>(publication.getAllAuthorsWithInitial());
+			this.authorKeys = keys.toArray(new String[0]);
+		}
+
+		final String id;
+		final Publication publication;
+		final int nbCitations;
+		final long[] citatorsPerType;
+		final int year;
+		final PublicationType type;
+		final String[] authorKeys;
+
+		boolean isSameAs(PublicationEntry other) {
+			return other != null && publication == other.publication && nbCitations == other.nbCitations
+					&& Arrays.equals(citatorsPerType, other.citatorsPerType) && year == other.year && type == other.type
+					&& Arrays.equals(authorKeys, other.authorKeys);
+		}
+	}
+
+	/**
+	 * An immutable entry of an author
+	 */
+	private static final class AuthorEntry {
+
+		AuthorEntry(String authorKey, long[] citatorsPerType, int nbPublications) {
+			this.authorKey = authorKey;
+			this.citatorsPerType = citatorsPerType;
+			this.citationIndex = weigh(citatorsPerType);
+			this.nbPublications = nbPublications;
+		}
+
+		final String authorKey;
+		final long[] citatorsPerType;
+		final double citationIndex;
+		final int nbPublications;
+	}
+
+	/**
+	 * bring the leaderboards in line with the current state of the publication with the given ID
+	 *
+	 * @param 	publication
+	 * 			the publication with that ID, or null if it is no longer in the reference database
+	 */
+	private void update(String id, Publication publication) {
+		PublicationEntry old = entries.get(id);
+		PublicationEntry now = publication == null ? null : new PublicationEntry(id, publication);
+		if (now != null && now.isSameAs(old))
+			return;
+		if (old != null) {
+			entries.remove(id);
+			overall.remove(old);
+			byType.get(old.type).remove(old);
+			RankTree<PublicationEntry> yearBoard = byYear.get(old.year);
+			yearBoard.remove(old);
+			if (yearBoard.size() == 0)
+				byYear.remove(old.year);
+			for (String authorKey : old.authorKeys)
+				changeAuthor(authorKey, old.citatorsPerType, -1);
+		}
+		if (now != null) {
+			entries.put(id, now);
+			overall.add(now);
+			byType.get(now.type).add(now);
+			byYear.computeIfAbsent(now.year, year -> new RankTree<PublicationEntry>(PUBLICATION_ORDER)).add(now);
+			for (String authorKey : now.authorKeys)
+				changeAuthor(authorKey, now.citatorsPerType, 1);
+		}
+	}
+
+	/**
+	 * add (sign 1) or remove (sign -1) the given citators per type and one publication to or from the given author
+	 */
+	private void changeAuthor(String authorKey, long[] citatorsPerType, int sign) {
+		AuthorEntry old = authors.remove(authorKey);
+		long[] sum = new long[TYPES.length];
+		int nbPublications = sign;
+		if (old != null) {
+			authorBoard.remove(old);
+			System.arraycopy(old.citatorsPerType, 0, sum, 0, sum.length);
+			nbPublications += old.nbPublications;
+		}
+		for (int type = 0; type < sum.length; type++)
+			sum[type] += sign * citatorsPerType[type];
+		if (nbPublications > 0) {
+			AuthorEntry now = new AuthorEntry(authorKey, sum, nbPublications);
+			authors.put(authorKey, now);
+			authorBoard.add(now);
+		}
+	}
+
+	// change tracking : touched publications are brought in line by the next read
+
+	private final Set<String> touchedIds = ConcurrentHashMap.newKeySet();
+
+	private void reconcile() {
+		if (touchedIds.isEmpty())
+			return;
+		for (String id : touchedIds.toArray(new String[0])) {
+			touchedIds.remove(id);
+			update(id, refDb.getIdTable().get(id));
+		}
+	}
+
+	@Override
+	public void touchPublication(Publication publication) {
+		if (publication != null && publication.hasReferenceId())
+			touchedIds.add(publication.getReferenceId());
+	}
+
+	@Override
+	public void touchId(String id) {
+		if (id != null)
+			touchedIds.add(id);
+	}
+
+	@Override
+	public void touchAuthorKey(String authorKey) {
+	}
+
+	@Override
+	public void touchTitleWord(String titleWord) {
+	}
+}
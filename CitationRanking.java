@@ -0,0 +1,237 @@
+package publicationRefDb;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A class of ranking engines that compute a weighted PageRank of the publications of a citation graph snapshot
+ * (CitationGraph) : a publication ranks high when it is cited by publications that rank high themselves.
+ *
+ * A citator passes the fraction damping * w / wMax of its score to its citations, spread evenly over them, where w
+ * is its citation score (getCitationScore(), the weight of its PublicationType) and wMax the highest citation
+ * score in the snapshot.  The rest of its score, and the whole score of a publication without citations, is spread
+ * evenly over all publications.  The scores sum to 1.
+ *
+ * The power iteration runs in parallel on a fork join pool : every iteration pulls the score of each publication
+ * from its citators over the dense arrays of the snapshot.  It stops when the sum of the absolute changes
+ * drops below the tolerance or after the maximum number of iterations.  A ranking can start from the scores
+ * of a previous ranking (warm start), which needs far fewer iterations after small changes of the graph.
+ *
+ * @invar	the damping factor of a ranking engine lies in ]0, 1[
+ * @invar	the tolerance of a ranking engine is strictly positive
+ * @invar	the maximum number of iterations of a ranking engine is strictly positive
+ * @invar	the fork join pool of a ranking engine is never null
+ */
+public final class CitationRanking {
+
+	private static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * Initialise this new ranking engine with damping 0.85, tolerance 1e-9 and at most 100 iterations,
+	 * on the common fork join pool
+	 */
+	public CitationRanking() {
+		damping = 0.85;
+		tolerance = 1e-9;
+		maxIterations = 100;
+		pool = ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * get the damping factor : the part of its score a citator with the highest citation score passes to its citations
+	 */
+	public double getDamping() {
+		return damping;
+	}
+
+	/**
+	 * set the damping factor
+	 *
+	 * @param 	damping
+	 * 			the new damping factor
+	 * @throws 	InputFieldNotValidException
+	 * 			the damping factor does not lie in ]0, 1[
+	 */
+	public void setDamping(double damping) throws InputFieldNotValidException {
+		if (!(damping > 0 && damping < 1))
+			throw new InputFieldNotValidException();
+		this.damping = damping;
+	}
+
+	private double damping;
+
+	/**
+	 * get the tolerance : the iteration stops when the sum of the absolute changes of the scores drops below it
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * set the tolerance
+	 *
+	 * @param 	tolerance
+	 * 			the new tolerance
+	 * @throws 	InputFieldNotValidException
+	 * 			the tolerance is not strictly positive
+	 */
+	public void setTolerance(double tolerance) throws InputFieldNotValidException {
+		if (!(tolerance > 0))
+			throw new InputFieldNotValidException();
+		this.tolerance = tolerance;
+	}
+
+	private double tolerance;
+
+	/**
+	 * get the maximum number of iterations
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * set the maximum number of iterations
+	 *
+	 * @param 	maxIterations
+	 * 			the new maximum number of iterations
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is not strictly positive
+	 */
+	public void setMaxIterations(int maxIterations) throws InputFieldNotValidException {
+		if (maxIterations <= 0)
+			throw new InputFieldNotValidException();
+		this.maxIterations = maxIterations;
+	}
+
+	private int maxIterations;
+
+	/**
+	 * get the fork join pool on which the iterations run
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * set the fork join pool on which the iterations run
+	 *
+	 * @param 	pool
+	 * 			the fork join pool to use
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the pool is null
+	 */
+	public void setPool(ForkJoinPool pool) throws InputFieldNotSpecifiedException {
+		if (pool == null)
+			throw new InputFieldNotSpecifiedException();
+		this.pool = pool;
+	}
+
+	private ForkJoinPool pool;
+
+	/**
+	 * rank the publications of the given snapshot, starting from the uniform distribution
+	 *
+	 * @param 	graph
+	 * 			the snapshot of the citation graph
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the snapshot is null
+	 * @return	the scores of the publications of the snapshot
+	 */
+	public CitationRankingResult rank(CitationGraph graph) throws InputFieldNotSpecifiedException {
+		return rank(graph, null);
+	}
+
+	/**
+	 * rank the publications of the given snapshot, starting from the scores of the given previous ranking
+	 * (a publication that was not ranked before starts from 1/n, after which the start is normalised to sum 1)
+	 *
+	 * @param 	graph
+	 * 			the snapshot of the citation graph
+	 * @param 	previous
+	 * 			an earlier ranking, possibly of an older snapshot, or null to start from the uniform distribution
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the snapshot is null
+	 * @return	the scores of the publications of the snapshot
+	 */
+	public CitationRankingResult rank(CitationGraph graph, CitationRankingResult previous)
+			throws InputFieldNotSpecifiedException {
+		if (graph == null)
+			throw new InputFieldNotSpecifiedException();
+		double damping = getDamping();
+		double tolerance = getTolerance();
+		int maxIterations = getMaxIterations();
+		return getPool().submit(() -> iterate(graph, previous, damping, tolerance, maxIterations)).join();
+	}
+
+	private static CitationRankingResult iterate(CitationGraph graph, CitationRankingResult previous, double damping,
+			double tolerance, int maxIterations) {
+		int n = graph.getNbPublications();
+		if (n == 0)
+			return new CitationRankingResult(graph, new double[0], 0, 0);
+		int nbChunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+		// the part of its score that every publication passes to each of its citations
+		double maxWeight = IntStream.range(0, n).parallel().mapToDouble(graph::getCitationScore).max().getAsDouble();
+		double[] passedPerCitation = new double[n];
+		if (maxWeight > 0)
+			IntStream.range(0, n).parallel().forEach(u -> {
+				int nbCitations = graph.getNbCitations(u);
+				if (nbCitations > 0)
+					passedPerCitation[u] = damping * Math.max(0, graph.getCitationScore(u)) / maxWeight / nbCitations;
+			});
+
+		double[] score = startScores(graph, previous);
+		double[] next = new double[n];
+		double[] share = new double[n];
+		double residual = Double.POSITIVE_INFINITY;
+		int iteration = 0;
+		while (iteration < maxIterations && residual >= tolerance) {
+			double[] current = score;
+			// the score that is not passed to citations is spread over all publications
+			double spread = IntStream.range(0, nbChunks).parallel().mapToDouble(chunk -> {
+				double notPassed = 0;
+				for (int u = chunk * CHUNK_SIZE; u < Math.min(n, (chunk + 1) * CHUNK_SIZE); u++) {
+					share[u] = current[u] * passedPerCitation[u];
+					notPassed += current[u] - share[u] * graph.getNbCitations(u);
+				}
+				return notPassed;
+			}).sum() / n;
+			double[] target = next;
+			residual = IntStream.range(0, nbChunks).parallel().mapToDouble(chunk -> {
+				double change = 0;
+				int[] citatorOffsets = graph.citatorOffsets;
+				int[] citators = graph.citators;
+				for (int v = chunk * CHUNK_SIZE; v < Math.min(n, (chunk + 1) * CHUNK_SIZE); v++) {
+					double sum = spread;
+					for (int k = citatorOffsets[v]; k < citatorOffsets[v + 1]; k++)
+						sum += share[citators[k]];
+					target[v] = sum;
+					change += Math.abs(sum - current[v]);
+				}
+				return change;
+			}).sum();
+			next = score;
+			score = target;
+			iteration++;
+		}
+		return new CitationRankingResult(graph, score, iteration, residual);
+	}
+
+	private static double[] startScores(CitationGraph graph, CitationRankingResult previous) {
+		int n = graph.getNbPublications();
+		double[] score = new double[n];
+		if (previous == null) {
+			Arrays.fill(score, 1.0 / n);
+			return score;
+		}
+		IntStream.range(0, n).parallel().forEach(v -> {
+			double previousScore = previous.getScore(graph.publicationAt(v));
+			score[v] = previousScore > 0 ? previousScore : 1.0 / n;
+		});
+		double total = IntStream.range(0, n).parallel().mapToDouble(v -> score[v]).sum();
+		IntStream.range(0, n).parallel().forEach(v -> score[v] /= total);
+		return score;
+	}
+}
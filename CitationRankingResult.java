@@ -0,0 +1,100 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A class of results of a ranking (CitationRanking) : the score of every publication of a citation graph snapshot,
+ * with the number of iterations that was needed.
+ *
+ * @invar	there is a score for every publication of the snapshot
+ */
+public final class CitationRankingResult {
+
+	CitationRankingResult(CitationGraph graph, double[] scores, int nbIterations, double residual) {
+		this.graph = graph;
+		this.scores = scores;
+		this.nbIterations = nbIterations;
+		this.residual = residual;
+	}
+
+	private final CitationGraph graph;
+	private final double[] scores;
+	private final int nbIterations;
+	private final double residual;
+
+	/**
+	 * get the snapshot that was ranked
+	 */
+	public CitationGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * get the score of the given publication
+	 *
+	 * @return	the score of the publication, or 0 if it is not in the ranked snapshot
+	 */
+	public double getScore(Publication publication) {
+		int number = graph.getNumber(publication);
+		return number < 0 ? 0 : scores[number];
+	}
+
+	/**
+	 * get the number of iterations of the ranking
+	 */
+	public int getNbIterations() {
+		return nbIterations;
+	}
+
+	/**
+	 * get the sum of the absolute changes of the scores in the last iteration
+	 */
+	public double getResidual() {
+		return residual;
+	}
+
+	/**
+	 * check if the ranking converged : the residual dropped below the given tolerance
+	 */
+	public boolean hasConverged(double tolerance) {
+		return getResidual() < tolerance;
+	}
+
+	/**
+	 * get the publications with the highest scores
+	 *
+	 * @param 	nb
+	 * 			the maximum number of publications to return
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is negative
+	 * @return	at most nb publications in descending score (equal scores in ascending referenceId)
+	 */
+	public List<Publication> getTopPublications(int nb) throws InputFieldNotValidException {
+		if (nb < 0)
+			throw new InputFieldNotValidException();
+		// a bounded min heap on (score, number) : the weakest of the best so far is on top
+		PriorityQueue<Integer> best = new PriorityQueue<Integer>(Math.max(1, nb), (number1, number2) -> {
+			int byScore = Double.compare(scores[number1], scores[number2]);
+			return byScore != 0 ? byScore : Integer.compare(number2, number1);
+		});
+		for (int number = 0; number < scores.length && nb > 0; number++) {
+			if (best.size() < nb) {
+				best.add(number);
+			} else if (best.comparator().compare(number, best.peek()) > 0) {
+				best.poll();
+				best.add(number);
+			}
+		}
+		int[] numbers = new int[best.size()];
+		for (int i = numbers.length - 1; i >= 0; i--)
+			numbers[i] = best.poll();
+		return graph.toPublications(numbers);
+	}
+
+	@Override
+	public String toString() {
+		return scores.length + " publications ranked in " + nbIterations + " iterations (residual " + residual + ")";
+	}
+}
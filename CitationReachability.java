@@ -0,0 +1,357 @@
+package publicationRefDb;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A class of reachability indexes that answer "does publication a directly or indirectly cite publication b" for
+ * the publications of a reference database, without expanding the transitive closure.
+ *
+ * The index is built on the condensation of the citation graph (CitationComponents), in the style of GRAIL : every
+ * component gets a number of interval labels [low, post], one per randomised depth first traversal of the
+ * condensation, where post is the rank of the component in post order and low the lowest rank it reaches.  When a
+ * reaches b, the interval of b lies within the interval of a for every traversal, so most negative answers need one
+ * comparison of the labels; the components are numbered in reverse topological order, so a component with a higher
+ * number is never reached either.  The remaining questions run a depth first search on the condensation that
+ * skips every component whose labels exclude the target.  The traversals are built in parallel on a fork join pool.
+ *
+ * The index follows the changes of the reference database (it is a change tracker) : once a citation changes, the
+ * index is stale and queries fall back to a search over the current citations, until the next rebuild().
+ * Queries are thread safe; the reference database is not, so no changes may run while a query or a rebuild runs.
+ *
+ * @invar	the number of traversals of an index is strictly positive
+ * @invar	the fork join pool of an index is never null
+ */
+public final class CitationReachability implements RefDbChangeTracker {
+
+	/**
+	 * Initialise this new index for the given reference database with 5 traversals, built on the common fork join pool
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @post	the index follows the changes of the reference database until it is terminated
+	 */
+	public CitationReachability(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		this.nbTraversals = 5;
+		this.pool = ForkJoinPool.commonPool();
+		refDb.addChangeTracker(this);
+		rebuild();
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * stop following the changes of the reference database
+	 */
+	public void terminate() {
+		refDb.removeChangeTracker(this);
+	}
+
+	/**
+	 * get the number of randomised traversals labelled by the next rebuild
+	 */
+	public int getNbTraversals() {
+		return nbTraversals;
+	}
+
+	/**
+	 * set the number of randomised traversals labelled by the next rebuild : more traversals answer more questions
+	 * from the labels alone, at the cost of 8 bytes per component per traversal
+	 *
+	 * @param 	nbTraversals
+	 * 			the new number of traversals
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is not strictly positive
+	 */
+	public void setNbTraversals(int nbTraversals) throws InputFieldNotValidException {
+		if (nbTraversals <= 0)
+			throw new InputFieldNotValidException();
+		this.nbTraversals = nbTraversals;
+	}
+
+	private volatile int nbTraversals;
+
+	/**
+	 * get the fork join pool on which the index is built
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * set the fork join pool on which the index is built
+	 *
+	 * @param 	pool
+	 * 			the fork join pool to use
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the pool is null
+	 */
+	public void setPool(ForkJoinPool pool) throws InputFieldNotSpecifiedException {
+		if (pool == null)
+			throw new InputFieldNotSpecifiedException();
+		this.pool = pool;
+	}
+
+	private volatile ForkJoinPool pool;
+
+	/**
+	 * check if citations changed since the last build, so that queries search the current citations
+	 */
+	public boolean isStale() {
+		return stale;
+	}
+
+	private volatile boolean stale;
+
+	/**
+	 * build the index again from the current citations of the reference database
+	 */
+	public void rebuild() {
+		ForkJoinPool pool = getPool();
+		int nbTraversals = getNbTraversals();
+		try {
+			CitationComponents components = CitationComponents.of(CitationGraph.of(refDb), pool);
+			labels = pool.submit(() -> new Labels(components, nbTraversals)).join();
+			stale = false;
+		} catch (InputFieldNotSpecifiedException e) {
+			assert false; // cannot occur : the reference database and the pool are never null
+		}
+	}
+
+	private volatile Labels labels;
+
+	/**
+	 * check if the first given publication directly or indirectly cites the second
+	 *
+	 * @param 	citator
+	 * 			the publication whose citations are followed
+	 * @param 	citation
+	 * 			the publication to look for
+	 * @throws 	PublicationIsNullException
+	 * 			one of the publications is null
+	 * @return	true if there is a chain of one or more citations from the citator to the citation
+	 * 			(a publication only cites itself through a citation cycle)
+	 */
+	public boolean transitivelyCites(Publication citator, Publication citation) throws PublicationIsNullException {
+		if (citator == null || citation == null)
+			throw new PublicationIsNullException();
+		Labels labels = this.labels;
+		if (!stale) {
+			int component1 = labels.components.getComponent(citator);
+			int component2 = labels.components.getComponent(citation);
+			if (component1 >= 0 && component2 >= 0)
+				return labels.reaches(component1, component2, citator != citation);
+		}
+		return searchCitations(citator, citation);
+	}
+
+	/**
+	 * depth first search over the current citations (the stale fallback)
+	 */
+	private static boolean searchCitations(Publication citator, Publication citation) {
+		Set<Publication> visited = Collections.newSetFromMap(new IdentityHashMap<Publication, Boolean>());
+		Deque<Publication> stack = new ArrayDeque<Publication>();
+		stack.push(citator);
+		while (!stack.isEmpty()) {
+			// the relation is read directly : the public getter copies the set at every step
+			for (Publication cited : stack.pop().cites) {
+				if (cited == citation)
+					return true;
+				if (visited.add(cited))
+					stack.push(cited);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A class of interval labels of the components of a citation graph snapshot, for a number of randomised
+	 * depth first traversals of its condensation
+	 */
+	private static final class Labels {
+
+		Labels(CitationComponents components, int nbTraversals) {
+			this.components = components;
+			this.nbTraversals = nbTraversals;
+			int nbComponents = components.getNbComponents();
+			intervals = new int[2 * nbTraversals * nbComponents];
+			// the traversals start from the components that are not cited, in a different random order each time
+			boolean[] cited = new boolean[nbComponents];
+			for (int c : components.condensation)
+				cited[c] = true;
+			int[] sources = IntStream.range(0, nbComponents).filter(c -> !cited[c]).toArray();
+			IntStream.range(0, nbTraversals).parallel().forEach(t -> label(t, sources.clone(), new Random(t)));
+		}
+
+		final CitationComponents components;
+		private final int nbTraversals;
+
+		/**
+		 * per component, per traversal : low, post
+		 */
+		private final int[] intervals;
+
+		private int low(int component, int traversal) {
+			return intervals[2 * (component * nbTraversals + traversal)];
+		}
+
+		private int post(int component, int traversal) {
+			return intervals[2 * (component * nbTraversals + traversal) + 1];
+		}
+
+		/**
+		 * label the given traversal : an iterative depth first traversal from the given sources in random order,
+		 * that visits the cited components of every component from a random start
+		 */
+		private void label(int traversal, int[] sources, Random random) {
+			int[] offsets = components.condensationOffsets;
+			int[] condensation = components.condensation;
+			for (int i = sources.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = sources[i];
+				sources[i] = sources[j];
+				sources[j] = swap;
+			}
+			int nbComponents = offsets.length - 1;
+			boolean[] visited = new boolean[nbComponents];
+			int[] stack = new int[nbComponents];
+			int[] starts = new int[nbComponents];
+			int[] steps = new int[nbComponents];
+			int rank = 0;
+			for (int source : sources) {
+				visited[source] = true;
+				stack[0] = source;
+				starts[0] = random.nextInt(Math.max(1, offsets[source + 1] - offsets[source]));
+				steps[0] = 0;
+				int depth = 1;
+				int lowest = Integer.MAX_VALUE;
+				while (depth > 0) {
+					int c = stack[depth - 1];
+					int degree = offsets[c + 1] - offsets[c];
+					if (steps[depth - 1] < degree) {
+						int d = condensation[offsets[c] + (starts[depth - 1] + steps[depth - 1]++) % degree];
+						if (!visited[d]) {
+							visited[d] = true;
+							stack[depth] = d;
+							starts[depth] = random.nextInt(Math.max(1, offsets[d + 1] - offsets[d]));
+							steps[depth] = 0;
+							depth++;
+						}
+						continue;
+					}
+					// all cited components are labelled : the lowest rank reached is the lowest of their lows
+					lowest = rank;
+					for (int k = offsets[c]; k < offsets[c + 1]; k++)
+						lowest = Math.min(lowest, low(condensation[k], traversal));
+					int slot = 2 * (c * nbTraversals + traversal);
+					intervals[slot] = lowest;
+					intervals[slot + 1] = rank++;
+					depth--;
+				}
+			}
+		}
+
+		/**
+		 * check if the labels of the second component lie within the labels of the first, for every traversal
+		 */
+		private boolean mayReach(int component1, int component2) {
+			for (int t = 0; t < nbTraversals; t++)
+				if (low(component2, t) < low(component1, t) || post(component2, t) > post(component1, t))
+					return false;
+			return true;
+		}
+
+		/**
+		 * check if the first component reaches the second by one or more citations
+		 *
+		 * @param 	distinct
+		 * 			whether the question is about two distinct publications (in the same component, they reach each other)
+		 */
+		boolean reaches(int component1, int component2, boolean distinct) {
+			if (component1 == component2)
+				return distinct || components.memberOffsets[component1 + 1] - components.memberOffsets[component1] > 1;
+			if (component2 > component1 || !mayReach(component1, component2))
+				return false;
+			int[] offsets = components.condensationOffsets;
+			int[] condensation = components.condensation;
+			IntIntMap visited = new IntIntMap();
+			int[] stack = new int[16];
+			int depth = 0;
+			stack[depth++] = component1;
+			while (depth > 0) {
+				int c = stack[--depth];
+				for (int k = offsets[c]; k < offsets[c + 1]; k++) {
+					int d = condensation[k];
+					if (d == component2)
+						return true;
+					// a component with a lower number than the target only reaches lower numbers
+					if (d < component2 || !visited.putIfAbsent(d, 0) || !mayReach(d, component2))
+						continue;
+					if (depth == stack.length)
+						stack = Arrays.copyOf(stack, depth * 2);
+					stack[depth++] = d;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * a changed citation makes the index stale; a touched publication whose citations still match the snapshot
+	 * (e.g. its year changed) does not
+	 */
+	@Override
+	public void touchPublication(Publication publication) {
+		if (publication == null || stale)
+			return;
+		Labels labels = this.labels;
+		if (labels == null || !hasSnapshotCitations(labels.components.getGraph(), publication))
+			stale = true;
+	}
+
+	private static boolean hasSnapshotCitations(CitationGraph graph, Publication publication) {
+		int number = graph.getNumber(publication);
+		if (number < 0)
+			return publication.cites.isEmpty() && publication.citedBy.isEmpty();
+		if (publication.cites.size() != graph.getNbCitations(number)
+				|| publication.citedBy.size() != graph.getNbCitators(number))
+			return false;
+		for (Publication cited : publication.cites) {
+			int citedNumber = graph.getNumber(cited);
+			if (citedNumber < 0 || Arrays.binarySearch(graph.citations, graph.citationOffsets[number],
+					graph.citationOffsets[number + 1], citedNumber) < 0)
+				return false;
+		}
+		for (Publication citator : publication.citedBy) {
+			int citatorNumber = graph.getNumber(citator);
+			if (citatorNumber < 0 || Arrays.binarySearch(graph.citators, graph.citatorOffsets[number],
+					graph.citatorOffsets[number + 1], citatorNumber) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void touchId(String id) {
+	}
+
+	@Override
+	public void touchAuthorKey(String authorKey) {
+	}
+
+	@Override
+	public void touchTitleWord(String titleWord) {
+	}
+}
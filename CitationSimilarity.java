@@ -0,0 +1,342 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A class of similarity engines that find the publications related to a given publication through the citation graph
+ * of a reference database :
+ * 	-> co-citation : the publications that are cited together with it, ranked by the number of shared citators
+ * 	-> bibliographic coupling : the publications that share citations with it, ranked by the number of shared citations
+ *
+ * A query walks the two hops from the publication and accumulates the strength of every publication reached in
+ * a sparse vector (an open addressing map with int counts), then selects the top k.  Hub publications are skipped
+ * as intermediate : a citator with more citations, or a citation with more citators, than the maximum intermediate
+ * degree adds little similarity and much work.
+ *
+ * Optionally the top k of every queried publication is cached.  The engine follows the changes of the reference
+ * database (it is a change tracker) : a changed citation makes the cached results it affects stale, and stale
+ * results are recomputed by the next query or by refreshCache().
+ * The reference database is not thread safe : no changes may run while a query or a refresh runs.
+ *
+ * @invar	the maximum intermediate degree of an engine is strictly positive
+ * @invar	the cache size of an engine is not negative (0 for no cache)
+ */
+public final class CitationSimilarity implements RefDbChangeTracker {
+
+	/**
+	 * the order of the results : descending strength, then ascending referenceId (unregistered publications last)
+	 */
+	private static final Comparator<SimilarPublication> RESULT_ORDER = (similar1, similar2) -> {
+		if (similar1.getStrength() != similar2.getStrength())
+			return Integer.compare(similar2.getStrength(), similar1.getStrength());
+		String id1 = similar1.getPublication().getReferenceId();
+		String id2 = similar2.getPublication().getReferenceId();
+		if (id1 == null || id2 == null)
+			return (id1 == null ? 1 : 0) - (id2 == null ? 1 : 0);
+		return RefDbIndex.ID_ORDER.compare(id1, id2);
+	};
+
+	/**
+	 * Initialise this new similarity engine for the given reference database, with a maximum intermediate degree
+	 * of 1000 and without cache
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @post	the engine follows the changes of the reference database until it is terminated
+	 */
+	public CitationSimilarity(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		this.maxIntermediateDegree = 1000;
+		refDb.addChangeTracker(this);
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * stop following the changes of the reference database (and drop the cache)
+	 */
+	public void terminate() {
+		refDb.removeChangeTracker(this);
+		clearCache();
+	}
+
+	/**
+	 * get the maximum degree of a publication that is used as intermediate in a query
+	 */
+	public int getMaxIntermediateDegree() {
+		return maxIntermediateDegree;
+	}
+
+	/**
+	 * set the maximum degree of a publication that is used as intermediate in a query (the cache is dropped)
+	 *
+	 * @param 	maxIntermediateDegree
+	 * 			the new maximum degree
+	 * @throws 	InputFieldNotValidException
+	 * 			the degree is not strictly positive
+	 */
+	public void setMaxIntermediateDegree(int maxIntermediateDegree) throws InputFieldNotValidException {
+		if (maxIntermediateDegree <= 0)
+			throw new InputFieldNotValidException();
+		this.maxIntermediateDegree = maxIntermediateDegree;
+		clearCache();
+	}
+
+	private volatile int maxIntermediateDegree;
+
+	/**
+	 * get the number of results cached per publication (0 when the cache is off)
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * set the number of results cached per publication (the cache is dropped).
+	 * A query for at most that number of results is answered from the cache.
+	 *
+	 * @param 	cacheSize
+	 * 			the number of results to cache, 0 to switch the cache off
+	 * @throws 	InputFieldNotValidException
+	 * 			the size is negative
+	 */
+	public void setCacheSize(int cacheSize) throws InputFieldNotValidException {
+		if (cacheSize < 0)
+			throw new InputFieldNotValidException();
+		this.cacheSize = cacheSize;
+		clearCache();
+	}
+
+	private volatile int cacheSize;
+
+	/**
+	 * get the publications that are most often cited together with the given publication
+	 *
+	 * @param 	publication
+	 * 			the publication to find related publications for
+	 * @param 	nb
+	 * 			the maximum number of results
+	 * @throws 	PublicationIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is negative
+	 * @return	at most nb co-cited publications in descending strength
+	 */
+	public List<SimilarPublication> getCoCitedPublications(Publication publication, int nb)
+			throws PublicationIsNullException, InputFieldNotValidException {
+		return query(publication, nb, true);
+	}
+
+	/**
+	 * get the publications that share most citations with the given publication
+	 *
+	 * @param 	publication
+	 * 			the publication to find related publications for
+	 * @param 	nb
+	 * 			the maximum number of results
+	 * @throws 	PublicationIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the number is negative
+	 * @return	at most nb coupled publications in descending strength
+	 */
+	public List<SimilarPublication> getCoupledPublications(Publication publication, int nb)
+			throws PublicationIsNullException, InputFieldNotValidException {
+		return query(publication, nb, false);
+	}
+
+	private List<SimilarPublication> query(Publication publication, int nb, boolean coCitation)
+			throws PublicationIsNullException, InputFieldNotValidException {
+		if (publication == null)
+			throw new PublicationIsNullException();
+		if (nb < 0)
+			throw new InputFieldNotValidException();
+		int cacheSize = getCacheSize();
+		if (cacheSize == 0 || nb > cacheSize)
+			return Arrays.asList(compute(publication, nb, coCitation));
+		Map<Publication, SimilarPublication[]> cache = coCitation ? coCitationCache : couplingCache;
+		SimilarPublication[] cached = cache.get(publication);
+		if (cached == null) {
+			cached = compute(publication, cacheSize, coCitation);
+			cache.put(publication, cached);
+		}
+		return Collections.unmodifiableList(Arrays.asList(cached).subList(0, Math.min(nb, cached.length)));
+	}
+
+	/**
+	 * compute the top nb of the given publication : accumulate the strength of every publication two hops away
+	 * (citators then their citations for co-citation, citations then their citators for coupling)
+	 */
+	private SimilarPublication[] compute(Publication publication, int nb, boolean coCitation) {
+		int maxDegree = getMaxIntermediateDegree();
+		PublicationCounter counter = new PublicationCounter();
+		// the relations are read directly : the public getters copy the sets at every hop
+		for (Publication intermediate : coCitation ? publication.citedBy : publication.cites) {
+			Set<Publication> secondHop = coCitation ? intermediate.cites : intermediate.citedBy;
+			if (secondHop.size() > maxDegree)
+				continue;
+			for (Publication similar : secondHop)
+				if (similar != publication)
+					counter.increment(similar);
+		}
+		return counter.getTop(nb);
+	}
+
+	/**
+	 * recompute the cached results that became stale, in parallel on the common fork join pool
+	 *
+	 * @return	the number of recomputed results
+	 */
+	public int refreshCache() {
+		return refreshCache(coCitationCache, staleCoCitations, true) + refreshCache(couplingCache, staleCouplings, false);
+	}
+
+	private int refreshCache(Map<Publication, SimilarPublication[]> cache, Set<Publication> stale, boolean coCitation) {
+		int cacheSize = getCacheSize();
+		List<Publication> toRefresh = new ArrayList<Publication>(stale);
+		stale.removeAll(toRefresh);
+		if (cacheSize == 0)
+			return 0;
+		ForkJoinPool.commonPool().submit(() -> toRefresh.parallelStream().forEach(publication -> {
+			if (publication.hasReferenceId())
+				cache.put(publication, compute(publication, cacheSize, coCitation));
+		})).join();
+		return toRefresh.size();
+	}
+
+	private void clearCache() {
+		coCitationCache.clear();
+		couplingCache.clear();
+		staleCoCitations.clear();
+		staleCouplings.clear();
+	}
+
+	private final Map<Publication, SimilarPublication[]> coCitationCache = new ConcurrentHashMap<Publication, SimilarPublication[]>();
+	private final Map<Publication, SimilarPublication[]> couplingCache = new ConcurrentHashMap<Publication, SimilarPublication[]>();
+	private final Set<Publication> staleCoCitations = ConcurrentHashMap.newKeySet();
+	private final Set<Publication> staleCouplings = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * a citation from c to q is added or removed, and both c and q are touched : the co-citations of q and of the
+	 * other citations of c change, and so do the couplings of c and of the other citators of q.
+	 * So a touched publication makes stale its own results, the co-citations of its citations and the couplings
+	 * of its citators.
+	 */
+	@Override
+	public void touchPublication(Publication publication) {
+		if (publication == null || getCacheSize() == 0)
+			return;
+		makeStale(coCitationCache, staleCoCitations, publication);
+		makeStale(couplingCache, staleCouplings, publication);
+		for (Publication citation : publication.cites)
+			makeStale(coCitationCache, staleCoCitations, citation);
+		for (Publication citator : publication.citedBy)
+			makeStale(couplingCache, staleCouplings, citator);
+	}
+
+	private static void makeStale(Map<Publication, SimilarPublication[]> cache, Set<Publication> stale,
+			Publication publication) {
+		if (cache.remove(publication) != null)
+			stale.add(publication);
+	}
+
+	/**
+	 * a removed publication is removed from the cache (its citations are touched one by one before)
+	 */
+	@Override
+	public void touchId(String id) {
+		Publication publication = refDb.getIdTable().get(id);
+		if (publication != null && getCacheSize() > 0) {
+			coCitationCache.remove(publication);
+			couplingCache.remove(publication);
+		}
+	}
+
+	@Override
+	public void touchAuthorKey(String authorKey) {
+	}
+
+	@Override
+	public void touchTitleWord(String titleWord) {
+	}
+
+	/**
+	 * A class of sparse vectors of publications with int counts : an open addressing hash map on the identity of the
+	 * publications, with linear probing, that doubles when it is half full
+	 */
+	private static final class PublicationCounter {
+
+		private Publication[] keys = new Publication[16];
+		private int[] counts = new int[16];
+		private int size;
+
+		void increment(Publication publication) {
+			int mask = keys.length - 1;
+			int slot = mix(System.identityHashCode(publication)) & mask;
+			while (keys[slot] != null && keys[slot] != publication)
+				slot = (slot + 1) & mask;
+			if (keys[slot] == null) {
+				keys[slot] = publication;
+				if (++size * 2 > keys.length) {
+					counts[slot] = 1;
+					grow();
+					return;
+				}
+			}
+			counts[slot]++;
+		}
+
+		private void grow() {
+			Publication[] oldKeys = keys;
+			int[] oldCounts = counts;
+			keys = new Publication[oldKeys.length * 2];
+			counts = new int[oldKeys.length * 2];
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] == null)
+					continue;
+				int slot = mix(System.identityHashCode(oldKeys[i])) & mask;
+				while (keys[slot] != null)
+					slot = (slot + 1) & mask;
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+
+		private static int mix(int hash) {
+			hash *= 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+
+		/**
+		 * get the nb entries with the highest counts, in RESULT_ORDER
+		 */
+		SimilarPublication[] getTop(int nb) {
+			List<SimilarPublication> all = new ArrayList<SimilarPublication>(size);
+			for (int i = 0; i < keys.length; i++)
+				if (keys[i] != null)
+					all.add(new SimilarPublication(keys[i], counts[i]));
+			if (all.size() > nb) {
+				// only the entries that can still make the top nb are sorted
+				int[] sortedCounts = new int[all.size()];
+				for (int i = 0; i < sortedCounts.length; i++)
+					sortedCounts[i] = all.get(i).getStrength();
+				Arrays.sort(sortedCounts);
+				int threshold = nb == 0 ? Integer.MAX_VALUE : sortedCounts[sortedCounts.length - nb];
+				all.removeIf(similar -> similar.getStrength() < threshold);
+			}
+			all.sort(RESULT_ORDER);
+			return all.subList(0, Math.min(nb, all.size())).toArray(new SimilarPublication[0]);
+		}
+	}
+}
@@ -0,0 +1,394 @@
+package publicationRefDb;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class of citation timelines of a reference database : for every publication and every author (key of the
+ * author index), the citations received per year of publication of the citator, e.g. the citations received in
+ * 2017, or the citation index within 2015-2020.
+ *
+ * Every timeline is a histogram in one int array : cumulative counts per year and per PublicationType of the
+ * citator, over the range of years it needs.  So the number of citations or the citation index (weighted with the
+ * current citation weight of every type) within any range of years takes a few subtractions, whatever the width
+ * of the range.  The timeline of an author is the sum of the timelines of its publications.
+ *
+ * The timelines follow the changes of the reference database (it is a change tracker) : added and removed
+ * citations, changed years of citators, and added and removed authors and publications mark the publications they
+ * change, and the next read recomputes only those publications and adds the difference to their authors.
+ * Reads are thread safe; the reference database is not, so no changes may run while a read runs.
+ *
+ * @invar	the timeline of every author is the sum of the timelines of its publications
+ */
+public final class CitationTimeline implements RefDbChangeTracker {
+
+	private static final PublicationType[] TYPES = PublicationType.values();
+
+	/**
+	 * Initialise this new timeline with all publications of the given reference database
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @post	the timeline follows the changes of the reference database until it is terminated
+	 */
+	public CitationTimeline(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		refDb.addChangeTracker(this);
+		synchronized (this) {
+			for (Map.Entry<String, Publication> entry : refDb.getIdTable().entrySet())
+				update(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * stop following the changes of the reference database
+	 */
+	public void terminate() {
+		refDb.removeChangeTracker(this);
+	}
+
+	/**
+	 * get the number of citations the given publication received per year of the citator
+	 *
+	 * @param 	publication
+	 * 			the cited publication
+	 * @param 	fromYear
+	 * 			the first year
+	 * @param 	toYear
+	 * 			the last year
+	 * @throws 	PublicationIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the first year is after the last year
+	 * @return	the number of citations of every year from the first to the last year
+	 * 			(all 0 for a publication that is not registered in the reference database)
+	 */
+	public synchronized int[] getCitationsPerYear(Publication publication, int fromYear, int toYear)
+			throws PublicationIsNullException, InputFieldNotValidException {
+		return getCitationsPerYear(getHistogram(publication), fromYear, toYear);
+	}
+
+	/**
+	 * get the number of citations the given publication received from citators published within the given years
+	 *
+	 * @throws 	PublicationIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the first year is after the last year
+	 */
+	public synchronized int getNbCitations(Publication publication, int fromYear, int toYear)
+			throws PublicationIsNullException, InputFieldNotValidException {
+		checkYears(fromYear, toYear);
+		Histogram histogram = getHistogram(publication);
+		return histogram == null ? 0 : histogram.count(fromYear, toYear);
+	}
+
+	/**
+	 * get the citation index of the given publication within the given years : the sum of the citation scores of
+	 * its citators published within those years
+	 *
+	 * @throws 	PublicationIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the first year is after the last year
+	 */
+	public synchronized double getCitationIndex(Publication publication, int fromYear, int toYear)
+			throws PublicationIsNullException, InputFieldNotValidException {
+		checkYears(fromYear, toYear);
+		Histogram histogram = getHistogram(publication);
+		return histogram == null ? 0 : histogram.weigh(fromYear, toYear);
+	}
+
+	/**
+	 * get the number of citations the publications of the given author received per year of the citator
+	 *
+	 * @param 	authorKey
+	 * 			the key of the author in the author index (e.g. M. L. King)
+	 * @param 	fromYear
+	 * 			the first year
+	 * @param 	toYear
+	 * 			the last year
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	AuthorNotInDbException
+	 * 			the author has no publications in the reference database
+	 * @throws 	InputFieldNotValidException
+	 * 			the first year is after the last year
+	 * @return	the number of citations of every year from the first to the last year
+	 */
+	public synchronized int[] getAuthorCitationsPerYear(String authorKey, int fromYear, int toYear)
+			throws AuthorNameIsNullException, AuthorNotInDbException, InputFieldNotValidException {
+		return getCitationsPerYear(getAuthorHistogram(authorKey), fromYear, toYear);
+	}
+
+	/**
+	 * get the number of citations the publications of the given author received from citators published within
+	 * the given years
+	 *
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	AuthorNotInDbException
+	 * 			the author has no publications in the reference database
+	 * @throws 	InputFieldNotValidException
+	 * 			the first year is after the last year
+	 */
+	public synchronized int getAuthorNbCitations(String authorKey, int fromYear, int toYear)
+			throws AuthorNameIsNullException, AuthorNotInDbException, InputFieldNotValidException {
+		checkYears(fromYear, toYear);
+		return getAuthorHistogram(authorKey).count(fromYear, toYear);
+	}
+
+	/**
+	 * get the citation index of the given author within the given years : the sum of the citation scores of the
+	 * citators of its publications published within those years
+	 *
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	AuthorNotInDbException
+	 * 			the author has no publications in the reference database
+	 * @throws 	InputFieldNotValidException
+	 * 			the first year is after the last year
+	 */
+	public synchronized double getAuthorCitationIndex(String authorKey, int fromYear, int toYear)
+			throws AuthorNameIsNullException, AuthorNotInDbException, InputFieldNotValidException {
+		checkYears(fromYear, toYear);
+		return getAuthorHistogram(authorKey).weigh(fromYear, toYear);
+	}
+
+	private static void checkYears(int fromYear, int toYear) throws InputFieldNotValidException {
+		if (fromYear > toYear)
+			throw new InputFieldNotValidException();
+	}
+
+	private static int[] getCitationsPerYear(Histogram histogram, int fromYear, int toYear)
+			throws InputFieldNotValidException {
+		checkYears(fromYear, toYear);
+		int[] counts = new int[toYear - fromYear + 1];
+		if (histogram != null)
+			for (int year = fromYear; year <= toYear; year++)
+				counts[year - fromYear] = histogram.count(year, year);
+		return counts;
+	}
+
+	private Histogram getHistogram(Publication publication) throws PublicationIsNullException {
+		if (publication == null)
+			throw new PublicationIsNullException();
+		reconcile();
+		PublicationRecord record = publication.hasReferenceId() ? publications.get(publication.getReferenceId()) : null;
+		return record == null || record.publication != publication ? null : record.histogram;
+	}
+
+	private Histogram getAuthorHistogram(String authorKey) throws AuthorNameIsNullException, AuthorNotInDbException {
+		if (authorKey == null)
+			throw new AuthorNameIsNullException();
+		reconcile();
+		AuthorRecord record = authors.get(authorKey);
+		if (record == null)
+			throw new AuthorNotInDbException();
+		return record.histogram;
+	}
+
+	/**
+	 * A class of citation histograms : cumulative[(y - firstYear) * T + t] is the number of citators of type t
+	 * published in firstYear..y, for the T publication types
+	 */
+	private static final class Histogram {
+
+		int firstYear;
+		int[] cumulative = new int[0];
+
+		private int nbYears() {
+			return cumulative.length / TYPES.length;
+		}
+
+		/**
+		 * get the cumulative count of the given type up to and including the given year
+		 */
+		private int upTo(int year, int type) {
+			if (year < firstYear || cumulative.length == 0)
+				return 0;
+			int row = Math.min(year - firstYear, nbYears() - 1);
+			return cumulative[row * TYPES.length + type];
+		}
+
+		int count(int fromYear, int toYear) {
+			int count = 0;
+			for (int type = 0; type < TYPES.length; type++)
+				count += upTo(toYear, type) - upTo(fromYear - 1, type);
+			return count;
+		}
+
+		double weigh(int fromYear, int toYear) {
+			double weighted = 0;
+			for (int type = 0; type < TYPES.length; type++)
+				weighted += (upTo(toYear, type) - upTo(fromYear - 1, type)) * TYPES[type].getCitationWeight();
+			return weighted;
+		}
+
+		/**
+		 * extend the range of years of this histogram to include the given years
+		 */
+		private void cover(int fromYear, int toYear) {
+			if (cumulative.length == 0) {
+				firstYear = fromYear;
+				cumulative = new int[(toYear - fromYear + 1) * TYPES.length];
+				return;
+			}
+			int lastYear = firstYear + nbYears() - 1;
+			int newFirstYear = Math.min(firstYear, fromYear);
+			int newLastYear = Math.max(lastYear, toYear);
+			if (newFirstYear == firstYear && newLastYear == lastYear)
+				return;
+			int[] extended = new int[(newLastYear - newFirstYear + 1) * TYPES.length];
+			for (int year = newFirstYear; year <= newLastYear; year++)
+				for (int type = 0; type < TYPES.length; type++)
+					extended[(year - newFirstYear) * TYPES.length + type] = upTo(year, type);
+			firstYear = newFirstYear;
+			cumulative = extended;
+		}
+
+		/**
+		 * add the given histogram times the given factor (1 or -1) to this histogram
+		 */
+		void add(Histogram other, int factor) {
+			if (other.cumulative.length == 0)
+				return;
+			cover(other.firstYear, other.firstYear + other.nbYears() - 1);
+			for (int row = 0; row < nbYears(); row++)
+				for (int type = 0; type < TYPES.length; type++)
+					cumulative[row * TYPES.length + type] += factor * other.upTo(firstYear + row, type);
+		}
+
+		/**
+		 * make the histogram of the citators of the given publication
+		 */
+		static Histogram of(Publication publication) {
+			Histogram histogram = new Histogram();
+			if (publication.citedBy.isEmpty())
+				return histogram;
+			int fromYear = Integer.MAX_VALUE;
+			int toYear = Integer.MIN_VALUE;
+			for (Publication citator : publication.citedBy) {
+				fromYear = Math.min(fromYear, citator.getYearOfPublication());
+				toYear = Math.max(toYear, citator.getYearOfPublication());
+			}
+			histogram.cover(fromYear, toYear);
+			int[] cumulative = histogram.cumulative;
+			for (Publication citator : publication.citedBy)
+				cumulative[(citator.getYearOfPublication() - fromYear) * TYPES.length
+						+ citator.getPublicationType().ordinal()]++;
+			for (int i = TYPES.length; i < cumulative.length; i++)
+				cumulative[i] += cumulative[i - TYPES.length];
+			return histogram;
+		}
+
+		boolean isSameAs(Histogram other) {
+			return firstYear == other.firstYear && Arrays.equals(cumulative, other.cumulative);
+		}
+	}
+
+	// the histogram recorded for every publication and author
+
+	private static final class PublicationRecord {
+
+		PublicationRecord(Publication publication) {
+			this.publication = publication;
+			this.histogram = Histogram.of(publication);
+			Set<String> keys = new LinkedHashSet<String>(publication.getAllAuthorsWithInitial());
+			this.authorKeys = keys.toArray(new String[0]);
+		}
+
+		final Publication publication;
+		final Histogram histogram;
+		final String[] authorKeys;
+
+		boolean isSameAs(PublicationRecord other) {
+			return other != null && publication == other.publication && histogram.isSameAs(other.histogram)
+					&& Arrays.equals(authorKeys, other.authorKeys);
+		}
+	}
+
+	private static final class AuthorRecord {
+
+		final Histogram histogram = new Histogram();
+		int nbPublications;
+	}
+
+	private final Map<String, PublicationRecord> publications = new HashMap<String, PublicationRecord>();
+	private final Map<String, AuthorRecord> authors = new HashMap<String, AuthorRecord>();
+
+	/**
+	 * bring the timelines in line with the current state of the publication with the given ID
+	 *
+	 * @param 	publication
+	 * 			the publication with that ID, or null if it is no longer in the reference database
+	 */
+	private void update(String id, Publication publication) {
+		PublicationRecord old = publications.get(id);
+		PublicationRecord now = publication == null ? null : new PublicationRecord(publication);
+		if (now != null && now.isSameAs(old))
+			return;
+		if (old != null) {
+			publications.remove(id);
+			for (String authorKey : old.authorKeys) {
+				AuthorRecord author = authors.get(authorKey);
+				author.histogram.add(old.histogram, -1);
+				if (--author.nbPublications == 0)
+					authors.remove(authorKey);
+			}
+		}
+		if (now != null) {
+			publications.put(id, now);
+			for (String authorKey : now.authorKeys) {
+				AuthorRecord author = authors.computeIfAbsent(authorKey, key -> new AuthorRecord());
+				author.histogram.add(now.histogram, 1);
+				author.nbPublications++;
+			}
+		}
+	}
+
+	// change tracking : touched publications are brought in line by the next read
+
+	private final Set<String> touchedIds = ConcurrentHashMap.newKeySet();
+
+	private void reconcile() {
+		if (touchedIds.isEmpty())
+			return;
+		for (String id : touchedIds.toArray(new String[0])) {
+			touchedIds.remove(id);
+			update(id, refDb.getIdTable().get(id));
+		}
+	}
+
+	/**
+	 * a touched publication changed its citations or its year : its own histogram may change, and so may the
+	 * histograms of the publications it cites
+	 */
+	@Override
+	public void touchPublication(Publication publication) {
+		if (publication == null || !publication.hasReferenceId())
+			return;
+		touchedIds.add(publication.getReferenceId());
+		for (Publication citation : publication.cites)
+			if (citation.hasReferenceId())
+				touchedIds.add(citation.getReferenceId());
+	}
+
+	@Override
+	public void touchId(String id) {
+		if (id != null)
+			touchedIds.add(id);
+	}
+
+	@Override
+	public void touchAuthorKey(String authorKey) {
+	}
+
+	@Override
+	public void touchTitleWord(String titleWord) {
+	}
+}
@@ -0,0 +1,428 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class of co-authorship graphs of a reference database : the authors (keys of the author index, e.g. M. L. King)
+ * are the nodes, and two authors are linked when they share a publication, with the number of shared publications
+ * as weight of the link.
+ *
+ * Every author gets an int number on first appearance; the links of an author are stored compactly as one int array
+ * of (co-author, weight) pairs, so a search touches no boxed values.  Path queries ignore the weights (Erdos
+ * number style) and run a bidirectional breadth first search : both sides expand level by level, always the side
+ * with the smaller frontier, and the visited authors are kept in sparse maps (IntIntMap), so a query costs in
+ * proportion to the authors it reaches, not to the size of the graph.
+ *
+ * The graph follows the changes of the reference database (it is a change tracker) : the touched publications are
+ * marked, and the next query compares their current authors with the authors the graph recorded for them,
+ * and adds or removes only the difference (also for removed publications).
+ * Queries are thread safe; the reference database is not, so no changes may run while a query runs.
+ *
+ * @invar	the graph is symmetric : a links to b with weight w if and only if b links to a with weight w
+ * @invar	the weight of every link is strictly positive
+ */
+public final class CoAuthorshipGraph implements RefDbChangeTracker {
+
+	private static final int[] NO_AUTHORS = new int[0];
+
+	/**
+	 * Initialise this new co-authorship graph with all publications of the given reference database
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @post	the graph follows the changes of the reference database until it is terminated
+	 */
+	public CoAuthorshipGraph(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		refDb.addChangeTracker(this);
+		synchronized (this) {
+			for (Map.Entry<String, Publication> entry : refDb.getIdTable().entrySet())
+				update(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * stop following the changes of the reference database
+	 */
+	public void terminate() {
+		refDb.removeChangeTracker(this);
+	}
+
+	/**
+	 * get the number of authors with at least one publication
+	 */
+	public synchronized int getNbAuthors() {
+		reconcile();
+		return nbActiveAuthors;
+	}
+
+	/**
+	 * get the number of pairs of authors that share at least one publication
+	 */
+	public synchronized long getNbCollaborations() {
+		reconcile();
+		return nbLinks;
+	}
+
+	/**
+	 * get the co-authors of the given author, with the number of publications they share
+	 *
+	 * @param 	authorKey
+	 * 			the key of the author in the author index (e.g. M. L. King)
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	AuthorNotInDbException
+	 * 			the author has no publications in the reference database
+	 * @return	the co-authors and their weights, in descending weight
+	 */
+	public synchronized Map<String, Integer> getCoAuthors(String authorKey)
+			throws AuthorNameIsNullException, AuthorNotInDbException {
+		reconcile();
+		int author = getAuthorNumber(authorKey);
+		int[] links = adjacency[author];
+		Integer[] order = new Integer[degrees[author]];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (i, j) -> Integer.compare(links[2 * j + 1], links[2 * i + 1]));
+		Map<String, Integer> coAuthors = new LinkedHashMap<String, Integer>();
+		for (int i : order)
+			coAuthors.put(authorKeys[links[2 * i]], links[2 * i + 1]);
+		return coAuthors;
+	}
+
+	/**
+	 * get the collaboration distance between the given authors : the smallest number of co-authorship links that
+	 * connect them
+	 *
+	 * @param 	authorKey1
+	 * 			the key of the first author
+	 * @param 	authorKey2
+	 * 			the key of the second author
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	AuthorNotInDbException
+	 * 			one of the authors has no publications in the reference database
+	 * @return	the distance, 0 for the same author, or -1 if the authors are not connected
+	 */
+	public synchronized int getCollaborationDistance(String authorKey1, String authorKey2)
+			throws AuthorNameIsNullException, AuthorNotInDbException {
+		List<String> path = getCollaborationPath(authorKey1, authorKey2);
+		return path.size() - 1;
+	}
+
+	/**
+	 * get a shortest chain of co-authors from the first to the second given author
+	 *
+	 * @param 	authorKey1
+	 * 			the key of the first author
+	 * @param 	authorKey2
+	 * 			the key of the second author
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	AuthorNotInDbException
+	 * 			one of the authors has no publications in the reference database
+	 * @return	the keys of the authors on the chain, both given authors included,
+	 * 			or an empty list if the authors are not connected
+	 */
+	public synchronized List<String> getCollaborationPath(String authorKey1, String authorKey2)
+			throws AuthorNameIsNullException, AuthorNotInDbException {
+		reconcile();
+		int source = getAuthorNumber(authorKey1);
+		int target = getAuthorNumber(authorKey2);
+		int[] path = searchPath(source, target);
+		List<String> keys = new ArrayList<String>(path.length);
+		for (int author : path)
+			keys.add(authorKeys[author]);
+		return keys;
+	}
+
+	/**
+	 * get all authors within the given collaboration distance of the given author (the author not included)
+	 *
+	 * @param 	authorKey
+	 * 			the key of the author
+	 * @param 	maxDistance
+	 * 			the maximum distance (e.g. 2 for the co-authors and their co-authors)
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	AuthorNotInDbException
+	 * 			the author has no publications in the reference database
+	 * @throws 	InputFieldNotValidException
+	 * 			the maximum distance is negative
+	 * @return	the keys of the authors with their distance, in ascending distance
+	 */
+	public synchronized Map<String, Integer> getAuthorsWithin(String authorKey, int maxDistance)
+			throws AuthorNameIsNullException, AuthorNotInDbException, InputFieldNotValidException {
+		if (maxDistance < 0)
+			throw new InputFieldNotValidException();
+		reconcile();
+		int source = getAuthorNumber(authorKey);
+		Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+		IntIntMap visited = new IntIntMap();
+		visited.put(source, 0);
+		int[] frontier = { source };
+		for (int distance = 1; distance <= maxDistance && frontier.length > 0; distance++) {
+			int[] next = new int[16];
+			int nbNext = 0;
+			for (int author : frontier) {
+				int[] links = adjacency[author];
+				for (int i = 0; i < degrees[author]; i++) {
+					int coAuthor = links[2 * i];
+					if (visited.putIfAbsent(coAuthor, distance)) {
+						if (nbNext == next.length)
+							next = Arrays.copyOf(next, nbNext * 2);
+						next[nbNext++] = coAuthor;
+						result.put(authorKeys[coAuthor], distance);
+					}
+				}
+			}
+			frontier = Arrays.copyOf(next, nbNext);
+		}
+		return result;
+	}
+
+	private int getAuthorNumber(String authorKey) throws AuthorNameIsNullException, AuthorNotInDbException {
+		if (authorKey == null)
+			throw new AuthorNameIsNullException();
+		Integer author = authorNumbers.get(authorKey);
+		if (author == null || nbPublications[author] == 0)
+			throw new AuthorNotInDbException();
+		return author;
+	}
+
+	/**
+	 * bidirectional breadth first search : expand full levels of the side with the smaller frontier; the first level
+	 * that reaches the other side holds a shortest path, through the meeting author closest to the other source
+	 *
+	 * @return	the authors on a shortest path from source to target, or an empty array if there is none
+	 */
+	private int[] searchPath(int source, int target) {
+		if (source == target)
+			return new int[] { source };
+		// parent and distance of every visited author, per side
+		IntIntMap[] parents = { new IntIntMap(), new IntIntMap() };
+		IntIntMap[] distances = { new IntIntMap(), new IntIntMap() };
+		int[][] frontiers = { { source }, { target } };
+		parents[0].put(source, -1);
+		parents[1].put(target, -1);
+		distances[0].put(source, 0);
+		distances[1].put(target, 0);
+		int[] depths = { 0, 0 };
+		while (frontiers[0].length > 0 && frontiers[1].length > 0) {
+			int side = frontiers[0].length <= frontiers[1].length ? 0 : 1;
+			int other = 1 - side;
+			int depth = ++depths[side];
+			int[] next = new int[16];
+			int nbNext = 0;
+			int meeting = -1;
+			int meetingParent = -1;
+			int meetingDistance = Integer.MAX_VALUE;
+			for (int author : frontiers[side]) {
+				int[] links = adjacency[author];
+				for (int i = 0; i < degrees[author]; i++) {
+					int coAuthor = links[2 * i];
+					int otherDistance = distances[other].get(coAuthor, -1);
+					if (otherDistance >= 0 && otherDistance < meetingDistance) {
+						meeting = coAuthor;
+						meetingParent = author;
+						meetingDistance = otherDistance;
+					}
+					if (meeting < 0 && parents[side].putIfAbsent(coAuthor, author)) {
+						distances[side].put(coAuthor, depth);
+						if (nbNext == next.length)
+							next = Arrays.copyOf(next, nbNext * 2);
+						next[nbNext++] = coAuthor;
+					}
+				}
+			}
+			if (meeting >= 0)
+				return joinPath(parents[side], meetingParent, meeting, parents[other], side == 0);
+			frontiers[side] = Arrays.copyOf(next, nbNext);
+		}
+		return NO_AUTHORS;
+	}
+
+	/**
+	 * join the half path from the side source to the given parent, the meeting author, and the half path from the
+	 * meeting author to the other source
+	 */
+	private static int[] joinPath(IntIntMap sideParents, int parent, int meeting, IntIntMap otherParents,
+			boolean fromSource) {
+		List<Integer> path = new ArrayList<Integer>();
+		for (int author = parent; author >= 0; author = sideParents.get(author, -1))
+			path.add(author);
+		Collections.reverse(path);
+		for (int author = meeting; author >= 0; author = otherParents.get(author, -1))
+			path.add(author);
+		if (!fromSource)
+			Collections.reverse(path);
+		int[] result = new int[path.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = path.get(i);
+		return result;
+	}
+
+	// the graph : one number per author, the links of every author as (co-author, weight) pairs
+
+	private final Map<String, Integer> authorNumbers = new HashMap<String, Integer>();
+	private String[] authorKeys = new String[16];
+	private int[] nbPublications = new int[16];
+	private int[][] adjacency = new int[16][];
+	private int[] degrees = new int[16];
+	private int nbAuthors;
+	private int nbActiveAuthors;
+	private long nbLinks;
+
+	/**
+	 * the authors of every publication as the graph recorded them (distinct author numbers, ascending)
+	 */
+	private final Map<String, int[]> publicationAuthors = new HashMap<String, int[]>();
+
+	private int getOrAddAuthor(String authorKey) {
+		Integer author = authorNumbers.get(authorKey);
+		if (author != null)
+			return author;
+		if (nbAuthors == authorKeys.length) {
+			int capacity = nbAuthors * 2;
+			authorKeys = Arrays.copyOf(authorKeys, capacity);
+			nbPublications = Arrays.copyOf(nbPublications, capacity);
+			adjacency = Arrays.copyOf(adjacency, capacity);
+			degrees = Arrays.copyOf(degrees, capacity);
+		}
+		authorKeys[nbAuthors] = authorKey;
+		adjacency[nbAuthors] = NO_AUTHORS;
+		authorNumbers.put(authorKey, nbAuthors);
+		return nbAuthors++;
+	}
+
+	/**
+	 * bring the graph in line with the current authors of the publication with the given ID
+	 *
+	 * @param 	publication
+	 * 			the publication with that ID, or null if it is no longer in the reference database
+	 */
+	private void update(String id, Publication publication) {
+		int[] oldAuthors = publicationAuthors.getOrDefault(id, NO_AUTHORS);
+		int[] newAuthors = NO_AUTHORS;
+		if (publication != null) {
+			ArrayList<String> keys = publication.getAllAuthorsWithInitial();
+			newAuthors = new int[keys.size()];
+			for (int i = 0; i < newAuthors.length; i++)
+				newAuthors[i] = getOrAddAuthor(keys.get(i));
+			Arrays.sort(newAuthors);
+			int nb = 0;
+			for (int i = 0; i < newAuthors.length; i++)
+				if (i == 0 || newAuthors[i] != newAuthors[i - 1])
+					newAuthors[nb++] = newAuthors[i];
+			newAuthors = Arrays.copyOf(newAuthors, nb);
+		}
+		if (Arrays.equals(oldAuthors, newAuthors))
+			return;
+		// the links among the authors that stay do not change
+		for (int a = 0; a < oldAuthors.length; a++)
+			if (Arrays.binarySearch(newAuthors, oldAuthors[a]) < 0) {
+				for (int b = 0; b < oldAuthors.length; b++)
+					if (b != a && (Arrays.binarySearch(newAuthors, oldAuthors[b]) >= 0 || b > a))
+						changeLink(oldAuthors[a], oldAuthors[b], -1);
+				changeNbPublications(oldAuthors[a], -1);
+			}
+		for (int a = 0; a < newAuthors.length; a++)
+			if (Arrays.binarySearch(oldAuthors, newAuthors[a]) < 0) {
+				for (int b = 0; b < newAuthors.length; b++)
+					if (b != a && (Arrays.binarySearch(oldAuthors, newAuthors[b]) >= 0 || b > a))
+						changeLink(newAuthors[a], newAuthors[b], 1);
+				changeNbPublications(newAuthors[a], 1);
+			}
+		if (newAuthors.length == 0)
+			publicationAuthors.remove(id);
+		else
+			publicationAuthors.put(id, newAuthors);
+	}
+
+	private void changeNbPublications(int author, int delta) {
+		if (nbPublications[author] == 0)
+			nbActiveAuthors++;
+		nbPublications[author] += delta;
+		if (nbPublications[author] == 0)
+			nbActiveAuthors--;
+	}
+
+	/**
+	 * add the given delta to the weight of the link between the given authors, in both directions
+	 */
+	private void changeLink(int author1, int author2, int delta) {
+		int weight = changeHalfLink(author1, author2, delta);
+		changeHalfLink(author2, author1, delta);
+		if (weight == 0)
+			nbLinks--;
+		else if (weight == delta)
+			nbLinks++;
+	}
+
+	/**
+	 * @return	the new weight of the link from the given author to the given co-author (0 if it is removed)
+	 */
+	private int changeHalfLink(int author, int coAuthor, int delta) {
+		int[] links = adjacency[author];
+		int degree = degrees[author];
+		for (int i = 0; i < degree; i++)
+			if (links[2 * i] == coAuthor) {
+				int weight = links[2 * i + 1] += delta;
+				if (weight == 0) {
+					// the last pair fills the hole
+					links[2 * i] = links[2 * degree - 2];
+					links[2 * i + 1] = links[2 * degree - 1];
+					degrees[author]--;
+				}
+				return weight;
+			}
+		assert delta > 0;
+		if (2 * degree == links.length)
+			adjacency[author] = links = Arrays.copyOf(links, Math.max(4, links.length * 2));
+		links[2 * degree] = coAuthor;
+		links[2 * degree + 1] = delta;
+		degrees[author]++;
+		return delta;
+	}
+
+	// change tracking : touched publications are brought in line by the next query
+
+	private final Set<String> touchedIds = ConcurrentHashMap.newKeySet();
+
+	private void reconcile() {
+		if (touchedIds.isEmpty())
+			return;
+		for (String id : touchedIds.toArray(new String[0])) {
+			touchedIds.remove(id);
+			update(id, refDb.getIdTable().get(id));
+		}
+	}
+
+	@Override
+	public void touchPublication(Publication publication) {
+	}
+
+	@Override
+	public void touchId(String id) {
+		if (id != null)
+			touchedIds.add(id);
+	}
+
+	@Override
+	public void touchAuthorKey(String authorKey) {
+	}
+
+	@Override
+	public void touchTitleWord(String titleWord) {
+	}
+}
@@ -68,7 +68,7 @@ public class ConferencePaper extends Publication {
 	 * 
 	 */
 	public String getConference() {
-		return new String(conference);
+		return conference;
 	}
 
 	/**
@@ -89,11 +89,24 @@ public class ConferencePaper extends Publication {
 		if ("".equals(conference.trim()))
 			throw new ConferenceIsBlankException();
 
-		this.conference = new String(conference).trim();
+		this.conference = StringPool.canonical(conference.trim());
+		bumpVersion();
+		touchInRefDb();
+		publishChange(RefDbChangeType.PUBLICATION_CHANGED, null, null);
 	}
 
 	private String conference;
 
+	@Override
+	public long estimateMemoryFootprint() {
+		return super.estimateMemoryFootprint() + estimateMemoryFootprint(conference);
+	}
+
+	@Override
+	public PublicationType getPublicationType() {
+		return PublicationType.CONFERENCEPAPER;
+	}
+
 	@Override
 	public double getCitationScore() {
 		return PublicationType.CONFERENCEPAPER.getCitationWeight();
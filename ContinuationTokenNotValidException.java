@@ -0,0 +1,16 @@
+package publicationRefDb;
+
+public class ContinuationTokenNotValidException extends InputFieldNotValidException
+ {
+	String errMsg;
+
+	ContinuationTokenNotValidException(String token){
+		this.errMsg= "not a valid continuation token : " + token;
+	}
+	/**
+	 * @return the errMsg
+	 */
+	public String getErrMsg() {
+		return errMsg;
+	}
+}
@@ -0,0 +1,543 @@
+package publicationRefDb;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+/**
+ * A class of generators of synthetic corpora for scale and load tests of the reference database.
+ * The corpus imitates real bibliographic data :
+ * 	-> title words are drawn from a Zipfian vocabulary
+ * 	-> authors are drawn (Zipfian, so there are prolific authors) from a pool in which many authors share
+ * 	   a last name and an initial, so they collide on the same author index key (like "D. Adams" for Douglas and Dirk Adams)
+ * 	-> the publication types are mixed : 60% journal articles, 25% conference papers, 15% books
+ * 	-> the years of publication are skewed to recent years
+ * 	-> the number of citators of a publication follows a power law, and citations may point to any publication,
+ * 	   so the citation graph contains cycles
+ *
+ * Every publication and every citation list is derived from the seed and its own index only, so the corpus
+ * is identical for the same seed, no matter how many threads generate it or in which order.
+ *
+ * @invar	the number of publications is strictly positive
+ * @invar	the vocabulary size and the author pool size are strictly positive
+ * @invar	the mean number of citations per publication is not negative
+ */
+public class CorpusGenerator {
+
+	/**
+	 * Initialise this new corpus generator with the given seed and the given number of publications,
+	 * a vocabulary of 50000 words, an author pool of a quarter of the number of publications (at least 1000)
+	 * and on average 8 citations per publication
+	 *
+	 * @param 	seed
+	 * 			the seed from which the complete corpus is derived
+	 * @param 	nbPublications
+	 * 			the number of publications in the corpus
+	 * @throws 	InputFieldNotValidException
+	 * 			the number of publications is not strictly positive
+	 */
+	public CorpusGenerator(long seed, long nbPublications) throws InputFieldNotValidException {
+		if (nbPublications <= 0)
+			throw new InputFieldNotValidException();
+		this.seed = seed;
+		this.nbPublications = nbPublications;
+		setVocabularySize(50000);
+		setAuthorPoolSize((int) Math.min(Integer.MAX_VALUE, Math.max(1000, nbPublications / 4)));
+		setMeanCitations(8);
+	}
+
+	/**
+	 * get the seed of this generator
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	private final long seed;
+
+	/**
+	 * get the number of publications in the corpus of this generator
+	 */
+	public long getNbPublications() {
+		return nbPublications;
+	}
+
+	private final long nbPublications;
+
+	/**
+	 * get the number of distinct title words of this generator
+	 */
+	public int getVocabularySize() {
+		return vocabularySize;
+	}
+
+	/**
+	 * set the number of distinct title words of this generator to the given size
+	 *
+	 * @param 	vocabularySize
+	 * 			the new vocabulary size
+	 * @throws 	InputFieldNotValidException
+	 * 			the given size is not strictly positive
+	 */
+	public void setVocabularySize(int vocabularySize) throws InputFieldNotValidException {
+		if (vocabularySize <= 0)
+			throw new InputFieldNotValidException();
+		this.vocabularySize = vocabularySize;
+	}
+
+	private int vocabularySize;
+
+	/**
+	 * get the number of distinct authors of this generator
+	 */
+	public int getAuthorPoolSize() {
+		return authorPoolSize;
+	}
+
+	/**
+	 * set the number of distinct authors of this generator to the given size.
+	 * One in eight authors has a last name of their own, so on average eight authors share each last name.
+	 *
+	 * @param 	authorPoolSize
+	 * 			the new author pool size
+	 * @throws 	InputFieldNotValidException
+	 * 			the given size is not strictly positive
+	 */
+	public void setAuthorPoolSize(int authorPoolSize) throws InputFieldNotValidException {
+		if (authorPoolSize <= 0)
+			throw new InputFieldNotValidException();
+		this.authorPoolSize = authorPoolSize;
+	}
+
+	private int authorPoolSize;
+
+	/**
+	 * get the mean number of citations per publication of this generator
+	 */
+	public double getMeanCitations() {
+		return meanCitations;
+	}
+
+	/**
+	 * set the mean number of citations per publication of this generator to the given value
+	 *
+	 * @param 	meanCitations
+	 * 			the new mean number of citations per publication
+	 * @throws 	InputFieldNotValidException
+	 * 			the given value is negative
+	 */
+	public void setMeanCitations(double meanCitations) throws InputFieldNotValidException {
+		if (meanCitations < 0)
+			throw new InputFieldNotValidException();
+		this.meanCitations = meanCitations;
+	}
+
+	private double meanCitations;
+
+	private static final String[] CONSONANTS = { "b", "c", "d", "f", "g", "h", "k", "l", "m", "n", "p", "r", "s",
+			"t", "v", "w", "z", "br", "st", "tr" };
+	private static final String[] VOWELS = { "a", "e", "i", "o", "u", "ai", "ou" };
+	private static final String[] FIRST_NAMES_INITIALS = { "A", "B", "C", "D", "E", "F", "G", "H", "J", "K", "L",
+			"M", "N", "P", "R", "S", "T", "W" };
+	private static final int NB_FIRST_NAMES = 300;
+	private static final int NB_VENUES = 2000;
+
+	/**
+	 * get the word with the given rank in the vocabulary of this generator
+	 * (rank 1 is the most frequent word). Words only contain lowercase letters.
+	 *
+	 * @param 	rank
+	 * 			the rank of the word (1 <= rank <= getVocabularySize())
+	 * @return	the word with the given rank
+	 */
+	public String getWord(int rank) {
+		return syllables(rank - 1);
+	}
+
+	/**
+	 * get the name of the author with the given number, in default name format (e.g. "Bako, Dire")
+	 *
+	 * @param 	authorNumber
+	 * 			the number of the author (0 <= authorNumber < getAuthorPoolSize())
+	 * @return	the name of the author with the given number
+	 */
+	public String getAuthorName(int authorNumber) {
+		int nbLastNames = Math.max(1, getAuthorPoolSize() / 8);
+		String lastName = capitalise(syllables(authorNumber % nbLastNames + 26));
+		int firstName = (int) Long.remainderUnsigned(mix(authorNumber), NB_FIRST_NAMES);
+		// the first names are spread over few initials, so authors with the same last name collide on the index key
+		String name = FIRST_NAMES_INITIALS[firstName % FIRST_NAMES_INITIALS.length]
+				+ syllables(firstName / FIRST_NAMES_INITIALS.length + 1);
+		if (authorNumber % 5 == 0)
+			name += " " + FIRST_NAMES_INITIALS[authorNumber % FIRST_NAMES_INITIALS.length] + ".";
+		return lastName + ", " + name;
+	}
+
+	/**
+	 * generate the publication with the given index of the corpus of this generator.
+	 * The publication is not registered in the reference database.
+	 *
+	 * @param 	index
+	 * 			the index of the publication (0 <= index, indexes beyond the corpus give extra publications
+	 * 			with the same distribution)
+	 * @return	a new publication, always the same for the same seed and index
+	 */
+	public Publication generatePublication(long index) {
+		String[] fields = generateFields(index);
+		try {
+			return toPublication(fields);
+		} catch (InputFieldNotSpecifiedException | InputFieldNotValidException e) {
+			// cannot occur : generated fields are valid by construction
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * generate the indexes of the publications cited by the publication with the given index
+	 *
+	 * @param 	index
+	 * 			the index of the citing publication
+	 * @return	the indexes of the cited publications (never the given index, may contain doubles)
+	 */
+	public long[] generateCitations(long index) {
+		SplittableRandom random = randomFor(index, 1);
+		if (getMeanCitations() == 0)
+			return new long[0];
+		// exponentially distributed out-degree, capped to keep hub citators bounded
+		int nbCitations = (int) Math.min(10 * getMeanCitations(),
+				-getMeanCitations() * Math.log(1 - random.nextDouble()) + 0.5);
+		long[] citations = new long[nbCitations];
+		int nb = 0;
+		for (int c = 0; c < nbCitations; c++) {
+			// a Zipfian rank with exponent 1/2 gives a power law in-degree distribution P(k) ~ k^-3 (as observed 
+			// for citations), the scramble spreads the popular publications over the corpus
+			long citation = scramble(zipf(random, getNbPublications(), 0.5) - 1);
+			if (citation != index)
+				citations[nb++] = citation;
+		}
+		return nb == nbCitations ? citations : Arrays.copyOf(citations, nb);
+	}
+
+	/**
+	 * generate the complete corpus of this generator and register it in the default reference database.
+	 *
+	 * @return	the referenceIds of the registered publications, indexed by publication index
+	 * 			(null for a skipped duplicate)
+	 * @throws	InputFieldNotValidException
+	 * 			the corpus is too big to be registered in one reference database
+	 */
+	public String[] populateRefDb() throws InputFieldNotValidException {
+		return populateRefDb(RefDb.getDefault());
+	}
+
+	/**
+	 * generate the complete corpus of this generator and register it in the given reference database.
+	 * The publications and the citations are generated in parallel, the registration itself is done in index order.
+	 * Generated publications that are a duplicate of an earlier one (isEqualTo()) are skipped.
+	 * (the registration time is dominated by the duplicate check of addPublicationToDb(), which visits 
+	 * every publication sharing a title word, so for corpora beyond some 100K publications writeImportFile() is 
+	 * the practical choice)
+	 *
+	 * @param	refDb
+	 * 			the reference database to populate
+	 * @return	the referenceIds of the registered publications, indexed by publication index
+	 * 			(null for a skipped duplicate)
+	 * @throws	InputFieldNotValidException
+	 * 			the corpus is too big to be registered in one reference database
+	 */
+	public String[] populateRefDb(RefDbInstance refDb) throws InputFieldNotValidException {
+		if (getNbPublications() > Integer.MAX_VALUE - 8)
+			throw new InputFieldNotValidException();
+		String[] referenceIds = new String[(int) getNbPublications()];
+		for (long start = 0; start < getNbPublications(); start += CHUNK_SIZE) {
+			Publication[] publications = LongStream.range(start, Math.min(getNbPublications(), start + CHUNK_SIZE))
+					.parallel().mapToObj(this::generatePublication).toArray(Publication[]::new);
+			for (int i = 0; i < publications.length; i++) {
+				try {
+					refDb.addPublicationToDb(publications[i]);
+					referenceIds[(int) start + i] = publications[i].getReferenceId();
+				} catch (DuplicateEntryRefDbException e) {
+					// skipped duplicate
+				} catch (PublicationIsNullException e) {
+					assert false; // cannot occur
+				}
+			}
+		}
+		for (long start = 0; start < getNbPublications(); start += CHUNK_SIZE) {
+			long[][] citations = LongStream.range(start, Math.min(getNbPublications(), start + CHUNK_SIZE))
+					.parallel().mapToObj(this::generateCitations).toArray(long[][]::new);
+			for (int i = 0; i < citations.length; i++) {
+				String idCitator = referenceIds[(int) start + i];
+				if (idCitator == null)
+					continue;
+				for (long citation : citations[i]) {
+					String idCitation = referenceIds[(int) citation];
+					if (idCitation == null)
+						continue;
+					try {
+						refDb.addCitationReference(idCitator, idCitation);
+					} catch (IdNotInReferenceDbException e) {
+						assert false; // cannot occur : both IDs were registered above
+					}
+				}
+			}
+		}
+		return referenceIds;
+	}
+
+	/**
+	 * write the complete corpus of this generator to the given import file (UTF-8, one record per line,
+	 * fields separated by tabs) :
+	 * 		P	index	type	year	venue	title	author;author;...
+	 * 		C	index of citator	index of citation
+	 * all publication records come before the citation records. Records are generated in parallel and written
+	 * in index order, so the file is identical for the same seed.
+	 *
+	 * @param 	path
+	 * 			the path of the file to write (an existing file is replaced)
+	 * @throws 	IOException
+	 */
+	public void writeImportFile(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			for (long start = 0; start < getNbPublications(); start += CHUNK_SIZE) {
+				String[] records = LongStream.range(start, Math.min(getNbPublications(), start + CHUNK_SIZE))
+						.parallel().mapToObj(index -> "P\t" + index + "\t" + String.join("\t", generateFields(index)))
+						.toArray(String[]::new);
+				for (String record : records) {
+					writer.write(record);
+					writer.newLine();
+				}
+			}
+			for (long start = 0; start < getNbPublications(); start += CHUNK_SIZE) {
+				String[] records = LongStream.range(start, Math.min(getNbPublications(), start + CHUNK_SIZE))
+						.parallel().mapToObj(index -> {
+							StringBuilder sb = new StringBuilder();
+							for (long citation : generateCitations(index))
+								sb.append("C\t").append(index).append('\t').append(citation).append('\n');
+							return sb.toString();
+						}).toArray(String[]::new);
+				for (String record : records)
+					writer.write(record);
+			}
+		}
+	}
+
+	/**
+	 * register all publications and citations of the given import file (see writeImportFile()) in the default 
+	 * reference database.
+	 *
+	 * @param 	path
+	 * 			the path of the import file
+	 * @return	the number of registered publications
+	 * @throws 	IOException
+	 * @throws 	InputFieldNotValidException
+	 * 			a record of the file is not valid
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			a field of a publication record is missing
+	 */
+	public static int loadImportFile(Path path)
+			throws IOException, InputFieldNotValidException, InputFieldNotSpecifiedException {
+		return loadImportFile(path, RefDb.getDefault());
+	}
+
+	/**
+	 * register all publications and citations of the given import file (see writeImportFile()) in the given reference database.
+	 * Publications that are a duplicate of an already registered publication are skipped, and so are their citations.
+	 *
+	 * @param 	path
+	 * 			the path of the import file
+	 * @param	refDb
+	 * 			the reference database to populate
+	 * @return	the number of registered publications
+	 * @throws 	IOException
+	 * @throws 	InputFieldNotValidException
+	 * 			a record of the file is not valid
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			a field of a publication record is missing
+	 */
+	public static int loadImportFile(Path path, RefDbInstance refDb)
+			throws IOException, InputFieldNotValidException, InputFieldNotSpecifiedException {
+		Map<String, String> referenceIds = new HashMap<String, String>();
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty())
+					continue;
+				String[] record = line.split("\t");
+				if (record[0].equals("P") && record.length == 7) {
+					Publication publication = toPublication(Arrays.copyOfRange(record, 2, 7));
+					try {
+						refDb.addPublicationToDb(publication);
+						referenceIds.put(record[1], publication.getReferenceId());
+					} catch (DuplicateEntryRefDbException e) {
+						// skipped duplicate
+					}
+				} else if (record[0].equals("C") && record.length == 3) {
+					String idCitator = referenceIds.get(record[1]);
+					String idCitation = referenceIds.get(record[2]);
+					if (idCitator != null && idCitation != null)
+						refDb.addCitationReference(idCitator, idCitation);
+				} else {
+					throw new InputFieldNotValidException();
+				}
+			}
+		} catch (IdNotInReferenceDbException e) {
+			assert false; // cannot occur : only registered IDs are cited
+		}
+		return referenceIds.size();
+	}
+
+	/**
+	 * write a corpus to an import file
+	 * usage : CorpusGenerator seed nbPublications file [meanCitations]
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.out.println("usage : CorpusGenerator seed nbPublications file [meanCitations]");
+			return;
+		}
+		CorpusGenerator generator = new CorpusGenerator(Long.parseLong(args[0]), Long.parseLong(args[1]));
+		if (args.length > 3)
+			generator.setMeanCitations(Double.parseDouble(args[3]));
+		long start = System.nanoTime();
+		generator.writeImportFile(Paths.get(args[2]));
+		System.out.println("written " + generator.getNbPublications() + " publications to " + args[2] + " in "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	/**
+	 * generate the fields of the publication with the given index : type, year, venue, title, authors
+	 * (authors in default name format, separated by ';')
+	 */
+	private String[] generateFields(long index) {
+		SplittableRandom random = randomFor(index, 0);
+
+		int nbWords = 3 + random.nextInt(8);
+		StringBuilder title = new StringBuilder();
+		for (int w = 0; w < nbWords; w++) {
+			if (w > 0)
+				title.append(' ');
+			title.append(getWord((int) zipf(random, getVocabularySize(), 1.07)));
+		}
+
+		// years skewed to recent : exponentially distributed age with a mean of 12 years
+		int year = Math.max(1900, CURRENT_YEAR - (int) (-12 * Math.log(1 - random.nextDouble())));
+
+		int nbAuthors = (int) zipf(random, 6, 1.5) + random.nextInt(2);
+		StringBuilder authors = new StringBuilder();
+		for (int a = 0; a < nbAuthors; a++) {
+			if (a > 0)
+				authors.append(';');
+			authors.append(getAuthorName((int) zipf(random, getAuthorPoolSize(), 1.2) - 1));
+		}
+
+		int typeDraw = random.nextInt(100);
+		String type = typeDraw < 60 ? "JOURNALARTICLE" : (typeDraw < 85 ? "CONFERENCEPAPER" : "BOOK");
+		String venue = capitalise(syllables((int) zipf(random, NB_VENUES, 1.1) + 1000)) + " "
+				+ (typeDraw < 60 ? "Journal" : (typeDraw < 85 ? "Conference" : "Press"));
+		if (typeDraw < 60)
+			venue += "|" + (1 + random.nextInt(120));
+
+		return new String[] { type, Integer.toString(year), venue, title.toString(), authors.toString() };
+	}
+
+	/**
+	 * build a publication from the given fields (see generateFields())
+	 */
+	private static Publication toPublication(String[] fields)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		String[] authors = fields[4].split(";");
+		int year;
+		try {
+			year = Integer.parseInt(fields[1]);
+		} catch (NumberFormatException e) {
+			throw new YearOfPublicationNotValidException();
+		}
+		switch (fields[0]) {
+		case "JOURNALARTICLE":
+			String[] venue = fields[2].split("\\|");
+			if (venue.length != 2)
+				throw new InputFieldNotValidException();
+			int issueNumber;
+			try {
+				issueNumber = Integer.parseInt(venue[1]);
+			} catch (NumberFormatException e) {
+				throw new InputFieldNotValidException();
+			}
+			return new JournalArticle(fields[3], venue[0], issueNumber, year, authors);
+		case "CONFERENCEPAPER":
+			return new ConferencePaper(fields[3], year, fields[2], authors);
+		case "BOOK":
+			return new Book(fields[3], year, fields[2], authors);
+		default:
+			throw new InputFieldNotValidException();
+		}
+	}
+
+	private static final int CURRENT_YEAR = Calendar.getInstance().get(Calendar.YEAR);
+
+	/**
+	 * get the random source for the given index and the given stream (0 = fields, 1 = citations)
+	 */
+	private SplittableRandom randomFor(long index, long stream) {
+		return new SplittableRandom(mix(getSeed() ^ mix(index * 2 + stream)));
+	}
+
+	/**
+	 * draw a rank in [1, n] from a Zipf distribution with the given exponent (exponent != 1),
+	 * using the inverse of the continuous approximation of its distribution function
+	 */
+	private static long zipf(SplittableRandom random, long n, double exponent) {
+		double a = 1 - exponent;
+		double rank = Math.pow((Math.pow(n + 1, a) - 1) * random.nextDouble() + 1, 1 / a);
+		return Math.max(1, Math.min(n, (long) rank));
+	}
+
+	/**
+	 * map the given rank in [0, n) onto a publication index in [0, n), bijectively
+	 */
+	private long scramble(long rank) {
+		// 1000000007 is prime and bigger than any supported corpus, so it is coprime with the corpus size
+		// (rank and the multiplier are both smaller than the corpus size, so the product does not overflow)
+		return rank * (1000000007L % getNbPublications()) % getNbPublications();
+	}
+
+	/**
+	 * the word made of syllables for the given number (0 -> "ba", 1 -> "be", ..)
+	 */
+	private static String syllables(int number) {
+		int nbSyllables = CONSONANTS.length * VOWELS.length;
+		StringBuilder sb = new StringBuilder();
+		do {
+			int syllable = number % nbSyllables;
+			sb.append(CONSONANTS[syllable / VOWELS.length]).append(VOWELS[syllable % VOWELS.length]);
+			number /= nbSyllables;
+		} while (number > 0);
+		return sb.toString();
+	}
+
+	private static String capitalise(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+
+	/**
+	 * a 64 bit finaliser (murmur3), to decorrelate seeds that differ in a few bits
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+}
@@ -0,0 +1,98 @@
+package publicationRefDb;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A class of read-only summaries of a histogram (see RefDbHistogram), as exposed through JMX
+ */
+public final class HistogramStatistics {
+
+	/**
+	 * Initialise this new summary with the given values
+	 */
+	@ConstructorProperties({ "name", "count", "mean", "p50", "p90", "p99", "p999", "max" })
+	public HistogramStatistics(String name, long count, double mean, double p50, double p90, double p99, double p999,
+			double max) {
+		this.name = name;
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+	}
+
+	/**
+	 * get the name of the summarised histogram
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * get the number of recorded values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * get the mean of the recorded values
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * get the median of the recorded values
+	 */
+	public double getP50() {
+		return p50;
+	}
+
+	/**
+	 * get the 90th percentile of the recorded values
+	 */
+	public double getP90() {
+		return p90;
+	}
+
+	/**
+	 * get the 99th percentile of the recorded values
+	 */
+	public double getP99() {
+		return p99;
+	}
+
+	/**
+	 * get the 99.9th percentile of the recorded values
+	 */
+	public double getP999() {
+		return p999;
+	}
+
+	/**
+	 * get the biggest recorded value
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	private final String name;
+	private final long count;
+	private final double mean;
+	private final double p50;
+	private final double p90;
+	private final double p99;
+	private final double p999;
+	private final double max;
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("%-30s count=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f", name, count,
+				mean, p50, p90, p99, p999, max);
+	}
+}
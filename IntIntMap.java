@@ -0,0 +1,139 @@
+package publicationRefDb;
+
+import java.util.Arrays;
+
+/**
+ * A class of hash maps from non negative int keys to int values, without boxing : open addressing with linear
+ * probing in two parallel arrays, doubled when half full.  Used by the graph algorithms for sparse per query state
+ * (e.g. visited sets and parents of a search) where an array over all nodes would cost more than the search itself.
+ *
+ * @invar	every key in the map is not negative
+ */
+final class IntIntMap {
+
+	private static final int EMPTY = -1;
+
+	/**
+	 * Initialise this new, empty map
+	 */
+	IntIntMap() {
+		this(16);
+	}
+
+	/**
+	 * Initialise this new, empty map with room for the given number of keys before it grows
+	 */
+	IntIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	private int[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * get the number of keys in this map
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * check if this map has the given key
+	 */
+	boolean containsKey(int key) {
+		return keys[find(key)] == key;
+	}
+
+	/**
+	 * get the value of the given key, or the given default value if the key is not in this map
+	 */
+	int get(int key, int defaultValue) {
+		int slot = find(key);
+		return keys[slot] == key ? values[slot] : defaultValue;
+	}
+
+	/**
+	 * associate the given value with the given key
+	 *
+	 * @return	true if the key was not in this map before
+	 */
+	boolean put(int key, int value) {
+		int slot = find(key);
+		values[slot] = value;
+		if (keys[slot] == key)
+			return false;
+		keys[slot] = key;
+		if (++size * 2 > keys.length)
+			grow();
+		return true;
+	}
+
+	/**
+	 * associate the given value with the given key, if the key is not in this map yet
+	 *
+	 * @return	true if the key was not in this map before (and now has the given value)
+	 */
+	boolean putIfAbsent(int key, int value) {
+		int slot = find(key);
+		if (keys[slot] == key)
+			return false;
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size * 2 > keys.length)
+			grow();
+		return true;
+	}
+
+	/**
+	 * get the key in the given slot of this map (-1 if the slot is empty), to iterate over 0..getCapacity()-1
+	 */
+	int keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * get the value in the given slot of this map
+	 */
+	int valueAt(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * get the number of slots of this map
+	 */
+	int getCapacity() {
+		return keys.length;
+	}
+
+	private int find(int key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private static int mix(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == EMPTY)
+				continue;
+			int slot = find(oldKeys[i]);
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package publicationRefDb;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class of reports of an invariant check of the reference database (see RefDbChecker)
+ * 
+ * @invar	the list of violations is never null
+ * @invar	a report is only proper if it has no violations
+ */
+public final class InvariantReport {
+
+	/**
+	 * Initialise this new report with the given results
+	 * 
+	 * @param 	violations
+	 * 			the violations that were found
+	 * @param 	nbChecked
+	 * 			the number of entries (IDs and index keys) that were checked
+	 * @param 	complete
+	 * 			true if every entry in scope was checked (no sampling, time budget not exceeded)
+	 * @param 	durationNanos
+	 * 			the duration of the check in nanoseconds
+	 */
+	InvariantReport(List<InvariantViolation> violations, long nbChecked, boolean complete, long durationNanos) {
+		this.violations = Collections.unmodifiableList(violations);
+		this.nbChecked = nbChecked;
+		this.complete = complete;
+		this.durationNanos = durationNanos;
+	}
+
+	/**
+	 * get the violations that were found (read only)
+	 */
+	public List<InvariantViolation> getViolations() {
+		return violations;
+	}
+
+	private final List<InvariantViolation> violations;
+
+	/**
+	 * check if no violations were found
+	 * 
+	 * @return	true if the list of violations is empty
+	 */
+	public boolean isProper() {
+		return getViolations().isEmpty();
+	}
+
+	/**
+	 * get the number of entries (IDs and index keys) that were checked
+	 */
+	public long getNbChecked() {
+		return nbChecked;
+	}
+
+	private final long nbChecked;
+
+	/**
+	 * check if every entry in the scope of the check was checked
+	 * 
+	 * @return	false if the check sampled the entries or ran out of its time budget
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	private final boolean complete;
+
+	/**
+	 * get the duration of the check in nanoseconds
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	private final long durationNanos;
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(isProper() ? "proper" : violations.size() + " violation(s)");
+		sb.append(", " + nbChecked + " entries checked");
+		sb.append(isComplete() ? "" : " (incomplete)");
+		sb.append(", " + durationNanos / 1000000 + " ms");
+		for (InvariantViolation violation : violations)
+			sb.append("\n   " + violation);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,66 @@
+package publicationRefDb;
+
+/**
+ * A class of violations of a class invariant of the reference database, as found by RefDbChecker
+ * 
+ * @invar	the kind and the description of a violation are never null
+ */
+public final class InvariantViolation {
+
+	/**
+	 * An Enum class of the structures of the reference database in which a violation can be found
+	 */
+	public enum Kind {
+		ID_TABLE, AUTHOR_INDEX, TITLE_WORD_INDEX, PUBLICATION
+	}
+
+	/**
+	 * Initialise this new violation with the given kind, key and description
+	 * 
+	 * @param 	kind
+	 * 			the structure in which the violation is found
+	 * @param 	key
+	 * 			the ID or index key of the violating entry
+	 * @param 	description
+	 * 			what is wrong with the entry
+	 */
+	InvariantViolation(Kind kind, String key, String description) {
+		this.kind = kind;
+		this.key = key;
+		this.description = description;
+	}
+
+	/**
+	 * get the structure in which this violation is found
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	private final Kind kind;
+
+	/**
+	 * get the ID (ID_TABLE, PUBLICATION) or the index key (AUTHOR_INDEX, TITLE_WORD_INDEX) of the violating entry
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	private final String key;
+
+	/**
+	 * get what is wrong with the violating entry
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	private final String description;
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return kind + " [" + key + "] : " + description;
+	}
+}
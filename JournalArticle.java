@@ -77,7 +77,7 @@ public class JournalArticle extends Publication {
 	 * Return the name of the journal of this journal article
 	 */
 	public String getJournalName() {
-		return new String(journalName);
+		return journalName;
 	}
 
 	/**
@@ -95,7 +95,10 @@ public class JournalArticle extends Publication {
 	public void setJournalName(String journalName) throws JournalNameIsNullException {
 		if (journalName == null)
 			throw new JournalNameIsNullException();
-		this.journalName = new String(journalName).trim();
+		this.journalName = StringPool.canonical(journalName.trim());
+		bumpVersion();
+		touchInRefDb();
+		publishChange(RefDbChangeType.PUBLICATION_CHANGED, null, null);
 	}
 
 	private String journalName;
@@ -124,10 +127,23 @@ public class JournalArticle extends Publication {
 		if (issueNumber < 0)
 			throw new IssueNumberIsNegativeException();
 		this.issueNumber = issueNumber;
+		bumpVersion();
+		touchInRefDb();
+		publishChange(RefDbChangeType.PUBLICATION_CHANGED, null, null);
 	}
 
 	private int issueNumber;
 	
+	@Override
+	public long estimateMemoryFootprint() {
+		return super.estimateMemoryFootprint() + estimateMemoryFootprint(journalName);
+	}
+
+	@Override
+	public PublicationType getPublicationType() {
+		return PublicationType.JOURNALARTICLE;
+	}
+
 	@Override
 	public double getCitationScore() {
 		return PublicationType.JOURNALARTICLE.getCitationWeight();
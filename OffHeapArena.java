@@ -0,0 +1,217 @@
+package publicationRefDb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A class of append-only byte sequences outside the Java heap (used by the columns of PublicationColumnStore) : the
+ * bytes are kept in direct buffers of CHUNK_SIZE bytes (the last one grows up to that size), addressed by a long
+ * offset, so a sequence can exceed the 2 GB of one buffer and costs the garbage collector a few objects per chunk.
+ *
+ * A sequence that only holds values of one width (e.g. only ints) never has a value across two chunks.  The reads
+ * are absolute, so once filled a sequence can be read by many threads at a time.
+ * A sequence can be written to a file (writeTo()) and mapped from it in memory (map()) : the mapped sequence is read
+ * only, and its pages are loaded and dropped by the operating system.  The values are in the byte order of the
+ * machine, so a file is mapped on the machine that wrote it.
+ *
+ * @invar	the size of an arena is never greater than its capacity
+ */
+final class OffHeapArena {
+
+	static final int CHUNK_SHIFT = 26;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * the size of the first chunk
+	 */
+	private static final int MIN_CHUNK_SIZE = 4096;
+
+	/**
+	 * Initialise this new, empty arena
+	 */
+	OffHeapArena() {
+		this(new ByteBuffer[0], 0);
+	}
+
+	private OffHeapArena(ByteBuffer[] chunks, long size) {
+		this.chunks = chunks;
+		this.size = size;
+		for (ByteBuffer chunk : chunks)
+			capacity += chunk.capacity();
+	}
+
+	/**
+	 * get a read-only arena of the given bytes of the given file, mapped in memory (see writeTo())
+	 *
+	 * @throws 	IOException
+	 * 			the file cannot be mapped
+	 */
+	static OffHeapArena map(FileChannel channel, long offset, long size) throws IOException {
+		ByteBuffer[] chunks = new ByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+		for (int i = 0; i < chunks.length; i++) {
+			long start = (long) i << CHUNK_SHIFT;
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(CHUNK_SIZE, size - start))
+					.order(ByteOrder.nativeOrder());
+		}
+		return new OffHeapArena(chunks, size);
+	}
+
+	/**
+	 * write the bytes of this arena to the given file, at its position
+	 *
+	 * @throws 	IOException
+	 * 			the file cannot be written
+	 */
+	void writeTo(FileChannel channel) throws IOException {
+		for (int i = 0; i < chunks.length; i++) {
+			ByteBuffer chunk = chunks[i].duplicate();
+			chunk.clear();
+			chunk.limit((int) Math.min(chunk.capacity(), size - ((long) i << CHUNK_SHIFT)));
+			while (chunk.hasRemaining())
+				channel.write(chunk);
+		}
+	}
+
+	private ByteBuffer[] chunks;
+	private long capacity;
+
+	/**
+	 * get the number of bytes of this arena
+	 */
+	long size() {
+		return size;
+	}
+
+	private long size;
+
+	/**
+	 * get the number of bytes allocated outside the heap (or mapped) by this arena
+	 */
+	long getMemoryFootprint() {
+		return capacity;
+	}
+
+	/**
+	 * make room for the bytes up to the given size : every chunk but the last one is full size
+	 */
+	private void ensureCapacity(long newSize) {
+		while (capacity < newSize) {
+			int last = chunks.length - 1;
+			if (last >= 0 && chunks[last].capacity() < CHUNK_SIZE) {
+				long needed = newSize - ((long) last << CHUNK_SHIFT);
+				ByteBuffer larger = allocate((int) Math.min(CHUNK_SIZE, Math.max(2L * chunks[last].capacity(), needed)));
+				ByteBuffer old = chunks[last].duplicate();
+				old.clear();
+				larger.put(old).clear();
+				capacity += larger.capacity() - chunks[last].capacity();
+				chunks[last] = larger;
+			} else {
+				chunks = Arrays.copyOf(chunks, last + 2);
+				chunks[last + 1] = allocate((int) Math.min(CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, newSize - capacity)));
+				capacity += chunks[last + 1].capacity();
+			}
+		}
+	}
+
+	private static ByteBuffer allocate(int nbBytes) {
+		return ByteBuffer.allocateDirect(nbBytes).order(ByteOrder.nativeOrder());
+	}
+
+	private ByteBuffer chunk(long offset) {
+		return chunks[(int) (offset >>> CHUNK_SHIFT)];
+	}
+
+	private static int index(long offset) {
+		return (int) (offset & CHUNK_MASK);
+	}
+
+	/**
+	 * append the given number of zero bytes
+	 *
+	 * @return	the offset of the first one
+	 */
+	long extend(long nbBytes) {
+		long offset = size;
+		ensureCapacity(size + nbBytes);
+		size += nbBytes;
+		return offset;
+	}
+
+	long appendByte(byte value) {
+		long offset = extend(1);
+		chunk(offset).put(index(offset), value);
+		return offset;
+	}
+
+	long appendShort(short value) {
+		long offset = extend(2);
+		chunk(offset).putShort(index(offset), value);
+		return offset;
+	}
+
+	long appendInt(int value) {
+		long offset = extend(4);
+		chunk(offset).putInt(index(offset), value);
+		return offset;
+	}
+
+	long appendLong(long value) {
+		long offset = extend(8);
+		chunk(offset).putLong(index(offset), value);
+		return offset;
+	}
+
+	/**
+	 * append the given bytes (they may span two chunks)
+	 *
+	 * @return	the offset of the first one
+	 */
+	long appendBytes(byte[] bytes) {
+		long offset = extend(bytes.length);
+		int done = 0;
+		while (done < bytes.length) {
+			long position = offset + done;
+			int length = Math.min(bytes.length - done, CHUNK_SIZE - index(position));
+			chunk(position).put(index(position), bytes, done, length);
+			done += length;
+		}
+		return offset;
+	}
+
+	void putInt(long offset, int value) {
+		chunk(offset).putInt(index(offset), value);
+	}
+
+	byte getByte(long offset) {
+		return chunk(offset).get(index(offset));
+	}
+
+	short getShort(long offset) {
+		return chunk(offset).getShort(index(offset));
+	}
+
+	int getInt(long offset) {
+		return chunk(offset).getInt(index(offset));
+	}
+
+	long getLong(long offset) {
+		return chunk(offset).getLong(index(offset));
+	}
+
+	/**
+	 * copy the bytes from the given offset on into the given array
+	 */
+	void getBytes(long offset, byte[] bytes) {
+		int done = 0;
+		while (done < bytes.length) {
+			long position = offset + done;
+			int length = Math.min(bytes.length - done, CHUNK_SIZE - index(position));
+			chunk(position).get(index(position), bytes, done, length);
+			done += length;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package publicationRefDb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A class of lists of strings outside the Java heap (used by PublicationColumnStore for its IDs, titles and
+ * dictionaries) : the UTF-8 bytes of all strings one after the other, and the offset of every string.
+ * After buildIndex(), indexOf() finds a string of a list of distinct strings through a hash table outside the heap.
+ *
+ * @invar	the number of offsets is the number of strings plus one
+ */
+final class OffHeapStrings {
+
+	OffHeapStrings() {
+		this(new OffHeapArena(), new OffHeapArena(), new OffHeapArena());
+	}
+
+	/**
+	 * Initialise this new list on the given arenas (see getArenas()) : the offsets, the bytes and the hash table
+	 * (empty if there is none)
+	 */
+	OffHeapStrings(OffHeapArena offsets, OffHeapArena bytes, OffHeapArena table) {
+		this.offsets = offsets;
+		this.bytes = bytes;
+		if (offsets.size() == 0)
+			offsets.appendLong(0);
+		if (table.size() > 0) {
+			this.table = table;
+			this.tableMask = (int) (table.size() / 4) - 1;
+		}
+	}
+
+	/**
+	 * the offset of every string in bytes, followed by the size of bytes
+	 */
+	private final OffHeapArena offsets;
+	private final OffHeapArena bytes;
+
+	/**
+	 * get the arenas of this list : the offsets, the bytes and the hash table (empty if there is none)
+	 */
+	OffHeapArena[] getArenas() {
+		return new OffHeapArena[] { offsets, bytes, table == null ? new OffHeapArena() : table };
+	}
+
+	/**
+	 * the hash table of indexOf() : the index of a string plus one per slot (0 for an empty slot), or null
+	 */
+	private OffHeapArena table;
+	private int tableMask;
+
+	/**
+	 * get the number of strings
+	 */
+	int size() {
+		return (int) (offsets.size() / 8 - 1);
+	}
+
+	/**
+	 * get the number of bytes allocated outside the heap
+	 */
+	long getMemoryFootprint() {
+		return offsets.getMemoryFootprint() + bytes.getMemoryFootprint()
+				+ (table == null ? 0 : table.getMemoryFootprint());
+	}
+
+	/**
+	 * append the given string
+	 *
+	 * @return	its index
+	 * @post	the index built by buildIndex() is dropped
+	 */
+	int add(String string) {
+		table = null;
+		bytes.appendBytes(string.getBytes(StandardCharsets.UTF_8));
+		offsets.appendLong(bytes.size());
+		return size() - 1;
+	}
+
+	/**
+	 * get the string at the given index
+	 */
+	String get(int index) {
+		return new String(getBytes(index), StandardCharsets.UTF_8);
+	}
+
+	private byte[] getBytes(int index) {
+		long start = offsets.getLong(8L * index);
+		byte[] string = new byte[(int) (offsets.getLong(8L * index + 8) - start)];
+		bytes.getBytes(start, string);
+		return string;
+	}
+
+	/**
+	 * build the hash table of indexOf(), with at least two slots per string
+	 */
+	void buildIndex() {
+		int nbSlots = Integer.highestOneBit(Math.max(2, size()) * 2 - 1) << 1;
+		OffHeapArena table = new OffHeapArena();
+		table.extend(4L * nbSlots);
+		int mask = nbSlots - 1;
+		for (int index = 0; index < size(); index++) {
+			int slot = hash(getBytes(index)) & mask;
+			while (table.getInt(4L * slot) != 0)
+				slot = (slot + 1) & mask;
+			table.putInt(4L * slot, index + 1);
+		}
+		this.tableMask = mask;
+		this.table = table;
+	}
+
+	/**
+	 * get the index of the given string
+	 *
+	 * @pre		the index is built, and the strings are distinct
+	 * @return	the index, or -1 if the string does not occur
+	 */
+	int indexOf(String string) {
+		byte[] wanted = string.getBytes(StandardCharsets.UTF_8);
+		int slot = hash(wanted) & tableMask;
+		int entry;
+		while ((entry = table.getInt(4L * slot)) != 0) {
+			if (Arrays.equals(wanted, getBytes(entry - 1)))
+				return entry - 1;
+			slot = (slot + 1) & tableMask;
+		}
+		return -1;
+	}
+
+	private static int hash(byte[] string) {
+		int hash = Arrays.hashCode(string);
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -10,6 +10,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * A class of publications involving a title, year of publication, reference-ID,author(s),
@@ -81,7 +82,7 @@ public abstract class Publication {
 	 * 
 	 */
 	public String getTitle() {
-		return new String(title);
+		return title;
 	}
 
 	/**
@@ -103,19 +104,29 @@ public abstract class Publication {
 		if ("".equals(title.trim()))
 			throw new TitleIsBlankException();
 
-		// first remove the old title index if necessary
-		if (hasReferenceId())
-			RefDb.removeTitleWordsFromIndex(getReferenceId());
-
 		// set the title
-		this.title = new String(title).trim();
+		String oldTitle = replaceTitle(title);
 
-		// update the word title index with the new value if necessary
+		// update the word title index with the changed words only, if necessary
 		if (hasReferenceId())
-			RefDb.addTitleWordsToIndex(getReferenceId());
+			getRefDb().updateTitleWordsInIndex(getReferenceId(), oldTitle);
 
 	}
 
+	/**
+	 * set the title of this publication to the given valid title (without leading or trailing spaces), 
+	 * without updating the title word index (used by setTitle() and by RefDbInstance.setTitles())
+	 * 
+	 * @return	the old title
+	 */
+	String replaceTitle(String title) {
+		recordIndexEntriesInRefDb();
+		String oldTitle = this.title;
+		this.title = title.trim();
+		bumpVersion();
+		return oldTitle;
+	}
+
 	/**
 	 * Change the title of this publication to a format where every first
 	 * letter of every word is capitalised 
@@ -171,6 +182,9 @@ public abstract class Publication {
 		if (!isValidYearOfPublication(yearPub))
 			throw new YearOfPublicationNotValidException();
 		this.yearPub = yearPub;
+		bumpVersion();
+		touchInRefDb();
+		publishChange(RefDbChangeType.PUBLICATION_CHANGED, null, null);
 	}
 
 	/**
@@ -223,7 +237,7 @@ public abstract class Publication {
 	public String getReferenceId() {
 		if (referenceId == null)
 			return null;
-		return new String(referenceId);
+		return referenceId;
 	}
 	/**
 	 * check whether this publication has a referenceID
@@ -250,7 +264,7 @@ public abstract class Publication {
 		// the mirrorcheck is not
 		// necessary (because this is already covered by class invariant of
 		// RefDb)
-		if (RefDb.getPublicationById(getReferenceId()) == this)
+		if (getRefDb() != null && getRefDb().getPublicationById(getReferenceId()) == this)
 			return true;
 
 		return false;
@@ -262,20 +276,20 @@ public abstract class Publication {
 	 * 			the ID to be set
 	 * @throws InputFieldNotValidException 
 	 * @pre		if the given Id is effective then it must already reference this publication
-	 * 			RefDb.getPublicationById(Id)==this
+	 * 			getRefDb().getPublicationById(Id)==this
 	 * @pre		if the given Id not effective and this and this publication already has a reference Id
 	 * 			then that reference id may not reference this publication
 	 * @post	this publication has the given id as its referenceId
 	 */
 	public void setReferenceId(String id) throws InputFieldNotValidException {
 		if (id != null) {
-			if (RefDb.getPublicationById(id) != this)
+			if (getRefDb() == null || getRefDb().getPublicationById(id) != this)
 				throw new IdNotValidException(id);
-			this.referenceId = new String(id).trim();
+			this.referenceId = id.trim();
 		}
 		if (id == null) {
 			if (hasReferenceId())
-				if (RefDb.getPublicationById(getReferenceId()) != null)
+				if (getRefDb() != null && getRefDb().getPublicationById(getReferenceId()) != null)
 					throw new IdNotValidException(id);
 			referenceId = null;
 		}
@@ -283,6 +297,110 @@ public abstract class Publication {
 
 	private String referenceId;
 
+	/**
+	 * get the reference database in which this publication is registered
+	 * 
+	 * @return	the reference database that holds this publication, or null if this publication is not registered
+	 */
+	public RefDbInstance getRefDb() {
+		return refDb;
+	}
+
+	/**
+	 * set the reference database in which this publication is registered
+	 * (the reference database is the controlling class in this relationship, it sets itself before the referenceId)
+	 * 
+	 * @param	refDb
+	 * 			the reference database that registers this publication, or null when it is removed
+	 * @post	this publication belongs to the given reference database
+	 */
+	void setRefDb(RefDbInstance refDb) {
+		this.refDb = refDb;
+	}
+
+	private RefDbInstance refDb;
+
+	/**
+	 * report this publication as changed to its reference database (if registered), for the incremental invariant
+	 * check and the other change trackers
+	 */
+	void touchInRefDb() {
+		if (getRefDb() != null)
+			getRefDb().touchPublication(this);
+	}
+
+	/**
+	 * record the index keys of this publication in its reference database (if registered) before its title or authors
+	 * change : while a transaction commit defers the index updates, every changed publication is brought in line at
+	 * the end of the commit, also when it is changed by a listener rather than by the transaction
+	 */
+	private void recordIndexEntriesInRefDb() {
+		if (hasReferenceId())
+			getRefDb().recordIndexEntries(getReferenceId());
+	}
+
+	/**
+	 * publish the given change of this publication to the change stream of its reference database (if registered)
+	 *
+	 * @param 	citationId
+	 * 			the referenceId of the cited publication of a changed citation, otherwise null
+	 * @param 	authorName
+	 * 			the added or removed author in default name format, otherwise null
+	 */
+	void publishChange(RefDbChangeType type, String citationId, String authorName) {
+		if (publishesChanges())
+			getRefDb().getChangeStream().publish(type, this, getReferenceId(), citationId, authorName);
+	}
+
+	/**
+	 * check if the changes of this publication are published : it is registered and its change stream has consumers
+	 * (so that the data of an event is only computed when needed)
+	 */
+	private boolean publishesChanges() {
+		return hasReferenceId() && getRefDb().getChangeStream().isActive();
+	}
+
+	/**
+	 * get the version of this publication : it is incremented by every change of its fields, its authors and its 
+	 * citations or citators (also by the changes of the constructor), so an editor can check that a publication did 
+	 * not change since it was read (see RefDbInstance.updatePublication())
+	 */
+	public long getVersion() {
+		return versionStamp >>> 1;
+	}
+
+	/**
+	 * the version times 2, plus 1 while a conditional update holds the publication
+	 */
+	private volatile long versionStamp;
+
+	private static final AtomicLongFieldUpdater<Publication> VERSION_STAMP =
+			AtomicLongFieldUpdater.newUpdater(Publication.class, "versionStamp");
+
+	/**
+	 * increment the version of this publication (after every change)
+	 */
+	void bumpVersion() {
+		VERSION_STAMP.addAndGet(this, 2);
+	}
+
+	/**
+	 * hold this publication for a conditional update, if its version is the expected version and no other 
+	 * conditional update holds it, in one compare and set
+	 * 
+	 * @return	true if this publication is held, until releaseVersion()
+	 */
+	boolean claimVersion(long expectedVersion) {
+		return expectedVersion >= 0 && VERSION_STAMP.compareAndSet(this, expectedVersion << 1, (expectedVersion << 1) + 1);
+	}
+
+	/**
+	 * release this publication after a conditional update (claimVersion())
+	 */
+	void releaseVersion() {
+		VERSION_STAMP.incrementAndGet(this);
+	}
+
 	/**
 	 * Check if the name given is a valid author name. A valid name complies with
 	 * the syntax-rules given below. It is the default name format that is used
@@ -536,8 +654,9 @@ public abstract class Publication {
 		// retrieval
 		String[] nameArray = new String[2];
 		StringTokenizer st = new StringTokenizer(name, ",");
-		nameArray[0] = st.nextToken().trim();
-		nameArray[1] = st.nextToken().trim();
+		// the name parts that repeat over the publications are shared through the string pool
+		nameArray[0] = StringPool.canonicalIfRepeated(st.nextToken().trim());
+		nameArray[1] = StringPool.canonicalIfRepeated(st.nextToken().trim());
 		return nameArray;
 	}
 
@@ -566,11 +685,16 @@ public abstract class Publication {
 		if (rank > (getNbAuthors() + 1))
 			throw new RankTooBigException();
 
-		getAuthorList().add(rank - 1, convertNameToIntRepr(name));
+		String[] author = convertNameToIntRepr(name);
+		recordIndexEntriesInRefDb();
+		getAuthorList().add(rank - 1, author);
+		bumpVersion();
 
 		// add to authorindex
 		if (hasReferenceId())
-			RefDb.addAuthorNameToIndex(rank, getReferenceId());
+			getRefDb().addAuthorNameToIndex(rank, getReferenceId());
+		if (publishesChanges())
+			publishChange(RefDbChangeType.AUTHOR_ADDED, null, getAuthorAt(rank));
 	}
 
 	/**
@@ -592,13 +716,18 @@ public abstract class Publication {
 		if (rank > (getNbAuthors()))
 			throw new RankTooBigException();
 
+		recordIndexEntriesInRefDb();
 		// remove entry in author index (must be done before deleting from
 		// authorList)
 		if (hasReferenceId())
-			RefDb.removeAuthorNameFromIndex(rank, getReferenceId());
+			getRefDb().removeAuthorNameFromIndex(rank, getReferenceId());
 
 		// remove from authorlist
+		String name = publishesChanges() ? getAuthorAt(rank) : null;
 		getAuthorList().remove(rank - 1);
+		bumpVersion();
+		if (name != null)
+			publishChange(RefDbChangeType.AUTHOR_REMOVED, null, name);
 	}
 
 	/**
@@ -614,12 +743,17 @@ public abstract class Publication {
 	 * 			The number of authors for this publication is incremented by 1
 	 */
 	public void addAsAuthor(String name) throws AuthorIsNullException, AuthorNameNotValidException {
-		getAuthorList().add(convertNameToIntRepr(name));
+		String[] author = convertNameToIntRepr(name);
+		recordIndexEntriesInRefDb();
+		getAuthorList().add(author);
+		bumpVersion();
 
 		// add to authorindex
 		if (hasReferenceId())
 			try {
-				RefDb.addAuthorNameToIndex(getNbAuthors(), getReferenceId());
+				getRefDb().addAuthorNameToIndex(getNbAuthors(), getReferenceId());
+				if (publishesChanges())
+					publishChange(RefDbChangeType.AUTHOR_ADDED, null, getAuthorAt(getNbAuthors()));
 			} catch (InputFieldNotValidException e) {
 				assert false; // cannot occur
 				e.printStackTrace();
@@ -734,8 +868,16 @@ public abstract class Publication {
 	public void addAsCitation(Publication publication) throws PublicationIsNotValidException {
 		if (!canHaveAsCitation(publication))
 			throw new PublicationIsNotValidException();
-		this.cites.add(publication);
+		boolean added = this.cites.add(publication);
 		publication.addAsCitator(this);
+		if (added) {
+			bumpVersion();
+			publication.bumpVersion();
+		}
+		touchInRefDb();
+		publication.touchInRefDb();
+		if (added)
+			publishChange(RefDbChangeType.CITATION_ADDED, publication.getReferenceId(), null);
 	}
 	/**
 	 * Remove the given publication from the set of citations of this
@@ -751,6 +893,11 @@ public abstract class Publication {
 		if (hasAsCitation(publication)) {
 			this.cites.remove(publication);
 			publication.removeAsCitator(this);
+			bumpVersion();
+			publication.bumpVersion();
+			touchInRefDb();
+			publication.touchInRefDb();
+			publishChange(RefDbChangeType.CITATION_REMOVED, publication.getReferenceId(), null);
 		}
 	
 	}
@@ -869,7 +1016,7 @@ public abstract class Publication {
 		// this will clean up the refDb(indexes and so on), cites and cited-by
 		// clean-up will be already done
 		if (hasReferenceId()) {
-			RefDb.removePublicationFromDb(getReferenceId());
+			getRefDb().removePublicationFromDb(getReferenceId());
 		}
 	}
 
@@ -933,11 +1080,43 @@ public abstract class Publication {
 	
 
 
+	/**
+	 * get the publication type of this publication
+	 */
+	public abstract PublicationType getPublicationType();
+
 	/**
 	 * get the citationscore of this publication
 	 */
 	public abstract double getCitationScore();
 
+	/**
+	 * get an estimate of the heap memory held by this publication : the object itself, its title, referenceId,
+	 * authors and citation sets (not the publications it refers to, nor the venue and author names shared with other
+	 * publications through StringPool).  The estimate assumes a 64 bit JVM with compressed references and compact 
+	 * strings.
+	 * 
+	 * @return	the estimated number of bytes held by this publication
+	 */
+	public long estimateMemoryFootprint() {
+		long bytes = 56 + estimateMemoryFootprint(title) + estimateMemoryFootprint(referenceId);
+		bytes += 40 + 4L * authorList.size();
+		// the name parts of the authors are mostly shared through the string pool : only their array is counted
+		bytes += 24L * authorList.size();
+		// a hash set with its map, table and one node per element
+		bytes += 2 * (64 + 36L) + 40L * (cites.size() + citedBy.size());
+		return bytes;
+	}
+
+	/**
+	 * get an estimate of the heap memory held by the given string (0 for null)
+	 */
+	static long estimateMemoryFootprint(String string) {
+		if (string == null)
+			return 0;
+		return 24 + ((16 + string.length() + 7) & ~7L);
+	}
+
 	
 	/**
 	 * checks if this publication is a proper publication, meaning it respects all the classinvariants
@@ -981,7 +1160,7 @@ public abstract class Publication {
 			if (getReferenceId() != null) {
 				for (String word : getTitle().toLowerCase().split(RefDb.RegexWordSplit)) {
 					try {
-						if (!RefDb.getPublicationsByTitleWord(word).contains(this))
+						if (!getRefDb().getPublicationsByTitleWord(word).contains(this))
 							return false;
 					} catch (WordIsNullException e) {
 						return false;
@@ -990,7 +1169,7 @@ public abstract class Publication {
 				}
 				for (String author : getAllAuthorsWithInitial()) {
 					try {
-						if (!RefDb.getPublicationsByAuthorName(author).contains(this))
+						if (!getRefDb().getPublicationsByAuthorName(author).contains(this))
 							return false;
 					} catch (AuthorNameIsNullException e) {
 						return false;
@@ -0,0 +1,553 @@
+package publicationRefDb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A class of immutable, columnar snapshots of publications, stored outside the Java heap : for very large corpora,
+ * whose millions of Publication objects (with their strings, author lists and citation sets) make every full
+ * garbage collection slow.  The heap only holds the few buffers of the columns, whatever the number of publications.
+ *
+ * The publications are numbered 0..n-1 in ascending referenceId (rows), and stored per column :
+ * 		IDs, titles					UTF-8 strings (OffHeapStrings), with a hash table on the IDs
+ * 		years, types, issue numbers	a short, a byte and an int per row
+ * 		venues						the number of the journal, conference or publisher in a dictionary of venues
+ * 		authors						a range per row of numbers in a dictionary of author names (default name format)
+ * 		citations, citators			a range per row of rows, in compressed sparse row form, in ascending row
+ * 		publications per author		a range per author of rows, in ascending row
+ * 		publications per author key	a range per key of a dictionary of author keys (as in the author index of RefDb, 
+ * 									e.g. M. L. King) of rows, in ascending row
+ * 		publications per title word	a range per word of a dictionary of title words (as in the title word index of
+ * 									RefDb) of rows, in ascending row
+ * Only registered publications, and the citations between them, are kept.  The publications are read through
+ * PublicationView, a flyweight of a store and a row that reads the columns on every call.
+ *
+ * A snapshot can be written to a segment file (write()) and opened from it (open()) : the columns of an opened
+ * snapshot are mapped in memory, so only the pages in use take memory, and the heap none at all.
+ *
+ * A snapshot does not follow later changes of the publications : take a new snapshot after changes.
+ * Once taken, a snapshot can be read by many threads at a time.
+ *
+ * @invar	every edge of the cites relation is also an edge of the cited-by relation, and vice versa
+ */
+public final class PublicationColumnStore {
+
+	private static final PublicationType[] TYPES = PublicationType.values();
+
+	/**
+	 * the start of a segment file, read as an int in the byte order of the machine
+	 */
+	private static final int SEGMENT_MAGIC = 0x52444243;
+
+	private static final Pattern TITLE_WORD_SPLIT = Pattern.compile(RefDb.RegexWordSplit);
+
+	/**
+	 * take a snapshot of all publications of the given reference database
+	 *
+	 * @param 	refDb
+	 * 			the reference database (must not change while the snapshot is taken)
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 * @return	a new snapshot
+	 */
+	public static PublicationColumnStore of(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		if (refDb == null)
+			throw new InputFieldNotSpecifiedException();
+		return of(refDb.getIdTable().values());
+	}
+
+	/**
+	 * take a snapshot of the given publications (e.g. of all shards of a ShardedRefDb)
+	 *
+	 * @param 	publications
+	 * 			the publications of the snapshot (must not change while the snapshot is taken); the unregistered
+	 * 			ones are left out
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the publications or one of the publications is null
+	 * @return	a new snapshot
+	 */
+	public static PublicationColumnStore of(Collection<? extends Publication> publications)
+			throws InputFieldNotSpecifiedException {
+		if (publications == null)
+			throw new InputFieldNotSpecifiedException();
+		List<Publication> nodes = new ArrayList<Publication>(publications.size());
+		for (Publication publication : publications) {
+			if (publication == null)
+				throw new InputFieldNotSpecifiedException();
+			if (publication.hasReferenceId())
+				nodes.add(publication);
+		}
+		PublicationColumnStore store = new PublicationColumnStore(newColumns());
+		store.fill(nodes.toArray(new Publication[nodes.size()]));
+		return store;
+	}
+
+	/**
+	 * open the snapshot in the given segment file (see write()) : its columns are mapped in memory, read only
+	 *
+	 * @param 	segment
+	 * 			the segment file
+	 * @throws 	IOException
+	 * 			the file cannot be read, or is not a segment file written on this machine
+	 * @return	the snapshot
+	 */
+	public static PublicationColumnStore open(Path segment) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(8 + 8 * NB_COLUMNS).order(ByteOrder.nativeOrder());
+			while (header.hasRemaining())
+				if (channel.read(header) < 0)
+					throw new IOException("not a segment : " + segment);
+			if (header.getInt(0) != SEGMENT_MAGIC || header.getInt(4) != NB_COLUMNS)
+				throw new IOException("not a segment written on this machine : " + segment);
+			OffHeapArena[] columns = new OffHeapArena[NB_COLUMNS];
+			long offset = header.capacity();
+			for (int i = 0; i < NB_COLUMNS; i++) {
+				long size = header.getLong(8 + 8 * i);
+				if (offset + size > channel.size())
+					throw new IOException("truncated segment : " + segment);
+				columns[i] = OffHeapArena.map(channel, offset, size);
+				offset += size;
+			}
+			// the mappings stay valid after the file is closed
+			return new PublicationColumnStore(columns);
+		}
+	}
+
+	/**
+	 * write this snapshot to the given segment file : its header (SEGMENT_MAGIC, the number of columns and their 
+	 * sizes) followed by all columns
+	 *
+	 * @param 	segment
+	 * 			the file to write (replaced at once when it is complete)
+	 * @throws 	IOException
+	 * 			the file cannot be written
+	 */
+	public void write(Path segment) throws IOException {
+		Path file = segment.resolveSibling(segment.getFileName() + ".tmp");
+		OffHeapArena[] columns = getColumns();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(8 + 8 * NB_COLUMNS).order(ByteOrder.nativeOrder());
+			header.putInt(SEGMENT_MAGIC).putInt(NB_COLUMNS);
+			for (OffHeapArena column : columns)
+				header.putLong(column.size());
+			header.flip();
+			while (header.hasRemaining())
+				channel.write(header);
+			for (OffHeapArena column : columns)
+				column.writeTo(channel);
+		}
+		Files.move(file, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * the number of arenas of a snapshot (see getColumns())
+	 */
+	private static final int NB_COLUMNS = 32;
+
+	private static OffHeapArena[] newColumns() {
+		OffHeapArena[] columns = new OffHeapArena[NB_COLUMNS];
+		for (int i = 0; i < NB_COLUMNS; i++)
+			columns[i] = new OffHeapArena();
+		return columns;
+	}
+
+	/**
+	 * Initialise this new snapshot on the given arenas, in the order of getColumns()
+	 */
+	private PublicationColumnStore(OffHeapArena[] columns) {
+		ids = new OffHeapStrings(columns[0], columns[1], columns[2]);
+		titles = new OffHeapStrings(columns[3], columns[4], columns[5]);
+		years = columns[6];
+		types = columns[7];
+		venues = columns[8];
+		issueNumbers = columns[9];
+		venueNames = new OffHeapStrings(columns[10], columns[11], columns[12]);
+		authorOffsets = columns[13];
+		authors = columns[14];
+		authorNames = new OffHeapStrings(columns[15], columns[16], columns[17]);
+		citationOffsets = columns[18];
+		citations = columns[19];
+		citatorOffsets = columns[20];
+		citators = columns[21];
+		authorPublicationOffsets = columns[22];
+		authorPublications = columns[23];
+		titleWords = new OffHeapStrings(columns[24], columns[25], columns[26]);
+		// the offsets and the rows of the publications per title word, in one arena
+		wordPublications = columns[27];
+		authorKeys = new OffHeapStrings(columns[28], columns[29], columns[30]);
+		authorKeyPublications = columns[31];
+	}
+
+	private OffHeapArena[] getColumns() {
+		List<OffHeapArena> columns = new ArrayList<OffHeapArena>(NB_COLUMNS);
+		columns.addAll(Arrays.asList(ids.getArenas()));
+		columns.addAll(Arrays.asList(titles.getArenas()));
+		columns.addAll(Arrays.asList(years, types, venues, issueNumbers));
+		columns.addAll(Arrays.asList(venueNames.getArenas()));
+		columns.addAll(Arrays.asList(authorOffsets, authors));
+		columns.addAll(Arrays.asList(authorNames.getArenas()));
+		columns.addAll(Arrays.asList(citationOffsets, citations, citatorOffsets, citators, authorPublicationOffsets,
+				authorPublications));
+		columns.addAll(Arrays.asList(titleWords.getArenas()));
+		columns.add(wordPublications);
+		columns.addAll(Arrays.asList(authorKeys.getArenas()));
+		columns.add(authorKeyPublications);
+		return columns.toArray(new OffHeapArena[NB_COLUMNS]);
+	}
+
+	/**
+	 * fill the columns of this new, empty snapshot with the given publications
+	 */
+	private void fill(Publication[] nodes) {
+		Arrays.parallelSort(nodes,
+				(publication1, publication2) -> RefDbIndex.ID_ORDER.compare(publication1.getReferenceId(),
+						publication2.getReferenceId()));
+		int n = nodes.length;
+		// the numbers of the build are kept on the heap, and dropped with the build
+		Map<Publication, Integer> rows = new IdentityHashMap<Publication, Integer>(n);
+		for (int row = 0; row < n; row++)
+			rows.put(nodes[row], row);
+		Map<String, Integer> venueNumbers = new HashMap<String, Integer>();
+		Map<String, Integer> authorNumbers = new HashMap<String, Integer>();
+		Map<String, Integer> wordNumbers = new HashMap<String, Integer>();
+		OffHeapArena wordOffsets = new OffHeapArena();
+		OffHeapArena words = new OffHeapArena();
+		wordOffsets.appendLong(0);
+		Map<String, Integer> keyNumbers = new HashMap<String, Integer>();
+		OffHeapArena keyOffsets = new OffHeapArena();
+		OffHeapArena keys = new OffHeapArena();
+		keyOffsets.appendLong(0);
+		citationOffsets.appendLong(0);
+		citatorOffsets.appendLong(0);
+		authorOffsets.appendLong(0);
+		for (Publication publication : nodes) {
+			ids.add(publication.getReferenceId());
+			titles.add(publication.getTitle());
+			years.appendShort((short) publication.getYearOfPublication());
+			types.appendByte((byte) publication.getPublicationType().ordinal());
+			String venue;
+			int issueNumber = 0;
+			if (publication instanceof JournalArticle) {
+				venue = ((JournalArticle) publication).getJournalName();
+				issueNumber = ((JournalArticle) publication).getIssueNumber();
+			} else if (publication instanceof ConferencePaper) {
+				venue = ((ConferencePaper) publication).getConference();
+			} else {
+				venue = ((Book) publication).getPublisher();
+			}
+			venues.appendInt(number(venue, venueNumbers, venueNames));
+			issueNumbers.appendInt(issueNumber);
+			for (String author : publication.getAllAuthors())
+				authors.appendInt(number(author, authorNumbers, authorNames));
+			authorOffsets.appendLong(authors.size() / 4);
+			Set<String> distinctWords = new HashSet<String>(
+					Arrays.asList(TITLE_WORD_SPLIT.split(publication.getTitle().toLowerCase())));
+			for (String word : distinctWords)
+				words.appendInt(number(word, wordNumbers, titleWords));
+			wordOffsets.appendLong(words.size() / 4);
+			for (String key : publication.getAllAuthorsWithInitial())
+				keys.appendInt(number(key, keyNumbers, authorKeys));
+			keyOffsets.appendLong(keys.size() / 4);
+			// the relations are read directly : the public getters copy both sets of every publication
+			appendRows(publication.cites, rows, citations, citationOffsets);
+			appendRows(publication.citedBy, rows, citators, citatorOffsets);
+		}
+		ids.buildIndex();
+		authorNames.buildIndex();
+		titleWords.buildIndex();
+		authorKeys.buildIndex();
+		invert(authorOffsets, authors, authorNames.size(), authorPublicationOffsets, authorPublications);
+		invert(wordOffsets, words, titleWords.size(), wordPublications, wordPublications);
+		invert(keyOffsets, keys, authorKeys.size(), authorKeyPublications, authorKeyPublications);
+	}
+
+	/**
+	 * get the number of the given string in the given dictionary, adding it if necessary
+	 */
+	private static int number(String string, Map<String, Integer> numbers, OffHeapStrings dictionary) {
+		Integer number = numbers.get(string);
+		if (number == null) {
+			number = dictionary.add(string);
+			numbers.put(string, number);
+		}
+		return number;
+	}
+
+	/**
+	 * append the rows of the given publications that are in the snapshot, in ascending order, and the end offset
+	 */
+	private static void appendRows(Collection<Publication> publications, Map<Publication, Integer> rows,
+			OffHeapArena target, OffHeapArena offsets) {
+		int[] related = new int[publications.size()];
+		int nbRelated = 0;
+		for (Publication publication : publications) {
+			Integer row = rows.get(publication);
+			if (row != null)
+				related[nbRelated++] = row;
+		}
+		Arrays.sort(related, 0, nbRelated);
+		for (int i = 0; i < nbRelated; i++)
+			target.appendInt(related[i]);
+		offsets.appendLong(target.size() / 4);
+	}
+
+	/**
+	 * invert the given column of numbers per row : append to the target offsets the start of the rows of every 
+	 * number, and to the target the rows (counted first, then filled in ascending row).  The offsets and the rows may 
+	 * go to the same arena : the rows then follow the offsets.
+	 */
+	private void invert(OffHeapArena rowOffsets, OffHeapArena numbers, int nbNumbers, OffHeapArena targetOffsets,
+			OffHeapArena target) {
+		long[] starts = new long[nbNumbers + 1];
+		int[] lastRows = new int[nbNumbers];
+		Arrays.fill(lastRows, -1);
+		for (int row = 0; row < getNbPublications(); row++)
+			for (long i = rowOffsets.getLong(8L * row); i < rowOffsets.getLong(8L * row + 8); i++) {
+				int number = numbers.getInt(4 * i);
+				// a number twice in the same row counts once
+				if (lastRows[number] != row) {
+					lastRows[number] = row;
+					starts[number + 1]++;
+				}
+			}
+		for (int number = 0; number < nbNumbers; number++)
+			starts[number + 1] += starts[number];
+		for (long start : starts)
+			targetOffsets.appendLong(start);
+		long base = target.extend(4 * starts[nbNumbers]);
+		long[] next = Arrays.copyOf(starts, nbNumbers);
+		Arrays.fill(lastRows, -1);
+		for (int row = 0; row < getNbPublications(); row++)
+			for (long i = rowOffsets.getLong(8L * row); i < rowOffsets.getLong(8L * row + 8); i++) {
+				int number = numbers.getInt(4 * i);
+				if (lastRows[number] != row) {
+					lastRows[number] = row;
+					target.putInt(base + 4 * next[number]++, row);
+				}
+			}
+	}
+
+	private final OffHeapStrings ids;
+	private final OffHeapStrings titles;
+	private final OffHeapArena years;
+	private final OffHeapArena types;
+	private final OffHeapArena venues;
+	private final OffHeapArena issueNumbers;
+	private final OffHeapStrings venueNames;
+	private final OffHeapArena authorOffsets;
+	private final OffHeapArena authors;
+	private final OffHeapStrings authorNames;
+	private final OffHeapArena citationOffsets;
+	private final OffHeapArena citations;
+	private final OffHeapArena citatorOffsets;
+	private final OffHeapArena citators;
+	private final OffHeapArena authorPublicationOffsets;
+	private final OffHeapArena authorPublications;
+	private final OffHeapStrings titleWords;
+	private final OffHeapArena wordPublications;
+	private final OffHeapStrings authorKeys;
+	private final OffHeapArena authorKeyPublications;
+
+	/**
+	 * get the number of publications of this snapshot
+	 */
+	public int getNbPublications() {
+		return ids.size();
+	}
+
+	/**
+	 * get the number of citations between the publications of this snapshot
+	 */
+	public long getNbCitations() {
+		return citations.size() / 4;
+	}
+
+	/**
+	 * get the number of distinct venues (journals, conferences and publishers) of this snapshot
+	 */
+	public int getNbVenues() {
+		return venueNames.size();
+	}
+
+	/**
+	 * get the number of distinct authors (default name format) of this snapshot
+	 */
+	public int getNbAuthors() {
+		return authorNames.size();
+	}
+
+	/**
+	 * get the number of bytes this snapshot allocated outside the heap (or mapped, for an opened snapshot)
+	 */
+	public long getMemoryFootprint() {
+		long footprint = 0;
+		for (OffHeapArena column : getColumns())
+			footprint += column.getMemoryFootprint();
+		return footprint;
+	}
+
+	/**
+	 * get the publication with the given row
+	 *
+	 * @throws 	InputFieldNotValidException
+	 * 			the row is not in 0..getNbPublications()-1
+	 */
+	public PublicationView getPublication(int row) throws InputFieldNotValidException {
+		if (row < 0 || row >= getNbPublications())
+			throw new InputFieldNotValidException();
+		return new PublicationView(this, row);
+	}
+
+	/**
+	 * get the publication with the given referenceId
+	 *
+	 * @return	the publication, or null if it is not in this snapshot
+	 */
+	public PublicationView getPublicationById(String id) {
+		if (id == null)
+			return null;
+		int row = ids.indexOf(id.trim());
+		return row < 0 ? null : new PublicationView(this, row);
+	}
+
+	/**
+	 * get the publications of the given author (default name format, e.g. King, Martin Luther), in ascending row
+	 *
+	 * @throws 	AuthorNameIsNullException
+	 */
+	public List<PublicationView> getPublicationsByAuthorName(String authorName) throws AuthorNameIsNullException {
+		if (authorName == null)
+			throw new AuthorNameIsNullException();
+		List<PublicationView> publications = new ArrayList<PublicationView>();
+		int author = authorNames.indexOf(authorName.trim());
+		if (author >= 0)
+			for (long i = authorPublicationOffsets.getLong(8L * author); i < authorPublicationOffsets
+					.getLong(8L * author + 8); i++)
+				publications.add(new PublicationView(this, authorPublications.getInt(4 * i)));
+		return publications;
+	}
+
+	/**
+	 * get the publications with the given author key (e.g. M. L. King, see RefDb.getPublicationsByAuthorName()), in
+	 * ascending row
+	 *
+	 * @throws 	AuthorNameIsNullException
+	 */
+	public List<PublicationView> getPublicationsByAuthorKey(String authorKey) throws AuthorNameIsNullException {
+		if (authorKey == null)
+			throw new AuthorNameIsNullException();
+		return getPostings(authorKeys, authorKeyPublications, authorKey.trim());
+	}
+
+	/**
+	 * get the publications with the given word in their title (see RefDb.getPublicationsByTitleWord()), in ascending
+	 * row
+	 *
+	 * @throws 	WordIsNullException
+	 */
+	public List<PublicationView> getPublicationsByTitleWord(String word) throws WordIsNullException {
+		if (word == null)
+			throw new WordIsNullException();
+		return getPostings(titleWords, wordPublications, word.trim().toLowerCase());
+	}
+
+	/**
+	 * get the publications of the given key of the given dictionary, from an arena with the offsets of the rows of 
+	 * every key followed by the rows (see invert())
+	 */
+	private List<PublicationView> getPostings(OffHeapStrings dictionary, OffHeapArena postings, String key) {
+		List<PublicationView> publications = new ArrayList<PublicationView>();
+		int number = dictionary.indexOf(key);
+		if (number >= 0) {
+			long base = 8L * (dictionary.size() + 1);
+			for (long i = postings.getLong(8L * number); i < postings.getLong(8L * number + 8); i++)
+				publications.add(new PublicationView(this, postings.getInt(base + 4 * i)));
+		}
+		return publications;
+	}
+
+	/**
+	 * get all publications of this snapshot, in ascending row
+	 */
+	public Stream<PublicationView> stream() {
+		return IntStream.range(0, getNbPublications()).mapToObj(row -> new PublicationView(this, row));
+	}
+
+	// the columns per row (used by PublicationView)
+
+	String getReferenceId(int row) {
+		return ids.get(row);
+	}
+
+	String getTitle(int row) {
+		return titles.get(row);
+	}
+
+	int getYearOfPublication(int row) {
+		return years.getShort(2L * row);
+	}
+
+	PublicationType getPublicationType(int row) {
+		return TYPES[types.getByte(row)];
+	}
+
+	String getVenue(int row) {
+		return venueNames.get(venues.getInt(4L * row));
+	}
+
+	int getIssueNumber(int row) {
+		return issueNumbers.getInt(4L * row);
+	}
+
+	int getNbAuthors(int row) {
+		return (int) (authorOffsets.getLong(8L * row + 8) - authorOffsets.getLong(8L * row));
+	}
+
+	/**
+	 * get the author with the given index (from 0) of the given row
+	 */
+	String getAuthor(int row, int index) {
+		return authorNames.get(authors.getInt(4 * (authorOffsets.getLong(8L * row) + index)));
+	}
+
+	int getNbCitations(int row) {
+		return (int) (citationOffsets.getLong(8L * row + 8) - citationOffsets.getLong(8L * row));
+	}
+
+	/**
+	 * get the row of the citation with the given index (from 0) of the given row
+	 */
+	int getCitation(int row, int index) {
+		return citations.getInt(4 * (citationOffsets.getLong(8L * row) + index));
+	}
+
+	int getNbCitators(int row) {
+		return (int) (citatorOffsets.getLong(8L * row + 8) - citatorOffsets.getLong(8L * row));
+	}
+
+	/**
+	 * get the row of the citator with the given index (from 0) of the given row
+	 */
+	int getCitator(int row, int index) {
+		return citators.getInt(4 * (citatorOffsets.getLong(8L * row) + index));
+	}
+}
@@ -0,0 +1,15 @@
+package publicationRefDb;
+/**
+ * An Enum class of the orderings in which the reference database can page through
+ * the publications of an index entry 
+ * 		- BY_ID : ascending referenceId 
+ * 		- BY_YEAR : ascending year of publication, publications of the same year in ascending referenceId
+ * 
+ * both orderings are total and stable, so a continuation token obtained from one page always
+ * points to the same position in the next request (as long as that position is not removed from the DB)
+ */
+public enum PublicationOrder {
+
+	BY_ID, BY_YEAR;
+
+}
@@ -0,0 +1,59 @@
+package publicationRefDb;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class of pages of publications, as returned by the paginated queries of the reference database.
+ * A page holds at most the requested number of publications and a continuation token that must be passed
+ * to the next request to get the next page.
+ * 
+ * @invar	the list of publications of a page is never null
+ * @invar	the continuation token is null if and only if there are no more publications after this page
+ */
+public final class PublicationPage {
+
+	/**
+	 * Initialise this new page with the given publications and the given continuation token
+	 * 
+	 * @param 	publications
+	 * 			the publications on this page (in the order of the query)
+	 * @param 	continuationToken
+	 * 			the token that points to the position right after the last publication of this page, 
+	 * 			or null if this is the last page
+	 */
+	PublicationPage(List<Publication> publications, String continuationToken) {
+		this.publications = Collections.unmodifiableList(publications);
+		this.continuationToken = continuationToken;
+	}
+
+	/**
+	 * get the publications on this page (read only)
+	 */
+	public List<Publication> getPublications() {
+		return publications;
+	}
+
+	private final List<Publication> publications;
+
+	/**
+	 * get the continuation token of this page
+	 * 
+	 * @return	the token to pass to the next request, or null if this is the last page
+	 */
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	/**
+	 * check if there are more publications after this page
+	 * 
+	 * @return	true if the continuation token of this page is effective
+	 */
+	public boolean hasMore() {
+		return getContinuationToken() != null;
+	}
+
+	private final String continuationToken;
+
+}
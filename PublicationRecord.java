@@ -0,0 +1,147 @@
+package publicationRefDb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class of immutable publications in the heap, read from a publication of a PublicationColumnStore : a record holds
+ * the referenceId, the fields and the authors of the publication (not its citations, that are given by ID by the
+ * store).  Since a record cannot change, one record can be handed out to many callers and threads at a time, as
+ * the hot publications of a TieredRefDb are.
+ *
+ * @invar	the referenceId, the title, the type and the venue of a record are never null
+ */
+public final class PublicationRecord {
+
+	/**
+	 * Initialise this new record with the referenceId, the fields and the authors of the given view
+	 */
+	PublicationRecord(PublicationView view) {
+		this.referenceId = view.getReferenceId();
+		this.title = view.getTitle();
+		this.yearOfPublication = view.getYearOfPublication();
+		this.publicationType = view.getPublicationType();
+		this.venue = StringPool.canonical(view.getVenue());
+		this.issueNumber = view.getIssueNumber();
+		this.authors = view.getAllAuthors().toArray(new String[0]);
+	}
+
+	/**
+	 * get the referenceId of this publication
+	 */
+	public String getReferenceId() {
+		return referenceId;
+	}
+
+	private final String referenceId;
+
+	/**
+	 * get the title of this publication
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	private final String title;
+
+	/**
+	 * get the year of publication of this publication
+	 */
+	public int getYearOfPublication() {
+		return yearOfPublication;
+	}
+
+	private final int yearOfPublication;
+
+	/**
+	 * get the type of this publication
+	 */
+	public PublicationType getPublicationType() {
+		return publicationType;
+	}
+
+	private final PublicationType publicationType;
+
+	/**
+	 * get the venue of this publication : the name of the journal, the conference or the publisher
+	 */
+	public String getVenue() {
+		return venue;
+	}
+
+	private final String venue;
+
+	/**
+	 * get the issue number of this publication (0 if it is not a journal article)
+	 */
+	public int getIssueNumber() {
+		return issueNumber;
+	}
+
+	private final int issueNumber;
+
+	/**
+	 * get the number of authors of this publication
+	 */
+	public int getNbAuthors() {
+		return authors.length;
+	}
+
+	/**
+	 * get the author at the given rank of this publication (default name format, e.g. King, Martin Luther)
+	 *
+	 * @throws 	InputFieldNotValidException
+	 * 			the rank is not positive (RankNotPositiveException) or greater than the number of authors
+	 * 			(RankTooBigException)
+	 */
+	public String getAuthorAt(int rank) throws InputFieldNotValidException {
+		if (rank <= 0)
+			throw new RankNotPositiveException();
+		if (rank > getNbAuthors())
+			throw new RankTooBigException();
+		return authors[rank - 1];
+	}
+
+	/**
+	 * get all authors of this publication in rank order (default name format), as a list that cannot be changed
+	 */
+	public List<String> getAllAuthors() {
+		return Collections.unmodifiableList(Arrays.asList(authors));
+	}
+
+	private final String[] authors;
+
+	/**
+	 * get a new, unregistered publication with the fields and authors of this record (without citations)
+	 *
+	 * @throws 	InputFieldNotSpecifiedException
+	 * @throws 	InputFieldNotValidException
+	 */
+	public Publication toPublication() throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		switch (publicationType) {
+		case JOURNALARTICLE:
+			return new JournalArticle(title, venue, issueNumber, yearOfPublication, authors.clone());
+		case CONFERENCEPAPER:
+			return new ConferencePaper(title, yearOfPublication, venue, authors.clone());
+		default:
+			return new Book(title, yearOfPublication, venue, authors.clone());
+		}
+	}
+
+	/**
+	 * get an estimate of the heap memory held by this record, in bytes (the venue is shared through the string pool)
+	 */
+	public long estimateMemoryFootprint() {
+		long bytes = 48 + Publication.estimateMemoryFootprint(referenceId) + Publication.estimateMemoryFootprint(title);
+		bytes += 16 + 4L * authors.length;
+		for (String author : authors)
+			bytes += Publication.estimateMemoryFootprint(author);
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return referenceId + " " + title;
+	}
+}
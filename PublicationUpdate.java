@@ -0,0 +1,14 @@
+package publicationRefDb;
+
+/**
+ * An interface for the changes of a conditional update of a publication (see RefDbInstance.updatePublication())
+ *
+ * @param <X>	the exception the changes may throw
+ */
+public interface PublicationUpdate<X extends Exception> {
+
+	/**
+	 * change the given publication
+	 */
+	void apply(Publication publication) throws X;
+}
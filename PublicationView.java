@@ -0,0 +1,193 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class of flyweight publications of a PublicationColumnStore : a view is only the store and a row, and reads
+ * the columns of the store on every call, so views can be created for every access and dropped right after.
+ * Two views are equal if they have the same store and row.
+ *
+ * @invar	the store of a view is never null, and its row is a row of the store
+ */
+public final class PublicationView {
+
+	/**
+	 * Initialise this new view of the given row of the given store
+	 */
+	PublicationView(PublicationColumnStore store, int row) {
+		this.store = store;
+		this.row = row;
+	}
+
+	/**
+	 * get the store of this view
+	 */
+	public PublicationColumnStore getStore() {
+		return store;
+	}
+
+	private final PublicationColumnStore store;
+
+	/**
+	 * get the row of this view in its store
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	private final int row;
+
+	/**
+	 * get the referenceId of this publication
+	 */
+	public String getReferenceId() {
+		return store.getReferenceId(row);
+	}
+
+	/**
+	 * get the title of this publication
+	 */
+	public String getTitle() {
+		return store.getTitle(row);
+	}
+
+	/**
+	 * get the year of publication of this publication
+	 */
+	public int getYearOfPublication() {
+		return store.getYearOfPublication(row);
+	}
+
+	/**
+	 * get the type of this publication
+	 */
+	public PublicationType getPublicationType() {
+		return store.getPublicationType(row);
+	}
+
+	/**
+	 * get the venue of this publication : the name of the journal, the conference or the publisher
+	 */
+	public String getVenue() {
+		return store.getVenue(row);
+	}
+
+	/**
+	 * get the issue number of this publication (0 if it is not a journal article)
+	 */
+	public int getIssueNumber() {
+		return store.getIssueNumber(row);
+	}
+
+	/**
+	 * get the number of authors of this publication
+	 */
+	public int getNbAuthors() {
+		return store.getNbAuthors(row);
+	}
+
+	/**
+	 * get the author at the given rank of this publication (default name format, e.g. King, Martin Luther)
+	 *
+	 * @throws 	InputFieldNotValidException
+	 * 			the rank is not positive (RankNotPositiveException) or greater than the number of authors
+	 * 			(RankTooBigException)
+	 */
+	public String getAuthorAt(int rank) throws InputFieldNotValidException {
+		if (rank <= 0)
+			throw new RankNotPositiveException();
+		if (rank > getNbAuthors())
+			throw new RankTooBigException();
+		return store.getAuthor(row, rank - 1);
+	}
+
+	/**
+	 * get all authors of this publication in rank order (default name format)
+	 */
+	public List<String> getAllAuthors() {
+		int nbAuthors = getNbAuthors();
+		List<String> authors = new ArrayList<String>(nbAuthors);
+		for (int i = 0; i < nbAuthors; i++)
+			authors.add(store.getAuthor(row, i));
+		return authors;
+	}
+
+	/**
+	 * get the number of publications of the store that this publication cites
+	 */
+	public int getNbCitations() {
+		return store.getNbCitations(row);
+	}
+
+	/**
+	 * get the publications of the store that this publication cites, in ascending row
+	 */
+	public List<PublicationView> getAllCitations() {
+		int nbCitations = getNbCitations();
+		List<PublicationView> citations = new ArrayList<PublicationView>(nbCitations);
+		for (int i = 0; i < nbCitations; i++)
+			citations.add(new PublicationView(store, store.getCitation(row, i)));
+		return citations;
+	}
+
+	/**
+	 * get the number of publications of the store that cite this publication
+	 */
+	public int getNbCitators() {
+		return store.getNbCitators(row);
+	}
+
+	/**
+	 * get the publications of the store that cite this publication, in ascending row
+	 */
+	public List<PublicationView> getAllCitators() {
+		int nbCitators = getNbCitators();
+		List<PublicationView> citators = new ArrayList<PublicationView>(nbCitators);
+		for (int i = 0; i < nbCitators; i++)
+			citators.add(new PublicationView(store, store.getCitator(row, i)));
+		return citators;
+	}
+
+	/**
+	 * get the citation score of this publication (see Publication.getCitationScore())
+	 */
+	public double getCitationScore() {
+		return getPublicationType().getCitationWeight();
+	}
+
+	/**
+	 * get a new, unregistered publication with the fields and authors of this view (without citations)
+	 *
+	 * @throws 	InputFieldNotSpecifiedException
+	 * @throws 	InputFieldNotValidException
+	 */
+	public Publication toPublication() throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		String[] authors = getAllAuthors().toArray(new String[0]);
+		switch (getPublicationType()) {
+		case JOURNALARTICLE:
+			return new JournalArticle(getTitle(), getVenue(), getIssueNumber(), getYearOfPublication(), authors);
+		case CONFERENCEPAPER:
+			return new ConferencePaper(getTitle(), getYearOfPublication(), getVenue(), authors);
+		default:
+			return new Book(getTitle(), getYearOfPublication(), getVenue(), authors);
+		}
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof PublicationView))
+			return false;
+		return store == ((PublicationView) other).store && row == ((PublicationView) other).row;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(store) + row;
+	}
+
+	@Override
+	public String toString() {
+		return getReferenceId() + " " + getTitle();
+	}
+}
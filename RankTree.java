@@ -0,0 +1,185 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A class of order statistic sets : the elements are kept in the order of a comparator in a treap (a binary search
+ * tree with random heap priorities, so it is balanced in expectation), where every node knows the size of its
+ * subtree.  Adding and removing an element and finding the rank of an element take O(log n) expected time;
+ * listing the first k elements takes O(log n + k).
+ *
+ * The comparator must be consistent with equals for the elements in the set : an element is found back by
+ * comparing, so its order may not change while it is in the set (remove it, then add the changed element).
+ *
+ * @invar	the size of every node is 1 plus the sizes of its subtrees
+ * @invar	the priority of every node is at least the priority of its children
+ */
+final class RankTree<E> {
+
+	/**
+	 * Initialise this new, empty set in the order of the given comparator
+	 */
+	RankTree(Comparator<? super E> order) {
+		this.order = order;
+	}
+
+	private final Comparator<? super E> order;
+	private Node<E> root;
+
+	private static final class Node<E> {
+
+		Node(E element) {
+			this.element = element;
+			this.priority = ThreadLocalRandom.current().nextInt();
+			this.size = 1;
+		}
+
+		final E element;
+		final int priority;
+		int size;
+		Node<E> left;
+		Node<E> right;
+
+		Node<E> update() {
+			size = 1 + size(left) + size(right);
+			return this;
+		}
+	}
+
+	/**
+	 * the two trees of a split
+	 */
+	private static final class Split<E> {
+		Node<E> before;
+		Node<E> after;
+	}
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * get the number of elements in this set
+	 */
+	int size() {
+		return size(root);
+	}
+
+	/**
+	 * add the given element to this set, unless an equal element is in it
+	 *
+	 * @return	true if the element is added
+	 */
+	boolean add(E element) {
+		if (contains(element))
+			return false;
+		Split<E> parts = split(root, element, false);
+		root = merge(merge(parts.before, new Node<E>(element)), parts.after);
+		return true;
+	}
+
+	/**
+	 * remove the element equal to the given element from this set
+	 *
+	 * @return	true if an element is removed
+	 */
+	boolean remove(E element) {
+		if (!contains(element))
+			return false;
+		Split<E> lower = split(root, element, false);
+		Split<E> higher = split(lower.after, element, true);
+		root = merge(lower.before, higher.after);
+		return true;
+	}
+
+	/**
+	 * check if an element equal to the given element is in this set
+	 */
+	boolean contains(E element) {
+		Node<E> node = root;
+		while (node != null) {
+			int comparison = order.compare(element, node.element);
+			if (comparison == 0)
+				return true;
+			node = comparison < 0 ? node.left : node.right;
+		}
+		return false;
+	}
+
+	/**
+	 * get the number of elements of this set before the given element (its rank from 0)
+	 */
+	int rank(E element) {
+		int rank = 0;
+		Node<E> node = root;
+		while (node != null) {
+			if (order.compare(element, node.element) <= 0) {
+				node = node.left;
+			} else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * get the first elements of this set in order
+	 *
+	 * @param 	nb
+	 * 			the maximum number of elements
+	 */
+	List<E> getFirst(int nb) {
+		List<E> first = new ArrayList<E>(Math.min(nb, size()));
+		addFirst(root, nb, first);
+		return first;
+	}
+
+	private static <E> void addFirst(Node<E> node, int nb, List<E> first) {
+		if (node == null || first.size() >= nb)
+			return;
+		addFirst(node.left, nb, first);
+		if (first.size() < nb)
+			first.add(node.element);
+		addFirst(node.right, nb, first);
+	}
+
+	/**
+	 * split the given tree in the elements before the given element and the others (inclusive false),
+	 * or in the elements up to the given element and the others (inclusive true)
+	 */
+	private Split<E> split(Node<E> node, E element, boolean inclusive) {
+		if (node == null)
+			return new Split<E>();
+		int comparison = order.compare(node.element, element);
+		if (comparison < 0 || (inclusive && comparison == 0)) {
+			Split<E> parts = split(node.right, element, inclusive);
+			node.right = parts.before;
+			parts.before = node.update();
+			return parts;
+		}
+		Split<E> parts = split(node.left, element, inclusive);
+		node.left = parts.after;
+		parts.after = node.update();
+		return parts;
+	}
+
+	/**
+	 * merge the given trees, where every element of the first comes before every element of the second
+	 */
+	private static <E> Node<E> merge(Node<E> first, Node<E> second) {
+		if (first == null)
+			return second;
+		if (second == null)
+			return first;
+		if (first.priority >= second.priority) {
+			first.right = merge(first.right, second);
+			return first.update();
+		}
+		second.left = merge(first, second.left);
+		return second.update();
+	}
+}
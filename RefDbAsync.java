@@ -0,0 +1,407 @@
+package publicationRefDb;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A class of asynchronous facades over the expensive queries of a reference database : the queries run on a
+ * dedicated, bounded pool of threads, and return a CompletableFuture (or a Flow.Publisher) instead of blocking
+ * the caller.
+ *
+ * Identical queries that are in flight at the same time are merged (single flight) : a burst of the same query
+ * computes it once, and every caller gets its own future of the shared result.  Cancelling or timing out the future
+ * of one caller does not affect the others; when all callers gave up, the computation is cancelled (a query that is
+ * still queued does not run).  A change of the reference database ends the merging with the queries that started
+ * before it, so a query never gets a result older than the query itself.
+ * When the queue of the pool is full, a query fails at once with a RejectedExecutionException.
+ *
+ * The queries hold the read lock of getLock() : the reference database may only be changed under its write lock.
+ *
+ * @invar	the reference database, the lock and the pool of a facade are never null
+ */
+public final class RefDbAsync {
+
+	/**
+	 * Initialise this new facade for the given reference database, with a pool of one thread per processor and a
+	 * queue of 1024 queries, and a new lock
+	 *
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database is null
+	 */
+	public RefDbAsync(RefDbInstance refDb) throws InputFieldNotSpecifiedException {
+		this(refDb, new ReentrantReadWriteLock(), newExecutor(Runtime.getRuntime().availableProcessors(), 1024));
+	}
+
+	/**
+	 * Initialise this new facade for the given reference database
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @param 	lock
+	 * 			the lock under which the reference database is read and changed (e.g. RefDbHttpServer.getLock())
+	 * @param 	nbThreads
+	 * 			the number of threads of the pool
+	 * @param 	queueCapacity
+	 * 			the maximum number of queued queries
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database or the lock is null
+	 * @throws 	InputFieldNotValidException
+	 * 			the number of threads or the capacity is not strictly positive
+	 */
+	public RefDbAsync(RefDbInstance refDb, ReadWriteLock lock, int nbThreads, int queueCapacity)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		this(refDb, lock, newExecutor(checkPositive(nbThreads), checkPositive(queueCapacity)));
+	}
+
+	private RefDbAsync(RefDbInstance refDb, ReadWriteLock lock, ThreadPoolExecutor executor)
+			throws InputFieldNotSpecifiedException {
+		if (refDb == null || lock == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		this.lock = lock;
+		this.executor = executor;
+		refDb.getChangeStream().addListener(changeListener);
+	}
+
+	private static int checkPositive(int number) throws InputFieldNotValidException {
+		if (number <= 0)
+			throw new InputFieldNotValidException();
+		return number;
+	}
+
+	/**
+	 * get a pool of daemon threads that end when they are idle for a minute, with a bounded queue
+	 */
+	private static ThreadPoolExecutor newExecutor(int nbThreads, int queueCapacity) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(nbThreads, nbThreads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "refdb-async-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private final RefDbInstance refDb;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * get the lock of the reference database : the queries hold its read lock
+	 */
+	public ReadWriteLock getLock() {
+		return lock;
+	}
+
+	private final ReadWriteLock lock;
+
+	/**
+	 * stop this facade : the queued and running queries still complete, new queries are rejected
+	 */
+	public void shutdown() {
+		refDb.getChangeStream().removeListener(changeListener);
+		executor.shutdown();
+	}
+
+	/**
+	 * get the time after which the future of a caller completes with a TimeoutException
+	 *
+	 * @return	the timeout in milliseconds, 0 for none
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * set the time after which the future of a caller completes with a TimeoutException
+	 *
+	 * @param 	timeout
+	 * 			the timeout in milliseconds, 0 for none
+	 * @throws 	InputFieldNotValidException
+	 * 			the timeout is negative
+	 */
+	public void setTimeout(long timeout) throws InputFieldNotValidException {
+		if (timeout < 0)
+			throw new InputFieldNotValidException();
+		this.timeout = timeout;
+	}
+
+	private volatile long timeout;
+
+	/**
+	 * get the number of queries that were merged with an identical query in flight
+	 */
+	public long getNbMergedQueries() {
+		return nbMergedQueries.sum();
+	}
+
+	private final LongAdder nbMergedQueries = new LongAdder();
+
+	// the queries
+
+	/**
+	 * get the citation index of the given author (see RefDbInstance.getCitationIndex())
+	 */
+	public CompletableFuture<Double> getCitationIndex(String authorName) {
+		return query("citationIndex", authorName, () -> refDb.getCitationIndex(authorName));
+	}
+
+	/**
+	 * get the publications that directly or indirectly cite the given publication
+	 * (see RefDbInstance.getTransitiveClosureCitedBy(), computed without recursion)
+	 */
+	public CompletableFuture<Set<Publication>> getTransitiveClosureCitedBy(Publication publication) {
+		return query("transitiveClosureCitedBy", publication, () -> {
+			if (publication == null)
+				throw new PublicationIsNullException();
+			return refDb.streamTransitiveClosureCitedBy(publication).collect(HashSet<Publication>::new, Set::add,
+					Set::addAll);
+		});
+	}
+
+	/**
+	 * get the publications of the given author (see RefDbInstance.getPublicationsByAuthorName())
+	 */
+	public CompletableFuture<Set<Publication>> getPublicationsByAuthorName(String authorName) {
+		return query("publicationsByAuthorName", authorName, () -> refDb.getPublicationsByAuthorName(authorName));
+	}
+
+	/**
+	 * get the publications with the given word in their title (see RefDbInstance.getPublicationsByTitleWord())
+	 */
+	public CompletableFuture<Set<Publication>> getPublicationsByTitleWord(String word) {
+		return query("publicationsByTitleWord", word, () -> refDb.getPublicationsByTitleWord(word));
+	}
+
+	/**
+	 * publish the publications that directly or indirectly cite the given publication, as they are requested : the
+	 * closure is computed on the pool when the first publications are requested, and handed out on the pool
+	 * (a subscription that is cancelled before gets nothing more)
+	 */
+	public Flow.Publisher<Publication> publishTransitiveClosureCitedBy(Publication publication) {
+		return subscriber -> new ClosureSubscription(publication, subscriber).start();
+	}
+
+	// single flight
+
+	private interface Query<T> {
+
+		T run() throws Exception;
+	}
+
+	/**
+	 * the key of a query : its name and its argument (a publication by identity, as it does not override equals)
+	 */
+	private static final class Key {
+
+		Key(String name, Object argument) {
+			this.name = name;
+			this.argument = argument;
+		}
+
+		final String name;
+		final Object argument;
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			Key key = (Key) other;
+			return name.equals(key.name) && (argument == null ? key.argument == null : argument.equals(key.argument));
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * name.hashCode() + (argument == null ? 0 : argument.hashCode());
+		}
+	}
+
+	private final ConcurrentHashMap<Key, Flight<?>> inFlight = new ConcurrentHashMap<Key, Flight<?>>();
+
+	/**
+	 * a change of the reference database ends the merging with the queries in flight
+	 */
+	private final RefDbChangeListener changeListener = events -> inFlight.clear();
+
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> query(String name, Object argument, Query<T> query) {
+		Key key = new Key(name, argument);
+		while (true) {
+			Flight<T> created = new Flight<T>(key);
+			Flight<T> flight = (Flight<T>) inFlight.putIfAbsent(key, created);
+			if (flight == null) {
+				flight = created;
+				flight.start(query);
+			} else {
+				nbMergedQueries.increment();
+			}
+			CompletableFuture<T> future = flight.join();
+			// null : all callers of the flight gave up just before, and it is cancelled
+			if (future != null)
+				return future;
+			inFlight.remove(key, flight);
+		}
+	}
+
+	/**
+	 * A computation of a query, shared by its callers
+	 */
+	private final class Flight<T> {
+
+		Flight(Key key) {
+			this.key = key;
+		}
+
+		private final Key key;
+		private final CompletableFuture<T> result = new CompletableFuture<T>();
+		private Future<?> task;
+		private int nbCallers;
+
+		void start(Query<T> query) {
+			try {
+				Future<?> task = executor.submit(() -> {
+					lock.readLock().lock();
+					try {
+						result.complete(query.run());
+					} catch (Throwable e) {
+						result.completeExceptionally(e);
+					} finally {
+						lock.readLock().unlock();
+						inFlight.remove(key, this);
+					}
+				});
+				synchronized (this) {
+					this.task = task;
+				}
+			} catch (RejectedExecutionException e) {
+				inFlight.remove(key, this);
+				result.completeExceptionally(e);
+			}
+		}
+
+		/**
+		 * get a new future of the result for one more caller
+		 *
+		 * @return	the future, or null if the flight is cancelled
+		 */
+		synchronized CompletableFuture<T> join() {
+			if (result.isCancelled())
+				return null;
+			nbCallers++;
+			CompletableFuture<T> future = result.copy();
+			long timeout = getTimeout();
+			if (timeout > 0)
+				future.orTimeout(timeout, TimeUnit.MILLISECONDS);
+			future.whenComplete((value, exception) -> {
+				if (!result.isDone())
+					leave();
+			});
+			return future;
+		}
+
+		/**
+		 * one caller gave up (cancelled or timed out) : the last one cancels the computation
+		 */
+		private synchronized void leave() {
+			if (--nbCallers > 0 || result.isDone())
+				return;
+			result.cancel(false);
+			if (task != null)
+				task.cancel(true);
+			inFlight.remove(key, this);
+		}
+	}
+
+	/**
+	 * A subscription to the closure of a publication : the closure is computed once under the read lock, and handed
+	 * out as it is requested, by at most one pool thread at a time
+	 */
+	private final class ClosureSubscription implements Flow.Subscription {
+
+		ClosureSubscription(Publication publication, Flow.Subscriber<? super Publication> subscriber) {
+			this.publication = publication;
+			this.subscriber = subscriber;
+		}
+
+		private final Publication publication;
+		private final Flow.Subscriber<? super Publication> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger work = new AtomicInteger();
+		private volatile boolean cancelled;
+		private Publication[] closure;
+		private int next;
+
+		void start() {
+			subscriber.onSubscribe(this);
+		}
+
+		@Override
+		public void request(long n) {
+			if (cancelled)
+				return;
+			if (n <= 0) {
+				cancelled = true;
+				subscriber.onError(new IllegalArgumentException("the number of requested publications must be positive"));
+				return;
+			}
+			demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			if (work.getAndIncrement() == 0) {
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					cancelled = true;
+					subscriber.onError(e);
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+
+		private void drain() {
+			do {
+				if (cancelled)
+					return;
+				if (closure == null) {
+					lock.readLock().lock();
+					try {
+						if (publication == null)
+							throw new PublicationIsNullException();
+						closure = refDb.streamTransitiveClosureCitedBy(publication).toArray(Publication[]::new);
+					} catch (Throwable e) {
+						cancelled = true;
+						subscriber.onError(e);
+						return;
+					} finally {
+						lock.readLock().unlock();
+					}
+				}
+				while (!cancelled && next < closure.length && demand.get() > 0) {
+					subscriber.onNext(closure[next++]);
+					demand.decrementAndGet();
+				}
+				if (!cancelled && next == closure.length) {
+					cancelled = true;
+					subscriber.onComplete();
+					return;
+				}
+			} while (work.decrementAndGet() != 0);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package publicationRefDb;
+
+/**
+ * A class of immutable change events of a reference database, published by its RefDbChangeStream right after
+ * the change.  The events of one reference database are numbered with strictly increasing sequence numbers
+ * (from 1, without gaps), in the order of the changes.
+ *
+ * @invar	the type and the referenceId of an event are never null
+ * @invar	the citation ID is effective if and only if the type is CITATION_ADDED or CITATION_REMOVED
+ * @invar	the author name is effective if and only if the type is AUTHOR_ADDED or AUTHOR_REMOVED
+ */
+public final class RefDbChangeEvent {
+
+	/**
+	 * Initialise this new event
+	 *
+	 * @param 	sequenceNumber
+	 * 			the number of the event in its stream
+	 * @param 	type
+	 * 			the kind of change
+	 * @param 	publication
+	 * 			the changed publication (the citator for a citation)
+	 * @param 	referenceId
+	 * 			the referenceId of the publication at the time of the change
+	 * @param 	citationId
+	 * 			the referenceId of the cited publication of a citation, otherwise null
+	 * @param 	authorName
+	 * 			the added or removed author (default name format, e.g. King, Martin Luther), otherwise null
+	 */
+	RefDbChangeEvent(long sequenceNumber, RefDbChangeType type, Publication publication, String referenceId,
+			String citationId, String authorName) {
+		this.sequenceNumber = sequenceNumber;
+		this.type = type;
+		this.publication = publication;
+		this.referenceId = referenceId;
+		this.citationId = citationId;
+		this.authorName = authorName;
+		this.timestamp = System.currentTimeMillis();
+	}
+
+	/**
+	 * get the sequence number of this event
+	 */
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	private final long sequenceNumber;
+
+	/**
+	 * get the kind of change of this event
+	 */
+	public RefDbChangeType getType() {
+		return type;
+	}
+
+	private final RefDbChangeType type;
+
+	/**
+	 * get the changed publication (it may have changed again since this event)
+	 */
+	public Publication getPublication() {
+		return publication;
+	}
+
+	private final Publication publication;
+
+	/**
+	 * get the referenceId of the changed publication at the time of the change (also for a removed publication)
+	 */
+	public String getReferenceId() {
+		return referenceId;
+	}
+
+	private final String referenceId;
+
+	/**
+	 * get the referenceId of the cited publication of an added or removed citation
+	 *
+	 * @return	the ID, or null if this event is not about a citation
+	 */
+	public String getCitationId() {
+		return citationId;
+	}
+
+	private final String citationId;
+
+	/**
+	 * get the added or removed author (default name format, e.g. King, Martin Luther)
+	 *
+	 * @return	the name, or null if this event is not about an author
+	 */
+	public String getAuthorName() {
+		return authorName;
+	}
+
+	private final String authorName;
+
+	/**
+	 * get the time of the change, in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	private final long timestamp;
+
+	@Override
+	public String toString() {
+		return "#" + sequenceNumber + " " + type + " " + referenceId + (citationId == null ? "" : " -> " + citationId)
+				+ (authorName == null ? "" : " (" + authorName + ")");
+	}
+}
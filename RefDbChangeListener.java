@@ -0,0 +1,20 @@
+package publicationRefDb;
+
+import java.util.List;
+
+/**
+ * An interface for the consumers of the change events of a reference database (RefDbChangeStream) : external
+ * caches, search replicas, analytics.
+ */
+public interface RefDbChangeListener {
+
+	/**
+	 * receive the given change events, in ascending sequence number.
+	 * A synchronous listener receives every event alone, on the thread that changes the reference database, right
+	 * after the change; a subscription receives batches on its own thread.
+	 *
+	 * @param 	events
+	 * 			the events, never empty
+	 */
+	void onChanges(List<RefDbChangeEvent> events);
+}
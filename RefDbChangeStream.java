@@ -0,0 +1,188 @@
+package publicationRefDb;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A class of change event streams of a reference database : every change (an added or removed publication, author
+ * or citation, a changed title or other field) is published as a typed RefDbChangeEvent with the next sequence
+ * number, to two kinds of consumers.
+ *
+ * A synchronous listener receives every event on the thread that changes the reference database, before the change
+ * method returns : it sees the changes one by one, but a slow listener slows down the writer.
+ * A subscription receives the events in batches on its own thread : the writer only stores the event in a ring
+ * buffer (one slot per sequence number modulo the capacity) and wakes the subscribed threads, it never waits for
+ * them.  A subscription that falls more than the capacity behind skips the overwritten events and counts them as
+ * lost (see RefDbChangeSubscription.getNbLostEvents()), so it can resynchronise from the reference database.
+ *
+ * Events are only created while the stream has listeners or subscriptions; the sequence numbers have no gaps.
+ * Like the reference database, the stream expects one writing thread at a time.
+ *
+ * @invar	the capacity of a stream is a power of 2, at least 2
+ */
+public final class RefDbChangeStream {
+
+	/**
+	 * Initialise this new stream with a ring buffer of 65536 events
+	 */
+	RefDbChangeStream() {
+		this(1 << 16);
+	}
+
+	/**
+	 * Initialise this new stream with a ring buffer of the given capacity
+	 *
+	 * @param 	capacity
+	 * 			the number of events kept for the subscriptions, a power of 2 (at least 2)
+	 */
+	RefDbChangeStream(int capacity) {
+		assert capacity >= 2 && Integer.bitCount(capacity) == 1;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * get the number of events kept for the subscriptions : a subscription that falls further behind loses events
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	private final int capacity;
+
+	/**
+	 * get the sequence number of the last published event
+	 *
+	 * @return	the number, or 0 if no event is published yet
+	 */
+	public long getLastSequenceNumber() {
+		return lastSequenceNumber;
+	}
+
+	/**
+	 * written after the ring slot of the event, so a reader that sees the number also sees the event (or a later one)
+	 */
+	private volatile long lastSequenceNumber;
+
+	/**
+	 * the ring buffer, created with the first subscription (the stream of every reference database would hold it)
+	 */
+	private volatile RefDbChangeEvent[] ring;
+
+	/**
+	 * check if there is any listener or subscription, so that the changes must be published
+	 */
+	boolean isActive() {
+		return !listeners.isEmpty() || !subscriptions.isEmpty();
+	}
+
+	/**
+	 * register the given listener to receive every event synchronously
+	 *
+	 * @param 	listener
+	 * 			the listener
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the listener is null
+	 */
+	public void addListener(RefDbChangeListener listener) throws InputFieldNotSpecifiedException {
+		if (listener == null)
+			throw new InputFieldNotSpecifiedException();
+		listeners.add(listener);
+	}
+
+	/**
+	 * stop the given listener from receiving events
+	 */
+	public void removeListener(RefDbChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	private final List<RefDbChangeListener> listeners = new CopyOnWriteArrayList<RefDbChangeListener>();
+
+	/**
+	 * subscribe the given listener to receive the events published from now on in batches, on a new daemon thread
+	 *
+	 * @param 	listener
+	 * 			the listener
+	 * @param 	maxBatchSize
+	 * 			the maximum number of events per call of the listener
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the listener is null
+	 * @throws 	InputFieldNotValidException
+	 * 			the maximum batch size is not strictly positive
+	 * @return	the subscription, active until it is cancelled
+	 */
+	public synchronized RefDbChangeSubscription subscribe(RefDbChangeListener listener, int maxBatchSize)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		if (listener == null)
+			throw new InputFieldNotSpecifiedException();
+		if (maxBatchSize <= 0)
+			throw new InputFieldNotValidException();
+		if (ring == null)
+			ring = new RefDbChangeEvent[capacity];
+		RefDbChangeSubscription subscription =
+				new RefDbChangeSubscription(this, listener, maxBatchSize, getLastSequenceNumber());
+		subscriptions.add(subscription);
+		subscription.start();
+		return subscription;
+	}
+
+	/**
+	 * stop the given subscription from being woken (used by RefDbChangeSubscription.cancel())
+	 */
+	void unsubscribe(RefDbChangeSubscription subscription) {
+		subscriptions.remove(subscription);
+	}
+
+	private final List<RefDbChangeSubscription> subscriptions = new CopyOnWriteArrayList<RefDbChangeSubscription>();
+
+	/**
+	 * publish the change with the given data as the next event
+	 *
+	 * @param 	type
+	 * 			the kind of change
+	 * @param 	publication
+	 * 			the changed publication (the citator for a citation)
+	 * @param 	referenceId
+	 * 			the referenceId of the publication at the time of the change
+	 * @param 	citationId
+	 * 			the referenceId of the cited publication of a citation, otherwise null
+	 * @param 	authorName
+	 * 			the added or removed author in default name format, otherwise null
+	 * @post	if the stream is active, the listeners received the event and the subscriptions are woken
+	 */
+	synchronized void publish(RefDbChangeType type, Publication publication, String referenceId, String citationId,
+			String authorName) {
+		if (!isActive())
+			return;
+		long sequenceNumber = lastSequenceNumber + 1;
+		RefDbChangeEvent event =
+				new RefDbChangeEvent(sequenceNumber, type, publication, referenceId, citationId, authorName);
+		RefDbChangeEvent[] ring = this.ring;
+		if (ring != null)
+			ring[(int) (sequenceNumber & (capacity - 1))] = event;
+		lastSequenceNumber = sequenceNumber;
+		// the listeners are called inside the lock, so they receive the events in sequence
+		List<RefDbChangeEvent> events = Collections.singletonList(event);
+		for (RefDbChangeListener listener : listeners) {
+			try {
+				listener.onChanges(events);
+			} catch (RuntimeException e) {
+				// a failing consumer may not fail or undo the change
+				e.printStackTrace();
+			}
+		}
+		for (RefDbChangeSubscription subscription : subscriptions)
+			subscription.wakeUp();
+	}
+
+	/**
+	 * get the event stored for the given sequence number (used by the subscriptions)
+	 *
+	 * @return	the event with that number, or null if its slot holds no event or a later one (it is overwritten)
+	 */
+	RefDbChangeEvent getEvent(long sequenceNumber) {
+		RefDbChangeEvent event = ring[(int) (sequenceNumber & (capacity - 1))];
+		return event == null || event.getSequenceNumber() != sequenceNumber ? null : event;
+	}
+}
@@ -0,0 +1,162 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A class of subscriptions to a RefDbChangeStream : a daemon thread that reads the events from the ring buffer of
+ * the stream without locking and passes them in batches of at most the maximum batch size to its listener.
+ * Events that are overwritten before the thread reads them are skipped and counted as lost.
+ *
+ * @invar	the delivered sequence number never decreases
+ */
+public final class RefDbChangeSubscription {
+
+	/**
+	 * the longest time the thread sleeps without being woken, in case a wake-up comes between its check and its sleep
+	 */
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	/**
+	 * Initialise this new subscription, that delivers the events after the given sequence number
+	 */
+	RefDbChangeSubscription(RefDbChangeStream stream, RefDbChangeListener listener, int maxBatchSize,
+			long lastSequenceNumber) {
+		this.stream = stream;
+		this.listener = listener;
+		this.maxBatchSize = maxBatchSize;
+		this.deliveredSequenceNumber = lastSequenceNumber;
+		this.thread = new Thread(this::run, "refdb-change-subscription-" + threadNumber.incrementAndGet());
+		thread.setDaemon(true);
+	}
+
+	private final RefDbChangeStream stream;
+	private final RefDbChangeListener listener;
+	private final int maxBatchSize;
+	private final Thread thread;
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * get the sequence number of the last event passed to the listener (or skipped as lost)
+	 */
+	public long getDeliveredSequenceNumber() {
+		return deliveredSequenceNumber;
+	}
+
+	private volatile long deliveredSequenceNumber;
+
+	/**
+	 * get the number of events that were overwritten in the ring buffer before this subscription read them
+	 */
+	public long getNbLostEvents() {
+		return nbLostEvents;
+	}
+
+	private volatile long nbLostEvents;
+
+	/**
+	 * check if this subscription is cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * stop this subscription : its thread ends after the batch it is delivering
+	 *
+	 * @post	the subscription is cancelled
+	 */
+	public void cancel() {
+		cancelled = true;
+		stream.unsubscribe(this);
+		LockSupport.unpark(thread);
+	}
+
+	private volatile boolean cancelled;
+
+	/**
+	 * wait until every event up to the given sequence number is delivered (or lost), or the time is up
+	 *
+	 * @param 	sequenceNumber
+	 * 			the sequence number to wait for, e.g. the last sequence number of the stream
+	 * @param 	timeout
+	 * 			the maximum time to wait, in milliseconds
+	 * @throws 	InterruptedException
+	 * 			the waiting thread is interrupted
+	 * @return	true if the events are delivered, false if the time is up or the subscription is cancelled first
+	 */
+	public boolean awaitDelivery(long sequenceNumber, long timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		synchronized (this) {
+			while (getDeliveredSequenceNumber() < sequenceNumber) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0 || isCancelled())
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * wake the thread of this subscription if it waits for events (called by the stream after every event)
+	 */
+	void wakeUp() {
+		if (waiting)
+			LockSupport.unpark(thread);
+	}
+
+	private volatile boolean waiting;
+
+	private void run() {
+		while (!isCancelled()) {
+			long next = deliveredSequenceNumber + 1;
+			long last = stream.getLastSequenceNumber();
+			if (next > last) {
+				waiting = true;
+				// check again : an event published before the flag was set did not wake this thread
+				if (stream.getLastSequenceNumber() < next)
+					LockSupport.parkNanos(this, PARK_NANOS);
+				waiting = false;
+				continue;
+			}
+			// a new list per batch : the listener may keep it
+			List<RefDbChangeEvent> batch = new ArrayList<RefDbChangeEvent>((int) Math.min(maxBatchSize, last - next + 1));
+			while (next <= last && batch.size() < maxBatchSize) {
+				RefDbChangeEvent event = stream.getEvent(next);
+				if (event == null) {
+					// overwritten : continue with the oldest event that is still in the ring
+					long oldest = stream.getLastSequenceNumber() - stream.getCapacity() + 1;
+					nbLostEvents += oldest - next;
+					next = oldest;
+					last = Math.max(last, stream.getLastSequenceNumber());
+					continue;
+				}
+				batch.add(event);
+				next++;
+			}
+			if (!batch.isEmpty()) {
+				try {
+					listener.onChanges(batch);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+			synchronized (this) {
+				deliveredSequenceNumber = next - 1;
+				notifyAll();
+			}
+		}
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+}
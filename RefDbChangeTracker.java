@@ -0,0 +1,31 @@
+package publicationRefDb;
+
+/**
+ * An interface for the components that follow the changes of a reference database (e.g. the invariant checker 
+ * and the analytics tables), registered with RefDbInstance.addChangeTracker().
+ * The reference database reports every touched entry while it changes, so an implementation must be cheap and
+ * must not change the reference database itself.
+ */
+interface RefDbChangeTracker {
+
+	/**
+	 * report that the given registered publication is touched : its year, its venue, its issue number or its citations
+	 * changed
+	 */
+	void touchPublication(Publication publication);
+
+	/**
+	 * report that the entry of the given ID in the idTable is touched : the publication is added, removed or reindexed
+	 */
+	void touchId(String id);
+
+	/**
+	 * report that the set of IDs of the given key of the author index is touched
+	 */
+	void touchAuthorKey(String authorKey);
+
+	/**
+	 * report that the set of IDs of the given key of the title word index is touched
+	 */
+	void touchTitleWord(String titleWord);
+}
@@ -0,0 +1,11 @@
+package publicationRefDb;
+
+/**
+ * An Enum class of the kinds of changes of a reference database that are published as RefDbChangeEvent
+ */
+public enum RefDbChangeType {
+
+	PUBLICATION_ADDED, PUBLICATION_REMOVED, TITLE_CHANGED, PUBLICATION_CHANGED,
+	AUTHOR_ADDED, AUTHOR_REMOVED, CITATION_ADDED, CITATION_REMOVED;
+
+}
@@ -0,0 +1,412 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * A class of checkers of the class invariants of the reference database : the same conditions as
+ * hasProperIdTable(), hasProperAuthorIndex(), hasProperTitleWordIndex() and Publication.isProperPublication(),
+ * but checked in parallel and reported as a list of violations instead of a boolean.
+ *
+ * 	-> a full check shards the idTable and the keys of both indexes over a ForkJoinPool
+ * 	-> a check can be limited to a random sample of the entries (a new sample for every check, unless a seed is given)
+ * 	   and to a time budget
+ * 	-> an incremental check only verifies the IDs and index keys that were touched since the previous check
+ * 	   (the reference database reports every touched entry while tracking is on, see setTrackingChanges())
+ *
+ * The entries are read directly from the idTable and the indexes, without the defensive copies of the public
+ * getters.  The reference database is not thread safe : no mutations may run while a check runs.
+ *
+ * @invar	the fork join pool of a checker is never null
+ */
+public final class RefDbChecker implements RefDbChangeTracker {
+
+	private static final int SHARD_SIZE = 1024;
+
+	private static final Pattern TITLE_WORD_SPLIT = Pattern.compile(RefDb.RegexWordSplit);
+
+	/**
+	 * Initialise this new checker of the given reference database on the common fork join pool, without tracking changes
+	 */
+	RefDbChecker(RefDbInstance refDb) {
+		this.refDb = refDb;
+		pool = ForkJoinPool.commonPool();
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * get the fork join pool on which this checker runs its shards
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * set the fork join pool on which this checker runs its shards to the given pool
+	 *
+	 * @param 	pool
+	 * 			the new pool
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the given pool is null
+	 */
+	public void setPool(ForkJoinPool pool) throws InputFieldNotSpecifiedException {
+		if (pool == null)
+			throw new InputFieldNotSpecifiedException();
+		this.pool = pool;
+	}
+
+	private ForkJoinPool pool;
+
+	/**
+	 * check all entries of the reference database
+	 *
+	 * @return	a complete report of all violations
+	 */
+	public InvariantReport checkAll() {
+		try {
+			return check(1, 0);
+		} catch (InputFieldNotValidException e) {
+			assert false; // cannot occur
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * check a random sample of the entries of the reference database within a time budget : every check draws a 
+	 * new sample, so repeated checks cover all entries in the long run
+	 *
+	 * @param 	sampleFraction
+	 * 			the fraction of the entries to check (0 < sampleFraction <= 1, 1 checks every entry)
+	 * @param 	timeBudgetMillis
+	 * 			the maximum duration of the check in milliseconds (0 for no limit)
+	 * @throws 	InputFieldNotValidException
+	 * 			the fraction is not in ]0, 1] or the time budget is negative
+	 * @return	a report of the violations found in the checked entries, which is complete only if
+	 * 			every entry was checked
+	 */
+	public InvariantReport check(double sampleFraction, long timeBudgetMillis) throws InputFieldNotValidException {
+		return check(sampleFraction, timeBudgetMillis, ThreadLocalRandom.current().nextLong());
+	}
+
+	/**
+	 * check the random sample of the entries of the reference database drawn with the given seed within a time 
+	 * budget (the same seed draws the same sample of the same entries, e.g. to repeat a check)
+	 *
+	 * @param 	sampleFraction
+	 * 			the fraction of the entries to check (0 < sampleFraction <= 1, 1 checks every entry)
+	 * @param 	timeBudgetMillis
+	 * 			the maximum duration of the check in milliseconds (0 for no limit)
+	 * @throws 	InputFieldNotValidException
+	 * 			the fraction is not in ]0, 1] or the time budget is negative
+	 * @param 	seed
+	 * 			the seed of the sample
+	 * @return	a report of the violations found in the checked entries, which is complete only if
+	 * 			every entry was checked
+	 */
+	public InvariantReport check(double sampleFraction, long timeBudgetMillis, long seed)
+			throws InputFieldNotValidException {
+		if (!(sampleFraction > 0 && sampleFraction <= 1))
+			throw new InputFieldNotValidException();
+		if (timeBudgetMillis < 0)
+			throw new InputFieldNotValidException();
+
+		// a full check also covers all changes tracked so far
+		takeTouched();
+		return run(refDb.getIdTable().keySet().toArray(new String[0]),
+				refDb.getAuthorIndexRaw().getIndex().keySet().toArray(new String[0]),
+				refDb.getTitleWordIndexRaw().getIndex().keySet().toArray(new String[0]), sampleFraction,
+				timeBudgetMillis, seed);
+	}
+
+	/**
+	 * check the entries of the reference database that were touched since the previous check :
+	 * the publications that were added, changed or removed and the index keys whose set of IDs changed.
+	 * (only changes made while tracking is on are covered)
+	 *
+	 * @return	a report of the violations found in the touched entries
+	 */
+	public InvariantReport checkIncremental() {
+		List<Set<String>> touched = takeTouched();
+		return run(touched.get(0).toArray(new String[0]), touched.get(1).toArray(new String[0]),
+				touched.get(2).toArray(new String[0]), 1, 0, 0);
+	}
+
+	/**
+	 * check if this checker tracks the entries that are touched by the reference database
+	 */
+	public boolean isTrackingChanges() {
+		return trackingChanges;
+	}
+
+	/**
+	 * start or stop tracking the entries that are touched by the reference database (for checkIncremental())
+	 *
+	 * @param 	trackingChanges
+	 * 			true to start tracking
+	 */
+	public void setTrackingChanges(boolean trackingChanges) {
+		this.trackingChanges = trackingChanges;
+	}
+
+	private volatile boolean trackingChanges;
+
+	/**
+	 * report that the entry of the given publication in the idTable is touched
+	 * (no effect for unregistered publications or when tracking is off)
+	 */
+	@Override
+	public void touchPublication(Publication publication) {
+		if (trackingChanges && publication != null && publication.hasReferenceId())
+			touchedIds.add(publication.getReferenceId());
+	}
+
+	/**
+	 * report that the entry of the given ID in the idTable is touched (no effect when tracking is off)
+	 */
+	@Override
+	public void touchId(String id) {
+		if (trackingChanges && id != null)
+			touchedIds.add(id);
+	}
+
+	/**
+	 * report that the set of IDs of the given key of the author index is touched (no effect when tracking is off)
+	 */
+	@Override
+	public void touchAuthorKey(String authorKey) {
+		if (trackingChanges && authorKey != null)
+			touchedAuthorKeys.add(authorKey);
+	}
+
+	/**
+	 * report that the set of IDs of the given key of the title word index is touched (no effect when tracking is off)
+	 */
+	@Override
+	public void touchTitleWord(String titleWord) {
+		if (trackingChanges && titleWord != null)
+			touchedTitleWords.add(titleWord);
+	}
+
+	private volatile Set<String> touchedIds = ConcurrentHashMap.newKeySet();
+	private volatile Set<String> touchedAuthorKeys = ConcurrentHashMap.newKeySet();
+	private volatile Set<String> touchedTitleWords = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * take the touched IDs, author keys and title words, and start tracking with empty sets
+	 */
+	private synchronized List<Set<String>> takeTouched() {
+		List<Set<String>> touched = Arrays.asList(touchedIds, touchedAuthorKeys, touchedTitleWords);
+		touchedIds = ConcurrentHashMap.newKeySet();
+		touchedAuthorKeys = ConcurrentHashMap.newKeySet();
+		touchedTitleWords = ConcurrentHashMap.newKeySet();
+		return touched;
+	}
+
+	/**
+	 * check the given entries in parallel
+	 */
+	private InvariantReport run(String[] ids, String[] authorKeys, String[] titleWords, double sampleFraction,
+			long timeBudgetMillis, long seed) {
+		long start = System.nanoTime();
+		CheckRun run = new CheckRun(refDb, sampleFraction,
+				timeBudgetMillis == 0 ? Long.MAX_VALUE : start + timeBudgetMillis * 1000000, seed);
+		getPool().invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(new Shard(run, InvariantViolation.Kind.ID_TABLE, ids, 0, ids.length),
+						new Shard(run, InvariantViolation.Kind.AUTHOR_INDEX, authorKeys, 0, authorKeys.length),
+						new Shard(run, InvariantViolation.Kind.TITLE_WORD_INDEX, titleWords, 0, titleWords.length));
+			}
+		});
+		List<InvariantViolation> violations = new ArrayList<InvariantViolation>(run.violations);
+		return new InvariantReport(violations, run.nbChecked.sum(), sampleFraction == 1 && !run.outOfTime.get(),
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * The shared state of one check
+	 */
+	private static final class CheckRun {
+
+		CheckRun(RefDbInstance refDb, double sampleFraction, long deadline, long seed) {
+			this.refDb = refDb;
+			this.sampleFraction = sampleFraction;
+			this.deadline = deadline;
+			this.seed = seed;
+		}
+
+		final RefDbInstance refDb;
+		final double sampleFraction;
+		final long deadline;
+		final long seed;
+		final AtomicBoolean outOfTime = new AtomicBoolean();
+		final LongAdder nbChecked = new LongAdder();
+		final ConcurrentLinkedQueue<InvariantViolation> violations = new ConcurrentLinkedQueue<InvariantViolation>();
+
+		void report(InvariantViolation.Kind kind, String key, String description) {
+			violations.add(new InvariantViolation(kind, key, description));
+		}
+	}
+
+	/**
+	 * A class of shards : a range of IDs or index keys that is split until it is small enough to check sequentially
+	 */
+	private static final class Shard extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		Shard(CheckRun run, InvariantViolation.Kind kind, String[] keys, int from, int to) {
+			this.run = run;
+			this.kind = kind;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+		}
+
+		private final CheckRun run;
+		private final InvariantViolation.Kind kind;
+		private final String[] keys;
+		private final int from;
+		private final int to;
+
+		@Override
+		protected void compute() {
+			if (to - from > SHARD_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Shard(run, kind, keys, from, middle), new Shard(run, kind, keys, middle, to));
+				return;
+			}
+			// the sample is derived from the seed of the check and the position, so a sampled check does not contend 
+			// on a shared random source
+			SplittableRandom random = new SplittableRandom(run.seed + from * 31L + kind.ordinal());
+			// the keys of the publications in the postings of this shard, computed once per publication
+			Map<Publication, Set<String>> publicationKeys = new HashMap<Publication, Set<String>>();
+			for (int i = from; i < to; i++) {
+				if (run.outOfTime.get())
+					return;
+				if (System.nanoTime() > run.deadline) {
+					run.outOfTime.set(true);
+					return;
+				}
+				if (run.sampleFraction < 1 && random.nextDouble() >= run.sampleFraction)
+					continue;
+				run.nbChecked.increment();
+				switch (kind) {
+				case ID_TABLE:
+					checkIdTableEntry(run, keys[i]);
+					break;
+				case AUTHOR_INDEX:
+					checkIndexEntry(run, kind, keys[i], run.refDb.getAuthorIndexRaw().getIdSetForKey(keys[i]),
+							publicationKeys);
+					break;
+				default:
+					checkIndexEntry(run, kind, keys[i], run.refDb.getTitleWordIndexRaw().getIdSetForKey(keys[i]),
+							publicationKeys);
+				}
+			}
+		}
+	}
+
+	/**
+	 * check the entry of the given ID in the idTable, and the publication it refers to
+	 * (a touched ID that is no longer in the idTable has nothing to check)
+	 */
+	private static void checkIdTableEntry(CheckRun run, String id) {
+		Map<String, Publication> idTable = run.refDb.getIdTable();
+		if (!idTable.containsKey(id))
+			return;
+		Publication publication = idTable.get(id);
+		if (publication == null) {
+			run.report(InvariantViolation.Kind.ID_TABLE, id, "no publication");
+			return;
+		}
+		if (publication.getReferenceId() == null || !publication.getReferenceId().equalsIgnoreCase(id)) {
+			run.report(InvariantViolation.Kind.ID_TABLE, id,
+					"publication has referenceId " + publication.getReferenceId());
+			return;
+		}
+
+		String title = publication.getTitle();
+		if ("".equals(title.trim()))
+			run.report(InvariantViolation.Kind.PUBLICATION, id, "blank title");
+		if (!Publication.isValidYearOfPublication(publication.getYearOfPublication()))
+			run.report(InvariantViolation.Kind.PUBLICATION, id,
+					"invalid year of publication " + publication.getYearOfPublication());
+		if (!publication.hasProperAuthors())
+			run.report(InvariantViolation.Kind.PUBLICATION, id, "invalid author");
+		// the citation sets are read directly : the public getters copy both sets for every edge
+		for (Publication citation : publication.cites) {
+			if (!publication.canHaveAsCitation(citation) || !citation.citedBy.contains(publication))
+				run.report(InvariantViolation.Kind.PUBLICATION, id,
+						"cites " + citation.getReferenceId() + " without being its citator");
+		}
+		for (Publication citator : publication.citedBy) {
+			if (!publication.canHaveAsCitator(citator) || !citator.cites.contains(publication))
+				run.report(InvariantViolation.Kind.PUBLICATION, id,
+						"cited by " + citator.getReferenceId() + " without being its citation");
+		}
+		for (String word : TITLE_WORD_SPLIT.split(title.toLowerCase())) {
+			Set<String> idSet = run.refDb.getTitleWordIndexRaw().getIdSetForKey(word);
+			if (idSet == null || !idSet.contains(id))
+				run.report(InvariantViolation.Kind.PUBLICATION, id, "title word not indexed : " + word);
+		}
+		for (String author : publication.getAllAuthorsWithInitial()) {
+			Set<String> idSet = run.refDb.getAuthorIndexRaw().getIdSetForKey(author);
+			if (idSet == null || !idSet.contains(id))
+				run.report(InvariantViolation.Kind.PUBLICATION, id, "author not indexed : " + author);
+		}
+	}
+
+	/**
+	 * check the given key of an index with the given set of IDs
+	 * (a touched key that is no longer in the index has nothing to check)
+	 * The keys of every publication (lowercase author keys or title words, depending on the index) are kept in the 
+	 * given map, so they are computed once per publication and shard instead of once per posting.
+	 */
+	private static void checkIndexEntry(CheckRun run, InvariantViolation.Kind kind, String key, Set<String> idSet,
+			Map<Publication, Set<String>> publicationKeys) {
+		if (idSet == null)
+			return;
+		if (idSet.isEmpty()) {
+			run.report(kind, key, "empty set of IDs");
+			return;
+		}
+		Map<String, Publication> idTable = run.refDb.getIdTable();
+		String lowerCaseKey = key.toLowerCase();
+		for (String id : idSet) {
+			Publication publication = idTable.get(id);
+			if (publication == null) {
+				run.report(kind, key, "ID not in the idTable : " + id);
+				continue;
+			}
+			Set<String> keys = publicationKeys.get(publication);
+			if (keys == null) {
+				keys = new HashSet<String>();
+				if (kind == InvariantViolation.Kind.AUTHOR_INDEX) {
+					for (String author : publication.getAllAuthorsWithInitial())
+						keys.add(author.toLowerCase());
+				} else {
+					keys.addAll(Arrays.asList(TITLE_WORD_SPLIT.split(publication.getTitle().toLowerCase())));
+				}
+				publicationKeys.put(publication, keys);
+			}
+			if (!keys.contains(lowerCaseKey))
+				run.report(kind, key, "publication " + id + " does not have this key");
+		}
+	}
+}
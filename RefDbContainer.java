@@ -0,0 +1,289 @@
+package publicationRefDb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class of containers that host the reference databases of many tenants in one process.
+ * Every tenant has its own RefDbInstance (its own idTable, indexes, metrics and checker), so the tenants are isolated
+ * from each other.  A tenant is loaded lazily by the loader of the container the first time it is asked for
+ * (getTenant()), and can be unloaded again to free its memory.
+ *
+ * The memory of every tenant is accounted separately (RefDbInstance.estimateMemoryFootprint()).  The footprint of a
+ * tenant is measured when it is loaded and refreshed by getMemoryFootprint().  When a memory budget is set, loading a
+ * tenant unloads the least recently used other tenants until the total footprint fits the budget.  A tenant that 
+ * changed since it was loaded or last saved (hasUnsavedChanges()) is never unloaded for the budget, since the loader 
+ * would not restore its changes : the host saves it and calls markSaved() first, and until then the total footprint 
+ * may exceed the budget.  unloadTenant() unloads a tenant with or without changes.
+ *
+ * The container may be used from several threads : a tenant is loaded only once, even when it is asked for
+ * concurrently.  The databases of the tenants themselves are not thread safe.
+ *
+ * @invar	every loaded tenant has an effective reference database
+ * @invar	the memory budget of a container is not negative (0 for no budget)
+ */
+public final class RefDbContainer {
+
+	/**
+	 * Initialise this new container without a loader : a tenant starts with an empty reference database
+	 */
+	public RefDbContainer() {
+		this.loader = null;
+	}
+
+	/**
+	 * Initialise this new container with the given loader, without a memory budget
+	 *
+	 * @param 	loader
+	 * 			the loader of the publications of a tenant
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the loader is null
+	 */
+	public RefDbContainer(RefDbLoader loader) throws InputFieldNotSpecifiedException {
+		if (loader == null)
+			throw new InputFieldNotSpecifiedException();
+		this.loader = loader;
+	}
+
+	private final RefDbLoader loader;
+
+	/**
+	 * check if the given tenant ID is valid : effective and not blank
+	 */
+	public static boolean isValidTenantId(String tenantId) {
+		return tenantId != null && !"".equals(tenantId.trim());
+	}
+
+	/**
+	 * get the reference database of the given tenant, loading it first if it is not loaded
+	 *
+	 * @param 	tenantId
+	 * 			the ID of the tenant
+	 * @throws 	TenantIdNotValidException
+	 * @throws 	IOException
+	 * 			the loader failed to read the tenant (the tenant stays unloaded)
+	 * @throws 	InputFieldNotValidException
+	 * @throws 	InputFieldNotSpecifiedException
+	 * @return	the reference database of the tenant
+	 */
+	public RefDbInstance getTenant(String tenantId)
+			throws IOException, InputFieldNotValidException, InputFieldNotSpecifiedException {
+		if (!isValidTenantId(tenantId))
+			throw new TenantIdNotValidException(tenantId);
+		Tenant tenant = tenants.computeIfAbsent(tenantId, Tenant::new);
+		tenant.lastAccess = accessClock.incrementAndGet();
+		RefDbInstance refDb = tenant.refDb;
+		if (refDb != null)
+			return refDb;
+		synchronized (tenant) {
+			if (tenant.refDb == null) {
+				RefDbInstance newRefDb = new RefDbInstance();
+				if (loader != null)
+					loader.load(tenantId, newRefDb);
+				tenant.footprint = newRefDb.estimateMemoryFootprint();
+				// the changes are followed from the loaded state on
+				tenant.changed = false;
+				newRefDb.addChangeTracker(tenant);
+				tenant.refDb = newRefDb;
+			}
+			refDb = tenant.refDb;
+		}
+		enforceMemoryBudget(tenant);
+		return refDb;
+	}
+
+	/**
+	 * check if the given tenant is loaded
+	 */
+	public boolean isLoaded(String tenantId) {
+		Tenant tenant = tenantId == null ? null : tenants.get(tenantId);
+		return tenant != null && tenant.refDb != null;
+	}
+
+	/**
+	 * get the IDs of the loaded tenants, in ascending order
+	 */
+	public Set<String> getLoadedTenantIds() {
+		Set<String> tenantIds = new TreeSet<String>();
+		for (Tenant tenant : tenants.values())
+			if (tenant.refDb != null)
+				tenantIds.add(tenant.tenantId);
+		return tenantIds;
+	}
+
+	/**
+	 * check if the given tenant changed since it was loaded or since the last markSaved() : its publications, their
+	 * fields, authors or citations
+	 *
+	 * @return	false if the tenant is not loaded
+	 */
+	public boolean hasUnsavedChanges(String tenantId) {
+		Tenant tenant = tenantId == null ? null : tenants.get(tenantId);
+		return tenant != null && tenant.refDb != null && tenant.changed;
+	}
+
+	/**
+	 * report that the given tenant is saved (e.g. written where the loader reads it) : it has no unsaved changes any
+	 * more, so it may be unloaded for the memory budget
+	 *
+	 * @param 	tenantId
+	 * 			the ID of the tenant
+	 */
+	public void markSaved(String tenantId) {
+		Tenant tenant = tenantId == null ? null : tenants.get(tenantId);
+		if (tenant != null)
+			tenant.changed = false;
+	}
+
+	/**
+	 * unload the given tenant : its reference database is released and will be loaded again by the next getTenant()
+	 * (its unsaved changes are lost)
+	 *
+	 * @param 	tenantId
+	 * 			the ID of the tenant
+	 * @return	true if the tenant was loaded
+	 */
+	public boolean unloadTenant(String tenantId) {
+		Tenant tenant = tenantId == null ? null : tenants.get(tenantId);
+		if (tenant == null)
+			return false;
+		synchronized (tenant) {
+			boolean loaded = tenant.refDb != null;
+			if (loaded)
+				tenant.refDb.removeChangeTracker(tenant);
+			tenant.refDb = null;
+			tenant.footprint = 0;
+			tenant.changed = false;
+			return loaded;
+		}
+	}
+
+	/**
+	 * get the estimated memory footprint of the given tenant, measured again now
+	 *
+	 * @param 	tenantId
+	 * 			the ID of the tenant
+	 * @return	the estimated number of bytes held by the reference database of the tenant (0 if not loaded)
+	 */
+	public long getMemoryFootprint(String tenantId) {
+		Tenant tenant = tenantId == null ? null : tenants.get(tenantId);
+		if (tenant == null)
+			return 0;
+		synchronized (tenant) {
+			if (tenant.refDb != null)
+				tenant.footprint = tenant.refDb.estimateMemoryFootprint();
+			return tenant.footprint;
+		}
+	}
+
+	/**
+	 * get the estimated memory footprints of all loaded tenants, measured again now
+	 *
+	 * @return	a map of tenant ID to the estimated number of bytes held by its reference database
+	 */
+	public Map<String, Long> getMemoryFootprints() {
+		Map<String, Long> footprints = new HashMap<String, Long>();
+		for (String tenantId : getLoadedTenantIds())
+			footprints.put(tenantId, getMemoryFootprint(tenantId));
+		return footprints;
+	}
+
+	/**
+	 * get the sum of the memory footprints of the loaded tenants, as last measured
+	 */
+	public long getTotalMemoryFootprint() {
+		long total = 0;
+		for (Tenant tenant : tenants.values())
+			total += tenant.footprint;
+		return total;
+	}
+
+	/**
+	 * get the memory budget of this container in bytes (0 for no budget)
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * set the memory budget of this container
+	 *
+	 * @param 	memoryBudget
+	 * 			the maximum total footprint of the loaded tenants in bytes (0 for no budget)
+	 * @throws 	InputFieldNotValidException
+	 * 			the budget is negative
+	 */
+	public void setMemoryBudget(long memoryBudget) throws InputFieldNotValidException {
+		if (memoryBudget < 0)
+			throw new InputFieldNotValidException();
+		this.memoryBudget = memoryBudget;
+	}
+
+	private volatile long memoryBudget;
+
+	/**
+	 * unload the least recently used tenants other than the given tenant and without unsaved changes, until the total 
+	 * footprint fits the budget
+	 */
+	private void enforceMemoryBudget(Tenant keep) {
+		if (getMemoryBudget() == 0 || getTotalMemoryFootprint() <= getMemoryBudget())
+			return;
+		List<Tenant> candidates = new ArrayList<Tenant>(tenants.values());
+		candidates.sort(Comparator.comparingLong((Tenant tenant) -> tenant.lastAccess));
+		for (Tenant tenant : candidates) {
+			if (getTotalMemoryFootprint() <= getMemoryBudget())
+				return;
+			if (tenant != keep && !tenant.changed)
+				unloadTenant(tenant.tenantId);
+		}
+	}
+
+	private final ConcurrentHashMap<String, Tenant> tenants = new ConcurrentHashMap<String, Tenant>();
+
+	private final AtomicLong accessClock = new AtomicLong();
+
+	/**
+	 * A class of tenant slots : the reference database of a tenant (null if not loaded) with its accounting.  A slot
+	 * follows the changes of its reference database, to know if it has unsaved changes.
+	 */
+	private static final class Tenant implements RefDbChangeTracker {
+
+		Tenant(String tenantId) {
+			this.tenantId = tenantId;
+		}
+
+		final String tenantId;
+		volatile RefDbInstance refDb;
+		volatile long footprint;
+		volatile long lastAccess;
+		volatile boolean changed;
+
+		@Override
+		public void touchPublication(Publication publication) {
+			changed = true;
+		}
+
+		@Override
+		public void touchId(String id) {
+			changed = true;
+		}
+
+		@Override
+		public void touchAuthorKey(String authorKey) {
+			changed = true;
+		}
+
+		@Override
+		public void touchTitleWord(String titleWord) {
+			changed = true;
+		}
+	}
+}
@@ -313,6 +313,7 @@ public class RefDbDemo {
 		else System.out.println("hasProperTitlewordindex NOT !");
 		if (RefDb.hasProperPublications()) System.out.println("-->hasProperPublications OK!");
 		else System.out.println("hasProperPublications NOT !");
+		System.out.println("-->parallel invariant check : " + RefDb.getInvariantChecker().checkAll());
 		System.out.println();
 	}
 
@@ -0,0 +1,147 @@
+package publicationRefDb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A class of histograms of non-negative values (latencies in nanoseconds, sizes of sets, ...) with a 
+ * log-linear bucket layout in the style of HDR histograms : values below 32 are counted exactly, bigger values
+ * are counted in 32 buckets per power of two, so every percentile is exact up to about 3%.
+ * Recording a value is lock free and does not allocate, so it can be called from any thread.
+ * 
+ * @invar	the number of recorded values is equal to the sum of the counts of all buckets 
+ * 			(up to the values that are being recorded concurrently)
+ */
+public final class RefDbHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int NB_BUCKETS = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	/**
+	 * Initialise this new histogram without any recorded values
+	 */
+	public RefDbHistogram() {
+		counts = new AtomicLongArray(NB_BUCKETS);
+	}
+
+	/**
+	 * record the given value in this histogram (negative values are recorded as zero)
+	 * 
+	 * @param 	value
+	 * 			the value to record
+	 * @post	the number of recorded values is incremented by one
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(getBucket(value));
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * get the number of values recorded in this histogram
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * get the mean of the values recorded in this histogram
+	 * 
+	 * @return	the mean, or zero if no values are recorded
+	 */
+	public double getMean() {
+		long nb = getCount();
+		return nb == 0 ? 0 : (double) sum.sum() / nb;
+	}
+
+	/**
+	 * get the biggest value recorded in this histogram
+	 * 
+	 * @return	the biggest value, or zero if no values are recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * get the value at the given percentile of the values recorded in this histogram 
+	 * 
+	 * @param 	percentile
+	 * 			the percentile (0 < percentile <= 100)
+	 * @return	the highest value that falls in the same bucket as the value at the given percentile 
+	 * 			(never bigger than getMax()), or zero if no values are recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long nb = getCount();
+		if (nb == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * nb));
+		long seen = 0;
+		for (int bucket = 0; bucket < NB_BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank)
+				return Math.min(getMax(), getLowestValue(bucket + 1) - 1);
+		}
+		return getMax();
+	}
+
+	/**
+	 * remove all recorded values from this histogram 
+	 * (values that are recorded concurrently may be partly kept)
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < NB_BUCKETS; bucket++)
+			counts.set(bucket, 0);
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * get a summary of this histogram with the given name, where all values are divided by the given unit
+	 * 
+	 * @param 	name
+	 * 			the name of the summary
+	 * @param 	unit
+	 * 			the divisor for the values (e.g. 1000 to report nanoseconds in microseconds)
+	 */
+	public HistogramStatistics getStatistics(String name, double unit) {
+		return new HistogramStatistics(name, getCount(), getMean() / unit, getValueAtPercentile(50) / unit,
+				getValueAtPercentile(90) / unit, getValueAtPercentile(99) / unit, getValueAtPercentile(99.9) / unit,
+				getMax() / unit);
+	}
+
+	/**
+	 * get the bucket of the given value
+	 */
+	private static int getBucket(long value) {
+		if (value < SUB_BUCKET_COUNT)
+			return (int) value;
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * get the lowest value that is counted in the given bucket
+	 */
+	private static long getLowestValue(int bucket) {
+		if (bucket < SUB_BUCKET_COUNT)
+			return bucket;
+		int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		int subBucket = (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		if (shift >= 63 - SUB_BUCKET_BITS)
+			return Long.MAX_VALUE;
+		return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+	}
+
+	private final AtomicLongArray counts;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+}
@@ -0,0 +1,554 @@
+package publicationRefDb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A class of HTTP services that serve a reference database as JSON, on the HTTP server of the JDK :
+ * 	GET		/publications/{id}							the publication (its version is the ETag)
+ * 	GET		/publications?titleWord={word}				the publications with the word in their title
+ * 	GET		/publications?author={M. L. King}			the publications of the author
+ * 	GET		/publications/{id}/closure					the publications that directly or indirectly cite it
+ * 	GET		/authors/citation-index?name={King, Martin Luther}
+ * 	POST	/publications								add a publication (form : type=JOURNALARTICLE|CONFERENCEPAPER|BOOK,
+ * 														title, year, author (repeated), journal and issue, conference or publisher)
+ * 	DELETE	/publications/{id}
+ * 	PUT		/publications/{id}/title					form : title; with If-Match : {version}, only if the version is unchanged
+ * 	PUT		/publications/{id}/citations/{citationId}	add a citation
+ * 	DELETE	/publications/{id}/citations/{citationId}	remove a citation
+ * 	GET		/metrics									the latencies of the requests per endpoint, and of the database operations
+ *
+ * Every request runs on its own virtual thread when the JVM has them (Java 21), otherwise on a cached pool of
+ * threads; idle keep-alive connections hold no thread.  Queries share a read lock and changes take the write lock,
+ * so queries run in parallel.  Lists of publications are streamed in chunks : the publications are found under the
+ * read lock, and written a chunk at a time, so a slow client does not hold the lock.
+ * While the service runs, the reference database may only be changed under getLock().
+ *
+ * @invar	the reference database of a service is never null
+ */
+public final class RefDbHttpServer {
+
+	/**
+	 * the number of publications that are written under one hold of the read lock
+	 */
+	private static final int CHUNK_SIZE = 256;
+
+	private static final int MAX_BODY_SIZE = 1 << 20;
+
+	/**
+	 * the maximum number of pending connections
+	 */
+	private static final int BACKLOG = 8192;
+
+	private static final String JSON = "application/json; charset=utf-8";
+
+	static {
+		// the JDK server closes the keep-alive connections above this number when they become idle (by default 200)
+		if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null)
+			System.setProperty("sun.net.httpserver.maxIdleConnections", "100000");
+	}
+
+	/**
+	 * Initialise this new service for the given reference database on the given address (it is not started yet)
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @param 	address
+	 * 			the address and port (port 0 for any free port)
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database or the address is null
+	 * @throws 	IOException
+	 * 			the address cannot be bound
+	 */
+	public RefDbHttpServer(RefDbInstance refDb, InetSocketAddress address)
+			throws InputFieldNotSpecifiedException, IOException {
+		if (refDb == null || address == null)
+			throw new InputFieldNotSpecifiedException();
+		this.refDb = refDb;
+		for (Endpoint endpoint : Endpoint.values())
+			latencies.put(endpoint, new RefDbHistogram());
+		this.server = HttpServer.create(address, BACKLOG);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+	}
+
+	private final RefDbInstance refDb;
+	private final HttpServer server;
+
+	/**
+	 * serve the reference database of RefDb on the port given as argument (8080 by default)
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		RefDbHttpServer server = new RefDbHttpServer(RefDb.getDefault(), new InetSocketAddress(port));
+		server.start();
+		System.out.println("serving on " + server.getAddress() + (server.usesVirtualThreads() ? " (virtual threads)" : ""));
+	}
+
+	/**
+	 * start serving requests
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * stop serving requests
+	 *
+	 * @param 	delay
+	 * 			the maximum time in seconds to wait for the running requests
+	 */
+	public void stop(int delay) {
+		server.stop(delay);
+		executor.shutdown();
+	}
+
+	/**
+	 * get the address on which this service listens
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * get the lock of the reference database : the service changes it under the write lock and reads it under the
+	 * read lock, and so must the other code while the service runs
+	 */
+	public ReadWriteLock getLock() {
+		return lock;
+	}
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// one thread per request : virtual if the JVM has them
+
+	/**
+	 * check if the requests run on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	private boolean virtualThreads;
+
+	private final ExecutorService executor = newRequestExecutor();
+
+	private ExecutorService newRequestExecutor() {
+		try {
+			// Java 21 : the method is looked up, so the sources still compile for Java 17
+			ExecutorService executor =
+					(ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			virtualThreads = true;
+			return executor;
+		} catch (ReflectiveOperationException e) {
+			// before Java 21 (or a preview that is not enabled) : platform threads, created as needed and reused
+			AtomicInteger threadNumber = new AtomicInteger();
+			ThreadFactory threadFactory = runnable -> {
+				Thread thread = new Thread(runnable, "refdb-http-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			};
+			return Executors.newCachedThreadPool(threadFactory);
+		}
+	}
+
+	// request latencies per endpoint
+
+	private enum Endpoint {
+		GET_PUBLICATION, SEARCH_BY_TITLE_WORD, SEARCH_BY_AUTHOR, GET_CLOSURE, GET_CITATION_INDEX,
+		ADD_PUBLICATION, REMOVE_PUBLICATION, SET_TITLE, ADD_CITATION, REMOVE_CITATION,
+		GET_METRICS, NOT_FOUND;
+	}
+
+	private final Map<Endpoint, RefDbHistogram> latencies = new EnumMap<Endpoint, RefDbHistogram>(Endpoint.class);
+
+	/**
+	 * get the latencies of the requests per endpoint (in microseconds, from the start of the handling until the
+	 * response is written), for the endpoints that received requests
+	 */
+	public HistogramStatistics[] getRequestLatencies() {
+		List<HistogramStatistics> statistics = new ArrayList<HistogramStatistics>();
+		for (Map.Entry<Endpoint, RefDbHistogram> entry : latencies.entrySet())
+			if (entry.getValue().getCount() > 0)
+				statistics.add(entry.getValue().getStatistics(entry.getKey().name(), 1000));
+		return statistics.toArray(new HistogramStatistics[0]);
+	}
+
+	// handling of the requests
+
+	private void handle(HttpExchange exchange) {
+		long start = System.nanoTime();
+		String[] path = getPath(exchange);
+		Map<String, List<String>> query = parseForm(exchange.getRequestURI().getRawQuery());
+		Endpoint endpoint = getEndpoint(exchange.getRequestMethod(), path, query);
+		try {
+			serve(endpoint, exchange, path, query);
+		} catch (IOException e) {
+			// the client is gone
+		} catch (Exception e) {
+			try {
+				sendError(exchange, e);
+			} catch (IOException e1) {
+				// the client is gone, or the response had started
+			}
+		} finally {
+			exchange.close();
+			latencies.get(endpoint).record(System.nanoTime() - start);
+		}
+	}
+
+	private static String[] getPath(HttpExchange exchange) {
+		List<String> segments = new ArrayList<String>();
+		for (String segment : exchange.getRequestURI().getRawPath().split("/"))
+			if (!segment.isEmpty())
+				segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+		return segments.toArray(new String[0]);
+	}
+
+	private static Endpoint getEndpoint(String method, String[] path, Map<String, List<String>> query) {
+		if (path.length == 1 && "metrics".equals(path[0]))
+			return "GET".equals(method) ? Endpoint.GET_METRICS : Endpoint.NOT_FOUND;
+		if (path.length == 2 && "authors".equals(path[0]) && "citation-index".equals(path[1]))
+			return "GET".equals(method) ? Endpoint.GET_CITATION_INDEX : Endpoint.NOT_FOUND;
+		if (path.length == 0 || !"publications".equals(path[0]))
+			return Endpoint.NOT_FOUND;
+		switch (path.length) {
+		case 1:
+			if ("POST".equals(method))
+				return Endpoint.ADD_PUBLICATION;
+			if ("GET".equals(method) && query.containsKey("titleWord"))
+				return Endpoint.SEARCH_BY_TITLE_WORD;
+			if ("GET".equals(method) && query.containsKey("author"))
+				return Endpoint.SEARCH_BY_AUTHOR;
+			break;
+		case 2:
+			if ("GET".equals(method))
+				return Endpoint.GET_PUBLICATION;
+			if ("DELETE".equals(method))
+				return Endpoint.REMOVE_PUBLICATION;
+			break;
+		case 3:
+			if ("GET".equals(method) && "closure".equals(path[2]))
+				return Endpoint.GET_CLOSURE;
+			if ("PUT".equals(method) && "title".equals(path[2]))
+				return Endpoint.SET_TITLE;
+			break;
+		case 4:
+			if ("PUT".equals(method) && "citations".equals(path[2]))
+				return Endpoint.ADD_CITATION;
+			if ("DELETE".equals(method) && "citations".equals(path[2]))
+				return Endpoint.REMOVE_CITATION;
+			break;
+		}
+		return Endpoint.NOT_FOUND;
+	}
+
+	private void serve(Endpoint endpoint, HttpExchange exchange, String[] path, Map<String, List<String>> query)
+			throws Exception {
+		switch (endpoint) {
+		case GET_PUBLICATION:
+			StringBuilder found = new StringBuilder();
+			lock.readLock().lock();
+			try {
+				Publication publication = getPublication(path[1]);
+				exchange.getResponseHeaders().set("ETag", "\"" + publication.getVersion() + "\"");
+				RefDbJson.appendPublication(found, publication);
+			} finally {
+				lock.readLock().unlock();
+			}
+			sendJson(exchange, 200, found);
+			return;
+		case SEARCH_BY_TITLE_WORD:
+		case SEARCH_BY_AUTHOR:
+		case GET_CLOSURE:
+			Publication[] publications;
+			lock.readLock().lock();
+			try {
+				if (endpoint == Endpoint.SEARCH_BY_TITLE_WORD)
+					publications = refDb.streamPublicationsByTitleWord(getParameter(query, "titleWord"))
+							.toArray(Publication[]::new);
+				else if (endpoint == Endpoint.SEARCH_BY_AUTHOR)
+					publications = refDb.streamPublicationsByAuthorName(getParameter(query, "author"))
+							.toArray(Publication[]::new);
+				else
+					// the lazy closure is expanded iteratively : the recursion of getTransitiveClosureCitedBy() is as 
+					// deep as the longest chain of citations
+					publications = refDb.streamTransitiveClosureCitedBy(getPublication(path[1]))
+							.toArray(Publication[]::new);
+			} finally {
+				lock.readLock().unlock();
+			}
+			sendPublications(exchange, publications);
+			return;
+		case GET_CITATION_INDEX:
+			String name = getParameter(query, "name");
+			double citationIndex;
+			lock.readLock().lock();
+			try {
+				citationIndex = refDb.getCitationIndex(name);
+			} finally {
+				lock.readLock().unlock();
+			}
+			StringBuilder json = new StringBuilder("{\"author\":");
+			RefDbJson.appendString(json, name).append(",\"citationIndex\":").append(citationIndex).append('}');
+			sendJson(exchange, 200, json);
+			return;
+		case ADD_PUBLICATION:
+			Publication newPublication = newPublication(parseForm(readBody(exchange)));
+			StringBuilder added = new StringBuilder();
+			lock.writeLock().lock();
+			try {
+				refDb.addPublicationToDb(newPublication);
+				RefDbJson.appendPublication(added, newPublication);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			sendJson(exchange, 201, added);
+			return;
+		case REMOVE_PUBLICATION:
+			lock.writeLock().lock();
+			try {
+				getPublication(path[1]);
+				refDb.removePublicationFromDb(path[1]);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			sendJson(exchange, 204, null);
+			return;
+		case SET_TITLE:
+			String title = getParameter(parseForm(readBody(exchange)), "title");
+			String expectedVersion = exchange.getRequestHeaders().getFirst("If-Match");
+			StringBuilder changed = new StringBuilder();
+			lock.writeLock().lock();
+			try {
+				if (expectedVersion == null)
+					getPublication(path[1]).setTitle(title);
+				else
+					refDb.updatePublication(path[1], parseVersion(expectedVersion), p -> p.setTitle(title));
+				Publication titled = getPublication(path[1]);
+				exchange.getResponseHeaders().set("ETag", "\"" + titled.getVersion() + "\"");
+				RefDbJson.appendPublication(changed, titled);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			sendJson(exchange, 200, changed);
+			return;
+		case ADD_CITATION:
+		case REMOVE_CITATION:
+			lock.writeLock().lock();
+			try {
+				if (endpoint == Endpoint.ADD_CITATION)
+					refDb.addCitationReference(path[1], path[3]);
+				else
+					refDb.removeCitationReference(path[1], path[3]);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			sendJson(exchange, 204, null);
+			return;
+		case GET_METRICS:
+			StringBuilder metrics = new StringBuilder("{\"requests\":[");
+			appendStatistics(metrics, getRequestLatencies());
+			metrics.append("],\"operations\":[");
+			appendStatistics(metrics, refDb.getMetrics().getOperationLatencies());
+			sendJson(exchange, 200, metrics.append("]}"));
+			return;
+		default:
+			StringBuilder error = new StringBuilder("{\"error\":\"NotFound\",\"message\":");
+			RefDbJson.appendString(error, exchange.getRequestMethod() + " " + exchange.getRequestURI().getRawPath());
+			sendJson(exchange, 404, error.append('}'));
+		}
+	}
+
+	private Publication getPublication(String id) throws IdNotInReferenceDbException {
+		Publication publication = refDb.getPublicationById(id);
+		if (publication == null)
+			throw new IdNotInReferenceDbException(id);
+		return publication;
+	}
+
+	private static void appendStatistics(StringBuilder json, HistogramStatistics[] statistics) {
+		for (int i = 0; i < statistics.length; i++) {
+			if (i > 0)
+				json.append(',');
+			RefDbJson.appendStatistics(json, statistics[i]);
+		}
+	}
+
+	/**
+	 * create the publication described by the given form
+	 */
+	private static Publication newPublication(Map<String, List<String>> form)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		String type = getParameter(form, "type");
+		String title = getParameter(form, "title");
+		int year = parseInt(getParameter(form, "year"));
+		List<String> authorList = form.get("author");
+		if (authorList == null)
+			throw new InputFieldNotSpecifiedException();
+		String[] authors = authorList.toArray(new String[0]);
+		switch (type.toUpperCase()) {
+		case "JOURNALARTICLE":
+			return new JournalArticle(title, getParameter(form, "journal"), parseInt(getParameter(form, "issue")), year,
+					authors);
+		case "CONFERENCEPAPER":
+			return new ConferencePaper(title, year, getParameter(form, "conference"), authors);
+		case "BOOK":
+			return new Book(title, year, getParameter(form, "publisher"), authors);
+		default:
+			throw new InputFieldNotValidException();
+		}
+	}
+
+	private static String getParameter(Map<String, List<String>> form, String name)
+			throws InputFieldNotSpecifiedException {
+		List<String> values = form.get(name);
+		if (values == null)
+			throw new InputFieldNotSpecifiedException();
+		return values.get(0);
+	}
+
+	private static int parseInt(String value) throws InputFieldNotValidException {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new InputFieldNotValidException();
+		}
+	}
+
+	/**
+	 * parse the given If-Match value : a version, possibly as an entity tag ("12" or W/"12")
+	 */
+	private static long parseVersion(String value) throws InputFieldNotValidException {
+		String version = value.trim();
+		if (version.startsWith("W/"))
+			version = version.substring(2);
+		if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\""))
+			version = version.substring(1, version.length() - 1);
+		try {
+			return Long.parseLong(version);
+		} catch (NumberFormatException e) {
+			throw new InputFieldNotValidException();
+		}
+	}
+
+	/**
+	 * parse the given URL encoded form or query (null for none)
+	 */
+	private static Map<String, List<String>> parseForm(String form) {
+		if (form == null || form.isEmpty())
+			return Collections.emptyMap();
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		for (String parameter : form.split("&")) {
+			if (parameter.isEmpty())
+				continue;
+			int separator = parameter.indexOf('=');
+			String name = separator < 0 ? parameter : parameter.substring(0, separator);
+			String value = separator < 0 ? "" : parameter.substring(separator + 1);
+			parameters.computeIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8), key -> new ArrayList<String>())
+					.add(URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return parameters;
+	}
+
+	private static String readBody(HttpExchange exchange) throws IOException, InputFieldNotValidException {
+		try (InputStream body = exchange.getRequestBody()) {
+			byte[] bytes = body.readNBytes(MAX_BODY_SIZE + 1);
+			if (bytes.length > MAX_BODY_SIZE)
+				throw new InputFieldNotValidException();
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * send the given JSON (null for an empty response)
+	 */
+	private static void sendJson(HttpExchange exchange, int status, CharSequence json) throws IOException {
+		if (json == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream body = exchange.getResponseBody()) {
+			body.write(bytes);
+		}
+	}
+
+	/**
+	 * send the given publications as a JSON array, in chunks : every chunk is written under the read lock and sent
+	 * without it (a publication that is removed in the meantime is left out)
+	 */
+	private void sendPublications(HttpExchange exchange, Publication[] publications) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(200, 0);
+		try (OutputStream body = exchange.getResponseBody()) {
+			StringBuilder json = new StringBuilder("[");
+			boolean first = true;
+			for (int from = 0; from < publications.length; from += CHUNK_SIZE) {
+				lock.readLock().lock();
+				try {
+					for (int i = from; i < Math.min(publications.length, from + CHUNK_SIZE); i++) {
+						if (!publications[i].hasReferenceId())
+							continue;
+						if (!first)
+							json.append(',');
+						RefDbJson.appendPublication(json, publications[i]);
+						first = false;
+					}
+				} finally {
+					lock.readLock().unlock();
+				}
+				body.write(json.toString().getBytes(StandardCharsets.UTF_8));
+				json.setLength(0);
+			}
+			body.write(json.append(']').toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * send the given exception as a JSON error : 404 for what is not in the reference database, 409 for a duplicate
+	 * or a version conflict, 400 for other invalid input and 500 for the rest
+	 */
+	private static void sendError(HttpExchange exchange, Exception exception) throws IOException {
+		int status = 400;
+		String message = null;
+		if (exception instanceof NotFoundOnRefDbException)
+			status = 404;
+		if (exception instanceof DuplicateEntryRefDbException || exception instanceof VersionConflictException)
+			status = 409;
+		if (exception instanceof RuntimeException)
+			status = 500;
+		if (exception instanceof IdNotInReferenceDbException)
+			message = ((IdNotInReferenceDbException) exception).getErrMsg();
+		if (exception instanceof VersionConflictException) {
+			VersionConflictException conflict = (VersionConflictException) exception;
+			message = "expected version " + conflict.getExpectedVersion() + ", found " + conflict.getVersion();
+			exchange.getResponseHeaders().set("ETag", "\"" + conflict.getVersion() + "\"");
+		}
+		StringBuilder json = new StringBuilder("{\"error\":");
+		RefDbJson.appendString(json, exception.getClass().getSimpleName()).append(",\"message\":");
+		RefDbJson.appendString(json, message != null ? message : exception.getMessage()).append('}');
+		sendJson(exchange, status, json);
+	}
+}
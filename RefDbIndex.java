@@ -1,9 +1,12 @@
 package publicationRefDb;
 
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeSet;
 /**
  * A class of indexes for publications containing 1 index structure that maps a string (the search term)
  * to a set of strings (the set of ID).  This class is used by the reference database as a generic way to set
@@ -16,16 +19,56 @@ import java.util.Set;
  */
 public class RefDbIndex {
 
+	/**
+	 * the ordering of reference IDs : IDs are the decimal representation of a positive counter, so 
+	 * a shorter ID always comes first and IDs of the same length compare lexicographically
+	 * (e.g. "9" < "10" < "11")
+	 */
+	public static final Comparator<String> ID_ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String id1, String id2) {
+			if (id1.length() != id2.length())
+				return id1.length() - id2.length();
+			return id1.compareTo(id2);
+		}
+	};
+
+	/**
+	 * create a new, empty set of IDs to be used as the value of an index tuple.
+	 * The IDs in the set are kept in ascending order (ID_ORDER), so callers can iterate a posting lazily
+	 * in a stable order and resume after a given ID without copying or sorting the set
+	 * 
+	 * @return	an empty, sorted set of IDs
+	 */
+	public static Set<String> newIdSet() {
+		return new TreeSet<String>(ID_ORDER);
+	}
+
 	private Map<String, Set<String>> index;
 
+	private final RefDbInstance refDb;
+
 	/**
 	 * Initialise this new RefDbIndex as an empty dictionary that maps a string (the search term)
-	 * to a set of strings (the set of ID)
+	 * to a set of strings (the set of ID) of the default reference database
 	 * 
 	 * @post	a new index is constructed with an empty index
 	 * 
 	 */
 	public RefDbIndex() {
+		this(RefDb.getDefault());
+	}
+
+	/**
+	 * Initialise this new RefDbIndex as an empty dictionary that maps a string (the search term)
+	 * to a set of strings (the set of ID) of the given reference database
+	 * 
+	 * @param	refDb
+	 * 			the reference database whose IDs are indexed
+	 * @post	a new index is constructed with an empty index
+	 */
+	RefDbIndex(RefDbInstance refDb) {
+		this.refDb = refDb;
 		index = new HashMap<String, Set<String>>();
 	}
 
@@ -48,6 +91,58 @@ public class RefDbIndex {
 	public Set<String> getIdSetForKey(String key) {
 		return getIndex().get(key);
 	}
+	/**
+	 * get an estimate of the heap memory held by this index : the map, its keys and the sorted sets of IDs 
+	 * (an ID string is counted with every set that holds it, the sets do not share the ID instances of the idTable)
+	 * 
+	 * @return	the estimated number of bytes held by this index
+	 */
+	public long estimateMemoryFootprint() {
+		long bytes = 48 + 16 + 4L * Integer.highestOneBit(Math.max(1, getIndex().size()) * 2);
+		for (Entry<String, Set<String>> entry : getIndex().entrySet()) {
+			// hash map node, key, tree set with its tree map
+			bytes += 32 + Publication.estimateMemoryFootprint(entry.getKey()) + 16 + 48;
+			for (String id : entry.getValue())
+				bytes += 40 + Publication.estimateMemoryFootprint(id);
+		}
+		return bytes;
+	}
+
+	/**
+	 * get a histogram of the number of IDs per key of this index
+	 * 
+	 * @return	a new histogram with one value (the size of the set of IDs) for every key
+	 */
+	public RefDbHistogram getPostingLengthHistogram() {
+		RefDbHistogram histogram = new RefDbHistogram();
+		for (Set<String> idSet : getIndex().values())
+			histogram.record(idSet.size());
+		return histogram;
+	}
+
+	/**
+	 * get the keys of this index with the biggest sets of IDs
+	 * 
+	 * @param 	nb
+	 * 			the number of keys to return
+	 * @return	at most nb descriptions "key : number of IDs", biggest set first
+	 */
+	public String[] getLargestPostings(int nb) {
+		PriorityQueue<Entry<String, Set<String>>> largest = new PriorityQueue<Entry<String, Set<String>>>(nb + 1,
+				(entry1, entry2) -> Integer.compare(entry1.getValue().size(), entry2.getValue().size()));
+		for (Entry<String, Set<String>> entry : getIndex().entrySet()) {
+			largest.add(entry);
+			if (largest.size() > nb)
+				largest.poll();
+		}
+		String[] descriptions = new String[largest.size()];
+		for (int i = descriptions.length - 1; i >= 0; i--) {
+			Entry<String, Set<String>> entry = largest.poll();
+			descriptions[i] = entry.getKey() + " : " + entry.getValue().size();
+		}
+		return descriptions;
+	}
+
 	/**
 	 * check if the given entry in the index is valid
 	 * 
@@ -71,7 +166,7 @@ public class RefDbIndex {
 			return false;
 		
 		for (String id :idSet) {
-			if (!RefDb.hasIdinDb(id)) return false;
+			if (!refDb.hasIdinDb(id)) return false;
 		}
 
 		return true;
@@ -0,0 +1,1701 @@
+/**
+ * 
+ */
+package publicationRefDb;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A class of reference databases for publications involving 
+ * 	-> idTable : the main table linking a unique ID to a publication 
+ * 	-> authorIndex : an index associating an authorname with the IDs of all his/her publications  
+ * 	-> titleWordIndex : an index associating a word to all the IDs of the publications that have that word in the title
+ * 
+ * @invar	each reference database has a proper idTable associated with it (hasProperIdTable())
+ * @invar	each reference database has a proper author index associated with it (hasProperAuthorIndex())
+ * @invar	each reference database has a proper title word Index associated with it (hasProperTitleWordIndex())
+ * 
+ * A registered publication belongs to exactly one reference database (Publication.getRefDb()), which it
+ * keeps up to date when its title or authors change.  RefDb gives static access to a default instance.
+ *        
+ * @author Wim Thiels
+ *
+ */
+public final class RefDbInstance {
+
+	/**
+	 * Initialise this new reference database as an empty database
+	 * 
+	 * @post	the new reference database has no publications and empty indexes
+	 */
+	public RefDbInstance() {
+		addChangeTracker(invariantChecker);
+	}
+
+	/**
+	 * get the full idTable
+	 * 
+	 * @return idTable is given as a map
+	 */
+	Map<String, Publication> getIdTable() {
+		return idTable;
+	}
+	
+	
+	/**
+	 * get the number of publications in the reference database
+	 */
+	public int getNbPublications() {
+		return getIdTable().size();
+	}
+
+	/**
+	 * get the Publication associated with the given referenceId
+	 * if the ID is not valid or not present, null will be returned. 
+	 * (use hasIdinDb(id),or isValidid() to do checks upfront if necessary)
+	 * 
+	 * @param 	referenceId
+	 *			the referenceId that is associated with the publication
+	 * @return	the publication associated with the given referenceId 
+	 * 			if the ID is not present in the DB, null is returned
+
+	 */
+	public Publication getPublicationById(String id) {
+		if (!hasIdinDb(id))
+			return null;
+
+		return getIdTable().get(id);
+	}
+
+	/**
+	 * check is the given Id is a valid ID
+	 * 
+	 * @param 	Id
+	 *          the Id to be checked
+	 * @return 	true if the Id is not null otherwise false
+	 */
+	private boolean isValidId(String Id) {
+		return (Id != null);
+	}
+	
+	/**
+	 * gives back a set of publications corresponding to the set of given IDs
+	 * @param 	idSet
+	 * 			the set of IDs to convert to map to publications
+	 * @return	a set of publications corresponding to the set of given IDs
+	 */
+	
+	private Set<Publication> convertSetOfIdsToSetOfPublications(Set<String> idSet) {
+		Set<Publication> publicationSet = new HashSet<>();
+		Map<String, Publication> idTable = getIdTable();
+		for (String id : idSet) {
+			Publication publication = idTable.get(id);
+			if (publication != null) //not strictly necessary
+				publicationSet.add(publication);
+		}
+		return publicationSet;
+	}
+	
+	/**
+	 * check if the given ID is present in this reference database
+	 * @param 	id
+	 * 			the ID to check
+	 * @return	true if the given ID is valid and
+	 * 			the id is a key in the idTable
+	 * 			otherwise false
+	 */
+	public boolean hasIdinDb(String id) {
+		return ((isValidId(id)) && getIdTable().containsKey(id));
+	}
+	
+	
+	/**
+	 * checks if the given tuple of the idTable is valid
+	 * @param 	entry
+	 * 			the tuple of the idTable to be checked
+	 * @return	true if the publication of the given entry is effective and 
+	 * 			the reference id of the publication of the given entry has
+	 * 			the same value as the reference id of the given tuple
+	 * 			otherwise false
+	 */
+	private boolean isValidIdTableTuple(Entry<String, Publication> entry) {
+		if (entry.getValue() == null)
+			return false;
+		if (!(entry.getValue().getReferenceId().equalsIgnoreCase(entry.getKey())))
+			return false;
+		return true;
+	}
+
+	/**
+	 * check if this reference database has a proper idTable associated with it
+	 * 
+	 * @return true if every tuple in the idTable is valid
+	 *         (isValidIdTableTuple() otherwise false
+	 */
+	public boolean hasProperIdTable() {
+		// no need to check for doubles. keys in maps must be unique.
+		// the uniqueness of the values (Publication) is implicitly enforced by
+		// the mirror-referencing check in isValidIdTableTuple()
+		// the consistency between this table and the indexes is done by the
+		// class invariants of the index
+		for (Map.Entry<String, Publication> entry : getIdTable().entrySet()) {
+			if (!isValidIdTableTuple(entry))
+				return false;
+		}
+		return true;
+	}
+
+	private Map<String, Publication> idTable = new HashMap<>();
+	
+	/**
+	 * get the set of publications associated with the given author name (author index)
+	 * this authorname must be given as initialOfFirstName. lastName, e.g., A. Einstein;
+	 * (leading and trailing spaces will be automatically removed)
+	 * 
+	 * @param 	authorName
+	 *			authorName that is used as the key to search the author index
+	 * @throws 	AuthorNameIsNullException
+	 * @return	the set of publications associated with the given authorname
+	 * 			if the authorname is not present in the author index, an empty set is returned
+
+	 */
+	public Set<Publication> getPublicationsByAuthorName(String authorName) throws AuthorNameIsNullException {
+		long start = getMetrics().start();
+		try {
+			Set<Publication> emptySet = Collections.emptySet();
+			if (authorName == null)
+				throw new AuthorNameIsNullException();
+
+			if (getAuthorIndex().containsKey(authorName.trim()))
+				return convertSetOfIdsToSetOfPublications(getAuthorIndex().get(authorName.trim()));
+
+			return emptySet;
+		} finally {
+			getMetrics().stop(RefDbOperation.GET_BY_AUTHOR_NAME, start);
+		}
+	}
+	/**
+	 * get the full author index (as a map)
+	 * 
+	 * @return the author index is given as a map
+	 */
+	private Map<String, Set<String>> getAuthorIndex() {
+		return getAuthorIndexRaw().getIndex();
+	}
+	/**
+	 * get the full author index (as instantiation of RefDbIndex)
+	 * 
+	 * @return the author index is given as RefDbIndex
+	 */
+	RefDbIndex getAuthorIndexRaw() {
+		return authorIndex;
+	}
+	
+	/**
+	 * check if the given entry in the author index is valid
+	 * 
+	 * @param 	entry
+	 *			the tuple of the author index to be checked
+	 * @return 	true if for every id in the idset(=value of the given tuple), the corresponding
+	 * 			publication has the authorname (=key of the given tuple) as one of its authors
+	 * 			otherwise false
+	 */
+	private boolean isValidAuthorIndexTuple(Entry<String, Set<String>> entry) {
+
+		String authorNameKey = entry.getKey();
+		for (Publication publication : convertSetOfIdsToSetOfPublications(entry.getValue())) {
+
+			boolean authorFound = false;
+			for (String authorName : publication.getAllAuthorsWithInitial()) {
+				if (authorNameKey.equalsIgnoreCase(authorName)) {
+					authorFound = true;
+					break;
+				}
+			}
+			if (!authorFound)
+				return false;
+		}
+
+		return true;
+	}
+	
+	/**
+	 * check if this reference database has a proper author index associated with it
+	 * 
+	 * @return 	true if every tuple in the author index is valid (isValidAuthorIndexTuple() 
+	 *         	otherwise false
+	 */
+	public boolean hasProperAuthorIndex() {
+		// has proper index (generic index check)
+		if (!getAuthorIndexRaw().hasProperIndex())
+			return false;
+
+		// has proper authorindextuples (specific tests for the authorindex)
+		for (Map.Entry<String, Set<String>> entry : getAuthorIndex().entrySet()) {
+			if (!isValidAuthorIndexTuple(entry))
+				return false;
+		}
+		return true;
+	}
+
+	private RefDbIndex authorIndex = new RefDbIndex(this);
+	
+	/**
+	 * get the set of publications that have the given word in their title (title word index)
+	 * (case is ignored, leading and trailing spaces will be automatically removed)
+	 * 
+	 * @param 	authorName
+	 *			authorName that is used as the key to search the author index
+	 * @throws 	WordIsNullException
+	 * @return	the set of publications that have the given word in their title
+	 * 			if the word is not present in the title word index, an empty set is returned
+
+	 */
+	public Set<Publication> getPublicationsByTitleWord(String word) throws WordIsNullException {
+		long start = getMetrics().start();
+		try {
+			if (word == null)
+				throw new WordIsNullException();
+
+			Set<Publication> emptySet = Collections.emptySet();
+
+			if (getTitleWordIndex().containsKey(word.trim().toLowerCase()))
+				return convertSetOfIdsToSetOfPublications(getTitleWordIndex().get(word.trim().toLowerCase()));
+
+			return emptySet;
+		} finally {
+			getMetrics().stop(RefDbOperation.GET_BY_TITLE_WORD, start);
+		}
+	}
+
+	/**
+	 * get a lazy stream of the publications associated with the given author name (author index)
+	 * (same key format as getPublicationsByAuthorName())
+	 * No intermediate set is built : every publication is resolved from the idTable when the stream reaches it, 
+	 * in ascending order of referenceId.  The stream must be consumed before the database is changed.
+	 * 
+	 * @param 	authorName
+	 *			authorName that is used as the key to search the author index
+	 * @throws 	AuthorNameIsNullException
+	 * @return	a stream of the publications associated with the given authorname
+	 * 			if the authorname is not present in the author index, an empty stream is returned
+	 */
+	public Stream<Publication> streamPublicationsByAuthorName(String authorName) throws AuthorNameIsNullException {
+		if (authorName == null)
+			throw new AuthorNameIsNullException();
+
+		return streamIdSet(getAuthorIndex().get(authorName.trim()));
+	}
+
+	/**
+	 * get a lazy stream of the publications that have the given word in their title (title word index)
+	 * (case is ignored, leading and trailing spaces will be automatically removed)
+	 * No intermediate set is built : every publication is resolved from the idTable when the stream reaches it, 
+	 * in ascending order of referenceId.  The stream must be consumed before the database is changed.
+	 * 
+	 * @param 	word
+	 *			the word that is used as the key to search the title word index
+	 * @throws 	WordIsNullException
+	 * @return	a stream of the publications that have the given word in their title
+	 * 			if the word is not present in the title word index, an empty stream is returned
+	 */
+	public Stream<Publication> streamPublicationsByTitleWord(String word) throws WordIsNullException {
+		if (word == null)
+			throw new WordIsNullException();
+
+		return streamIdSet(getTitleWordIndex().get(word.trim().toLowerCase()));
+	}
+
+	/**
+	 * get one page of the publications associated with the given author name (author index)
+	 * (same key format as getPublicationsByAuthorName())
+	 * 
+	 * @param 	authorName
+	 *			authorName that is used as the key to search the author index
+	 * @param 	order
+	 * 			the order in which the publications are paged
+	 * @param 	continuationToken
+	 * 			the continuation token of the previous page, or null to start at the first publication
+	 * @param 	offset
+	 * 			the number of publications to skip (counted from the continuation token)
+	 * @param 	limit
+	 * 			the maximum number of publications on the page
+	 * @throws 	AuthorNameIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the order is null, the offset is negative, the limit is not strictly positive 
+	 * 			or the continuation token was not issued for the given order
+	 * @return	a page with at most limit publications, in the given order
+	 */
+	public PublicationPage getPublicationPageByAuthorName(String authorName, PublicationOrder order,
+			String continuationToken, int offset, int limit)
+			throws AuthorNameIsNullException, InputFieldNotValidException {
+		long start = getMetrics().start();
+		try {
+			if (authorName == null)
+				throw new AuthorNameIsNullException();
+
+			return getPublicationPage(getAuthorIndex().get(authorName.trim()), order, continuationToken, offset, limit);
+		} finally {
+			getMetrics().stop(RefDbOperation.GET_PAGE_BY_AUTHOR_NAME, start);
+		}
+	}
+
+	/**
+	 * get one page of the publications that have the given word in their title (title word index)
+	 * (case is ignored, leading and trailing spaces will be automatically removed)
+	 * 
+	 * @param 	word
+	 *			the word that is used as the key to search the title word index
+	 * @param 	order
+	 * 			the order in which the publications are paged
+	 * @param 	continuationToken
+	 * 			the continuation token of the previous page, or null to start at the first publication
+	 * @param 	offset
+	 * 			the number of publications to skip (counted from the continuation token)
+	 * @param 	limit
+	 * 			the maximum number of publications on the page
+	 * @throws 	WordIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the order is null, the offset is negative, the limit is not strictly positive 
+	 * 			or the continuation token was not issued for the given order
+	 * @return	a page with at most limit publications, in the given order
+	 */
+	public PublicationPage getPublicationPageByTitleWord(String word, PublicationOrder order,
+			String continuationToken, int offset, int limit) throws WordIsNullException, InputFieldNotValidException {
+		long start = getMetrics().start();
+		try {
+			if (word == null)
+				throw new WordIsNullException();
+
+			return getPublicationPage(getTitleWordIndex().get(word.trim().toLowerCase()), order, continuationToken,
+					offset, limit);
+		} finally {
+			getMetrics().stop(RefDbOperation.GET_PAGE_BY_TITLE_WORD, start);
+		}
+	}
+
+	/**
+	 * gives back a lazy stream of the publications corresponding to the given set of IDs 
+	 * (IDs that are not in the idTable are skipped)
+	 * 
+	 * @param 	idSet
+	 * 			the set of IDs to map to publications, may be null
+	 * @return	a stream of publications, in the iteration order of the given set
+	 */
+	private Stream<Publication> streamIdSet(Set<String> idSet) {
+		if (idSet == null)
+			return Stream.empty();
+		final Map<String, Publication> idTable = getIdTable();
+		return idSet.stream().map(id -> idTable.get(id)).filter(publication -> publication != null);
+	}
+
+	/**
+	 * gives back the given set of IDs as a set that is sorted in ID order. 
+	 * the postings of the indexes are already sorted, so normally no copy is made
+	 * 
+	 * @param 	idSet
+	 * 			the set of IDs
+	 * @return	a navigable set with the same IDs, in ID order (RefDbIndex.ID_ORDER)
+	 */
+	private NavigableSet<String> asSortedIdSet(Set<String> idSet) {
+		if (idSet instanceof NavigableSet && ((NavigableSet<String>) idSet).comparator() == RefDbIndex.ID_ORDER)
+			return (NavigableSet<String>) idSet;
+		NavigableSet<String> sortedIdSet = new TreeSet<String>(RefDbIndex.ID_ORDER);
+		if (idSet != null)
+			sortedIdSet.addAll(idSet);
+		return sortedIdSet;
+	}
+
+	/**
+	 * get one page of the publications corresponding to the given set of IDs
+	 * 
+	 * @param	idSet
+	 * 			the posting (set of IDs) to page through, may be null
+	 * @param 	order
+	 * 			the order in which the publications are paged
+	 * @param 	continuationToken
+	 * 			the continuation token of the previous page, or null to start at the first publication
+	 * @param 	offset
+	 * 			the number of publications to skip (counted from the continuation token)
+	 * @param 	limit
+	 * 			the maximum number of publications on the page
+	 * @throws 	InputFieldNotValidException
+	 * @return	a page with at most limit publications, in the given order
+	 */
+	private PublicationPage getPublicationPage(Set<String> idSet, PublicationOrder order,
+			String continuationToken, int offset, int limit) throws InputFieldNotValidException {
+		if (order == null)
+			throw new InputFieldNotValidException();
+		if (offset < 0)
+			throw new InputFieldNotValidException();
+		if (limit <= 0)
+			throw new InputFieldNotValidException();
+
+		if (order == PublicationOrder.BY_ID)
+			return getPublicationPageById(asSortedIdSet(idSet), continuationToken, offset, limit);
+		return getPublicationPageByYear(idSet, continuationToken, offset, limit);
+	}
+
+	/**
+	 * get one page of publications in ascending referenceId.
+	 * The continuation token is the last ID of the page, so the next page seeks directly behind it 
+	 * without walking the publications of the previous pages.
+	 */
+	private PublicationPage getPublicationPageById(NavigableSet<String> idSet, String continuationToken,
+			int offset, int limit) throws ContinuationTokenNotValidException {
+		NavigableSet<String> remainingIdSet = idSet;
+		if (continuationToken != null) {
+			if (!continuationToken.matches("[0-9]+"))
+				throw new ContinuationTokenNotValidException(continuationToken);
+			remainingIdSet = idSet.tailSet(continuationToken, false);
+		}
+
+		List<Publication> publications = new ArrayList<Publication>(Math.min(limit, remainingIdSet.size()));
+		Iterator<String> idIterator = remainingIdSet.iterator();
+		String lastId = null;
+		int skipped = 0;
+		while (idIterator.hasNext() && publications.size() < limit) {
+			String id = idIterator.next();
+			Publication publication = getIdTable().get(id);
+			if (publication == null)
+				continue;
+			if (skipped < offset) {
+				skipped++;
+				continue;
+			}
+			publications.add(publication);
+			lastId = id;
+		}
+		if (!idIterator.hasNext())
+			return new PublicationPage(publications, null);
+		return new PublicationPage(publications, lastId);
+	}
+
+	/**
+	 * get one page of publications in ascending year of publication (ties in ascending referenceId).
+	 * The posting is scanned once, keeping only the (offset + limit) first candidates behind the 
+	 * continuation token in a bounded heap, so no sorted copy of the posting is made.
+	 * The continuation token has the format "year/ID" of the last publication of the page.
+	 */
+	private PublicationPage getPublicationPageByYear(Set<String> idSet, String continuationToken, int offset,
+			int limit) throws ContinuationTokenNotValidException {
+		int tokenYear = 0;
+		String tokenId = null;
+		if (continuationToken != null) {
+			if (!continuationToken.matches("[0-9]+/[0-9]+"))
+				throw new ContinuationTokenNotValidException(continuationToken);
+			String[] tokenSplit = continuationToken.split("/");
+			try {
+				tokenYear = Integer.parseInt(tokenSplit[0]);
+			} catch (NumberFormatException e) {
+				throw new ContinuationTokenNotValidException(continuationToken);
+			}
+			tokenId = tokenSplit[1];
+		}
+		if (idSet == null)
+			return new PublicationPage(new ArrayList<Publication>(), null);
+
+		final Map<String, Publication> idTable = getIdTable();
+		final Comparator<String> yearOrder = new Comparator<String>() {
+			@Override
+			public int compare(String id1, String id2) {
+				int year1 = idTable.get(id1).getYearOfPublication();
+				int year2 = idTable.get(id2).getYearOfPublication();
+				if (year1 != year2)
+					return year1 < year2 ? -1 : 1;
+				return RefDbIndex.ID_ORDER.compare(id1, id2);
+			}
+		};
+
+		// max-heap with the (offset + limit) smallest candidates seen so far (no more than the posting holds)
+		int capacity = (int) Math.min((long) offset + limit, idSet.size());
+		Queue<String> candidates = new PriorityQueue<String>(capacity + 1, Collections.reverseOrder(yearOrder));
+		int nbCandidates = 0;
+		for (String id : idSet) {
+			Publication publication = idTable.get(id);
+			if (publication == null)
+				continue;
+			if (tokenId != null) {
+				int year = publication.getYearOfPublication();
+				if (year < tokenYear || (year == tokenYear && RefDbIndex.ID_ORDER.compare(id, tokenId) <= 0))
+					continue;
+			}
+			nbCandidates++;
+			candidates.add(id);
+			if (candidates.size() > capacity)
+				candidates.poll();
+		}
+
+		String[] sortedIds = candidates.toArray(new String[candidates.size()]);
+		Arrays.sort(sortedIds, yearOrder);
+		List<Publication> publications = new ArrayList<Publication>(Math.max(0, sortedIds.length - offset));
+		for (int i = offset; i < sortedIds.length; i++)
+			publications.add(idTable.get(sortedIds[i]));
+
+		if (nbCandidates <= capacity || publications.isEmpty())
+			return new PublicationPage(publications, null);
+		String lastId = sortedIds[sortedIds.length - 1];
+		return new PublicationPage(publications, idTable.get(lastId).getYearOfPublication() + "/" + lastId);
+	}
+	
+/**
+ * get the full title word index
+ * 
+ * @return the wordtitle index is given as a map
+ */
+	private Map<String, Set<String>> getTitleWordIndex() {
+		return getTitleWordIndexRaw().getIndex();
+	}
+
+	/**
+	 * get the full title word index (as instantiation of RefDbIndex)
+	 * 
+	 * @return the title word index is given as RefDbIndex
+	 */
+	RefDbIndex getTitleWordIndexRaw() {
+		return titleWordIndex;
+	}
+/**
+ * check if the given entry in the titleword index is valid
+ * 
+ * @param entry
+ *			the tuple of the title word index to be checked
+ * @return true if 
+ * 			-the titleword (key) refers to a set of IDs that is effective, 
+ * 		   	-the number of IDs in that set is bigger than zero, 
+ * 			-for every ID in that set, the ID is present in the ID-table
+ * 			-for every ID in that set, the referenceId of the publication with the given ID is effective, and 
+ * 			-for every ID in that set, that titleword (key) is one of the words in the title for the publication with that ID
+ *         otherwise false
+ */
+	private boolean isValidTitleWordIndexTuple(Entry<String, Set<String>> entry) {
+
+		String titleWordKey = entry.getKey();
+		for (Publication publication : convertSetOfIdsToSetOfPublications(entry.getValue())) {
+			boolean titleWordFound = false;
+			String[] titleWords = publication.getTitle().split(RefDb.RegexWordSplit);
+			for (String titleWord : titleWords) {
+				if (titleWordKey.equalsIgnoreCase(titleWord)) {
+					titleWordFound = true;
+					break;
+				}
+			}
+			if (!titleWordFound)
+				return false;
+		}
+
+		return true;
+	}
+
+/**
+ * check if this reference database has a proper title word index associated with it
+ * 
+ * @return 	true if every tuple in the title word index is valid (isValidTitleWordIndexTuple() 
+ *         	otherwise false
+ */
+	public boolean hasProperTitleWordIndex() {
+
+		// has proper index (generic index check)
+		if (!getTitleWordIndexRaw().hasProperIndex())
+			return false;
+
+		// specific tests for the word index
+		for (Map.Entry<String, Set<String>> entry : getTitleWordIndex().entrySet()) {
+			if (!isValidTitleWordIndexTuple(entry))
+				return false;
+		}
+		return true;
+	}
+
+	private RefDbIndex titleWordIndex = new RefDbIndex(this);
+
+	/**
+	 * @return the idCounter
+	 */
+	private long getIdCounter() {
+		return idCounter;
+	}
+
+	/**
+	 * set the idCounter to the given value
+	 * 
+	 * @param idCounter
+	 *            the idCounter to set
+	 */
+	private void setIdCounter(long idCounter) {
+		this.idCounter = idCounter;
+	}
+
+	private long idCounter = 0;
+
+	/**
+	 * add a publication to the reference database. meaning : 
+	 * 1) the publication with the given ID will get a unique ID and registered in the idTable 
+	 * 2) the authornames of the publication with the given ID will be indexed 
+	 * 3) the words in the title of the publication with the given ID will be indexed
+	 * 
+	 * @param 	publication
+	 *          the publication to be added
+	 *          
+	 * @throws 	PublicationIsNullException
+	 * @throws 	DuplicateEntryRefDbException
+	 * 
+	 * @post 	the publication with the given ID will have a unique referenceID and will be
+	 *       	registered in the reference database (idTable + indexes)
+	 */
+	public void addPublicationToDb(Publication publication)
+			throws PublicationIsNullException, DuplicateEntryRefDbException {
+		long start = getMetrics().start();
+		try {
+			// cannot be null
+			if (publication == null)
+				throw new PublicationIsNullException();
+			//check already in DB
+			if (publication.getReferenceId() != null)
+				throw new PublicationAlreadyInDbException();
+			//check for similar publication
+			if (hasSamePublicationInDb(publication))
+				throw new PublicationDuplicateValueException();
+		
+			// in case of duplicate increment (by resetting key to zero, one could reclaim abandoned keys caused by removal of
+			// publications)
+			long newId = getIdCounter() + 1;
+			while (getIdTable().containsKey(Long.toString(newId)))
+				newId++;
+
+			//update the counter
+			setIdCounter(newId);
+
+			registerPublication(publication, Long.toString(newId));
+		} finally {
+			getMetrics().stop(RefDbOperation.ADD_PUBLICATION, start);
+		}
+	}
+
+	/**
+	 * register the given publication under the given ID, without checking for duplicates 
+	 * (used by addPublicationToDb(), and by ShardedRefDb that assigns the IDs of all its shards)
+	 * 
+	 * @param 	publication
+	 *          the publication to be registered, not yet registered in any reference database
+	 * @param 	id
+	 *          a valid ID that is not yet present in this reference database
+	 * @post 	the publication is registered in this reference database under the given ID (idTable + indexes)
+	 */
+	void registerPublication(Publication publication, String id) {
+		recordIndexEntries(id);
+		// at this point the tuple (key, value) should always be a valid entry
+		// set up the link between RefDB and publication (must be done first)
+		getIdTable().put(id, publication);
+		publication.setRefDb(this);
+		try {
+			publication.setReferenceId(id);
+		} catch (InputFieldNotValidException e1) {
+			assert (false); // can never occur
+			e1.printStackTrace();
+		}
+
+		// update author index 
+		for (int authorRank = 1; authorRank <= publication.getNbAuthors(); authorRank++) {
+			try {
+				addAuthorNameToIndex(authorRank, id);
+			} catch (InputFieldNotValidException e) {
+				assert false; // cannot occur, neutralise these errors
+				e.printStackTrace();
+			}
+		}
+
+		// update title word index
+		addTitleWordsToIndex(id);
+		getChangeStream().publish(RefDbChangeType.PUBLICATION_ADDED, publication, id, null, null);
+	}
+
+	/**
+	 * add the author with the given rank of the publication with the given ID to the author index of this reference database
+	 * 
+	 * (if the given id is not present in the DB or not valid, this method will do nothing, no errors will be given.  
+	 * Use checkers hasIdinDb() or isValidId() upfront if necessary)
+	 * 
+	 * @param 	rank
+	 * 			the rank of the author for which the authorname will be added to the author index
+	 * @param 	id
+	 * 			the id of the publication for which the title words must be added to the title word index
+	 * @throws	InputFieldNotValidException
+	 * @result	the words of the title of the publication with the given ID will be registered in the title word index
+	 */
+	public void addAuthorNameToIndex(int authorRank, String id) throws InputFieldNotValidException {
+		// using rank instead of name(string) ensures getting a valid name
+
+		if (!hasIdinDb(id) || isDeferringIndexUpdates())
+			return;
+
+		String authorName = getPublicationById(id).getAuthorWithInitialAt(authorRank);
+		touchAuthorKey(authorName);
+		touchId(id);
+		// add the publication to the set that is linked to that authorname
+		Set<String> idSet = getAuthorIndex().get(authorName);
+		// if the author is not present in the index, first initialise
+		if (idSet == null)
+			idSet = RefDbIndex.newIdSet();
+		idSet.add(id);
+		// replace the tuple with the new set of publications
+		getAuthorIndex().put(authorName, idSet);
+	}
+		
+
+	
+	/**
+	 * add words of the title of the publication with the given ID to the titleword index of this reference database
+	 * 
+	 * (if the given id is not present in the DB or not valid, this method will do nothing, no errors will be given.  
+	 * Use checkers hasIdinDb() or isValidId() upfront if necessary)
+	 * 
+	 * @param 	id
+	 * 			the id of the publication associated with title for which the words must be added to the title word index
+	 * 
+	 * @result	the words of the title of the publication with the given ID will be registered in the title word index
+	 */
+	public void addTitleWordsToIndex(String id) {
+		if (!hasIdinDb(id) || isDeferringIndexUpdates())
+			return;
+
+		touchId(id);
+		for (String word : getPublicationById(id).getTitle().toLowerCase().split(RefDb.RegexWordSplit)) {
+			touchTitleWord(word);
+			Set<String> idSet = getTitleWordIndex().get(word);
+			// for a new word a set must first be initialised
+			if (idSet == null)
+				idSet = RefDbIndex.newIdSet();
+			// add the publication to the set that is linked to that word
+			idSet.add(id);
+			getTitleWordIndex().put(word.trim().toLowerCase(), idSet);
+		}
+
+	}
+
+
+	/**
+	 * remove a publication from the reference database. meaning : 
+	 * 1) the referenceID of the publication with the given ID will be set to null and the ID is removed from the idTable 
+	 * 2) the authornames of the publication with the given ID will be removed from the index 
+	 * 3) the words in the title of the publication with the given ID will be removed from the index 
+	 * 4) all the citations and citators of the publication with the given ID will be removed (unless not registered 
+	 * 	  in the reference database
+	 * 
+	 * if the publication with the given ID is not present in the reference database no error will be given
+	 * (if the given id is not present in the DB or not valid, this method will do nothing, no errors will be given.  
+	 * Use checkers hasIdinDb() or isValidId() upfront if necessary)
+	 * 
+	 * @param 	id
+	 *          the id of the publication to be removed
+	 * @post 	the publication with the given ID will have a non-effective referenceID and is
+	 *       	not present the reference database (idTable + indexes)
+	 */
+	public void removePublicationFromDb(String id) {
+		long start = getMetrics().start();
+		try {
+			// if not present in the db, then no need for action (no error given)
+			if (!hasIdinDb(id))
+				return;
+
+			Publication publication = getPublicationById(id);
+			recordIndexEntries(id);
+			// remove authors from the author index
+			for (int authorRank = publication.getNbAuthors(); authorRank > 0; authorRank--) {
+				try {
+					removeAuthorNameFromIndex(authorRank, id);
+				} catch (InputFieldNotValidException e) {
+					assert false; // errors cannot occur
+					e.printStackTrace();
+				}
+			}
+			// remove title words from index
+			removeTitleWordsFromIndex(id);
+
+			// remove the cites relations //only if registered
+			Set<Publication> citationSet = publication.getAllCitations();
+			Publication[] citationArray = citationSet.toArray(new Publication[citationSet.size()]);
+			for (Publication citation : citationArray) {
+				if (citation.hasReferenceId())
+					publication.removeAsCitation(citation);
+			}
+
+			// remove the cited by relations //only if registered
+			Set<Publication> citatorSet = publication.getAllCitators();
+			Publication[] citatorArray = citatorSet.toArray(new Publication[citatorSet.size()]);
+			for (Publication citator : citatorArray) {
+				if (citator.hasReferenceId())
+					citator.removeAsCitation(publication);
+			}
+
+			// break link between refDB and publication (must be done last)
+			touchId(id);
+			getIdTable().remove(id);
+			try {
+				publication.setReferenceId(null);
+			} catch (InputFieldNotValidException e) {
+				assert (false); // can never occur
+				e.printStackTrace();
+			} // refDb is the controlling class in
+				// this relationship
+			publication.setRefDb(null);
+			getChangeStream().publish(RefDbChangeType.PUBLICATION_REMOVED, publication, id, null, null);
+		} finally {
+			getMetrics().stop(RefDbOperation.REMOVE_PUBLICATION, start);
+		}
+	}
+
+	/**
+	 * remove the authorname of the author with the given rank of the
+	 * publication with the given ID from the author index of this reference
+	 * database
+	 * 
+	 * (if the given id is not present in the DB or not valid, this method will
+	 * do nothing, no errors will be given. Use checkers hasIdinDb() or
+	 * isValidId() upfront if necessary)
+	 * 
+	 * @param authorRank
+	 *            the rank of the author for which the author name must be
+	 *            removed from the author index
+	 * @param id
+	 *            the id of the publication associated with the author for which
+	 *            the author name must be removed from the author index
+	 * 
+	 * @throws InputFieldNotValidException
+	 * 
+	 * @result the authorname of the author with the given rank of the
+	 *         publication with the given ID will not be registered in the
+	 *         author index
+	 */
+	
+	public void removeAuthorNameFromIndex(int authorRank, String id) throws InputFieldNotValidException {
+		// remark : using rank instead of name(string) ensures getting a valid
+		// name
+		if (!hasIdinDb(id) || isDeferringIndexUpdates())
+			return;
+
+		String authorName = getPublicationById(id).getAuthorWithInitialAt(authorRank);
+		touchAuthorKey(authorName);
+		touchId(id);
+
+		// remove the publication to the set that is linked to that authorname
+		Set<String> idSet = getAuthorIndex().get(authorName);
+		// the tuple is already gone when the same author name occurs more than once in the publication
+		if (idSet == null)
+			return;
+
+		idSet.remove(id);
+
+		// if author has no more publications, then delete the key, otherwise
+		// replace the tuple
+
+		if (idSet.size() == 0) {
+			getAuthorIndex().remove(authorName);
+		} else {
+			getAuthorIndex().put(authorName, idSet);
+		}
+
+	}
+		/**
+		 * remove the words of the title of the publication with the given ID from the title word index of this reference database
+		 * (if the given id is not present in the DB or not valid, this method will do nothing, no errors will be given.  
+		 * Use checkers hasIdinDb() or isValidId() upfront if necessary)
+		 * @param 	id
+		 * 			the ID of the publication associated with title for which the words must be removed from the title word index
+		 * 
+		 * @result	the words of the title of the publication with the given ID will not be registered in the title word index
+		 */
+	public void removeTitleWordsFromIndex(String id) {
+		if (!hasIdinDb(id) || isDeferringIndexUpdates())
+			return;
+
+		touchId(id);
+		for (String word : getPublicationById(id).getTitle().toLowerCase().split(RefDb.RegexWordSplit)) {
+			touchTitleWord(word);
+
+			Set<String> idSet = getTitleWordIndex().get(word);
+			// remove the publication to the set that is linked to that word
+
+			if (idSet == null)
+				continue;
+
+			idSet.remove(id);
+
+			// if word has no more publications, then delete the key, otherwise
+			// replace the tuple
+			if (idSet.size() == 0) {
+				getTitleWordIndex().remove(word);
+			} else {
+				getTitleWordIndex().put(word, idSet);
+			}
+		}
+
+	}
+
+	/**
+	 * update the title word index of this reference database after the title of the publication with the given ID 
+	 * changed : only the words that are no longer in the title, or that are new in it, are removed or added
+	 * (if the given id is not present in the DB, this method will do nothing)
+	 * 
+	 * @param 	id
+	 * 			the ID of the publication with the new title
+	 * @param 	oldTitle
+	 * 			the title of the publication before the change
+	 * @result	the words of the new title of the publication with the given ID will be registered in the title word index, 
+	 * 			the other words of the old title not
+	 */
+	void updateTitleWordsInIndex(String id, String oldTitle) {
+		long start = getMetrics().start();
+		try {
+			if (!hasIdinDb(id))
+				return;
+			if (isDeferringIndexUpdates()) {
+				// the commit brings the index in line, but the change is published now, like the other changes
+				getChangeStream().publish(RefDbChangeType.TITLE_CHANGED, getPublicationById(id), id, null, null);
+				return;
+			}
+			reindexTitleWords(Collections.singletonMap(id, oldTitle));
+		} finally {
+			getMetrics().stop(RefDbOperation.SET_TITLE, start);
+		}
+	}
+
+	/**
+	 * set the titles of many publications at once (e.g. a normalisation of all titles) : the changed words of all 
+	 * titles are gathered first, so every touched entry of the title word index is updated only once
+	 * 
+	 * @param 	titles
+	 * 			the new title (without leading or trailing spaces) per ID of a publication of this reference database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the map is null, or one of the titles is null (TitleIsNullException) or blank (TitleIsBlankException)
+	 * @throws 	IdNotInReferenceDbException
+	 * 			one of the IDs is not present in this reference database
+	 * @post 	if an exception is thrown, no title is changed
+	 * @post	every publication has its new title, and the title word index is updated accordingly
+	 */
+	public void setTitles(Map<String, String> titles) throws InputFieldNotSpecifiedException, IdNotInReferenceDbException {
+		long start = getMetrics().start();
+		try {
+			if (titles == null)
+				throw new InputFieldNotSpecifiedException();
+			for (Map.Entry<String, String> entry : titles.entrySet()) {
+				if (!hasIdinDb(entry.getKey()))
+					throw new IdNotInReferenceDbException(entry.getKey());
+				if (entry.getValue() == null)
+					throw new TitleIsNullException();
+				if ("".equals(entry.getValue().trim()))
+					throw new TitleIsBlankException();
+			}
+			Map<String, String> oldTitles = new HashMap<String, String>(titles.size() * 2);
+			for (Map.Entry<String, String> entry : titles.entrySet())
+				oldTitles.put(entry.getKey(), getPublicationById(entry.getKey()).replaceTitle(entry.getValue()));
+			reindexTitleWords(oldTitles);
+		} finally {
+			getMetrics().stop(RefDbOperation.SET_TITLE, start);
+		}
+	}
+
+	/**
+	 * update the title word index for the publications with the given IDs, whose titles changed from the given old 
+	 * titles to their current titles : the IDs to remove and to add are gathered per word first
+	 */
+	private void reindexTitleWords(Map<String, String> oldTitles) {
+		Map<String, List<String>> removals = new HashMap<String, List<String>>();
+		Map<String, List<String>> additions = new HashMap<String, List<String>>();
+		for (Map.Entry<String, String> entry : oldTitles.entrySet()) {
+			String id = entry.getKey();
+			touchId(id);
+			gatherIndexChanges(id, getTitleWords(entry.getValue()), getTitleWords(getPublicationById(id).getTitle()),
+					removals, additions);
+		}
+		updateIndex(getTitleWordIndex(), removals, additions, true);
+		for (String id : oldTitles.keySet())
+			getChangeStream().publish(RefDbChangeType.TITLE_CHANGED, getPublicationById(id), id, null, null);
+	}
+
+	/**
+	 * gather the given ID per key to remove from and per key to add to an index, for the keys that are only in the 
+	 * old or only in the new keys of the publication with that ID
+	 */
+	private static void gatherIndexChanges(String id, Set<String> oldKeys, Set<String> newKeys,
+			Map<String, List<String>> removals, Map<String, List<String>> additions) {
+		for (String key : oldKeys)
+			if (!newKeys.contains(key))
+				removals.computeIfAbsent(key, k -> new ArrayList<String>()).add(id);
+		for (String key : newKeys)
+			if (!oldKeys.contains(key))
+				additions.computeIfAbsent(key, k -> new ArrayList<String>()).add(id);
+	}
+
+	/**
+	 * remove and add the gathered IDs per key of the given index, updating every key only once
+	 * 
+	 * @param 	titleWords
+	 * 			true for the title word index, false for the author index (the keys touched in the change trackers)
+	 */
+	private void updateIndex(Map<String, Set<String>> index, Map<String, List<String>> removals,
+			Map<String, List<String>> additions, boolean titleWords) {
+		for (Map.Entry<String, List<String>> removal : removals.entrySet()) {
+			touchIndexKey(removal.getKey(), titleWords);
+			Set<String> idSet = index.get(removal.getKey());
+			if (idSet == null)
+				continue;
+			idSet.removeAll(removal.getValue());
+			if (idSet.isEmpty())
+				index.remove(removal.getKey());
+		}
+		for (Map.Entry<String, List<String>> addition : additions.entrySet()) {
+			touchIndexKey(addition.getKey(), titleWords);
+			Set<String> idSet = index.get(addition.getKey());
+			if (idSet == null) {
+				idSet = RefDbIndex.newIdSet();
+				index.put(addition.getKey(), idSet);
+			}
+			idSet.addAll(addition.getValue());
+		}
+	}
+
+	private void touchIndexKey(String key, boolean titleWord) {
+		if (titleWord)
+			touchTitleWord(key);
+		else
+			touchAuthorKey(key);
+	}
+
+	/**
+	 * change the publication with the given ID, if it did not change since the given version was read : the version 
+	 * is checked and the publication held in one compare and set, so of two concurrent conditional updates from the 
+	 * same version only one is applied, and the other fails without waiting.  (The indexes are not thread safe : 
+	 * concurrent updates of different publications still need one writer at a time, e.g. ShardedRefDb.)
+	 * For conditional changes of several publications, use RefDbTransaction.expectVersion().
+	 * 
+	 * @param 	id
+	 * 			the ID of the publication
+	 * @param 	expectedVersion
+	 * 			the version of the publication when the editor read it (Publication.getVersion())
+	 * @param 	update
+	 * 			the changes of the publication
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the update is null
+	 * @throws 	IdNotInReferenceDbException
+	 * @throws 	VersionConflictException
+	 * 			the publication has another version, or another conditional update holds it
+	 * @throws 	X
+	 * 			the update failed (the changes it made before are not undone)
+	 * @post	if the update is applied, the version of the publication is higher than the expected version
+	 */
+	public <X extends Exception> void updatePublication(String id, long expectedVersion, PublicationUpdate<X> update)
+			throws InputFieldNotSpecifiedException, IdNotInReferenceDbException, VersionConflictException, X {
+		if (update == null)
+			throw new InputFieldNotSpecifiedException();
+		Publication publication = getPublicationById(id);
+		if (publication == null)
+			throw new IdNotInReferenceDbException(id);
+		if (!publication.claimVersion(expectedVersion))
+			throw new VersionConflictException(id, expectedVersion, publication.getVersion());
+		try {
+			update.apply(publication);
+		} finally {
+			publication.releaseVersion();
+		}
+	}
+
+	/**
+	 * start a transaction on this reference database : its operations are buffered until commit(), which applies
+	 * them all or, if one fails, none
+	 */
+	public RefDbTransaction beginTransaction() {
+		return new RefDbTransaction(this);
+	}
+
+	/**
+	 * the author keys and title words of the publications changed by the running transaction commit, per ID, as they 
+	 * were before their first change (null while no commit runs) : while it is effective, the index methods leave 
+	 * the indexes alone, and applyDeferredIndexUpdates() brings them in line in one pass
+	 */
+	private Map<String, IndexEntries> deferredIndexEntries;
+
+	/**
+	 * An immutable set of the keys under which a publication is registered in the author and title word index
+	 */
+	private static final class IndexEntries {
+
+		IndexEntries(Set<String> authorKeys, Set<String> titleWords) {
+			this.authorKeys = authorKeys;
+			this.titleWords = titleWords;
+		}
+
+		final Set<String> authorKeys;
+		final Set<String> titleWords;
+	}
+
+	/**
+	 * get the keys under which the publication with the given ID belongs in the indexes (none if it is not present)
+	 */
+	private IndexEntries getIndexEntries(String id) {
+		Publication publication = getPublicationById(id);
+		if (publication == null)
+			return new IndexEntries(Collections.<String>emptySet(), Collections.<String>emptySet());
+		return new IndexEntries(new HashSet<String>(publication.getAllAuthorsWithInitial()),
+				getTitleWords(publication.getTitle()));
+	}
+
+	/**
+	 * check if the index updates of this reference database are deferred by a running transaction commit
+	 */
+	boolean isDeferringIndexUpdates() {
+		return deferredIndexEntries != null;
+	}
+
+	/**
+	 * defer the index updates of this reference database until applyDeferredIndexUpdates()
+	 * 
+	 * @return	false if they were already deferred (by an enclosing commit, that applies them)
+	 */
+	boolean deferIndexUpdates() {
+		if (isDeferringIndexUpdates())
+			return false;
+		deferredIndexEntries = new HashMap<String, IndexEntries>();
+		return true;
+	}
+
+	/**
+	 * record the index keys of the publication with the given ID before it changes, if the index updates are 
+	 * deferred and its keys are not recorded yet
+	 */
+	void recordIndexEntries(String id) {
+		if (isDeferringIndexUpdates() && id != null && !deferredIndexEntries.containsKey(id))
+			deferredIndexEntries.put(id, getIndexEntries(id));
+	}
+
+	/**
+	 * bring both indexes in line with the publications changed since deferIndexUpdates(), in one pass : the IDs to 
+	 * remove and to add are gathered per author key and per title word first
+	 * 
+	 * @post	the index updates are no longer deferred
+	 */
+	void applyDeferredIndexUpdates() {
+		Map<String, IndexEntries> oldEntries = deferredIndexEntries;
+		deferredIndexEntries = null;
+		if (oldEntries == null)
+			return;
+		Map<String, List<String>> authorRemovals = new HashMap<String, List<String>>();
+		Map<String, List<String>> authorAdditions = new HashMap<String, List<String>>();
+		Map<String, List<String>> wordRemovals = new HashMap<String, List<String>>();
+		Map<String, List<String>> wordAdditions = new HashMap<String, List<String>>();
+		for (Map.Entry<String, IndexEntries> entry : oldEntries.entrySet()) {
+			String id = entry.getKey();
+			touchId(id);
+			IndexEntries newEntries = getIndexEntries(id);
+			gatherIndexChanges(id, entry.getValue().authorKeys, newEntries.authorKeys, authorRemovals, authorAdditions);
+			gatherIndexChanges(id, entry.getValue().titleWords, newEntries.titleWords, wordRemovals, wordAdditions);
+		}
+		updateIndex(getAuthorIndex(), authorRemovals, authorAdditions, false);
+		updateIndex(getTitleWordIndex(), wordRemovals, wordAdditions, true);
+	}
+
+	/**
+	 * get the distinct words of the given title, as they are registered in the title word index
+	 */
+	private static Set<String> getTitleWords(String title) {
+		return new HashSet<String>(Arrays.asList(TITLE_WORD_SPLIT.split(title.toLowerCase())));
+	}
+
+	// compiled once : String.split() compiles a character class pattern at every call
+	private static final Pattern TITLE_WORD_SPLIT = Pattern.compile(RefDb.RegexWordSplit);
+		
+	/**
+	 * adds a citation.  The ID given first (=citator) cites the ID given second (=citation) .
+	 * @param 	idCitator
+	 * 			the ID of the publication that cites the citation
+	 * @param 	idCitation
+	 * 			the ID of the publication that is cited by the citator
+	 * 
+	 * @throws InputFieldNotValidException
+	 * @throws IdNotInReferenceDbException
+	 * 
+	 * @result	a citation will be added, meaning that 
+	 * 				1) the citator will add the citation to it's 'cites' list
+	 * 				2) the citation will add the citator to it's 'cited by' list
+	 */
+	public void addCitationReference(String idCitator, String idCitation)
+			throws IdNotInReferenceDbException, InputFieldNotValidException {
+		long start = getMetrics().start();
+		try {
+			if (!isValidId(idCitator))
+				throw new IdNotValidException(idCitator);
+			if (!isValidId(idCitation))
+				throw new IdNotValidException(idCitation);
+			if (!hasIdinDb(idCitator))
+				throw new IdNotInReferenceDbException(idCitator);
+			if (!hasIdinDb(idCitation))
+				throw new IdNotInReferenceDbException(idCitation);
+
+			getPublicationById(idCitator).addAsCitation(getPublicationById(idCitation));
+		} finally {
+			getMetrics().stop(RefDbOperation.ADD_CITATION, start);
+		}
+	}
+
+	/**
+	 * removes a citation.  The ID given first (=citator) cites the ID given second (=citation) .
+	 * @param 	idCitator
+	 * 			the ID of the publication that cites the citation
+	 * @param 	idCitation
+	 * 			the ID of the publication that is cited by the citator
+	 * 
+	 * @throws InputFieldNotValidException
+	 * @throws IdNotInReferenceDbException
+	 * 
+	 * @result	a citation is removed, meaning that 
+	 * 				1) the citator is removed from the citation to it's 'cites' list
+	 * 				2) the citation is removed from the citator to it's 'cited by' list
+	 */
+	public void removeCitationReference(String idCitator, String idCitation)
+			throws IdNotInReferenceDbException, InputFieldNotValidException {
+		long start = getMetrics().start();
+		try {
+			if (!isValidId(idCitator))
+				throw new IdNotValidException(idCitator);
+			if (!isValidId(idCitation))
+				throw new IdNotValidException(idCitation);
+			if (!hasIdinDb(idCitator))
+				throw new IdNotInReferenceDbException(idCitator);
+			if (!hasIdinDb(idCitation))
+				throw new IdNotInReferenceDbException(idCitation);
+
+			getPublicationById(idCitator).removeAsCitation(getPublicationById(idCitation));
+		} finally {
+			getMetrics().stop(RefDbOperation.REMOVE_CITATION, start);
+		}
+	}
+
+	/**
+	 * checks if the given publication is the same as a publication that is already registered on the DB
+	 * (equality here means, having identical characteristics, it uses checker Publication.isEqualTo() to check for equality)
+	 * @param 	publication
+	 * @return	true if the given publication is equal to a publication that is already stored on the DB
+	 * 			(package private : ShardedRefDb checks for duplicates over all its shards)
+	 */
+	boolean hasSamePublicationInDb(Publication publication) {
+		// get a limited set of publications that are possible duplicates using
+		// indexes
+		Set<String> idSetPossibleDuplicates = new HashSet<String>();
+		Set<String> idSetTemp = new HashSet<String>();
+		for (String authorname : publication.getAllAuthorsWithInitial()) {
+			idSetTemp = getAuthorIndex().get(authorname);
+			if (idSetTemp != null)
+				idSetPossibleDuplicates.addAll(idSetTemp);
+		}
+		for (String word : publication.getTitle().toLowerCase().split(RefDb.RegexWordSplit)) {
+			idSetTemp = getTitleWordIndex().get(word);
+			if (idSetTemp != null)
+				idSetPossibleDuplicates.addAll(idSetTemp);
+		}
+		// the indexes are not up to date for the publications changed by a running transaction commit
+		if (isDeferringIndexUpdates())
+			idSetPossibleDuplicates.addAll(deferredIndexEntries.keySet());
+		getMetrics().recordDuplicateCandidates(idSetPossibleDuplicates.size());
+		// for every possible duplicate do a thorough search
+		for (String idPossibleDuplicate : idSetPossibleDuplicates) {
+			if (hasIdinDb(idPossibleDuplicate) && publication.isEqualTo(getPublicationById(idPossibleDuplicate)))
+				return true;
+		}
+
+		return false;
+	}
+
+/**
+ * get the citation index for the given author
+ * the author name must be given in the default name format (e.g. King, Martin Luther)
+ * The citation index is defined as the weighted sum of the citations of all the authors publications. 
+ * The weights depend on the type of publication the author is cited in.
+ * 
+ * @param 	authorName
+ * 			name of the author for which the citation index will be calculated
+ * 
+ * @return	the citationindex of the given author
+ * 
+ * @throws AuthorNotInDbException
+ * @throws AuthorNameNotValidException 
+
+ */
+	public double getCitationIndex(String authorName)
+			throws AuthorNotInDbException, AuthorNameNotValidException {
+		long start = getMetrics().start();
+		try {
+			double citationIndex = 0;
+			if (!Publication.isValidAuthorName(authorName))
+				throw new AuthorNameNotValidException();
+			// get name in index format of author (King, Martin Luther => M. L.
+			// King)
+
+			String[] nameSplit = authorName.trim().split(",");
+			StringBuilder sb = new StringBuilder();
+			StringTokenizer st = new StringTokenizer(nameSplit[1], " ");
+			while (st.hasMoreTokens()) {
+				sb.append(st.nextToken().substring(0, 1).toUpperCase());
+				sb.append(". ");
+			}
+			sb.append(nameSplit[0].trim());
+
+			// get publication set of author
+			Set<Publication> publicationSet;
+			try {
+				publicationSet = getPublicationsByAuthorName(sb.toString());
+			} catch (AuthorNameIsNullException e) {
+				throw new AuthorNameNotValidException();
+			}
+			if (publicationSet.isEmpty())
+				throw new AuthorNotInDbException();
+			for (Publication publication : publicationSet) {
+				// check full name of author (filter out if needed)
+				boolean authorFullNameFound = false;
+				for (String authorNameFull : publication.getAllAuthors())
+					if (authorNameFull.equalsIgnoreCase(authorName.trim())) {
+						authorFullNameFound = true;
+						continue;
+					}
+				if (!authorFullNameFound) {
+					continue;
+				}
+				// call getCitationWeight for all the citators (polymorphism at
+				// work)
+				for (Publication citator : publication.getAllCitators()) {
+					citationIndex += citator.getCitationScore();
+				}
+			}
+			return citationIndex;
+		} finally {
+			getMetrics().stop(RefDbOperation.GET_CITATION_INDEX, start);
+		}
+	}
+
+/**
+ * this method will for a given publication, return all publications that directly or indirectly cite that publication. 
+ * A publication is cited indirectly in a publication when that publication cites a publication in which that publication is cited directly, or
+ * indirectly. In mathematical terms, compute the transitive closure of the cited relation
+ * @param 	publication
+ * 			publication for which the transitive closure of the cited relation will be composed
+ * @return	a set of publications that directly or indirectly cite the given publication. if no publications are found an empty set will be returned
+ */
+	public Set<Publication> getTransitiveClosureCitedBy(Publication publication) {
+		long start = getMetrics().start();
+		try {
+			Set<Publication> transitiveClosureSet = new HashSet<Publication>();
+			getTransitiveClosureCitedBy(publication, transitiveClosureSet);
+			return transitiveClosureSet;
+		} finally {
+			getMetrics().stop(RefDbOperation.GET_TRANSITIVE_CLOSURE, start);
+		}
+	}
+/**
+ * this method will, for a given publication and a given set of publications, add all publications that directly or indirectly cite that publication
+ * to the given publicationset.  This function is used recursively to build up the transitive closure of the cites-relation.   this private function
+ *  is used in conjunction with the public method with the same name. 
+ * @param 	publication
+ * 			publication for which the transitive closure of the cited relation will be composed
+ * @param	publicationSet
+ * 			the publicationSet to which new citations will be added to
+ * @return	a set of publications that directly or indirectly cite the given publication. if no publications are found an empty set will be returned
+ */
+	private Set<Publication> getTransitiveClosureCitedBy(Publication publication,
+			Set<Publication> publicationSet) {
+		for (Publication citator : publication.getAllCitators()) {
+			if (!publicationSet.contains(citator)) {
+				publicationSet.add(citator);
+				if (citator.getNbCitators() > 0)
+					publicationSet.addAll(getTransitiveClosureCitedBy(citator, publicationSet));
+			}
+		}
+		return publicationSet;
+	}
+
+	/**
+	 * get a lazy stream of all publications that directly or indirectly cite the given publication 
+	 * (the same publications as getTransitiveClosureCitedBy()).
+	 * The closure is expanded breadth first while the stream is consumed : direct citators come first, 
+	 * and the citators of one publication are visited in ascending referenceId (unregistered publications last).
+	 * Only the publications reached so far are held in memory.  The stream must be consumed before the database is changed.
+	 * 
+	 * @param 	publication
+	 * 			publication for which the transitive closure of the cited relation will be composed
+	 * @return	a stream of the publications that directly or indirectly cite the given publication
+	 */
+	public Stream<Publication> streamTransitiveClosureCitedBy(Publication publication) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new CitedByClosureIterator(publication),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * get one page of the publications that directly or indirectly cite the given publication, in ascending 
+	 * referenceId (unregistered publications are followed, but left out of the pages).
+	 * The continuation token is the last ID of the page : every page expands the whole closure again, keeping only 
+	 * the limit first IDs behind the token in a bounded heap (like the pages by year of getPublicationPageByTitleWord()).
+	 * No sorted copy of the closure is made and no state is kept between pages, but every page costs a walk of the 
+	 * closure : O(C log limit) for a closure of C publications, so all pages of it cost O(C^2 / limit log limit).  Ask 
+	 * for large pages (or use streamTransitiveClosureCitedBy()) to go through a large closure.  Since the token is an 
+	 * ID and not a position, a publication that stays in the closure while the pages are requested is returned 
+	 * exactly once, even if the citations change in between.
+	 * 
+	 * @param 	publication
+	 * 			publication for which the transitive closure of the cited relation will be composed
+	 * @param 	continuationToken
+	 * 			the continuation token of the previous page, or null to start at the first publication
+	 * @param 	limit
+	 * 			the maximum number of publications on the page
+	 * @throws 	PublicationIsNullException
+	 * @throws 	InputFieldNotValidException
+	 * 			the limit is not strictly positive or the continuation token is not valid
+	 * @return	a page with at most limit publications
+	 */
+	public PublicationPage getTransitiveClosurePageCitedBy(Publication publication, String continuationToken,
+			int limit) throws PublicationIsNullException, InputFieldNotValidException {
+		long start = getMetrics().start();
+		try {
+			if (publication == null)
+				throw new PublicationIsNullException();
+			if (limit <= 0)
+				throw new InputFieldNotValidException();
+			if (continuationToken != null && !continuationToken.matches("[0-9]+"))
+				throw new ContinuationTokenNotValidException(continuationToken);
+
+			// max-heap with the limit smallest IDs behind the token seen so far
+			// (the closure holds no more registered publications than the database)
+			Queue<String> candidates = new PriorityQueue<String>(Math.min(limit, getNbPublications()) + 1,
+					Collections.reverseOrder(RefDbIndex.ID_ORDER));
+			boolean hasMore = false;
+			Iterator<Publication> closureIterator = new CitedByClosureIterator(publication);
+			while (closureIterator.hasNext()) {
+				String id = closureIterator.next().getReferenceId();
+				if (id == null || (continuationToken != null && RefDbIndex.ID_ORDER.compare(id, continuationToken) <= 0))
+					continue;
+				candidates.add(id);
+				if (candidates.size() > limit) {
+					candidates.poll();
+					hasMore = true;
+				}
+			}
+
+			String[] ids = candidates.toArray(new String[candidates.size()]);
+			Arrays.sort(ids, RefDbIndex.ID_ORDER);
+			List<Publication> publications = new ArrayList<Publication>(ids.length);
+			for (String id : ids)
+				publications.add(getIdTable().get(id));
+			if (!hasMore)
+				return new PublicationPage(publications, null);
+			return new PublicationPage(publications, ids[ids.length - 1]);
+		} finally {
+			getMetrics().stop(RefDbOperation.GET_TRANSITIVE_CLOSURE_PAGE, start);
+		}
+	}
+
+	/**
+	 * A class of iterators that expand the transitive closure of the cited-by relation breadth first.
+	 * The citators of every publication are read directly (no defensive copy of the set) and visited 
+	 * in ascending referenceId, so the order of the iteration is stable as long as the database is not changed.
+	 */
+	private static final class CitedByClosureIterator implements Iterator<Publication> {
+
+		private static final Comparator<Publication> CITATOR_ORDER = new Comparator<Publication>() {
+			@Override
+			public int compare(Publication publication1, Publication publication2) {
+				String id1 = publication1.getReferenceId();
+				String id2 = publication2.getReferenceId();
+				if (id1 == null || id2 == null)
+					return (id1 == null ? 1 : 0) - (id2 == null ? 1 : 0);
+				return RefDbIndex.ID_ORDER.compare(id1, id2);
+			}
+		};
+
+		private final Set<Publication> visited = new HashSet<Publication>();
+		private final Queue<Publication> toExpand = new ArrayDeque<Publication>();
+		private final Queue<Publication> toReturn = new ArrayDeque<Publication>();
+
+		CitedByClosureIterator(Publication publication) {
+			// the given publication itself is not marked as visited : just like getTransitiveClosureCitedBy(), 
+			// it is part of the closure when it is reached through a citation loop
+			toExpand.add(publication);
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (toReturn.isEmpty() && !toExpand.isEmpty()) {
+				Publication[] citators = toExpand.poll().citedBy.toArray(new Publication[0]);
+				Arrays.sort(citators, CITATOR_ORDER);
+				for (Publication citator : citators) {
+					if (visited.add(citator)) {
+						toReturn.add(citator);
+						toExpand.add(citator);
+					}
+				}
+			}
+			return !toReturn.isEmpty();
+		}
+
+		@Override
+		public Publication next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return toReturn.poll();
+		}
+	}
+
+/**
+ * check if this reference database has a proper publications associated with it.
+ * So checks for every publication in the database that the class invariant is fulfilled
+ * 
+ * @return true if every publication in the idTable is a proper publication (has
+ */
+	public boolean hasProperPublications() {
+		for (Map.Entry<String, Publication> entry : getIdTable().entrySet()) {
+			if (!isValidIdTableTuple(entry))
+				return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * get the metrics of this reference database 
+	 * (disabled by default, see RefDbMetrics.setEnabled() and RefDbMetrics.registerMBean())
+	 */
+	public RefDbMetrics getMetrics() {
+		return metrics;
+	}
+
+	private final RefDbMetrics metrics = new RefDbMetrics(this);
+
+	/**
+	 * get the parallel invariant checker of this reference database 
+	 * (see RefDbChecker, an alternative to the hasProper..() checkers that reports the violations)
+	 */
+	public RefDbChecker getInvariantChecker() {
+		return invariantChecker;
+	}
+
+	private final RefDbChecker invariantChecker = new RefDbChecker(this);
+
+	/**
+	 * get the change event stream of this reference database, for synchronous listeners and batched subscriptions
+	 */
+	public RefDbChangeStream getChangeStream() {
+		return changeStream;
+	}
+
+	private final RefDbChangeStream changeStream = new RefDbChangeStream();
+
+	/**
+	 * register the given tracker to follow the changes of this reference database
+	 */
+	void addChangeTracker(RefDbChangeTracker changeTracker) {
+		changeTrackers.add(changeTracker);
+	}
+
+	/**
+	 * stop the given tracker from following the changes of this reference database
+	 */
+	void removeChangeTracker(RefDbChangeTracker changeTracker) {
+		changeTrackers.remove(changeTracker);
+	}
+
+	private final List<RefDbChangeTracker> changeTrackers = new CopyOnWriteArrayList<RefDbChangeTracker>();
+
+	/**
+	 * report to the change trackers that the given publication is touched
+	 */
+	void touchPublication(Publication publication) {
+		for (RefDbChangeTracker changeTracker : changeTrackers)
+			changeTracker.touchPublication(publication);
+	}
+
+	private void touchId(String id) {
+		for (RefDbChangeTracker changeTracker : changeTrackers)
+			changeTracker.touchId(id);
+	}
+
+	private void touchAuthorKey(String authorKey) {
+		for (RefDbChangeTracker changeTracker : changeTrackers)
+			changeTracker.touchAuthorKey(authorKey);
+	}
+
+	private void touchTitleWord(String titleWord) {
+		for (RefDbChangeTracker changeTracker : changeTrackers)
+			changeTracker.touchTitleWord(titleWord);
+	}
+
+	/**
+	 * get an estimate of the heap memory held by this reference database : the idTable, the publications 
+	 * (Publication.estimateMemoryFootprint()) and both indexes.  The estimate is computed on demand in one pass.
+	 * 
+	 * @return	the estimated number of bytes held by this reference database
+	 */
+	public long estimateMemoryFootprint() {
+		long bytes = 48 + 16 + 4L * Integer.highestOneBit(Math.max(1, getIdTable().size()) * 2);
+		for (Map.Entry<String, Publication> entry : getIdTable().entrySet())
+			bytes += 32 + Publication.estimateMemoryFootprint(entry.getKey()) + entry.getValue().estimateMemoryFootprint();
+		return bytes + getAuthorIndexRaw().estimateMemoryFootprint() + getTitleWordIndexRaw().estimateMemoryFootprint();
+	}
+
+	/**
+	 * print out the entire database
+	 * 
+	 */
+	public void printRefdb() {
+		System.out.println("\nID-table");
+		System.out.println("--------");
+
+		for (Map.Entry<String, Publication> entry : getIdTable().entrySet()) {
+			System.out.printf("%-10s", "id : ");
+			System.out.printf("%-20s", entry.getKey());
+			// System.out.printf("%-10s",">>publication : ");
+			System.out.println();
+			System.out.printf("%-50s", entry.getValue());
+			System.out.println();
+		}
+
+		System.out.println("\nauthor index-table");
+		System.out.println("--------");
+		for (Map.Entry<String, Set<String>> entry : getAuthorIndex().entrySet()) {
+			System.out.printf("%-10s", "author : ");
+			System.out.printf("%-20s", entry.getKey());
+			System.out.printf("%-10s", ">>ID set : ");
+			System.out.printf("%-50s", entry.getValue());
+			System.out.println();
+		}
+
+		System.out.println("\nword-table");
+		System.out.println("--------");
+		for (Map.Entry<String, Set<String>> entry : getTitleWordIndex().entrySet()) {
+			System.out.printf("%-10s", "word : ");
+			System.out.printf("%-20s", entry.getKey());
+			System.out.printf("%-10s", ">>ID set : ");
+			System.out.printf("%-50s", entry.getValue());
+			System.out.println();
+
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package publicationRefDb;
+
+/**
+ * A class of helpers that write publications and statistics as JSON (used by RefDbHttpServer) : the values are
+ * appended to a StringBuilder, so a response can be built and sent in chunks.
+ */
+final class RefDbJson {
+
+	private RefDbJson() {
+	}
+
+	/**
+	 * append the given string as a JSON string (null as null)
+	 */
+	static StringBuilder appendString(StringBuilder json, String string) {
+		if (string == null)
+			return json.append("null");
+		json.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					json.append(String.format("\\u%04x", (int) c));
+				else
+					json.append(c);
+			}
+		}
+		return json.append('"');
+	}
+
+	/**
+	 * append the given publication as a JSON object : its ID, type, version, fields, authors (default name format)
+	 * and its numbers of citations and citators
+	 */
+	static StringBuilder appendPublication(StringBuilder json, Publication publication) {
+		json.append("{\"id\":");
+		appendString(json, publication.getReferenceId());
+		json.append(",\"type\":");
+		appendString(json, publication.getPublicationType().name());
+		json.append(",\"version\":").append(publication.getVersion());
+		json.append(",\"title\":");
+		appendString(json, publication.getTitle());
+		json.append(",\"year\":").append(publication.getYearOfPublication());
+		if (publication instanceof JournalArticle) {
+			json.append(",\"journal\":");
+			appendString(json, ((JournalArticle) publication).getJournalName());
+			json.append(",\"issue\":").append(((JournalArticle) publication).getIssueNumber());
+		} else if (publication instanceof ConferencePaper) {
+			json.append(",\"conference\":");
+			appendString(json, ((ConferencePaper) publication).getConference());
+		} else if (publication instanceof Book) {
+			json.append(",\"publisher\":");
+			appendString(json, ((Book) publication).getPublisher());
+		}
+		json.append(",\"authors\":[");
+		boolean first = true;
+		for (String author : publication.getAllAuthors()) {
+			if (!first)
+				json.append(',');
+			appendString(json, author);
+			first = false;
+		}
+		json.append("],\"nbCitations\":").append(publication.getNbCitations());
+		json.append(",\"nbCitators\":").append(publication.getNbCitators());
+		return json.append('}');
+	}
+
+	/**
+	 * append the given statistics as a JSON object
+	 */
+	static StringBuilder appendStatistics(StringBuilder json, HistogramStatistics statistics) {
+		json.append("{\"name\":");
+		appendString(json, statistics.getName());
+		json.append(",\"count\":").append(statistics.getCount());
+		json.append(",\"mean\":").append(statistics.getMean());
+		json.append(",\"p50\":").append(statistics.getP50());
+		json.append(",\"p90\":").append(statistics.getP90());
+		json.append(",\"p99\":").append(statistics.getP99());
+		json.append(",\"p999\":").append(statistics.getP999());
+		json.append(",\"max\":").append(statistics.getMax());
+		return json.append('}');
+	}
+}
@@ -0,0 +1,24 @@
+package publicationRefDb;
+
+import java.io.IOException;
+
+/**
+ * An interface for loading the publications of a tenant into a reference database, 
+ * used by RefDbContainer to load tenants lazily (e.g. (tenantId, refDb) -> CorpusGenerator.loadImportFile(.., refDb))
+ */
+public interface RefDbLoader {
+
+	/**
+	 * load the publications of the given tenant into the given reference database
+	 * 
+	 * @param 	tenantId
+	 * 			the ID of the tenant to load
+	 * @param 	refDb
+	 * 			a new, empty reference database that becomes the database of the tenant
+	 * @throws 	IOException
+	 * @throws 	InputFieldNotValidException
+	 * @throws 	InputFieldNotSpecifiedException
+	 */
+	void load(String tenantId, RefDbInstance refDb)
+			throws IOException, InputFieldNotValidException, InputFieldNotSpecifiedException;
+}
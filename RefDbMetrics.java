@@ -0,0 +1,222 @@
+package publicationRefDb;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A class of metrics of a reference database : a latency histogram (and so a counter) for every operation 
+ * (RefDbOperation), a histogram of the candidate sets of the duplicate check, and on demand figures of the indexes.
+ * The metrics are exposed through JMX (registerMBean()).
+ * 
+ * Measuring is disabled by default : a disabled operation only reads one volatile flag.
+ * The figures of the indexes are read from the JMX thread : when other threads change the database, they must hold
+ * the write lock of a lock given to setIndexLock(), so the figures are read under its read lock.
+ * 
+ * @invar	there is a latency histogram for every operation
+ */
+public final class RefDbMetrics implements RefDbMetricsMXBean {
+
+	/**
+	 * the name under which the metrics are registered in the platform MBean server
+	 */
+	public static final String OBJECT_NAME = "publicationRefDb:type=RefDbMetrics";
+
+	private static final int NB_LARGEST_POSTINGS = 10;
+
+	/**
+	 * Initialise these new metrics of the given reference database, disabled and without measurements
+	 */
+	RefDbMetrics(RefDbInstance refDb) {
+		this.refDb = refDb;
+		latencies = new RefDbHistogram[RefDbOperation.values().length];
+		for (int i = 0; i < latencies.length; i++)
+			latencies[i] = new RefDbHistogram();
+		resetNanos = System.nanoTime();
+	}
+
+	/**
+	 * register these metrics in the platform MBean server under OBJECT_NAME
+	 * (an earlier registration under that name is replaced)
+	 * 
+	 * @throws	JMException
+	 */
+	public void registerMBean() throws JMException {
+		registerMBean(new ObjectName(OBJECT_NAME));
+	}
+
+	/**
+	 * register these metrics in the platform MBean server under OBJECT_NAME with the given name as an extra key 
+	 * (to tell apart the metrics of several reference databases, e.g. the shards of a ShardedRefDb)
+	 * 
+	 * @param	databaseName
+	 * 			the name of the reference database
+	 * @throws	JMException
+	 */
+	public void registerMBean(String databaseName) throws JMException {
+		registerMBean(new ObjectName(OBJECT_NAME + ",name=" + ObjectName.quote(databaseName)));
+	}
+
+	private void registerMBean(ObjectName name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(name))
+			server.unregisterMBean(name);
+		server.registerMBean(this, name);
+	}
+
+	private final RefDbInstance refDb;
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	private volatile boolean enabled;
+
+	/**
+	 * start measuring an operation
+	 * 
+	 * @return	the start time to pass to stop(), or 0 if measuring is disabled
+	 */
+	long start() {
+		if (!enabled)
+			return 0;
+		return System.nanoTime();
+	}
+
+	/**
+	 * stop measuring the given operation that started at the given time
+	 * 
+	 * @param 	operation
+	 * 			the operation that is measured
+	 * @param 	start
+	 * 			the start time returned by start()
+	 * @post	if the start time is effective (measuring was enabled at the start), the latency of the 
+	 * 			operation is recorded
+	 */
+	void stop(RefDbOperation operation, long start) {
+		if (start == 0)
+			return;
+		latencies[operation.ordinal()].record(System.nanoTime() - start);
+	}
+
+	private final RefDbHistogram[] latencies;
+
+	/**
+	 * record the size of a candidate set of the duplicate check (only if measuring is enabled)
+	 */
+	void recordDuplicateCandidates(int size) {
+		if (enabled)
+			duplicateCandidates.record(size);
+	}
+
+	private final RefDbHistogram duplicateCandidates = new RefDbHistogram();
+
+	/**
+	 * get the latency histogram of the given operation (in nanoseconds)
+	 */
+	public RefDbHistogram getLatencyHistogram(RefDbOperation operation) {
+		return latencies[operation.ordinal()];
+	}
+
+	@Override
+	public void reset() {
+		for (RefDbHistogram histogram : latencies)
+			histogram.reset();
+		duplicateCandidates.reset();
+		resetNanos = System.nanoTime();
+	}
+
+	@Override
+	public double getSecondsSinceReset() {
+		return (System.nanoTime() - resetNanos) / 1e9;
+	}
+
+	private volatile long resetNanos;
+
+	@Override
+	public HistogramStatistics[] getOperationLatencies() {
+		HistogramStatistics[] statistics = new HistogramStatistics[latencies.length];
+		for (RefDbOperation operation : RefDbOperation.values())
+			statistics[operation.ordinal()] = latencies[operation.ordinal()].getStatistics(operation.name(), 1000);
+		return statistics;
+	}
+
+	@Override
+	public HistogramStatistics getDuplicateCandidateSetSizes() {
+		return duplicateCandidates.getStatistics("DUPLICATE_CANDIDATES", 1);
+	}
+
+	/**
+	 * set the lock under which the figures of the indexes are read (its read lock) : the lock with whose write lock 
+	 * the reference database is changed, as for RefDbHttpServer and RefDbAsync
+	 * 
+	 * @param 	lock
+	 * 			the lock, or null to read the indexes without locking (only if the database is not changed while the 
+	 * 			metrics are read, e.g. if it is used by one thread only)
+	 */
+	public void setIndexLock(ReadWriteLock lock) {
+		this.indexLock = lock;
+	}
+
+	private volatile ReadWriteLock indexLock;
+
+
+	@Override
+	public int getNbPublications() {
+		return readIndex(() -> refDb.getNbPublications());
+	}
+
+	@Override
+	public int getNbAuthorIndexKeys() {
+		return readIndex(() -> refDb.getAuthorIndexRaw().getIndex().size());
+	}
+
+	@Override
+	public int getNbTitleWordIndexKeys() {
+		return readIndex(() -> refDb.getTitleWordIndexRaw().getIndex().size());
+	}
+
+	@Override
+	public HistogramStatistics getAuthorPostingLengths() {
+		return readIndex(() -> refDb.getAuthorIndexRaw().getPostingLengthHistogram()).getStatistics("AUTHOR_POSTINGS", 1);
+	}
+
+	@Override
+	public HistogramStatistics getTitleWordPostingLengths() {
+		return readIndex(() -> refDb.getTitleWordIndexRaw().getPostingLengthHistogram()).getStatistics("TITLE_WORD_POSTINGS", 1);
+	}
+
+	@Override
+	public String[] getLargestAuthorPostings() {
+		return readIndex(() -> refDb.getAuthorIndexRaw().getLargestPostings(NB_LARGEST_POSTINGS));
+	}
+
+	@Override
+	public String[] getLargestTitleWordPostings() {
+		return readIndex(() -> refDb.getTitleWordIndexRaw().getLargestPostings(NB_LARGEST_POSTINGS));
+	}
+
+	private <T> T readIndex(Supplier<T> reader) {
+		ReadWriteLock lock = indexLock;
+		if (lock == null)
+			return reader.get();
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return reader.get();
+		} finally {
+			readLock.unlock();
+		}
+	}
+}
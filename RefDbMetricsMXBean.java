@@ -0,0 +1,74 @@
+package publicationRefDb;
+
+/**
+ * The management interface of the metrics of the reference database (see RefDbMetrics).
+ * Latencies are reported in microseconds.
+ */
+public interface RefDbMetricsMXBean {
+
+	/**
+	 * check if the operations of the reference database are measured
+	 */
+	boolean isEnabled();
+
+	/**
+	 * start or stop measuring the operations of the reference database
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * remove all measurements
+	 */
+	void reset();
+
+	/**
+	 * get the number of seconds since the measurements were reset (to turn the counts into throughputs)
+	 */
+	double getSecondsSinceReset();
+
+	/**
+	 * get the latency summary (in microseconds) of every operation of the reference database
+	 */
+	HistogramStatistics[] getOperationLatencies();
+
+	/**
+	 * get the summary of the sizes of the candidate sets that are checked for duplicates 
+	 * when a publication is added to the reference database
+	 */
+	HistogramStatistics getDuplicateCandidateSetSizes();
+
+	/**
+	 * get the number of publications in the reference database
+	 */
+	int getNbPublications();
+
+	/**
+	 * get the number of keys in the author index
+	 */
+	int getNbAuthorIndexKeys();
+
+	/**
+	 * get the number of keys in the title word index
+	 */
+	int getNbTitleWordIndexKeys();
+
+	/**
+	 * get the summary of the number of publications per key of the author index
+	 */
+	HistogramStatistics getAuthorPostingLengths();
+
+	/**
+	 * get the summary of the number of publications per key of the title word index
+	 */
+	HistogramStatistics getTitleWordPostingLengths();
+
+	/**
+	 * get the keys of the author index with the most publications ("key : number of publications")
+	 */
+	String[] getLargestAuthorPostings();
+
+	/**
+	 * get the keys of the title word index with the most publications ("key : number of publications")
+	 */
+	String[] getLargestTitleWordPostings();
+}
@@ -0,0 +1,12 @@
+package publicationRefDb;
+/**
+ * An Enum class of the operations of the reference database that are measured by RefDbMetrics
+ */
+public enum RefDbOperation {
+
+	ADD_PUBLICATION, REMOVE_PUBLICATION, SET_TITLE, 
+	GET_BY_AUTHOR_NAME, GET_BY_TITLE_WORD, GET_PAGE_BY_AUTHOR_NAME, GET_PAGE_BY_TITLE_WORD, 
+	ADD_CITATION, REMOVE_CITATION, COMMIT_TRANSACTION, 
+	GET_CITATION_INDEX, GET_TRANSITIVE_CLOSURE, GET_TRANSITIVE_CLOSURE_PAGE;
+
+}
@@ -0,0 +1,436 @@
+package publicationRefDb;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A class of followers of a replication : a follower reads the log of a RefDbReplicationLeader (possibly in another
+ * JVM on the same machine) and applies its changes, in order, to its own reference database, that serves as a
+ * read-only replica.  It starts from a snapshot of the leader (bootstrap()) or from an empty reference database and
+ * the start of the log.
+ *
+ * The changes are applied in batches of at most the maximum batch size under the write lock of getLock(), with one
+ * index pass per batch (like a transaction commit); readers of the replica hold its read lock.  A batch is applied
+ * by poll(), or by the daemon thread of start().  Applying a change twice has no further effect (every record holds
+ * the state after the change, and the changes up to the applied sequence number are skipped), so a follower may
+ * safely read a part of the log again.
+ *
+ * @invar	the reference database and the lock of a follower are never null
+ * @invar	the applied sequence number never decreases
+ */
+public final class RefDbReplicationFollower implements Closeable {
+
+	/**
+	 * Initialise this new follower, that applies the log in the given file to the given reference database
+	 *
+	 * @param 	refDb
+	 * 			the reference database of the replica
+	 * @param 	log
+	 * 			the log file of the leader
+	 * @param 	lock
+	 * 			the lock under which the replica is read (e.g. RefDbHttpServer.getLock())
+	 * @param 	maxBatchSize
+	 * 			the maximum number of changes applied at once
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database, the log or the lock is null
+	 * @throws 	InputFieldNotValidException
+	 * 			the maximum batch size is not strictly positive
+	 * @throws 	IOException
+	 * 			the log cannot be opened
+	 */
+	public RefDbReplicationFollower(RefDbInstance refDb, Path log, ReadWriteLock lock, int maxBatchSize)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException, IOException {
+		if (refDb == null || log == null || lock == null)
+			throw new InputFieldNotSpecifiedException();
+		if (maxBatchSize <= 0)
+			throw new InputFieldNotValidException();
+		this.refDb = refDb;
+		this.lock = lock;
+		this.maxBatchSize = maxBatchSize;
+		this.channel = FileChannel.open(log, StandardOpenOption.READ);
+		this.reader = new RefDbReplicationLog.Reader(channel, 0);
+	}
+
+	private final RefDbInstance refDb;
+	private final ReadWriteLock lock;
+	private final int maxBatchSize;
+	private final FileChannel channel;
+	private RefDbReplicationLog.Reader reader;
+
+	/**
+	 * get the reference database of this follower
+	 */
+	public RefDbInstance getRefDb() {
+		return refDb;
+	}
+
+	/**
+	 * get the lock of the replica : the batches are applied under its write lock
+	 */
+	public ReadWriteLock getLock() {
+		return lock;
+	}
+
+	/**
+	 * get the sequence number of the last applied change of the leader
+	 */
+	public long getAppliedSequenceNumber() {
+		return appliedSequenceNumber;
+	}
+
+	private volatile long appliedSequenceNumber;
+
+	/**
+	 * get the number of changes that were skipped because they were already applied
+	 */
+	public long getNbSkippedChanges() {
+		return nbSkippedChanges;
+	}
+
+	private volatile long nbSkippedChanges;
+
+	/**
+	 * get the number of bytes of the log that are not applied yet
+	 *
+	 * @throws 	IOException
+	 * 			the size of the log cannot be read
+	 */
+	public long getLag() throws IOException {
+		return Math.max(0, channel.size() - position);
+	}
+
+	/**
+	 * the offset in the log after the last applied change
+	 */
+	private volatile long position;
+
+	/**
+	 * get the lag of this follower in time : the age of the oldest change in the log that is not applied yet
+	 *
+	 * @return	the age in milliseconds, or 0 if all changes of the log are applied
+	 * @throws 	IOException
+	 * 			the log cannot be read
+	 */
+	public long getLagMillis() throws IOException {
+		ByteBuffer timestamp = ByteBuffer.allocate(8);
+		long offset = position + 4 + 8;
+		while (timestamp.hasRemaining())
+			if (channel.read(timestamp, offset + timestamp.position()) <= 0)
+				return 0;
+		return Math.max(0, System.currentTimeMillis() - timestamp.getLong(0));
+	}
+
+	/**
+	 * load the given snapshot of the leader (see RefDbReplicationLeader.writeSnapshot()) : the changes of the log are
+	 * applied from the offset stored in the snapshot on
+	 *
+	 * @param 	snapshot
+	 * 			the snapshot file
+	 * @throws 	InputFieldNotValidException
+	 * 			the reference database is not empty, or changes of the log are applied already
+	 * @throws 	IOException
+	 * 			the snapshot cannot be read or is not valid
+	 * @post	the reference database holds the publications and citations of the snapshot
+	 */
+	public synchronized void bootstrap(Path snapshot) throws InputFieldNotValidException, IOException {
+		lock.writeLock().lock();
+		boolean deferring = refDb.deferIndexUpdates();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot),
+				1 << 16))) {
+			if (refDb.getNbPublications() > 0 || appliedSequenceNumber > 0 || position > 0)
+				throw new InputFieldNotValidException();
+			if (in.readInt() != RefDbReplicationLog.SNAPSHOT_MAGIC)
+				throw new IOException("not a snapshot : " + snapshot);
+			long sequenceNumber = in.readLong();
+			long offset = in.readLong();
+			int nbPublications = in.readInt();
+			List<Publication> publications = new ArrayList<Publication>(nbPublications);
+			List<List<String>> citations = new ArrayList<List<String>>(nbPublications);
+			for (int i = 0; i < nbPublications; i++) {
+				String id = in.readUTF();
+				Publication publication = RefDbReplicationLog.readFields(in);
+				refDb.registerPublication(publication, id);
+				publications.add(publication);
+				citations.add(RefDbReplicationLog.readIds(in));
+			}
+			// the citations once all publications are registered
+			for (int i = 0; i < nbPublications; i++)
+				for (String citationId : citations.get(i))
+					addCitation(publications.get(i), refDb.getPublicationById(citationId));
+			appliedSequenceNumber = sequenceNumber;
+			position = offset;
+			reader = new RefDbReplicationLog.Reader(channel, offset);
+		} finally {
+			if (deferring)
+				refDb.applyDeferredIndexUpdates();
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * apply the changes of the log that are not applied yet, in batches
+	 *
+	 * @return	the number of applied changes
+	 * @throws 	IOException
+	 * 			the log cannot be read, or a change cannot be applied (the changes before it are applied, and the next
+	 * 			poll() starts again from the first change that is not applied)
+	 */
+	public synchronized int poll() throws IOException {
+		int nbApplied = 0;
+		List<Change> batch = new ArrayList<Change>(maxBatchSize);
+		try {
+			while (true) {
+				batch.clear();
+				DataInputStream data;
+				while (batch.size() < maxBatchSize && (data = reader.next()) != null)
+					batch.add(new Change(reader.getSequenceNumber(), reader.getKind(), data, reader.getPosition()));
+				if (batch.isEmpty())
+					return nbApplied;
+				nbApplied += apply(batch);
+			}
+		} catch (IOException | RuntimeException e) {
+			// the reader is past the whole batch : it reads again after the last applied change
+			reader = new RefDbReplicationLog.Reader(channel, position);
+			throw e;
+		}
+	}
+
+	/**
+	 * A change read from the log
+	 */
+	private static final class Change {
+
+		Change(long sequenceNumber, byte kind, DataInputStream data, long end) {
+			this.sequenceNumber = sequenceNumber;
+			this.kind = kind;
+			this.data = data;
+			this.end = end;
+		}
+
+		final long sequenceNumber;
+		final byte kind;
+		final DataInputStream data;
+
+		/**
+		 * the offset in the log after the change
+		 */
+		final long end;
+	}
+
+	/**
+	 * apply the given changes under the write lock, with one index pass
+	 *
+	 * @return	the number of applied changes (without the skipped ones)
+	 */
+	private int apply(List<Change> batch) throws IOException {
+		int nbApplied = 0;
+		lock.writeLock().lock();
+		boolean deferring = refDb.deferIndexUpdates();
+		try {
+			for (Change change : batch) {
+				if (change.sequenceNumber <= appliedSequenceNumber) {
+					nbSkippedChanges++;
+				} else {
+					try {
+						apply(change.kind, change.data);
+					} catch (InputFieldNotSpecifiedException | InputFieldNotValidException e) {
+						throw new IOException("change #" + change.sequenceNumber + " cannot be applied", e);
+					}
+					appliedSequenceNumber = change.sequenceNumber;
+					nbApplied++;
+				}
+				position = change.end;
+			}
+		} finally {
+			if (deferring)
+				refDb.applyDeferredIndexUpdates();
+			lock.writeLock().unlock();
+		}
+		return nbApplied;
+	}
+
+	/**
+	 * apply the change of the given kind with the given data : a change that is already made has no effect
+	 */
+	private void apply(byte kind, DataInput data)
+			throws IOException, InputFieldNotSpecifiedException, InputFieldNotValidException {
+		String id = data.readUTF();
+		Publication publication = refDb.getPublicationById(id);
+		refDb.recordIndexEntries(id);
+		switch (kind) {
+		case RefDbReplicationLog.ADD:
+			Publication added = RefDbReplicationLog.readFields(data);
+			List<String> citationIds = RefDbReplicationLog.readIds(data);
+			List<String> citatorIds = RefDbReplicationLog.readIds(data);
+			// an existing publication gets the state of the record, like in a STATE record
+			if (publication == null) {
+				refDb.registerPublication(added, id);
+				publication = added;
+			} else if (publication.getPublicationType() == added.getPublicationType()) {
+				copyFields(added, publication);
+			}
+			for (String citationId : citationIds)
+				addCitation(publication, refDb.getPublicationById(citationId));
+			for (String citatorId : citatorIds)
+				addCitation(refDb.getPublicationById(citatorId), publication);
+			break;
+		case RefDbReplicationLog.REMOVE:
+			refDb.removePublicationFromDb(id);
+			break;
+		case RefDbReplicationLog.STATE:
+			Publication state = RefDbReplicationLog.readFields(data);
+			if (publication != null && publication.getPublicationType() == state.getPublicationType())
+				copyFields(state, publication);
+			break;
+		case RefDbReplicationLog.CITE:
+			addCitation(publication, refDb.getPublicationById(data.readUTF()));
+			break;
+		case RefDbReplicationLog.UNCITE:
+			Publication citation = refDb.getPublicationById(data.readUTF());
+			if (publication != null && citation != null)
+				publication.removeAsCitation(citation);
+			break;
+		default:
+			throw new IOException("unknown change kind " + kind);
+		}
+	}
+
+	/**
+	 * let the given citator cite the given publication, if both are effective and it does not yet
+	 */
+	private static void addCitation(Publication citator, Publication citation) throws InputFieldNotValidException {
+		if (citator != null && citation != null && !citator.hasAsCitation(citation))
+			citator.addAsCitation(citation);
+	}
+
+	/**
+	 * give the target the fields and authors of the source, changing only the fields that differ
+	 */
+	private static void copyFields(Publication source, Publication target)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException {
+		if (!target.getTitle().equals(source.getTitle()))
+			target.setTitle(source.getTitle());
+		if (target.getYearOfPublication() != source.getYearOfPublication())
+			target.setYearOfPublication(source.getYearOfPublication());
+		if (target instanceof JournalArticle) {
+			JournalArticle article = (JournalArticle) target;
+			if (!article.getJournalName().equals(((JournalArticle) source).getJournalName()))
+				article.setJournalName(((JournalArticle) source).getJournalName());
+			if (article.getIssueNumber() != ((JournalArticle) source).getIssueNumber())
+				article.setIssueNumber(((JournalArticle) source).getIssueNumber());
+		} else if (target instanceof ConferencePaper) {
+			ConferencePaper paper = (ConferencePaper) target;
+			if (!paper.getConference().equals(((ConferencePaper) source).getConference()))
+				paper.setConference(((ConferencePaper) source).getConference());
+		} else if (target instanceof Book) {
+			Book book = (Book) target;
+			if (!book.getPublisher().equals(((Book) source).getPublisher()))
+				book.setPublisher(((Book) source).getPublisher());
+		}
+		List<String> authors = source.getAllAuthors();
+		if (!target.getAllAuthors().equals(authors)) {
+			// the new authors first, so the publication never has zero authors
+			int nbOldAuthors = target.getNbAuthors();
+			for (String author : authors)
+				target.addAsAuthor(author);
+			for (int i = 0; i < nbOldAuthors; i++)
+				target.removeAuthorAt(1);
+		}
+	}
+
+	/**
+	 * start a daemon thread that applies the new changes of the log at every poll interval, until stop()
+	 *
+	 * @param 	pollInterval
+	 * 			the time in milliseconds between two polls that found no changes
+	 * @throws 	InputFieldNotValidException
+	 * 			the poll interval is not strictly positive
+	 */
+	public synchronized void start(long pollInterval) throws InputFieldNotValidException {
+		if (pollInterval <= 0)
+			throw new InputFieldNotValidException();
+		if (thread != null)
+			return;
+		thread = new Thread(() -> {
+			while (thread == Thread.currentThread()) {
+				try {
+					if (poll() == 0)
+						LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(pollInterval));
+				} catch (IOException e) {
+					e.printStackTrace();
+					return;
+				}
+			}
+		}, "refdb-replication-follower");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * stop the thread of start() after its current batch
+	 */
+	public void stop() {
+		Thread stopped = thread;
+		thread = null;
+		if (stopped != null)
+			LockSupport.unpark(stopped);
+	}
+
+	private volatile Thread thread;
+
+	/**
+	 * stop the thread of start() and close the log
+	 */
+	@Override
+	public void close() throws IOException {
+		stop();
+		synchronized (this) {
+			channel.close();
+		}
+	}
+
+	/**
+	 * follow the given log from the given snapshot (or from the start), print the lag every second and, if a port
+	 * is given, serve the replica over HTTP (see RefDbHttpServer)
+	 * usage : RefDbReplicationFollower log [snapshot [port]]
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("usage : RefDbReplicationFollower log [snapshot [port]]");
+			return;
+		}
+		RefDbInstance refDb = new RefDbInstance();
+		RefDbHttpServer server = null;
+		if (args.length > 2)
+			server = new RefDbHttpServer(refDb, new InetSocketAddress(Integer.parseInt(args[2])));
+		RefDbReplicationFollower follower = new RefDbReplicationFollower(refDb, Paths.get(args[0]),
+				server != null ? server.getLock() : new ReentrantReadWriteLock(), 1000);
+		if (args.length > 1)
+			follower.bootstrap(Paths.get(args[1]));
+		follower.start(10);
+		if (server != null)
+			server.start();
+		while (true) {
+			System.out.println("applied #" + follower.getAppliedSequenceNumber() + ", "
+					+ refDb.getNbPublications() + " publications, lag " + follower.getLagMillis() + " ms ("
+					+ follower.getLag() + " bytes)");
+			Thread.sleep(1000);
+		}
+	}
+}
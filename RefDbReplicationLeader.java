@@ -0,0 +1,254 @@
+package publicationRefDb;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A class of leaders of a replication : a leader writes every change of its reference database to a log file, that
+ * the followers (RefDbReplicationFollower, possibly in other JVMs on the same machine) read and apply to their own
+ * copy of the reference database.  See RefDbReplicationLog for the format of the log and the snapshot.
+ *
+ * The changes are taken from the change stream of the reference database by a listener, so they are logged in the
+ * order in which they are made, with the state right after the change.  They are written to a buffer, that a
+ * daemon thread writes to the log at every flush interval (or flush() at once) : a batch of changes costs one write.
+ * The publications that are already in the reference database are not in the log : a follower starts from a
+ * snapshot (writeSnapshot()) and reads the log from the offset stored in it.
+ *
+ * An existing log is continued with the next sequence number (a record that is not completely written is dropped),
+ * so a follower that took over the log can become the leader.  Like the reference database, a leader is not thread
+ * safe : writeSnapshot() may not run during a change of the reference database.
+ *
+ * @invar	the reference database of a leader is never null
+ */
+public final class RefDbReplicationLeader implements Closeable {
+
+	/**
+	 * Initialise this new leader, that logs the changes of the given reference database to the given log file
+	 *
+	 * @param 	refDb
+	 * 			the reference database
+	 * @param 	log
+	 * 			the log file (created if it does not exist, continued if it does)
+	 * @param 	flushInterval
+	 * 			the maximum time in milliseconds a change stays in the buffer
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database or the log is null
+	 * @throws 	InputFieldNotValidException
+	 * 			the flush interval is not strictly positive
+	 * @throws 	IOException
+	 * 			the log cannot be opened or is corrupt
+	 */
+	public RefDbReplicationLeader(RefDbInstance refDb, Path log, long flushInterval)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException, IOException {
+		if (refDb == null || log == null)
+			throw new InputFieldNotSpecifiedException();
+		if (flushInterval <= 0)
+			throw new InputFieldNotValidException();
+		this.refDb = refDb;
+		this.flushInterval = flushInterval;
+		this.channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			RefDbReplicationLog.Reader reader = new RefDbReplicationLog.Reader(channel, 0);
+			while (reader.next() != null)
+				sequenceNumber = reader.getSequenceNumber();
+			logLength = reader.getPosition();
+			channel.truncate(logLength);
+			channel.position(logLength);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		OutputStream file = Channels.newOutputStream(channel);
+		this.out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+		this.flusher = new Thread(this::runFlusher, "refdb-replication-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+		refDb.getChangeStream().addListener(listener);
+	}
+
+	private final RefDbInstance refDb;
+	private final FileChannel channel;
+	private final DataOutputStream out;
+	private final long flushInterval;
+	private final Thread flusher;
+
+	/**
+	 * get the reference database of this leader
+	 */
+	public RefDbInstance getRefDb() {
+		return refDb;
+	}
+
+	/**
+	 * get the sequence number of the last logged change (0 if the log is empty)
+	 */
+	public synchronized long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	private long sequenceNumber;
+
+	/**
+	 * get the length of the log in bytes, including the changes that are not flushed yet
+	 */
+	public synchronized long getLogLength() {
+		return logLength;
+	}
+
+	private long logLength;
+
+	private final RefDbChangeListener listener = this::log;
+
+	/**
+	 * the data of the record being logged (only used by the listener, that is called by one thread at a time)
+	 */
+	private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+	private final DataOutputStream record = new DataOutputStream(recordBytes);
+
+	private void log(List<RefDbChangeEvent> events) {
+		for (RefDbChangeEvent event : events) {
+			if (failure != null)
+				return;
+			try {
+				recordBytes.reset();
+				byte kind;
+				Publication publication = event.getPublication();
+				record.writeUTF(event.getReferenceId());
+				switch (event.getType()) {
+				case PUBLICATION_ADDED:
+					kind = RefDbReplicationLog.ADD;
+					RefDbReplicationLog.writeFields(record, publication);
+					RefDbReplicationLog.writeIds(record, publication.getAllCitations());
+					RefDbReplicationLog.writeIds(record, publication.getAllCitators());
+					break;
+				case PUBLICATION_REMOVED:
+					kind = RefDbReplicationLog.REMOVE;
+					break;
+				case CITATION_ADDED:
+				case CITATION_REMOVED:
+					// a citation of an unregistered publication is logged with its publication, when it is added
+					if (event.getCitationId() == null)
+						continue;
+					kind = event.getType() == RefDbChangeType.CITATION_ADDED ? RefDbReplicationLog.CITE
+							: RefDbReplicationLog.UNCITE;
+					record.writeUTF(event.getCitationId());
+					break;
+				default:
+					kind = RefDbReplicationLog.STATE;
+					RefDbReplicationLog.writeFields(record, publication);
+				}
+				synchronized (this) {
+					out.writeInt(RefDbReplicationLog.HEADER_LENGTH - 4 + recordBytes.size());
+					out.writeLong(++sequenceNumber);
+					out.writeLong(event.getTimestamp());
+					out.writeByte(kind);
+					recordBytes.writeTo(out);
+					logLength += RefDbReplicationLog.HEADER_LENGTH + recordBytes.size();
+				}
+			} catch (IOException e) {
+				// the change itself is made : the leader stops logging, flush() reports the failure
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * the failure that stopped the logging, or null
+	 */
+	private volatile IOException failure;
+
+	/**
+	 * write the buffered changes to the log
+	 *
+	 * @throws 	IOException
+	 * 			the log cannot be written (the changes since the failure are not logged)
+	 */
+	public synchronized void flush() throws IOException {
+		if (failure != null)
+			throw failure;
+		try {
+			out.flush();
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		}
+	}
+
+	private void runFlusher() {
+		while (!closed) {
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(flushInterval));
+			if (closed)
+				return;
+			try {
+				flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+		}
+	}
+
+	private volatile boolean closed;
+
+	/**
+	 * write a snapshot of the reference database to the given file, with the sequence number and the length of the
+	 * log at this moment : a follower that loads it continues with the next change of the log
+	 *
+	 * @param 	snapshot
+	 * 			the file to write (replaced at once when it is complete)
+	 * @throws 	IOException
+	 * 			the snapshot cannot be written
+	 */
+	public synchronized void writeSnapshot(Path snapshot) throws IOException {
+		Path file = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+		try (DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+				1 << 16))) {
+			snapshotOut.writeInt(RefDbReplicationLog.SNAPSHOT_MAGIC);
+			snapshotOut.writeLong(sequenceNumber);
+			snapshotOut.writeLong(logLength);
+			Map<String, Publication> idTable = refDb.getIdTable();
+			snapshotOut.writeInt(idTable.size());
+			for (Map.Entry<String, Publication> entry : idTable.entrySet()) {
+				snapshotOut.writeUTF(entry.getKey());
+				RefDbReplicationLog.writeFields(snapshotOut, entry.getValue());
+				RefDbReplicationLog.writeIds(snapshotOut, entry.getValue().getAllCitations());
+			}
+		}
+		Files.move(file, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * stop logging, write the buffered changes to the log and close it
+	 *
+	 * @throws 	IOException
+	 * 			the buffered changes cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		refDb.getChangeStream().removeListener(listener);
+		LockSupport.unpark(flusher);
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package publicationRefDb;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class of helpers for the files of the replication (used by RefDbReplicationLeader and RefDbReplicationFollower).
+ *
+ * The log is a sequence of records, each one a change of the leader :
+ * 		length (int, of the rest of the record)	sequence number (long)	timestamp (long)	kind (byte)	data
+ * with as data the ID of the changed publication, followed by
+ * 		ADD		the fields of the publication, the IDs of its citations and the IDs of its citators
+ * 		REMOVE	nothing
+ * 		STATE	the fields of the publication (after a change of its title, year, venue or authors)
+ * 		CITE	the ID of the cited publication
+ * 		UNCITE	the ID of the cited publication
+ * The fields are the type, title, year, venue (journal name and issue number, conference or publisher) and the
+ * authors in default name format.  Every record describes the state after the change, so applying it twice has
+ * the same effect as applying it once.
+ *
+ * The snapshot is a header (SNAPSHOT_MAGIC, the sequence number of the last change it holds, and the length of the
+ * log at that change), the number of publications, and per publication its ID, fields and the IDs of its citations.
+ */
+final class RefDbReplicationLog {
+
+	private RefDbReplicationLog() {
+	}
+
+	static final int SNAPSHOT_MAGIC = 0x52444253;
+
+	static final byte ADD = 1;
+	static final byte REMOVE = 2;
+	static final byte STATE = 3;
+	static final byte CITE = 4;
+	static final byte UNCITE = 5;
+
+	/**
+	 * the number of bytes of a record before its data
+	 */
+	static final int HEADER_LENGTH = 4 + 8 + 8 + 1;
+
+	/**
+	 * write the fields of the given publication
+	 */
+	static void writeFields(DataOutput out, Publication publication) throws IOException {
+		out.writeByte(publication.getPublicationType().ordinal());
+		out.writeUTF(publication.getTitle());
+		out.writeInt(publication.getYearOfPublication());
+		if (publication instanceof JournalArticle) {
+			out.writeUTF(((JournalArticle) publication).getJournalName());
+			out.writeInt(((JournalArticle) publication).getIssueNumber());
+		} else if (publication instanceof ConferencePaper) {
+			out.writeUTF(((ConferencePaper) publication).getConference());
+		} else if (publication instanceof Book) {
+			out.writeUTF(((Book) publication).getPublisher());
+		}
+		List<String> authors = publication.getAllAuthors();
+		out.writeInt(authors.size());
+		for (String author : authors)
+			out.writeUTF(author);
+	}
+
+	/**
+	 * read the fields written by writeFields() into a new, unregistered publication
+	 *
+	 * @throws 	IOException
+	 * 			the fields cannot be read, or they are not valid
+	 */
+	static Publication readFields(DataInput in) throws IOException {
+		int type = in.readByte();
+		String title = in.readUTF();
+		int year = in.readInt();
+		String venue = null;
+		int issueNumber = 0;
+		if (type == PublicationType.JOURNALARTICLE.ordinal()) {
+			venue = in.readUTF();
+			issueNumber = in.readInt();
+		} else if (type == PublicationType.CONFERENCEPAPER.ordinal() || type == PublicationType.BOOK.ordinal()) {
+			venue = in.readUTF();
+		} else {
+			throw new IOException("unknown publication type " + type);
+		}
+		String[] authors = new String[in.readInt()];
+		for (int i = 0; i < authors.length; i++)
+			authors[i] = in.readUTF();
+		try {
+			if (type == PublicationType.JOURNALARTICLE.ordinal())
+				return new JournalArticle(title, venue, issueNumber, year, authors);
+			if (type == PublicationType.CONFERENCEPAPER.ordinal())
+				return new ConferencePaper(title, year, venue, authors);
+			return new Book(title, year, venue, authors);
+		} catch (InputFieldNotSpecifiedException | InputFieldNotValidException e) {
+			throw new IOException("publication not valid : " + title, e);
+		}
+	}
+
+	/**
+	 * write the IDs of the given publications that are registered
+	 */
+	static void writeIds(DataOutput out, Iterable<Publication> publications) throws IOException {
+		List<String> ids = new ArrayList<String>();
+		for (Publication publication : publications)
+			if (publication.hasReferenceId())
+				ids.add(publication.getReferenceId());
+		out.writeInt(ids.size());
+		for (String id : ids)
+			out.writeUTF(id);
+	}
+
+	static List<String> readIds(DataInput in) throws IOException {
+		int nbIds = in.readInt();
+		List<String> ids = new ArrayList<String>(nbIds);
+		for (int i = 0; i < nbIds; i++)
+			ids.add(in.readUTF());
+		return ids;
+	}
+
+	/**
+	 * A reader of the complete records of a log from a given offset on : a record that is not completely written yet
+	 * is read by a later call of next(), when it is
+	 */
+	static final class Reader {
+
+		Reader(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+			this.filePosition = position;
+			buffer.limit(0);
+		}
+
+		private final FileChannel channel;
+
+		/**
+		 * the bytes read from the file and not yet consumed, from buffer.position() to buffer.limit()
+		 */
+		private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		/**
+		 * the offset in the file of buffer.limit()
+		 */
+		private long filePosition;
+
+		/**
+		 * get the offset in the log after the last record read
+		 */
+		long getPosition() {
+			return position;
+		}
+
+		private long position;
+
+		/**
+		 * get the sequence number of the last record read
+		 */
+		long getSequenceNumber() {
+			return sequenceNumber;
+		}
+
+		private long sequenceNumber;
+
+		/**
+		 * get the timestamp of the last record read
+		 */
+		long getTimestamp() {
+			return timestamp;
+		}
+
+		private long timestamp;
+
+		/**
+		 * get the kind of the last record read
+		 */
+		byte getKind() {
+			return kind;
+		}
+
+		private byte kind;
+
+		/**
+		 * read the next record
+		 *
+		 * @return	the data of the record, or null if the log ends before the end of the record
+		 * @throws 	IOException
+		 * 			the log cannot be read or is corrupt
+		 */
+		DataInputStream next() throws IOException {
+			if (!fill(4))
+				return null;
+			int length = buffer.getInt(buffer.position());
+			if (length < HEADER_LENGTH - 4)
+				throw new IOException("corrupt log at offset " + position);
+			if (!fill(4 + length))
+				return null;
+			buffer.getInt();
+			sequenceNumber = buffer.getLong();
+			timestamp = buffer.getLong();
+			kind = buffer.get();
+			byte[] data = new byte[length - (HEADER_LENGTH - 4)];
+			buffer.get(data);
+			position += 4 + length;
+			return new DataInputStream(new ByteArrayInputStream(data));
+		}
+
+		/**
+		 * read from the file until the buffer holds at least the given number of bytes
+		 *
+		 * @return	false if the file ends before
+		 */
+		private boolean fill(int nbBytes) throws IOException {
+			while (buffer.remaining() < nbBytes) {
+				if (buffer.capacity() < nbBytes) {
+					ByteBuffer larger = ByteBuffer.allocate(Math.max(nbBytes, 2 * buffer.capacity()));
+					larger.put(buffer).flip();
+					buffer = larger;
+				}
+				buffer.compact();
+				int nbRead = channel.read(buffer, filePosition);
+				buffer.flip();
+				if (nbRead <= 0)
+					return false;
+				filePosition += nbRead;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,296 @@
+package publicationRefDb;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A class of transactions of a reference database : a number of changes (publications, titles, years, authors,
+ * citations) that are buffered, and applied together by commit() : all of them, or, if one fails, none.
+ *
+ * The changes are applied in order to the publications with their usual checks, and every applied change records
+ * how to undo it; when a change fails, the applied changes are undone in reverse order.  During the commit the
+ * author and title word index are left alone : their entries are brought in line with the publications at the end,
+ * in one pass that updates every touched author key and title word only once (also after a rollback), so batches
+ * of changes need less index work than the same changes one by one.
+ * The change events of the applied changes are published as the changes are applied, and those of the undone
+ * changes by the rollback.  Like the reference database, a transaction is not thread safe.
+ *
+ * @invar	the reference database of a transaction is never null
+ */
+public final class RefDbTransaction {
+
+	/**
+	 * Initialise this new, empty transaction on the given reference database
+	 */
+	RefDbTransaction(RefDbInstance refDb) {
+		this.refDb = refDb;
+	}
+
+	private final RefDbInstance refDb;
+
+	/**
+	 * get the reference database of this transaction
+	 */
+	public RefDbInstance getRefDb() {
+		return refDb;
+	}
+
+	/**
+	 * get the number of buffered operations
+	 */
+	public int getNbOperations() {
+		return operations.size();
+	}
+
+	/**
+	 * drop all buffered operations
+	 */
+	public void clear() {
+		operations.clear();
+	}
+
+	/**
+	 * A buffered operation : the IDs of the publications it changes (known before it is applied), and the change
+	 */
+	private static final class Operation {
+
+		Operation(Change change, String... ids) {
+			this.change = change;
+			this.ids = ids;
+		}
+
+		final Change change;
+		final String[] ids;
+	}
+
+	private interface Change {
+
+		/**
+		 * apply this change
+		 *
+		 * @return	the action that undoes it
+		 */
+		Undo apply() throws Exception;
+	}
+
+	private interface Undo {
+
+		void undo() throws Exception;
+	}
+
+	private final List<Operation> operations = new ArrayList<Operation>();
+
+	/**
+	 * add the given publication to the reference database (it gets its referenceId on commit)
+	 *
+	 * @throws 	PublicationIsNullException
+	 */
+	public RefDbTransaction addPublication(Publication publication) throws PublicationIsNullException {
+		if (publication == null)
+			throw new PublicationIsNullException();
+		operations.add(new Operation(() -> {
+			refDb.addPublicationToDb(publication);
+			String id = publication.getReferenceId();
+			return () -> refDb.removePublicationFromDb(id);
+		}));
+		return this;
+	}
+
+	/**
+	 * remove the publication with the given ID from the reference database
+	 */
+	public RefDbTransaction removePublication(String id) {
+		operations.add(new Operation(() -> {
+			Publication publication = getPublication(id);
+			List<Publication> citations = new ArrayList<Publication>(publication.getAllCitations());
+			List<Publication> citators = new ArrayList<Publication>(publication.getAllCitators());
+			refDb.removePublicationFromDb(id);
+			return () -> {
+				refDb.registerPublication(publication, id);
+				for (Publication citation : citations)
+					publication.addAsCitation(citation);
+				for (Publication citator : citators)
+					citator.addAsCitation(publication);
+			};
+		}, id));
+		return this;
+	}
+
+	/**
+	 * set the title of the publication with the given ID
+	 */
+	public RefDbTransaction setTitle(String id, String title) {
+		operations.add(new Operation(() -> {
+			Publication publication = getPublication(id);
+			String oldTitle = publication.getTitle();
+			publication.setTitle(title);
+			return () -> publication.setTitle(oldTitle);
+		}, id));
+		return this;
+	}
+
+	/**
+	 * set the year of publication of the publication with the given ID
+	 */
+	public RefDbTransaction setYearOfPublication(String id, int year) {
+		operations.add(new Operation(() -> {
+			Publication publication = getPublication(id);
+			int oldYear = publication.getYearOfPublication();
+			publication.setYearOfPublication(year);
+			return () -> publication.setYearOfPublication(oldYear);
+		}, id));
+		return this;
+	}
+
+	/**
+	 * add the given author (default name format, e.g. King, Martin Luther) as the last author of the publication
+	 * with the given ID
+	 */
+	public RefDbTransaction addAuthor(String id, String name) {
+		operations.add(new Operation(() -> {
+			Publication publication = getPublication(id);
+			publication.addAsAuthor(name);
+			int rank = publication.getNbAuthors();
+			return () -> publication.removeAuthorAt(rank);
+		}, id));
+		return this;
+	}
+
+	/**
+	 * add the given author (default name format) at the given rank of the publication with the given ID
+	 */
+	public RefDbTransaction addAuthorAt(String id, String name, int rank) {
+		operations.add(new Operation(() -> {
+			Publication publication = getPublication(id);
+			publication.addAuthorAt(name, rank);
+			return () -> publication.removeAuthorAt(rank);
+		}, id));
+		return this;
+	}
+
+	/**
+	 * remove the author at the given rank of the publication with the given ID
+	 */
+	public RefDbTransaction removeAuthorAt(String id, int rank) {
+		operations.add(new Operation(() -> {
+			Publication publication = getPublication(id);
+			String name = publication.getAuthorAt(rank);
+			publication.removeAuthorAt(rank);
+			return () -> publication.addAuthorAt(name, rank);
+		}, id));
+		return this;
+	}
+
+	/**
+	 * let the publication with the first ID cite the publication with the second ID
+	 */
+	public RefDbTransaction addCitation(String citatorId, String citationId) {
+		operations.add(new Operation(() -> {
+			Publication citator = getPublication(citatorId);
+			Publication citation = getPublication(citationId);
+			if (citator.hasAsCitation(citation))
+				return () -> {
+				};
+			citator.addAsCitation(citation);
+			return () -> citator.removeAsCitation(citation);
+		}, citatorId, citationId));
+		return this;
+	}
+
+	/**
+	 * remove the citation of the publication with the second ID by the publication with the first ID
+	 */
+	public RefDbTransaction removeCitation(String citatorId, String citationId) {
+		operations.add(new Operation(() -> {
+			Publication citator = getPublication(citatorId);
+			Publication citation = getPublication(citationId);
+			if (!citator.hasAsCitation(citation))
+				return () -> {
+				};
+			citator.removeAsCitation(citation);
+			return () -> citator.addAsCitation(citation);
+		}, citatorId, citationId));
+		return this;
+	}
+
+	/**
+	 * let the commit fail if the publication with the given ID has another version than the given version : the 
+	 * publication is held from this operation until the end of the commit, so no conditional update of another 
+	 * editor comes in between (put the expectations before the changes, which increment the version)
+	 */
+	public RefDbTransaction expectVersion(String id, long expectedVersion) {
+		operations.add(new Operation(() -> {
+			Publication publication = getPublication(id);
+			if (!publication.claimVersion(expectedVersion))
+				throw new VersionConflictException(id, expectedVersion, publication.getVersion());
+			claimed.add(publication);
+			return () -> {
+			};
+		}));
+		return this;
+	}
+
+	/**
+	 * the publications held by the expectations of the running commit
+	 */
+	private final List<Publication> claimed = new ArrayList<Publication>();
+
+	private Publication getPublication(String id) throws IdNotInReferenceDbException {
+		Publication publication = refDb.getPublicationById(id);
+		if (publication == null)
+			throw new IdNotInReferenceDbException(id);
+		return publication;
+	}
+
+	/**
+	 * apply all buffered operations in order, and drop them
+	 *
+	 * @throws 	TransactionFailedException
+	 * 			one of the operations failed (its exception is the cause) : the operations before it are undone
+	 * @post	if an exception is thrown, the publications and the indexes of the reference database are as before
+	 * @post	the transaction has no buffered operations
+	 */
+	public void commit() throws TransactionFailedException {
+		long start = refDb.getMetrics().start();
+		// a transaction committed by a listener during another commit shares its index pass
+		boolean deferring = refDb.deferIndexUpdates();
+		Deque<Undo> undos = new ArrayDeque<Undo>(operations.size());
+		try {
+			for (int i = 0; i < operations.size(); i++) {
+				Operation operation = operations.get(i);
+				try {
+					for (String id : operation.ids)
+						refDb.recordIndexEntries(id);
+					undos.push(operation.change.apply());
+				} catch (Exception e) {
+					rollback(undos);
+					throw new TransactionFailedException(i + 1, e);
+				}
+			}
+		} finally {
+			operations.clear();
+			for (Publication publication : claimed)
+				publication.releaseVersion();
+			claimed.clear();
+			if (deferring)
+				refDb.applyDeferredIndexUpdates();
+			refDb.getMetrics().stop(RefDbOperation.COMMIT_TRANSACTION, start);
+		}
+	}
+
+	/**
+	 * undo the applied operations, the last one first
+	 */
+	private static void rollback(Deque<Undo> undos) {
+		while (!undos.isEmpty()) {
+			try {
+				undos.pop().undo();
+			} catch (Exception e) {
+				assert false; // cannot occur : every undo restores a state that was valid before
+				e.printStackTrace();
+			}
+		}
+	}
+}
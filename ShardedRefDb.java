@@ -0,0 +1,673 @@
+package publicationRefDb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * A class of reference databases that partition their publications over a fixed number of in-process shards.
+ * Every shard is a RefDbInstance with its own idTable and indexes; a publication lives in the shard given by
+ * the hash of its referenceId (getShardIndex()).  The IDs are assigned by this database, so they are unique
+ * over all shards, and the duplicate check covers all shards.
+ *
+ * Queries scatter over the shards in parallel on a fork join pool and gather the results :
+ * the index queries and the citation index query every shard, the transitive closure expands each level of
+ * the cited-by relation per shard.  The duplicate check of a new publication queries every shard in parallel,
+ * and a batch of publications is checked and registered in parallel as well (addPublicationsToDb()).
+ *
+ * Every shard is guarded by a read write lock, so the methods of this class may be called from several threads.
+ * Citations between shards lock both shards; removing a publication locks all shards.  Changes made directly
+ * on a registered publication (e.g. setTitle()) are not guarded and may not run concurrently with other methods.
+ *
+ * @invar	a sharded reference database has at least one shard
+ * @invar	every registered publication is registered in the shard getShardIndex(referenceId)
+ * @invar	the fork join pool of a sharded reference database is never null
+ */
+public final class ShardedRefDb {
+
+	/**
+	 * Initialise this new sharded reference database with the given number of empty shards, on the common fork join pool
+	 *
+	 * @param 	nbShards
+	 * 			the number of shards
+	 * @throws 	InputFieldNotValidException
+	 * 			the number of shards is not strictly positive
+	 */
+	public ShardedRefDb(int nbShards) throws InputFieldNotValidException {
+		if (nbShards <= 0)
+			throw new InputFieldNotValidException();
+		shards = new RefDbInstance[nbShards];
+		locks = new ReentrantReadWriteLock[nbShards];
+		for (int i = 0; i < nbShards; i++) {
+			shards[i] = new RefDbInstance();
+			locks[i] = new ReentrantReadWriteLock();
+		}
+		pool = ForkJoinPool.commonPool();
+	}
+
+	private final RefDbInstance[] shards;
+	private final ReentrantReadWriteLock[] locks;
+
+	/**
+	 * get the number of shards of this database
+	 */
+	public int getNbShards() {
+		return shards.length;
+	}
+
+	/**
+	 * get the shard with the given index, e.g. to read its metrics
+	 * (the shard must not be changed directly, only through this database)
+	 *
+	 * @param 	shardIndex
+	 * 			the index of the shard (0 <= shardIndex < getNbShards())
+	 * @throws 	InputFieldNotValidException
+	 * 			the index is out of range
+	 */
+	public RefDbInstance getShard(int shardIndex) throws InputFieldNotValidException {
+		if (shardIndex < 0 || shardIndex >= getNbShards())
+			throw new InputFieldNotValidException();
+		return shards[shardIndex];
+	}
+
+	/**
+	 * get the index of the shard in which the publication with the given ID is (or would be) registered
+	 *
+	 * @param 	id
+	 * 			an effective ID
+	 * @return	the hash of the ID, spread over the shards
+	 */
+	public int getShardIndex(String id) {
+		int hash = id.hashCode() * 0x9E3779B9;
+		return Math.floorMod(hash ^ (hash >>> 16), getNbShards());
+	}
+
+	private RefDbInstance getShardFor(String id) {
+		return shards[getShardIndex(id)];
+	}
+
+	/**
+	 * get the fork join pool on which the shards are queried
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * set the fork join pool on which the shards are queried
+	 *
+	 * @param 	pool
+	 * 			the fork join pool to use
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the pool is null
+	 */
+	public void setPool(ForkJoinPool pool) throws InputFieldNotSpecifiedException {
+		if (pool == null)
+			throw new InputFieldNotSpecifiedException();
+		this.pool = pool;
+	}
+
+	private volatile ForkJoinPool pool;
+
+	private final AtomicLong idCounter = new AtomicLong();
+
+	// serialises the duplicate check and the registration of new publications
+	private final Object registrationLock = new Object();
+
+	/**
+	 * get the number of publications in all shards
+	 */
+	public int getNbPublications() {
+		int nbPublications = 0;
+		for (int i = 0; i < getNbShards(); i++) {
+			locks[i].readLock().lock();
+			try {
+				nbPublications += shards[i].getNbPublications();
+			} finally {
+				locks[i].readLock().unlock();
+			}
+		}
+		return nbPublications;
+	}
+
+	/**
+	 * get the publication with the given ID
+	 *
+	 * @param 	id
+	 * 			the ID of the publication
+	 * @return	the publication with the given ID, or null if not present
+	 */
+	public Publication getPublicationById(String id) {
+		if (id == null)
+			return null;
+		int shardIndex = getShardIndex(id);
+		locks[shardIndex].readLock().lock();
+		try {
+			return shards[shardIndex].getPublicationById(id);
+		} finally {
+			locks[shardIndex].readLock().unlock();
+		}
+	}
+
+	/**
+	 * check if the given ID is present in this database
+	 */
+	public boolean hasIdinDb(String id) {
+		return getPublicationById(id) != null;
+	}
+
+	/**
+	 * add a publication to this database : it gets a unique ID and is registered in the shard of that ID
+	 *
+	 * @param 	publication
+	 *          the publication to be added
+	 * @throws 	PublicationIsNullException
+	 * @throws 	DuplicateEntryRefDbException
+	 * 			the publication is already registered, or is equal to a publication in one of the shards
+	 * @post 	the publication has a unique referenceID and is registered in the shard of that ID
+	 */
+	public void addPublicationToDb(Publication publication)
+			throws PublicationIsNullException, DuplicateEntryRefDbException {
+		if (publication == null)
+			throw new PublicationIsNullException();
+		if (publication.getReferenceId() != null)
+			throw new PublicationAlreadyInDbException();
+		synchronized (registrationLock) {
+			if (scatter(getNbShards(), shardIndex -> hasSamePublicationInShard(shardIndex, publication)).contains(true))
+				throw new PublicationDuplicateValueException();
+			register(Collections.singletonList(publication), new String[] { nextId() });
+		}
+	}
+
+	/**
+	 * add a batch of publications to this database.  The duplicate check runs in parallel over the publications,
+	 * then every shard registers its part of the batch in parallel.
+	 * A publication that is equal to a registered publication, or to an earlier publication of the batch, is skipped.
+	 *
+	 * @param 	publications
+	 * 			the publications to be added
+	 * @return	the referenceIds of the added publications, in the order of the batch (null for a skipped duplicate)
+	 * @throws 	PublicationIsNullException
+	 * 			the batch or one of its publications is null
+	 * @throws 	PublicationAlreadyInDbException
+	 * 			one of the publications is already registered (nothing is added)
+	 */
+	public String[] addPublicationsToDb(List<? extends Publication> publications)
+			throws PublicationIsNullException, PublicationAlreadyInDbException {
+		if (publications == null)
+			throw new PublicationIsNullException();
+		for (Publication publication : publications) {
+			if (publication == null)
+				throw new PublicationIsNullException();
+			if (publication.getReferenceId() != null)
+				throw new PublicationAlreadyInDbException();
+		}
+		String[] ids = new String[publications.size()];
+		synchronized (registrationLock) {
+			boolean[] duplicate = new boolean[publications.size()];
+			List<Boolean> inDb = scatter(publications.size(), i -> {
+				for (int shardIndex = 0; shardIndex < getNbShards(); shardIndex++)
+					if (hasSamePublicationInShard(shardIndex, publications.get(i)))
+						return true;
+				return false;
+			});
+			// duplicates within the batch : equal publications have the same title (case insensitive) and year
+			Map<String, List<Publication>> batchKeys = new HashMap<String, List<Publication>>();
+			List<Publication> toRegister = new ArrayList<Publication>();
+			List<String> toRegisterIds = new ArrayList<String>();
+			for (int i = 0; i < publications.size(); i++) {
+				Publication publication = publications.get(i);
+				duplicate[i] = inDb.get(i);
+				List<Publication> sameKey = batchKeys.computeIfAbsent(
+						publication.getTitle().toLowerCase() + '\t' + publication.getYearOfPublication(),
+						key -> new ArrayList<Publication>());
+				for (Publication earlier : sameKey) {
+					if (publication.isEqualTo(earlier))
+						duplicate[i] = true;
+				}
+				if (duplicate[i])
+					continue;
+				sameKey.add(publication);
+				ids[i] = nextId();
+				toRegister.add(publication);
+				toRegisterIds.add(ids[i]);
+			}
+			register(toRegister, toRegisterIds.toArray(new String[0]));
+		}
+		return ids;
+	}
+
+	private String nextId() {
+		return Long.toString(idCounter.incrementAndGet());
+	}
+
+	/**
+	 * check if the shard with the given index has a publication equal to the given publication
+	 */
+	private boolean hasSamePublicationInShard(int shardIndex, Publication publication) {
+		locks[shardIndex].readLock().lock();
+		try {
+			return shards[shardIndex].hasSamePublicationInDb(publication);
+		} finally {
+			locks[shardIndex].readLock().unlock();
+		}
+	}
+
+	/**
+	 * register the given publications under the given IDs, every shard its own part in parallel
+	 */
+	private void register(List<Publication> publications, String[] ids) {
+		List<List<Integer>> perShard = new ArrayList<List<Integer>>();
+		for (int i = 0; i < getNbShards(); i++)
+			perShard.add(new ArrayList<Integer>());
+		for (int i = 0; i < ids.length; i++)
+			perShard.get(getShardIndex(ids[i])).add(i);
+		scatter(getNbShards(), shardIndex -> {
+			locks[shardIndex].writeLock().lock();
+			try {
+				RefDbMetrics metrics = shards[shardIndex].getMetrics();
+				for (int i : perShard.get(shardIndex)) {
+					long start = metrics.start();
+					shards[shardIndex].registerPublication(publications.get(i), ids[i]);
+					metrics.stop(RefDbOperation.ADD_PUBLICATION, start);
+				}
+			} finally {
+				locks[shardIndex].writeLock().unlock();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * remove the publication with the given ID from this database, together with all its citations and citators
+	 * (if the given id is not present in the DB, this method will do nothing)
+	 *
+	 * @param 	id
+	 *          the id of the publication to be removed
+	 * @post 	the publication with the given ID will have a non-effective referenceID and is
+	 *       	not present in any shard
+	 */
+	public void removePublicationFromDb(String id) {
+		if (id == null)
+			return;
+		// the citations and citators of the publication may be in any shard
+		lockAll();
+		try {
+			getShardFor(id).removePublicationFromDb(id);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * set the titles of many publications at once : the titles are grouped per shard, and every shard updates its
+	 * title word index once for its group, in parallel on the pool of this database
+	 *
+	 * @param 	titles
+	 * 			the new title per ID of a publication of this database
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the map is null, or one of the titles is null or blank
+	 * @throws 	IdNotInReferenceDbException
+	 * 			one of the IDs is not present in this database
+	 * @post 	if an exception is thrown, no title is changed
+	 */
+	public void setTitles(Map<String, String> titles) throws InputFieldNotSpecifiedException, IdNotInReferenceDbException {
+		if (titles == null)
+			throw new InputFieldNotSpecifiedException();
+		List<Map<String, String>> groups = new ArrayList<Map<String, String>>(shards.length);
+		for (int i = 0; i < shards.length; i++)
+			groups.add(new HashMap<String, String>());
+		for (Map.Entry<String, String> entry : titles.entrySet()) {
+			if (entry.getKey() == null)
+				throw new IdNotInReferenceDbException(null);
+			if (entry.getValue() == null)
+				throw new TitleIsNullException();
+			if ("".equals(entry.getValue().trim()))
+				throw new TitleIsBlankException();
+			groups.get(getShardIndex(entry.getKey())).put(entry.getKey(), entry.getValue());
+		}
+		// this thread holds all write locks while the tasks of the pool change the shards
+		lockAll();
+		try {
+			for (Map.Entry<String, String> entry : titles.entrySet())
+				if (!getShardFor(entry.getKey()).hasIdinDb(entry.getKey()))
+					throw new IdNotInReferenceDbException(entry.getKey());
+			scatter(shards.length, shardIndex -> {
+				try {
+					shards[shardIndex].setTitles(groups.get(shardIndex));
+				} catch (InputFieldNotSpecifiedException | IdNotInReferenceDbException e) {
+					assert false; // cannot occur : the titles and IDs are checked above
+				}
+				return null;
+			});
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * adds a citation.  The ID given first (=citator) cites the ID given second (=citation), both may be in any shard
+	 *
+	 * @param 	idCitator
+	 * 			the ID of the publication that cites the citation
+	 * @param 	idCitation
+	 * 			the ID of the publication that is cited by the citator
+	 * @throws 	IdNotInReferenceDbException
+	 * @throws 	InputFieldNotValidException
+	 */
+	public void addCitationReference(String idCitator, String idCitation)
+			throws IdNotInReferenceDbException, InputFieldNotValidException {
+		changeCitationReference(idCitator, idCitation, true);
+	}
+
+	/**
+	 * removes a citation.  The ID given first (=citator) cites the ID given second (=citation), both may be in any shard
+	 *
+	 * @param 	idCitator
+	 * 			the ID of the publication that cites the citation
+	 * @param 	idCitation
+	 * 			the ID of the publication that is cited by the citator
+	 * @throws 	IdNotInReferenceDbException
+	 * @throws 	InputFieldNotValidException
+	 */
+	public void removeCitationReference(String idCitator, String idCitation)
+			throws IdNotInReferenceDbException, InputFieldNotValidException {
+		changeCitationReference(idCitator, idCitation, false);
+	}
+
+	private void changeCitationReference(String idCitator, String idCitation, boolean add)
+			throws IdNotInReferenceDbException, InputFieldNotValidException {
+		if (idCitator == null)
+			throw new IdNotValidException(idCitator);
+		if (idCitation == null)
+			throw new IdNotValidException(idCitation);
+		// both shards are locked in ascending order, so two citations between the same shards cannot deadlock
+		int shardCitator = getShardIndex(idCitator);
+		int shardCitation = getShardIndex(idCitation);
+		int first = Math.min(shardCitator, shardCitation);
+		int second = Math.max(shardCitator, shardCitation);
+		locks[first].writeLock().lock();
+		if (second != first)
+			locks[second].writeLock().lock();
+		try {
+			Publication citator = shards[shardCitator].getPublicationById(idCitator);
+			Publication citation = shards[shardCitation].getPublicationById(idCitation);
+			if (citator == null)
+				throw new IdNotInReferenceDbException(idCitator);
+			if (citation == null)
+				throw new IdNotInReferenceDbException(idCitation);
+			RefDbMetrics metrics = shards[shardCitator].getMetrics();
+			long start = metrics.start();
+			try {
+				if (add)
+					citator.addAsCitation(citation);
+				else
+					citator.removeAsCitation(citation);
+			} finally {
+				metrics.stop(add ? RefDbOperation.ADD_CITATION : RefDbOperation.REMOVE_CITATION, start);
+			}
+		} finally {
+			if (second != first)
+				locks[second].writeLock().unlock();
+			locks[first].writeLock().unlock();
+		}
+	}
+
+	/**
+	 * get all publications of the given author (name in index format, e.g. M. L. King), gathered from all shards in parallel
+	 *
+	 * @param 	authorName
+	 * @throws 	AuthorNameIsNullException
+	 * @return	the set of publications of the given author (empty if none)
+	 */
+	public Set<Publication> getPublicationsByAuthorName(String authorName) throws AuthorNameIsNullException {
+		if (authorName == null)
+			throw new AuthorNameIsNullException();
+		return gatherSets(shardIndex -> {
+			try {
+				return shards[shardIndex].getPublicationsByAuthorName(authorName);
+			} catch (AuthorNameIsNullException e) {
+				assert false; // cannot occur
+				return Collections.<Publication>emptySet();
+			}
+		});
+	}
+
+	/**
+	 * get all publications with the given word in their title, gathered from all shards in parallel
+	 *
+	 * @param 	word
+	 * @throws 	WordIsNullException
+	 * @return	the set of publications with the given word in their title (empty if none)
+	 */
+	public Set<Publication> getPublicationsByTitleWord(String word) throws WordIsNullException {
+		if (word == null)
+			throw new WordIsNullException();
+		return gatherSets(shardIndex -> {
+			try {
+				return shards[shardIndex].getPublicationsByTitleWord(word);
+			} catch (WordIsNullException e) {
+				assert false; // cannot occur
+				return Collections.<Publication>emptySet();
+			}
+		});
+	}
+
+	/**
+	 * query every shard in parallel under its read lock and merge the resulting sets
+	 */
+	private Set<Publication> gatherSets(IntFunction<Set<Publication>> query) {
+		Set<Publication> result = new HashSet<Publication>();
+		for (Set<Publication> part : scatter(getNbShards(), shardIndex -> {
+			locks[shardIndex].readLock().lock();
+			try {
+				return query.apply(shardIndex);
+			} finally {
+				locks[shardIndex].readLock().unlock();
+			}
+		}))
+			result.addAll(part);
+		return result;
+	}
+
+	/**
+	 * get the citation index of the given author (see RefDbInstance.getCitationIndex()) : every shard sums the
+	 * citation scores of the citators of its publications of the author in parallel
+	 *
+	 * @param 	authorName
+	 * 			name of the author in the default name format (e.g. King, Martin Luther)
+	 * @throws 	AuthorNotInDbException
+	 * 			the author has no publications in any shard
+	 * @throws 	AuthorNameNotValidException
+	 * @return	the citation index of the given author
+	 */
+	public double getCitationIndex(String authorName) throws AuthorNotInDbException, AuthorNameNotValidException {
+		if (!Publication.isValidAuthorName(authorName))
+			throw new AuthorNameNotValidException();
+		// the citators may be in any shard
+		lockAllForReading();
+		try {
+			double citationIndex = 0;
+			boolean authorFound = false;
+			for (double part : scatter(getNbShards(), shardIndex -> {
+				try {
+					return shards[shardIndex].getCitationIndex(authorName);
+				} catch (AuthorNotInDbException e) {
+					return Double.NaN;
+				} catch (AuthorNameNotValidException e) {
+					assert false; // cannot occur
+					return Double.NaN;
+				}
+			})) {
+				if (!Double.isNaN(part)) {
+					citationIndex += part;
+					authorFound = true;
+				}
+			}
+			if (!authorFound)
+				throw new AuthorNotInDbException();
+			return citationIndex;
+		} finally {
+			unlockAllForReading();
+		}
+	}
+
+	/**
+	 * get all publications that directly or indirectly cite the given publication
+	 * (the same set as RefDbInstance.getTransitiveClosureCitedBy()).
+	 * The closure is expanded level by level : the publications of a level are grouped by their shard and
+	 * every shard expands its group in parallel under its own read lock, then the new citators are merged
+	 * into the next level.  Publications that are not registered are expanded with the first shard.
+	 *
+	 * @param 	publication
+	 * 			publication for which the transitive closure of the cited relation will be composed
+	 * @return	a set of publications that directly or indirectly cite the given publication (empty if none)
+	 */
+	public Set<Publication> getTransitiveClosureCitedBy(Publication publication) {
+		Set<Publication> visited = ConcurrentHashMap.newKeySet();
+		List<Publication> level = Collections.singletonList(publication);
+		while (!level.isEmpty()) {
+			List<List<Publication>> perShard = new ArrayList<List<Publication>>();
+			for (int i = 0; i < getNbShards(); i++)
+				perShard.add(new ArrayList<Publication>());
+			for (Publication member : level)
+				perShard.get(member.getReferenceId() == null ? 0 : getShardIndex(member.getReferenceId())).add(member);
+			List<Publication> nextLevel = new ArrayList<Publication>();
+			for (List<Publication> part : scatter(getNbShards(), shardIndex -> {
+				List<Publication> newCitators = new ArrayList<Publication>();
+				if (perShard.get(shardIndex).isEmpty())
+					return newCitators;
+				locks[shardIndex].readLock().lock();
+				try {
+					// the citators are read directly : the public getter copies the set
+					for (Publication member : perShard.get(shardIndex))
+						for (Publication citator : member.citedBy)
+							if (visited.add(citator))
+								newCitators.add(citator);
+				} finally {
+					locks[shardIndex].readLock().unlock();
+				}
+				return newCitators;
+			}))
+				nextLevel.addAll(part);
+			level = nextLevel;
+		}
+		return new HashSet<Publication>(visited);
+	}
+
+	/**
+	 * take a snapshot of the citation graph of all shards (see CitationGraph), built on the pool of this database
+	 * while all shards are locked for reading
+	 *
+	 * @return	a new snapshot of all publications of this database
+	 */
+	public CitationGraph getCitationGraph() {
+		lockAllForReading();
+		try {
+			List<Publication> publications = new ArrayList<Publication>();
+			for (RefDbInstance shard : shards)
+				publications.addAll(shard.getIdTable().values());
+			return CitationGraph.of(publications, getPool());
+		} catch (InputFieldNotSpecifiedException e) {
+			assert false; // cannot occur
+			throw new IllegalStateException(e);
+		} finally {
+			unlockAllForReading();
+		}
+	}
+
+	/**
+	 * check the invariants of all shards (see RefDbChecker.checkAll()), one shard at a time under its read lock
+	 *
+	 * @return	a complete report of the violations of all shards
+	 */
+	public InvariantReport checkAll() {
+		long start = System.nanoTime();
+		List<InvariantViolation> violations = new ArrayList<InvariantViolation>();
+		long nbChecked = 0;
+		for (int i = 0; i < getNbShards(); i++) {
+			locks[i].readLock().lock();
+			try {
+				InvariantReport report = shards[i].getInvariantChecker().checkAll();
+				violations.addAll(report.getViolations());
+				nbChecked += report.getNbChecked();
+			} finally {
+				locks[i].readLock().unlock();
+			}
+		}
+		return new InvariantReport(violations, nbChecked, true, System.nanoTime() - start);
+	}
+
+	/**
+	 * run the given task for every index in [0, nb) in parallel on the pool of this database
+	 *
+	 * @return	the results of the task, in index order
+	 */
+	private <T> List<T> scatter(int nb, IntFunction<T> task) {
+		return getPool().invoke(new ScatterTask<T>(task, 0, nb));
+	}
+
+	/**
+	 * A class of tasks that split a range of indexes in halves until one index is left, and gather the results in order
+	 */
+	private static final class ScatterTask<T> extends RecursiveTask<List<T>> {
+
+		private static final long serialVersionUID = 1L;
+
+		ScatterTask(IntFunction<T> task, int from, int to) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+		}
+
+		private final IntFunction<T> task;
+		private final int from;
+		private final int to;
+
+		@Override
+		protected List<T> compute() {
+			if (to - from <= 1) {
+				List<T> result = new ArrayList<T>(1);
+				if (to > from)
+					result.add(task.apply(from));
+				return result;
+			}
+			int middle = (from + to) >>> 1;
+			ScatterTask<T> right = new ScatterTask<T>(task, middle, to);
+			right.fork();
+			List<T> result = new ArrayList<T>(new ScatterTask<T>(task, from, middle).compute());
+			result.addAll(right.join());
+			return result;
+		}
+	}
+
+	private void lockAll() {
+		for (ReentrantReadWriteLock lock : locks)
+			lock.writeLock().lock();
+	}
+
+	private void unlockAll() {
+		for (int i = locks.length - 1; i >= 0; i--)
+			locks[i].writeLock().unlock();
+	}
+
+	private void lockAllForReading() {
+		for (ReentrantReadWriteLock lock : locks)
+			lock.readLock().lock();
+	}
+
+	private void unlockAllForReading() {
+		for (int i = locks.length - 1; i >= 0; i--)
+			locks[i].readLock().unlock();
+	}
+}
@@ -0,0 +1,35 @@
+package publicationRefDb;
+
+/**
+ * A class of results of a similarity query (CitationSimilarity) : a publication with the strength of its
+ * similarity to the queried publication (the number of shared citators or shared citations)
+ */
+public final class SimilarPublication {
+
+	SimilarPublication(Publication publication, int strength) {
+		this.publication = publication;
+		this.strength = strength;
+	}
+
+	private final Publication publication;
+	private final int strength;
+
+	/**
+	 * get the similar publication
+	 */
+	public Publication getPublication() {
+		return publication;
+	}
+
+	/**
+	 * get the strength of the similarity : the number of shared citators (co-citation) or shared citations (coupling)
+	 */
+	public int getStrength() {
+		return strength;
+	}
+
+	@Override
+	public String toString() {
+		return publication.getReferenceId() + " (" + strength + ")";
+	}
+}
@@ -0,0 +1,138 @@
+package publicationRefDb;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A class of the pool of canonical strings shared by all publications for the strings that repeat over a corpus :
+ * the names of journals, conferences and publishers (canonical()), and the last and first names of the authors
+ * (canonicalIfRepeated()).  The pool gives the one instance equal to a given string, so a venue or a name that occurs
+ * in a million publications is held once.  A string that no publication refers to any more is dropped from the pool
+ * by the garbage collector.  Since the strings of a pool are never copied, they are stored as compactly as any
+ * string : one byte per character for the strings in Latin-1 (the compact strings of the JVM).
+ *
+ * An entry of the pool costs about 80 bytes (an entry of a weak map and a weak reference), more than a short string
+ * that occurs once.  Most venues repeat, but many name parts occur once in a corpus : a name part only enters the
+ * pool when it is seen a second time, as recorded in a filter of SEEN_BITS bits (one bit per hash).  A name part 
+ * seen once enters the pool as well when its bit was set by another one : to keep that below one in eight, the 
+ * filter is cleared whenever MAX_SEEN bits are set.  So a name part is pooled if it is seen again within about a 
+ * million other new name parts (and stays pooled while it is in use); one that repeats less often, in a corpus of 
+ * tens of millions of distinct name parts, is not shared.
+ *
+ * The pool is split in STRIPES maps by hash, each with its own lock, so many threads can build publications at a
+ * time.
+ */
+final class StringPool {
+
+	private static final int STRIPES = 16;
+
+	private static final List<Map<String, WeakReference<String>>> stripes =
+			new ArrayList<Map<String, WeakReference<String>>>(STRIPES);
+
+	static {
+		for (int i = 0; i < STRIPES; i++)
+			stripes.add(new WeakHashMap<String, WeakReference<String>>());
+	}
+
+	/**
+	 * the number of bits of the filter of strings seen once (1 MB)
+	 */
+	private static final int SEEN_BITS = 1 << 23;
+
+	private static final AtomicLongArray seen = new AtomicLongArray(SEEN_BITS / 64);
+
+	/**
+	 * the number of bits set in the filter after which it is cleared (one in eight)
+	 */
+	private static final int MAX_SEEN = SEEN_BITS / 8;
+
+	private static final AtomicInteger nbSeen = new AtomicInteger();
+
+	private StringPool() {
+	}
+
+	/**
+	 * get the canonical instance of the given string, adding it to the pool if it has none
+	 *
+	 * @param 	string
+	 * 			the string (null is given back as is)
+	 * @return	the instance of the pool equal to the given string
+	 */
+	static String canonical(String string) {
+		if (string == null)
+			return null;
+		return lookUp(string, true);
+	}
+
+	/**
+	 * get the canonical instance of the given string, adding it to the pool if it has none and it was seen before
+	 *
+	 * @param 	string
+	 * 			the string (null is given back as is)
+	 * @return	the instance of the pool equal to the given string, or the given string if it is seen for the first time
+	 */
+	static String canonicalIfRepeated(String string) {
+		if (string == null)
+			return null;
+		int bit = mix(string.hashCode()) & (SEEN_BITS - 1);
+		long mask = 1L << bit;
+		boolean seenBefore = (seen.getAndAccumulate(bit >>> 6, mask, (bits, added) -> bits | added) & mask) != 0;
+		if (!seenBefore && nbSeen.incrementAndGet() >= MAX_SEEN)
+			clearSeen();
+		return lookUp(string, seenBefore);
+	}
+
+	/**
+	 * clear the filter of strings seen once (the bits set meanwhile by other threads may be lost : those strings are 
+	 * pooled one sighting later)
+	 */
+	private static synchronized void clearSeen() {
+		if (nbSeen.get() < MAX_SEEN)
+			return;
+		for (int i = 0; i < seen.length(); i++)
+			seen.set(i, 0);
+		nbSeen.set(0);
+	}
+
+	private static String lookUp(String string, boolean adding) {
+		Map<String, WeakReference<String>> stripe = stripes.get(mix(string.hashCode()) >>> 28);
+		synchronized (stripe) {
+			WeakReference<String> reference = stripe.get(string);
+			String canonical = reference == null ? null : reference.get();
+			if (canonical != null)
+				return canonical;
+			if (adding)
+				stripe.put(string, new WeakReference<String>(string));
+			return string;
+		}
+	}
+
+	/**
+	 * spread the bits of the given hash over all bits (the finalizer of MurmurHash3), since the hashes of similar 
+	 * strings differ in few bits
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * get the number of strings in the pool (some of which may no longer be in use)
+	 */
+	static int size() {
+		int size = 0;
+		for (Map<String, WeakReference<String>> stripe : stripes)
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		return size;
+	}
+}
@@ -0,0 +1,16 @@
+package publicationRefDb;
+
+public class TenantIdNotValidException extends InputFieldNotValidException
+ {
+	String errMsg;
+
+	TenantIdNotValidException(String tenantId){
+		this.errMsg= "not a valid tenant id : " + tenantId;
+	}
+	/**
+	 * @return the errMsg
+	 */
+	public String getErrMsg() {
+		return errMsg;
+	}
+}
@@ -0,0 +1,310 @@
+package publicationRefDb;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class of read-only reference databases in two tiers, for corpora that do not fit in the heap :
+ * 		cold	all publications, in a segment file of a PublicationColumnStore mapped in memory : the operating system
+ * 				pages it in and out, so the corpus can be much larger than the heap (and than the memory)
+ * 		hot		the publications asked for lately, as immutable PublicationRecords in the heap, up to a heap budget
+ * getPublicationById() returns the hot record, or loads it from the cold tier first (it then becomes hot) : a hot
+ * record is handed out as is, without decoding the columns of the segment file again.  When the hot records hold 
+ * more than the heap budget, the least recently used ones are dropped from the heap (CLOCK policy : a record asked 
+ * for again since the last pass of the clock hand is kept one more pass).
+ * A dropped record stays in the cold tier, and is loaded again by the next getPublicationById().
+ *
+ * The publications refer to each other by ID only : the hot records have no citations, and the citations and
+ * citators of a publication are given as IDs (getCitationIds(), getCitatorIds()), as are the results of the
+ * indexes (getIdsByAuthorName(), getIdsByTitleWord(), with the same keys as the indexes of RefDb).  Every query is 
+ * answered by the cold tier, hot or not.
+ *
+ * The database is read only : it is built from a source reference database (create()), and rebuilt to follow its
+ * changes.  The records cannot be changed, so they can be shared by all callers (PublicationRecord.toPublication() 
+ * gives a new, unregistered publication to change).
+ * All methods can be called by many threads at a time.
+ *
+ * @invar	the hot records have the fields and authors of the publication of the cold tier with their ID
+ * @invar	the estimated footprint of the hot records is at most the heap budget, unless there is only one
+ */
+public final class TieredRefDb {
+
+	/**
+	 * write all publications of the given reference database to the given segment file, and open it
+	 *
+	 * @param 	source
+	 * 			the reference database (must not change while it is written)
+	 * @param 	segment
+	 * 			the segment file (replaced if it exists)
+	 * @param 	heapBudget
+	 * 			the estimated number of bytes the hot records may hold in the heap
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the reference database or the segment file is null
+	 * @throws 	InputFieldNotValidException
+	 * 			the heap budget is not positive
+	 * @throws 	IOException
+	 * 			the segment file cannot be written or read
+	 * @return	the tiered database, without hot records
+	 */
+	public static TieredRefDb create(RefDbInstance source, Path segment, long heapBudget)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException, IOException {
+		if (source == null || segment == null)
+			throw new InputFieldNotSpecifiedException();
+		checkHeapBudget(heapBudget);
+		PublicationColumnStore.of(source).write(segment);
+		return open(segment, heapBudget);
+	}
+
+	/**
+	 * open the given segment file (written by create() or PublicationColumnStore.write())
+	 *
+	 * @param 	segment
+	 * 			the segment file
+	 * @param 	heapBudget
+	 * 			the estimated number of bytes the hot records may hold in the heap
+	 * @throws 	InputFieldNotSpecifiedException
+	 * 			the segment file is null
+	 * @throws 	InputFieldNotValidException
+	 * 			the heap budget is not positive
+	 * @throws 	IOException
+	 * 			the segment file cannot be read
+	 * @return	the tiered database, without hot records
+	 */
+	public static TieredRefDb open(Path segment, long heapBudget)
+			throws InputFieldNotSpecifiedException, InputFieldNotValidException, IOException {
+		if (segment == null)
+			throw new InputFieldNotSpecifiedException();
+		checkHeapBudget(heapBudget);
+		return new TieredRefDb(PublicationColumnStore.open(segment), heapBudget);
+	}
+
+	private TieredRefDb(PublicationColumnStore store, long heapBudget) {
+		this.store = store;
+		this.heapBudget = heapBudget;
+	}
+
+	private static void checkHeapBudget(long heapBudget) throws InputFieldNotValidException {
+		if (heapBudget <= 0)
+			throw new InputFieldNotValidException();
+	}
+
+	/**
+	 * get the cold tier of this database
+	 */
+	public PublicationColumnStore getStore() {
+		return store;
+	}
+
+	private final PublicationColumnStore store;
+
+	/**
+	 * the clock : the ID, the record, the reference bit and the estimated footprint of every hot record, per slot, 
+	 * and the slot of every hot ID.  The slots 0..nbResident-1 are in use.
+	 */
+	private String[] slotIds = new String[16];
+	private PublicationRecord[] slotRecords = new PublicationRecord[16];
+	private boolean[] referenced = new boolean[16];
+	private long[] footprints = new long[16];
+	private final Map<String, Integer> slots = new HashMap<String, Integer>();
+	private int hand;
+
+	/**
+	 * get the number of publications of this database
+	 */
+	public int getNbPublications() {
+		return store.getNbPublications();
+	}
+
+	/**
+	 * get the publication with the given ID, loading it from the cold tier if it is not hot
+	 *
+	 * @param 	id
+	 * 			the ID of the publication
+	 * @return	the record of the publication with the given ID (without citations, see getCitationIds()), or null if 
+	 * 			there is none with the given ID
+	 * @post	the record is hot, and the footprint of the hot records is within the heap budget
+	 */
+	public synchronized PublicationRecord getPublicationById(String id) {
+		if (id == null)
+			return null;
+		id = id.trim();
+		Integer slot = slots.get(id);
+		if (slot != null) {
+			nbHits++;
+			referenced[slot] = true;
+			return slotRecords[slot];
+		}
+		PublicationView view = store.getPublicationById(id);
+		if (view == null)
+			return null;
+		nbMisses++;
+		PublicationRecord record = new PublicationRecord(view);
+		long footprint = record.estimateMemoryFootprint();
+		evict(footprint, 0);
+		addSlot(id, record, footprint);
+		return record;
+	}
+
+	private void addSlot(String id, PublicationRecord record, long footprint) {
+		if (nbResident == slotIds.length) {
+			slotIds = Arrays.copyOf(slotIds, 2 * nbResident);
+			slotRecords = Arrays.copyOf(slotRecords, 2 * nbResident);
+			referenced = Arrays.copyOf(referenced, 2 * nbResident);
+			footprints = Arrays.copyOf(footprints, 2 * nbResident);
+		}
+		slotIds[nbResident] = id;
+		slotRecords[nbResident] = record;
+		referenced[nbResident] = true;
+		footprints[nbResident] = footprint;
+		slots.put(id, nbResident);
+		nbResident++;
+		residentFootprint += footprint;
+	}
+
+	/**
+	 * drop hot records until the given number of bytes more fit within the heap budget, or only the given number of
+	 * hot records is left : the clock hand clears the reference bit of the slots it passes, and drops the first record
+	 * whose bit is clear
+	 */
+	private void evict(long room, int nbKept) {
+		while (residentFootprint + room > heapBudget && nbResident > nbKept) {
+			if (hand >= nbResident)
+				hand = 0;
+			if (referenced[hand]) {
+				referenced[hand] = false;
+				hand++;
+			} else {
+				slots.remove(slotIds[hand]);
+				residentFootprint -= footprints[hand];
+				// the last slot fills the hole, and is looked at next
+				nbResident--;
+				slotIds[hand] = slotIds[nbResident];
+				slotRecords[hand] = slotRecords[nbResident];
+				referenced[hand] = referenced[nbResident];
+				footprints[hand] = footprints[nbResident];
+				slotIds[nbResident] = null;
+				slotRecords[nbResident] = null;
+				if (hand < nbResident)
+					slots.put(slotIds[hand], hand);
+				nbEvictions++;
+			}
+		}
+	}
+
+	/**
+	 * get the IDs of the publications that the publication with the given ID cites, in ascending ID
+	 *
+	 * @return	the IDs (empty if there is no publication with the given ID)
+	 */
+	public List<String> getCitationIds(String id) {
+		PublicationView view = store.getPublicationById(id);
+		return view == null ? new ArrayList<String>() : toIds(view.getAllCitations());
+	}
+
+	/**
+	 * get the IDs of the publications that cite the publication with the given ID, in ascending ID
+	 *
+	 * @return	the IDs (empty if there is no publication with the given ID)
+	 */
+	public List<String> getCitatorIds(String id) {
+		PublicationView view = store.getPublicationById(id);
+		return view == null ? new ArrayList<String>() : toIds(view.getAllCitators());
+	}
+
+	/**
+	 * get the IDs of the publications of the given author, given as the key of the author index (e.g. M. L. King, see
+	 * RefDb.getPublicationsByAuthorName()), in ascending ID
+	 *
+	 * @throws 	AuthorNameIsNullException
+	 */
+	public List<String> getIdsByAuthorName(String authorName) throws AuthorNameIsNullException {
+		return toIds(store.getPublicationsByAuthorKey(authorName));
+	}
+
+	/**
+	 * get the IDs of the publications with the given word in their title, in ascending ID
+	 *
+	 * @throws 	WordIsNullException
+	 */
+	public List<String> getIdsByTitleWord(String word) throws WordIsNullException {
+		return toIds(store.getPublicationsByTitleWord(word));
+	}
+
+	private static List<String> toIds(List<PublicationView> views) {
+		List<String> ids = new ArrayList<String>(views.size());
+		for (PublicationView view : views)
+			ids.add(view.getReferenceId());
+		return ids;
+	}
+
+	/**
+	 * get the estimated number of bytes the hot records may hold in the heap
+	 */
+	public synchronized long getHeapBudget() {
+		return heapBudget;
+	}
+
+	/**
+	 * set the heap budget, dropping hot records if they hold more
+	 *
+	 * @throws 	InputFieldNotValidException
+	 * 			the heap budget is not positive
+	 */
+	public synchronized void setHeapBudget(long heapBudget) throws InputFieldNotValidException {
+		checkHeapBudget(heapBudget);
+		this.heapBudget = heapBudget;
+		evict(0, 1);
+	}
+
+	private long heapBudget;
+
+	/**
+	 * get the number of hot records
+	 */
+	public synchronized int getNbResident() {
+		return nbResident;
+	}
+
+	private int nbResident;
+
+	/**
+	 * get the estimated number of bytes held by the hot records (see PublicationRecord.estimateMemoryFootprint())
+	 */
+	public synchronized long getResidentFootprint() {
+		return residentFootprint;
+	}
+
+	private long residentFootprint;
+
+	/**
+	 * get the number of calls of getPublicationById() that found a hot record
+	 */
+	public synchronized long getNbHits() {
+		return nbHits;
+	}
+
+	private long nbHits;
+
+	/**
+	 * get the number of calls of getPublicationById() that loaded a publication from the cold tier
+	 */
+	public synchronized long getNbMisses() {
+		return nbMisses;
+	}
+
+	private long nbMisses;
+
+	/**
+	 * get the number of records dropped from the heap
+	 */
+	public synchronized long getNbEvictions() {
+		return nbEvictions;
+	}
+
+	private long nbEvictions;
+}
@@ -0,0 +1,21 @@
+package publicationRefDb;
+
+/**
+ * thrown by RefDbTransaction.commit() when one of its operations fails : the operations before it are rolled back, 
+ * and the cause is the exception of the failed operation
+ */
+public class TransactionFailedException extends Exception {
+	private final int operationNumber;
+
+	TransactionFailedException(int operationNumber, Exception cause) {
+		super(cause);
+		this.operationNumber = operationNumber;
+	}
+
+	/**
+	 * @return the number of the failed operation in the transaction (from 1)
+	 */
+	public int getOperationNumber() {
+		return operationNumber;
+	}
+}
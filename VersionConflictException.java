@@ -0,0 +1,38 @@
+package publicationRefDb;
+
+/**
+ * thrown by a conditional update when the publication changed since the expected version was read, or another 
+ * conditional update holds it
+ */
+public class VersionConflictException extends Exception {
+	private final String id;
+	private final long expectedVersion;
+	private final long version;
+
+	VersionConflictException(String id, long expectedVersion, long version) {
+		this.id = id;
+		this.expectedVersion = expectedVersion;
+		this.version = version;
+	}
+
+	/**
+	 * @return the ID of the publication
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the version the update expected
+	 */
+	public long getExpectedVersion() {
+		return expectedVersion;
+	}
+
+	/**
+	 * @return the version of the publication when the update failed
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
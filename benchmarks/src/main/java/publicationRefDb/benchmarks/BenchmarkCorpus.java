@@ -0,0 +1,104 @@
+package publicationRefDb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.StringTokenizer;
+
+import publicationRefDb.CorpusGenerator;
+import publicationRefDb.Publication;
+import publicationRefDb.RefDb;
+
+/**
+ * A class of deterministic corpora for the benchmarks, generated by CorpusGenerator.
+ * The corpus is registered in the (static) reference database, so every benchmark trial must run 
+ * in its own fork (the default of JMH).
+ */
+public final class BenchmarkCorpus {
+
+	private static final int NB_QUERY_KEYS = 1000;
+
+	/**
+	 * populate the reference database with the corpus of the given seed and size, with the given mean number
+	 * of citations per publication
+	 * 
+	 * @param 	seed
+	 * 			the seed of the corpus
+	 * @param 	corpusSize
+	 * 			the number of publications to register
+	 * @param 	citationsPerPublication
+	 * 			the mean number of publications cited by every publication
+	 * @return	the corpus that was registered
+	 */
+	public static BenchmarkCorpus populate(long seed, int corpusSize, int citationsPerPublication) throws Exception {
+		if (RefDb.getNbPublications() != 0)
+			throw new IllegalStateException("the reference database is not empty : run the benchmarks forked");
+		return new BenchmarkCorpus(seed, corpusSize, citationsPerPublication);
+	}
+
+	private BenchmarkCorpus(long seed, int corpusSize, int citationsPerPublication) throws Exception {
+		generator = new CorpusGenerator(seed, corpusSize);
+		generator.setMeanCitations(citationsPerPublication);
+		for (String id : generator.populateRefDb()) {
+			if (id != null)
+				ids.add(id);
+		}
+
+		// the query keys follow the same Zipfian distributions as the corpus, so frequent words and
+		// prolific authors are queried more often
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < NB_QUERY_KEYS; i++) {
+			Publication publication = RefDb.getPublicationById(ids.get(random.nextInt(ids.size())));
+			String[] titleWords = publication.getTitle().split(RefDb.RegexWordSplit);
+			vocabulary.add(titleWords[random.nextInt(titleWords.length)]);
+			String authorName = publication.getAuthorAt(1 + random.nextInt(publication.getNbAuthors()));
+			authorNames.add(authorName);
+			authorKeys.add(toAuthorKey(authorName));
+		}
+	}
+
+	/**
+	 * create a new, unregistered publication with the distribution of the corpus 
+	 * (the given number is counted from the end of the corpus)
+	 */
+	public Publication newPublication(long number) {
+		return generator.generatePublication(generator.getNbPublications() + number);
+	}
+
+	/**
+	 * the author name in the format of the author index ("Adams, Douglas" -> "D. Adams")
+	 */
+	private static String toAuthorKey(String authorName) {
+		String[] nameSplit = authorName.split(",");
+		StringBuilder sb = new StringBuilder();
+		StringTokenizer st = new StringTokenizer(nameSplit[1], " ");
+		while (st.hasMoreTokens()) {
+			sb.append(st.nextToken().substring(0, 1).toUpperCase());
+			sb.append(". ");
+		}
+		return sb.append(nameSplit[0].trim()).toString();
+	}
+
+	private final CorpusGenerator generator;
+
+	/**
+	 * the IDs of all registered publications
+	 */
+	public final List<String> ids = new ArrayList<String>();
+
+	/**
+	 * title words to query
+	 */
+	public final List<String> vocabulary = new ArrayList<String>();
+
+	/**
+	 * author names to query, in default name format ("Adams, Douglas")
+	 */
+	public final List<String> authorNames = new ArrayList<String>();
+
+	/**
+	 * author names to query, in the format of the author index ("D. Adams")
+	 */
+	public final List<String> authorKeys = new ArrayList<String>();
+
+}
@@ -0,0 +1,41 @@
+package publicationRefDb.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import publicationRefDb.AuthorNotInDbException;
+import publicationRefDb.Publication;
+import publicationRefDb.RefDb;
+
+/**
+ * Benchmarks for the queries over the citation graph.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CitationBenchmark {
+
+	@Benchmark
+	public double getCitationIndex(CorpusState state, CursorState cursor) throws Exception {
+		try {
+			return RefDb.getCitationIndex(state.corpus.authorNames.get(cursor.next(state.corpus.authorNames.size())));
+		} catch (AuthorNotInDbException e) {
+			return 0;
+		}
+	}
+
+	@Benchmark
+	public Set<Publication> getTransitiveClosureCitedBy(CorpusState state, CursorState cursor) {
+		return RefDb.getTransitiveClosureCitedBy(RefDb.getPublicationById(state.corpus.ids.get(cursor.next(state.corpus.ids.size()))));
+	}
+}
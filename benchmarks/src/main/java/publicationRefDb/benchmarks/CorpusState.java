@@ -0,0 +1,31 @@
+package publicationRefDb.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The shared benchmark state : a reference database populated with the generated corpus of the given seed, 
+ * size and citation density.  Use the same seed to compare runs.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+	// registering a corpus costs O(n^2) in the duplicate check of addPublicationToDb(), which bounds the sizes here
+	@Param({ "1000", "10000", "30000" })
+	public int corpusSize;
+
+	@Param({ "0", "4", "16" })
+	public int citationsPerPublication;
+
+	@Param({ "42" })
+	public long seed;
+
+	public BenchmarkCorpus corpus;
+
+	@Setup
+	public void setUp() throws Exception {
+		corpus = BenchmarkCorpus.populate(seed, corpusSize, citationsPerPublication);
+	}
+}
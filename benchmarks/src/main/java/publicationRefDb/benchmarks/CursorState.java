@@ -0,0 +1,31 @@
+package publicationRefDb.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A per-thread round robin cursor, so successive invocations hit different keys, 
+ * and a per-thread counter for generated publications.
+ */
+@State(Scope.Thread)
+public class CursorState {
+
+	private int position;
+
+	private long generated;
+
+	/**
+	 * get the number of the next publication to generate
+	 */
+	public long nextGenerated() {
+		return generated++;
+	}
+
+	/**
+	 * get the next position, wrapping around at the given size
+	 */
+	public int next(int size) {
+		position = (position + 1) % size;
+		return position;
+	}
+}
@@ -0,0 +1,71 @@
+package publicationRefDb.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import publicationRefDb.Publication;
+import publicationRefDb.PublicationOrder;
+import publicationRefDb.PublicationPage;
+import publicationRefDb.RefDb;
+
+/**
+ * Benchmarks for the mutations and lookups that go through the idTable and the indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexBenchmark {
+
+	/**
+	 * add a new publication (including the duplicate check) and remove it again, 
+	 * so the corpus keeps its size
+	 */
+	@Benchmark
+	public String addThenRemovePublication(CorpusState state, CursorState cursor) throws Exception {
+		Publication publication = state.corpus.newPublication(cursor.nextGenerated());
+		RefDb.addPublicationToDb(publication);
+		String id = publication.getReferenceId();
+		RefDb.removePublicationFromDb(id);
+		return id;
+	}
+
+	@Benchmark
+	public Set<Publication> getPublicationsByAuthorName(CorpusState state, CursorState cursor) throws Exception {
+		return RefDb.getPublicationsByAuthorName(state.corpus.authorKeys.get(cursor.next(state.corpus.authorKeys.size())));
+	}
+
+	@Benchmark
+	public Set<Publication> getPublicationsByTitleWord(CorpusState state, CursorState cursor) throws Exception {
+		return RefDb.getPublicationsByTitleWord(state.corpus.vocabulary.get(cursor.next(state.corpus.vocabulary.size())));
+	}
+
+	/**
+	 * the first page of 20 publications for a title word (compare with getPublicationsByTitleWord)
+	 */
+	@Benchmark
+	public PublicationPage getPublicationPageByTitleWord(CorpusState state, CursorState cursor) throws Exception {
+		return RefDb.getPublicationPageByTitleWord(state.corpus.vocabulary.get(cursor.next(state.corpus.vocabulary.size())),
+				PublicationOrder.BY_ID, null, 0, 20);
+	}
+
+	/**
+	 * change the title of a registered publication, which reindexes the title words
+	 */
+	@Benchmark
+	public void setTitle(CorpusState state, CursorState cursor) throws Exception {
+		Publication publication = RefDb.getPublicationById(state.corpus.ids.get(cursor.next(state.corpus.ids.size())));
+		String title = publication.getTitle();
+		publication.setTitle(title + " " + state.corpus.vocabulary.get(0));
+		publication.setTitle(title);
+	}
+}
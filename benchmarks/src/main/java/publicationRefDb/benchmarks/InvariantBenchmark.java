@@ -0,0 +1,60 @@
+package publicationRefDb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import publicationRefDb.Publication;
+import publicationRefDb.RefDb;
+
+/**
+ * Benchmarks for the equality check and the class invariants of the reference database.
+ * The full scans are measured per invocation in milliseconds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class InvariantBenchmark {
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean isEqualTo(CorpusState state, CursorState cursor) {
+		Publication publication = RefDb.getPublicationById(state.corpus.ids.get(cursor.next(state.corpus.ids.size())));
+		Publication other = RefDb.getPublicationById(state.corpus.ids.get(cursor.next(state.corpus.ids.size())));
+		return publication.isEqualTo(other) | publication.isEqualTo(publication);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean isProperPublication(CorpusState state, CursorState cursor) {
+		return RefDb.getPublicationById(state.corpus.ids.get(cursor.next(state.corpus.ids.size()))).isProperPublication();
+	}
+
+	@Benchmark
+	public boolean hasProperIdTable(CorpusState state) {
+		return RefDb.hasProperIdTable();
+	}
+
+	@Benchmark
+	public boolean hasProperAuthorIndex(CorpusState state) {
+		return RefDb.hasProperAuthorIndex();
+	}
+
+	@Benchmark
+	public boolean hasProperTitleWordIndex(CorpusState state) {
+		return RefDb.hasProperTitleWordIndex();
+	}
+
+	@Benchmark
+	public boolean hasProperPublications(CorpusState state) {
+		return RefDb.hasProperPublications();
+	}
+}